@@ -19,10 +19,26 @@ package de.fdamken.iofacade;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import de.fdamken.iofacade.exception.InvalidCursorIOFacadeRuntimeException;
 import de.fdamken.iofacade.property.Makeable;
+import de.fdamken.iofacade.search.ContentMatch;
+import de.fdamken.iofacade.search.ContentSearch;
+import de.fdamken.iofacade.search.MultiPatternMatcher;
+import de.fdamken.iofacade.sort.ExternalSorter;
+import de.fdamken.iofacade.sort.PathOrder;
+import de.fdamken.iofacade.util.DirectorySpliterator;
+import de.fdamken.iofacade.util.DiskUsageCollector;
 import de.fdamken.iofacade.util.PathFilter;
+import de.fdamken.iofacade.watch.DirectoryListener;
+import de.fdamken.iofacade.watch.DirectoryWatch;
+import de.fdamken.iofacade.watch.PollingDirectoryWatch;
 
 /**
  * Represents a directory within a file system.
@@ -57,6 +73,118 @@ public interface Directory extends Path, Makeable {
         return this.listEntries(path -> true);
     }
 
+    /**
+     * Lists a single page of the entries within this directory that are
+     * matching the given path filter. The first page is fetched without a
+     * cursor, every further page with the cursor of the previous page.
+     *
+     * <p>
+     * By default, the cursor is the offset of the next page and every page
+     * lists the whole directory. Implementations should keep the listing open
+     * between two pages, so fetching a page only costs time and memory
+     * proportional to the page size.
+     * </p>
+     *
+     * @param filter
+     *            The {@link PathFilter} that is used to filter the results.
+     * @param pageSize
+     *            The maximum number of entries of the page. Must be positive.
+     * @param cursor
+     *            The cursor of the previous page or <code>null</code> to fetch
+     *            the first page.
+     * @return The page.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     * @throws InvalidCursorIOFacadeRuntimeException
+     *             If the given cursor is unknown or has expired.
+     */
+    default DirectoryPage listEntries(final PathFilter filter, final int pageSize, final String cursor) throws IOException,
+            FileNotFoundException, InvalidCursorIOFacadeRuntimeException {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive!");
+        }
+
+        final int offset;
+        try {
+            offset = cursor == null ? 0 : Integer.parseInt(cursor);
+        } catch (final NumberFormatException dummy) {
+            throw new InvalidCursorIOFacadeRuntimeException(cursor);
+        }
+        final List<Path> entries = this.listEntries(filter);
+        if (offset < 0 || offset > entries.size()) {
+            throw new InvalidCursorIOFacadeRuntimeException(cursor);
+        }
+        final int end = (int) Math.min((long) offset + pageSize, entries.size());
+        return new DirectoryPage(new ArrayList<Path>(entries.subList(offset, end)), end < entries.size() ? String.valueOf(end)
+                : null);
+    }
+
+    /**
+     * Streams all entries within the file tree, starting from this directory,
+     * that are matching the given path filter. Directories are listed lazily
+     * while the stream is consumed. A parallel stream lists sub-directories
+     * concurrently (see {@link DirectorySpliterator}).
+     *
+     * @param filter
+     *            The {@link PathFilter} that is used to filter the results.
+     * @return A sequential stream of the entries. Use
+     *         {@link Stream#parallel()} to list in parallel. Errors listing a
+     *         directory are thrown as {@link UncheckedIOException}.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     */
+    default Stream<Path> entryStream(final PathFilter filter) throws IOException, FileNotFoundException {
+        return StreamSupport.stream(new DirectorySpliterator(this, filter), false);
+    }
+
+    /**
+     * Streams all entries within the file tree, starting from this directory.
+     *
+     * @return A sequential stream of the entries.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     * @see #entryStream(PathFilter)
+     */
+    default Stream<Path> entryStream() throws IOException, FileNotFoundException {
+        return this.entryStream(path -> true);
+    }
+
+    /**
+     * Lists all entries within this directory that are matching the given path
+     * filter, sorted by the given order. The number of entries is not limited
+     * by the available memory, as sorted runs of entries are spilled to
+     * temporary files and merged lazily (see {@link ExternalSorter}).
+     *
+     * @param filter
+     *            The {@link PathFilter} that is used to filter the results.
+     * @param order
+     *            The order to sort the entries by, e.g.
+     *            {@link PathOrder#BY_NAME}.
+     * @return The sorted entries. The stream must be closed to delete the
+     *         temporary files.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     */
+    default Stream<Path> listEntriesSorted(final PathFilter filter, final PathOrder order) throws IOException,
+            FileNotFoundException {
+        final FileSystem fileSystem = this.getFileSystem();
+        return ExternalSorter.acquire(this).filter(filter).order(order).sort().map(record -> {
+            try {
+                return fileSystem.getPath(record.getAbsolutePath());
+            } catch (final IOException cause) {
+                throw new UncheckedIOException(cause);
+            }
+        });
+    }
+
     /**
      * Lists all entries within the file tree, starting from this directory that
      * are matching the given file filter.
@@ -84,4 +212,109 @@ public interface Directory extends Path, Makeable {
     default List<Path> listEntriesRecursive() throws IOException, FileNotFoundException {
         return this.listEntriesRecursive(path -> true);
     }
+
+    /**
+     * Computes the disk usage of the file tree, starting from this directory,
+     * counting only the paths that are matching the given path filter. The
+     * file tree is walked in parallel (see {@link DiskUsageCollector}).
+     *
+     * @param filter
+     *            The {@link PathFilter} that is used to filter the counted
+     *            paths.
+     * @param depth
+     *            The depth of the per-directory breakdown. <code>0</code> to
+     *            compute the total only, <code>1</code> to additionally break
+     *            down the direct sub-directories and so on.
+     * @return The disk usage.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     */
+    default DiskUsage usage(final PathFilter filter, final int depth) throws IOException, FileNotFoundException {
+        return DiskUsageCollector.collect(this, filter, depth);
+    }
+
+    /**
+     * Computes the total disk usage of the file tree, starting from this
+     * directory.
+     *
+     * @return The disk usage.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     * @see #usage(PathFilter, int)
+     */
+    default DiskUsage usage() throws IOException, FileNotFoundException {
+        return this.usage(path -> true, 0);
+    }
+
+    /**
+     * Searches the contents of all files within the file tree, starting from
+     * this directory, that are matching the given path filter for the given
+     * byte patterns. The files are scanned in parallel (see
+     * {@link ContentSearch}).
+     *
+     * @param filter
+     *            The {@link PathFilter} that is used to filter the searched
+     *            files.
+     * @param patterns
+     *            The patterns to search for. None of them may be empty.
+     * @param sink
+     *            The sink that receives all occurrences as soon as they are
+     *            found. This is invoked concurrently from multiple threads.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     */
+    default void search(final PathFilter filter, final List<byte[]> patterns, final Consumer<? super ContentMatch> sink)
+            throws IOException, FileNotFoundException {
+        ContentSearch.search(this, filter, MultiPatternMatcher.compile(patterns), sink);
+    }
+
+    /**
+     * Watches the file tree, starting from this directory, for changes of
+     * paths that are matching the given path filter. Directories the filter
+     * steps into are watched recursively, including directories that are
+     * created later on.
+     *
+     * <p>
+     * By default, the file tree is scanned periodically (see
+     * {@link PollingDirectoryWatch}). Implementations should use any native
+     * notification mechanism, if available.
+     * </p>
+     *
+     * @param filter
+     *            The {@link PathFilter} that is used to filter the watched
+     *            paths.
+     * @param listener
+     *            The listener that is notified about changes.
+     * @return The handle of the watch. Must be closed to stop watching.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     */
+    default DirectoryWatch watch(final PathFilter filter, final DirectoryListener listener) throws IOException,
+            FileNotFoundException {
+        return new PollingDirectoryWatch(this, filter, listener);
+    }
+
+    /**
+     * Watches the whole file tree, starting from this directory, for changes.
+     *
+     * @param listener
+     *            The listener that is notified about changes.
+     * @return The handle of the watch. Must be closed to stop watching.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     * @see #watch(PathFilter, DirectoryListener)
+     */
+    default DirectoryWatch watch(final DirectoryListener listener) throws IOException, FileNotFoundException {
+        return this.watch(path -> true, listener);
+    }
 }
@@ -0,0 +1,79 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade;
+
+import java.util.List;
+
+/**
+ * A bounded page of the entries of a directory, together with the cursor to
+ * fetch the next page.
+ *
+ * @see Directory#listEntries(de.fdamken.iofacade.util.PathFilter, int, String)
+ */
+public final class DirectoryPage {
+    /**
+     * The entries of this page.
+     *
+     */
+    private final List<Path> entries;
+    /**
+     * The opaque cursor to fetch the next page. <code>null</code> if this is
+     * the last page.
+     *
+     */
+    private final String cursor;
+
+    /**
+     * Constructor of DirectoryPage.
+     *
+     * @param entries
+     *            The entries of this page.
+     * @param cursor
+     *            The opaque cursor to fetch the next page. <code>null</code> if
+     *            this is the last page.
+     */
+    public DirectoryPage(final List<Path> entries, final String cursor) {
+        this.entries = entries;
+        this.cursor = cursor;
+    }
+
+    /**
+     *
+     * @return Whether there may be more entries. Even if this is
+     *         <code>true</code>, the next page may be empty.
+     */
+    public boolean hasMore() {
+        return this.cursor != null;
+    }
+
+    /**
+     *
+     * @return {@link #entries}.
+     */
+    public List<Path> getEntries() {
+        return this.entries;
+    }
+
+    /**
+     *
+     * @return {@link #cursor}.
+     */
+    public String getCursor() {
+        return this.cursor;
+    }
+}
@@ -0,0 +1,185 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade;
+
+import java.util.List;
+
+/**
+ * The disk usage of a file tree at the time it was computed.
+ *
+ * <p>
+ * The size histogram groups the files by the binary order of magnitude of
+ * their size: Bucket <code>0</code> counts the empty files and bucket
+ * <code>i &gt; 0</code> counts the files with a size within
+ * <code>[2<sup>i - 1</sup>, 2<sup>i</sup>)</code>.
+ * </p>
+ *
+ * @see Directory#usage(de.fdamken.iofacade.util.PathFilter, int)
+ */
+public final class DiskUsage {
+    /**
+     * The number of buckets of the size histogram.
+     *
+     */
+    public static final int HISTOGRAM_SIZE = 64;
+
+    /**
+     * The absolute path (see {@link Path#getAbsolutePath()}) of the root
+     * directory of the file tree.
+     *
+     */
+    private final String absolutePath;
+    /**
+     * The total size of all files in bytes.
+     *
+     */
+    private final long bytes;
+    /**
+     * The number of files.
+     *
+     */
+    private final long files;
+    /**
+     * The number of directories, not including the root directory itself.
+     *
+     */
+    private final long directories;
+    /**
+     * The size histogram.
+     *
+     */
+    private final long[] histogram;
+    /**
+     * The usage of the direct sub-directories, ordered by name. Empty if the
+     * breakdown depth was reached.
+     *
+     */
+    private final List<DiskUsage> children;
+
+    /**
+     * Constructor of DiskUsage.
+     *
+     * @param absolutePath
+     *            The absolute path of the root directory of the file tree.
+     * @param bytes
+     *            The total size of all files in bytes.
+     * @param files
+     *            The number of files.
+     * @param directories
+     *            The number of directories, not including the root directory
+     *            itself.
+     * @param histogram
+     *            The size histogram. Must have {@value #HISTOGRAM_SIZE}
+     *            buckets.
+     * @param children
+     *            The usage of the direct sub-directories.
+     */
+    public DiskUsage(final String absolutePath, final long bytes, final long files, final long directories,
+            final long[] histogram, final List<DiskUsage> children) {
+        if (histogram.length != DiskUsage.HISTOGRAM_SIZE) {
+            throw new IllegalArgumentException("histogram must have " + DiskUsage.HISTOGRAM_SIZE + " buckets!");
+        }
+
+        this.absolutePath = absolutePath;
+        this.bytes = bytes;
+        this.files = files;
+        this.directories = directories;
+        this.histogram = histogram.clone();
+        this.children = children;
+    }
+
+    /**
+     * Computes the histogram bucket of the given size.
+     *
+     * @param size
+     *            The size in bytes. Must not be negative.
+     * @return The index of the bucket.
+     */
+    public static int bucketOf(final long size) {
+        return DiskUsage.HISTOGRAM_SIZE - Long.numberOfLeadingZeros(size);
+    }
+
+    /**
+     *
+     * @param bucket
+     *            The index of the bucket.
+     * @return The number of files within the given bucket.
+     */
+    public long getHistogram(final int bucket) {
+        return this.histogram[bucket];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return this.absolutePath + " (" + this.bytes + " bytes, " + this.files + " files, " + this.directories
+                + " directories)";
+    }
+
+    /**
+     *
+     * @return {@link #absolutePath}.
+     */
+    public String getAbsolutePath() {
+        return this.absolutePath;
+    }
+
+    /**
+     *
+     * @return {@link #bytes}.
+     */
+    public long getBytes() {
+        return this.bytes;
+    }
+
+    /**
+     *
+     * @return {@link #files}.
+     */
+    public long getFiles() {
+        return this.files;
+    }
+
+    /**
+     *
+     * @return {@link #directories}.
+     */
+    public long getDirectories() {
+        return this.directories;
+    }
+
+    /**
+     *
+     * @return A copy of {@link #histogram}.
+     */
+    public long[] getHistogram() {
+        return this.histogram.clone();
+    }
+
+    /**
+     *
+     * @return {@link #children}.
+     */
+    public List<DiskUsage> getChildren() {
+        return this.children;
+    }
+}
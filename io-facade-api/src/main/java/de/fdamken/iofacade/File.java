@@ -21,8 +21,30 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
 
+import de.fdamken.iofacade.index.LineIndex;
+import de.fdamken.iofacade.index.LineIndexBuilder;
 import de.fdamken.iofacade.property.Makeable;
+import de.fdamken.iofacade.util.Assertion;
+import de.fdamken.iofacade.util.AtomicWriteBatch;
+import de.fdamken.iofacade.util.BlockingIoPool;
+import de.fdamken.iofacade.util.RangeInputStream;
+import de.fdamken.iofacade.util.ReadAheadInputStream;
+import de.fdamken.iofacade.util.RecordReader;
+import de.fdamken.iofacade.util.StreamSeekableByteChannel;
+import de.fdamken.iofacade.util.VectoredReader;
 
 /**
  * Represents a file within a file system.
@@ -40,6 +62,135 @@ public interface File extends Path, Makeable {
      */
     InputStream openInputStream() throws IOException, FileNotFoundException;
 
+    /**
+     * Opens a stream in order to read from this file.
+     *
+     * <p>
+     * With {@link ReadOption#READ_AHEAD}, the stream reads from a channel (see
+     * {@link #openChannel(OpenOption...)}) ahead of its consumer (see
+     * {@link ReadAheadInputStream}). Otherwise this is the same as
+     * {@link #openInputStream()}.
+     * </p>
+     *
+     * @param options
+     *            The options that specify how the stream is opened. Options
+     *            that are not {@link ReadOption ReadOptions} are ignored.
+     * @return The opened stream.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this file does not exist.
+     */
+    default InputStream openInputStream(final OpenOption... options) throws IOException, FileNotFoundException {
+        if (Arrays.asList(options).contains(ReadOption.READ_AHEAD)) {
+            return new ReadAheadInputStream(this.openChannel(StandardOpenOption.READ));
+        }
+        return this.openInputStream();
+    }
+
+    /**
+     * Reads all records of this file that are separated by the given
+     * delimiter without allocating anything per record (see
+     * {@link RecordReader}).
+     *
+     * @param delimiter
+     *            The byte that separates two records.
+     * @param consumer
+     *            Receives the records as reusable views.
+     * @return The number of records that were accepted by the consumer.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this file does not exist.
+     */
+    default long forEachRecord(final byte delimiter, final RecordReader.RecordConsumer consumer) throws IOException,
+            FileNotFoundException {
+        try (SeekableByteChannel channel = this.openChannel(StandardOpenOption.READ)) {
+            return RecordReader.read(channel, delimiter, consumer);
+        }
+    }
+
+    /**
+     * Reads all lines of this file without allocating anything per line (see
+     * {@link #forEachRecord(byte, RecordReader.RecordConsumer)}). Lines are
+     * terminated by <code>\n</code> or <code>\r\n</code>, the terminators
+     * are not part of the lines.
+     *
+     * @param consumer
+     *            Receives the lines as reusable views.
+     * @return The number of lines that were accepted by the consumer.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this file does not exist.
+     */
+    default long forEachLine(final RecordReader.RecordConsumer consumer) throws IOException, FileNotFoundException {
+        Assertion.acquire(consumer).named("consumer").notNull();
+
+        return this.forEachRecord((byte) '\n', record -> {
+            if (record.hasRemaining() && record.get(record.limit() - 1) == '\r') {
+                record.limit(record.limit() - 1);
+            }
+            return consumer.accept(record);
+        });
+    }
+
+    /**
+     * Builds an index of the line offsets of this file with the default
+     * settings (see {@link LineIndexBuilder}), so single lines can be read
+     * without scanning the file from its start.
+     *
+     * @return The index. It is cached in memory, so calling this again only
+     *         extends the index by the lines that were appended meanwhile.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this file does not exist.
+     */
+    default LineIndex lineIndex() throws IOException, FileNotFoundException {
+        return LineIndexBuilder.acquire(this).build();
+    }
+
+    /**
+     * Opens a stream in order to read a range of this file.
+     *
+     * <p>
+     * By default, the stream reads from a channel (see
+     * {@link #openChannel(OpenOption...)}) that is positioned at the start of
+     * the range. Hence the costs depend on the length of the range only, if
+     * the channel can seek natively. Implementations should override this, if
+     * they can request ranges more efficiently.
+     * </p>
+     *
+     * @param offset
+     *            The position of the range within this file.
+     * @param length
+     *            The maximum length of the range in bytes. If this file ends
+     *            before, the stream ends there, too.
+     * @return The opened stream.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this file does not exist.
+     */
+    default InputStream openInputStream(final long offset, final long length) throws IOException, FileNotFoundException {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative!");
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("length must not be negative!");
+        }
+
+        final SeekableByteChannel channel = this.openChannel(StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+        } catch (final IOException | RuntimeException cause) {
+            channel.close();
+            throw cause;
+        }
+        return new RangeInputStream(Channels.newInputStream(channel), length);
+    }
+
     /**
      * Opens a stream in order to write to this file.
      *
@@ -50,4 +201,353 @@ public interface File extends Path, Makeable {
      *             If this file does not exist.
      */
     OutputStream openOutputStream() throws IOException, FileNotFoundException;
+
+    /**
+     * Opens a stream in order to write to this file.
+     *
+     * <p>
+     * By default, appending streams write into a channel (see
+     * {@link #openChannel(OpenOption...)}).
+     * </p>
+     *
+     * @param mode
+     *            Whether to truncate this file or to append to it.
+     * @return The opened stream.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this file does not exist.
+     */
+    default OutputStream openOutputStream(final WriteMode mode) throws IOException, FileNotFoundException {
+        Assertion.acquire(mode).named("mode").notNull();
+
+        if (mode == WriteMode.APPEND) {
+            return Channels.newOutputStream(this.openChannel(StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+        }
+        return this.openOutputStream();
+    }
+
+    /**
+     * Replaces the content of this file atomically, i.e. readers either see
+     * the old or the new content, but never a part of the new one. This file
+     * is created, if necessary.
+     *
+     * <p>
+     * The content is written into a temporary file next to this file, which
+     * is forced to the storage device (see {@link Path#sync()}) and then moved
+     * over this file. Afterwards, the parent directory is forced in order to
+     * make the replacement durable.
+     * </p>
+     * <p>
+     * The replacement is only atomic if the implementation can rename over an
+     * existing file. The default implementation cannot (see
+     * {@link #writeAtomically(ContentWriter, boolean)}).
+     * </p>
+     *
+     * @param writer
+     *            Writes the new content.
+     * @throws IOException
+     *             If any I/O error occurs. This file is unchanged, then, unless
+     *             the replacement is not atomic (see
+     *             {@link #writeAtomically(ContentWriter, boolean)}).
+     */
+    default void writeAtomically(final ContentWriter writer) throws IOException {
+        this.writeAtomically(writer, true);
+    }
+
+    /**
+     * Replaces the content of this file atomically (see
+     * {@link #writeAtomically(ContentWriter)}).
+     *
+     * <p>
+     * <b>By default, the replacement is not atomic:</b> The temporary file is
+     * moved by {@link FileSystem#move(Path, Path, boolean)}, which deletes this
+     * file before it moves the temporary file. So readers may briefly see no
+     * file at all, and if the move fails after the deletion, this file is
+     * gone. In that case the temporary file is kept, so the new content is not
+     * lost, and its path is attached to the thrown exception as a suppressed
+     * exception. Implementations must override this method with a native
+     * rename over the existing file, if available.
+     * </p>
+     *
+     * @param writer
+     *            Writes the new content.
+     * @param syncDirectory
+     *            Whether to force the parent directory afterwards. If many
+     *            files are written together, this can be done once for all of
+     *            them (see {@link AtomicWriteBatch}).
+     * @throws IOException
+     *             If any I/O error occurs. This file is unchanged, then, unless
+     *             the default move failed after deleting it (see above).
+     */
+    default void writeAtomically(final ContentWriter writer, final boolean syncDirectory) throws IOException {
+        Assertion.acquire(writer).named("writer").notNull();
+
+        final FileSystem fileSystem = this.getFileSystem();
+        final String absolutePath = this.getAbsolutePath();
+        final String parentPath = absolutePath.substring(0, absolutePath.lastIndexOf('/') + 1);
+        final File temp = fileSystem.getPath(
+                parentPath + "." + this.getName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp")
+                .asFile();
+        temp.create();
+        boolean moving = false;
+        try {
+            try (OutputStream out = temp.openOutputStream()) {
+                writer.write(out);
+            }
+            temp.sync();
+            moving = true;
+            fileSystem.move(temp, this, true);
+        } catch (final IOException | RuntimeException cause) {
+            try {
+                if (moving && !this.exists() && temp.exists()) {
+                    cause.addSuppressed(new IOException("The new content of " + absolutePath + " was kept in "
+                            + temp.getAbsolutePath() + "!"));
+                } else {
+                    temp.deleteIfExists();
+                }
+            } catch (final IOException suppressed) {
+                cause.addSuppressed(suppressed);
+            }
+            throw cause;
+        }
+        if (syncDirectory) {
+            fileSystem.getPath(parentPath).sync();
+        }
+    }
+
+    /**
+     * Opens a channel in order to access this file randomly.
+     *
+     * <p>
+     * By default, the channel is emulated on top of the streams of this file
+     * (see {@link StreamSeekableByteChannel}). Implementations should provide
+     * native random access, if available.
+     * </p>
+     *
+     * @param options
+     *            The options that specify how the file is opened (see
+     *            {@link StandardOpenOption}). If no option is given, the file
+     *            is opened for reading.
+     * @return The opened channel.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this file does not exist and should not be created.
+     */
+    default SeekableByteChannel openChannel(final OpenOption... options) throws IOException, FileNotFoundException {
+        return new StreamSeekableByteChannel(this, new HashSet<OpenOption>(Arrays.asList(options)));
+    }
+
+    /**
+     * Maps a region of this file into memory. If this file is not accessed
+     * through a {@link java.nio.channels.FileChannel} (see
+     * {@link #openChannel(OpenOption...)}), the region can not be mapped and
+     * is loaded into off-heap memory instead. See {@link MappedRegion} for
+     * details.
+     *
+     * @param offset
+     *            The position of the region within this file.
+     * @param length
+     *            The length of the region in bytes. May exceed 2 GiB.
+     * @param mode
+     *            The mode to map the region with. A
+     *            {@link java.nio.channels.FileChannel.MapMode#READ_WRITE}
+     *            region that exceeds this file grows it.
+     * @return The region. Must be closed in order to unmap it.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this file does not exist.
+     */
+    default MappedRegion map(final long offset, final long length, final FileChannel.MapMode mode) throws IOException,
+            FileNotFoundException {
+        Assertion.acquire(mode).named("mode").notNull();
+
+        final SeekableByteChannel channel;
+        if (mode == FileChannel.MapMode.READ_ONLY) {
+            channel = this.openChannel(StandardOpenOption.READ);
+        } else {
+            channel = this.openChannel(StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return MappedRegion.create(channel, offset, length, mode);
+    }
+
+    /**
+     * Reads a sequence of bytes from this file, starting at the given
+     * position. This does not require a channel to be kept open.
+     *
+     * @param dst
+     *            The buffer to read into.
+     * @param position
+     *            The position within the file to start reading at. Must not
+     *            be negative.
+     * @return The number of bytes read, possibly zero, or <code>-1</code> if
+     *         the given position is greater than or equal to the size of this
+     *         file.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this file does not exist.
+     */
+    default int read(final ByteBuffer dst, final long position) throws IOException, FileNotFoundException {
+        try (SeekableByteChannel channel = this.openChannel(StandardOpenOption.READ)) {
+            return channel.position(position).read(dst);
+        }
+    }
+
+    /**
+     * Writes all remaining bytes of the given buffer into this file, starting
+     * at the given position. The file is grown, if necessary. This does not
+     * require a channel to be kept open.
+     *
+     * @param src
+     *            The buffer to write.
+     * @param position
+     *            The position within the file to start writing at. Must not
+     *            be negative.
+     * @return The number of bytes written.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this file does not exist.
+     */
+    default int write(final ByteBuffer src, final long position) throws IOException, FileNotFoundException {
+        try (SeekableByteChannel channel = this.openChannel(StandardOpenOption.WRITE)) {
+            channel.position(position);
+            int result = 0;
+            while (src.hasRemaining()) {
+                result += channel.write(src);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Reads many ranges of this file at once. Ranges that are close to each
+     * other are coalesced and all reads are issued concurrently (see
+     * {@link VectoredReader}).
+     *
+     * <p>
+     * By default, the merged ranges are read by
+     * {@link #readAsync(ByteBuffer, long)}.
+     * </p>
+     *
+     * @param ranges
+     *            The ranges to read. The data of every range is delivered
+     *            through its future (see {@link FileRange#getData()}).
+     * @param allocator
+     *            Allocates the buffers of the merged reads. Receives the
+     *            required size.
+     * @return The future that is completed as soon as all ranges are
+     *         completed. Failures are reported through the futures of the
+     *         ranges.
+     */
+    default CompletableFuture<Void> readVectored(final List<FileRange> ranges, final IntFunction<ByteBuffer> allocator) {
+        return VectoredReader.read(ranges, allocator, VectoredReader.DEFAULT_MAX_GAP, VectoredReader.DEFAULT_MAX_MERGED_SIZE,
+                this::readAsync);
+    }
+
+    /**
+     * Reads a sequence of bytes from this file asynchronously, starting at the
+     * given position (see {@link #read(ByteBuffer, long)}).
+     *
+     * <p>
+     * By default, the blocking {@link #read(ByteBuffer, long)} is executed on
+     * a dedicated I/O pool (see {@link BlockingIoPool}). Implementations
+     * should provide native asynchronous I/O, if available.
+     * </p>
+     *
+     * @param dst
+     *            The buffer to read into. Must not be accessed until the
+     *            returned future is completed.
+     * @param position
+     *            The position within the file to start reading at. Must not
+     *            be negative.
+     * @return The future that is completed with the number of bytes read,
+     *         possibly zero, or <code>-1</code> if the given position is
+     *         greater than or equal to the size of this file. If the read
+     *         fails, the future is completed exceptionally with the
+     *         {@link IOException}, i.e. a {@link FileNotFoundException} if
+     *         this file does not exist.
+     */
+    default CompletableFuture<Integer> readAsync(final ByteBuffer dst, final long position) {
+        return BlockingIoPool.submit(() -> this.read(dst, position));
+    }
+
+    /**
+     * Writes all remaining bytes of the given buffer into this file
+     * asynchronously, starting at the given position (see
+     * {@link #write(ByteBuffer, long)}).
+     *
+     * <p>
+     * By default, the blocking {@link #write(ByteBuffer, long)} is executed
+     * on a dedicated I/O pool (see {@link BlockingIoPool}). Implementations
+     * should provide native asynchronous I/O, if available.
+     * </p>
+     *
+     * @param src
+     *            The buffer to write. Must not be accessed until the returned
+     *            future is completed.
+     * @param position
+     *            The position within the file to start writing at. Must not
+     *            be negative.
+     * @return The future that is completed with the number of bytes written.
+     *         If the write fails, the future is completed exceptionally with
+     *         the {@link IOException}, i.e. a {@link FileNotFoundException} if
+     *         this file does not exist.
+     */
+    default CompletableFuture<Integer> writeAsync(final ByteBuffer src, final long position) {
+        return BlockingIoPool.submit(() -> this.write(src, position));
+    }
+
+    /**
+     * The options to open an input stream with (see
+     * {@link File#openInputStream(OpenOption...)}).
+     *
+     */
+    public static enum ReadOption implements OpenOption {
+        /**
+         * The stream reads ahead of its consumer asynchronously (see
+         * {@link ReadAheadInputStream}).
+         *
+         */
+        READ_AHEAD;
+    }
+
+    /**
+     * The modes to open an output stream with (see
+     * {@link File#openOutputStream(WriteMode)}).
+     *
+     */
+    public static enum WriteMode {
+        /**
+         * The file is truncated before anything is written.
+         *
+         */
+        TRUNCATE,
+        /**
+         * Everything is written to the end of the file.
+         *
+         */
+        APPEND;
+    }
+
+    /**
+     * Writes the content of a file (see
+     * {@link File#writeAtomically(ContentWriter)}).
+     *
+     */
+    @FunctionalInterface
+    public static interface ContentWriter {
+        /**
+         * Writes the content into the given stream.
+         *
+         * @param out
+         *            The stream to write into. It is closed by the caller.
+         * @throws IOException
+         *             If any I/O error occurs.
+         */
+        void write(OutputStream out) throws IOException;
+    }
 }
@@ -0,0 +1,111 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A range of a file that is read by
+ * {@link File#readVectored(java.util.List, java.util.function.IntFunction)}.
+ * The data is delivered through the future of the range, so every range can
+ * only be read once.
+ *
+ */
+public final class FileRange {
+    /**
+     * The position of the range within the file.
+     *
+     */
+    private final long offset;
+    /**
+     * The length of the range in bytes.
+     *
+     */
+    private final int length;
+    /**
+     * The future that is completed with the data of the range.
+     *
+     */
+    private final CompletableFuture<ByteBuffer> data = new CompletableFuture<ByteBuffer>();
+
+    /**
+     * Constructor of FileRange.
+     *
+     * @param offset
+     *            The position of the range within the file.
+     * @param length
+     *            The length of the range in bytes.
+     */
+    public FileRange(final long offset, final int length) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative!");
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("length must not be negative!");
+        }
+
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     *
+     * @return The position after the last byte of the range.
+     */
+    public long getEnd() {
+        return this.offset + this.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "FileRange[offset=" + this.offset + ", length=" + this.length + "]";
+    }
+
+    /**
+     *
+     * @return {@link #offset}.
+     */
+    public long getOffset() {
+        return this.offset;
+    }
+
+    /**
+     *
+     * @return {@link #length}.
+     */
+    public int getLength() {
+        return this.length;
+    }
+
+    /**
+     *
+     * @return {@link #data}. The buffer is positioned at zero and its limit is
+     *         the length of the range. If the file ends before the range, the
+     *         future is completed exceptionally with an
+     *         {@link java.io.EOFException}.
+     */
+    public CompletableFuture<ByteBuffer> getData() {
+        return this.data;
+    }
+}
@@ -17,12 +17,18 @@
  */
 package de.fdamken.iofacade;
 
+import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
+import java.util.Collection;
+import java.util.Map;
 
 import de.fdamken.iofacade.config.Implementation;
 import de.fdamken.iofacade.config.config.FileSystemConfig;
+import de.fdamken.iofacade.index.LineIndex;
+import de.fdamken.iofacade.util.BulkLookup;
+import de.fdamken.iofacade.util.ParallelDirectoryWalker;
 
 /**
  * This class is the basic access point for any I/O types (like basic Java IO).
@@ -35,9 +41,14 @@ import de.fdamken.iofacade.config.config.FileSystemConfig;
  * allowed in the constructor which will be automatically mapped to the set
  * {@link FileSystemConfig} in the {@link Implementation} annotation.
  * </p>
+ * <p>
+ * A file system may hold resources like thread pools that are used by
+ * operations on whole file trees. These are released by {@link #close()}, but
+ * the file system stays usable and acquires them again on demand.
+ * </p>
  *
  */
-public interface FileSystem {
+public interface FileSystem extends Closeable {
     /**
      * Creates a path for the given string representation.
      *
@@ -177,4 +188,84 @@ public interface FileSystem {
     default void move(final Path from, final Path to) throws IOException, FileNotFoundException, FileAlreadyExistsException {
         this.move(from, to, false);
     }
+
+    /**
+     * Checks the existence of many paths at once. This is much faster than
+     * invoking {@link Path#exists()} for every single path, especially for
+     * file systems with a high latency.
+     *
+     * <p>
+     * By default, the paths are probed in parallel batches. Paths that share
+     * a parent directory with many others are first looked up in a single
+     * listing of the parent, so only the paths found there are probed (see
+     * {@link BulkLookup}).
+     * </p>
+     *
+     * @param paths
+     *            The paths to check.
+     * @return Whether the paths exist, keyed by the given paths in iteration
+     *         order.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    default Map<Path, Boolean> existsAll(final Collection<? extends Path> paths) throws IOException {
+        return BulkLookup.existsAll(this, paths);
+    }
+
+    /**
+     * Reads the attributes of many paths at once. This is much faster than
+     * invoking {@link Path#getAttributes()} for every single path, especially
+     * for file systems with a high latency.
+     *
+     * <p>
+     * By default, the paths are read in parallel batches (see
+     * {@link BulkLookup}).
+     * </p>
+     *
+     * @param paths
+     *            The paths to read the attributes of.
+     * @return The attributes of the paths, keyed by the given paths in
+     *         iteration order. The value is <code>null</code> for paths that
+     *         do not exist.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    default Map<Path, PathAttributes> statAll(final Collection<? extends Path> paths) throws IOException {
+        return BulkLookup.statAll(this, paths);
+    }
+
+    /**
+     * The number of threads that may be used concurrently by operations that
+     * are working on whole file trees (i.e.
+     * {@link Directory#listEntriesRecursive(de.fdamken.iofacade.util.PathFilter)}
+     * ).
+     *
+     * <p>
+     * Implementations that are backed by high-latency storage (like a network
+     * file system) benefit from a higher parallelism as most of the time is
+     * spent waiting for I/O.
+     * </p>
+     *
+     * @return The parallelism of this file system. Always greater than zero.
+     *         Defaults to the number of available processors.
+     */
+    default int getParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Releases all resources that are held by this file system (like the
+     * fork/join pool that is used for walking file trees, see
+     * {@link ParallelDirectoryWalker#releasePool(FileSystem)}, and the cached
+     * line indexes, see {@link LineIndex#releaseCache(FileSystem)}). Running
+     * operations are completed. The file system stays usable and acquires the
+     * resources again on demand.
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    default void close() {
+        ParallelDirectoryWalker.releasePool(this);
+        LineIndex.releaseCache(this);
+    }
 }
@@ -0,0 +1,510 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+
+import de.fdamken.iofacade.util.Assertion;
+import de.fdamken.iofacade.util.BufferCleaner;
+
+/**
+ * A region of a file that is mapped into memory (see {@link File#map(long, long,
+ * java.nio.channels.FileChannel.MapMode)}).
+ *
+ * <p>
+ * A single {@link ByteBuffer} can not address more than 2 GiB, so the region
+ * is split into windows of {@value #WINDOW_SIZE} bytes. Every window maps
+ * {@value #MAX_SLICE_SIZE} bytes more than that, so slices that are not larger
+ * than {@value #MAX_SLICE_SIZE} bytes never span two windows (see
+ * {@link #slice(long, int)}).
+ * </p>
+ * <p>
+ * If the file is not accessed through a {@link FileChannel}, the region can
+ * not be mapped. Instead, it is loaded into off-heap memory. Changes of a
+ * {@link java.nio.channels.FileChannel.MapMode#READ_WRITE} region are written
+ * back when the region is forced or closed, then.
+ * </p>
+ * <p>
+ * The memory of the region is released by {@link #close()} instead of waiting
+ * for the garbage collector (see {@link BufferCleaner}). A region must not be
+ * closed while it is accessed by another thread and all slices of it must not
+ * be used after it was closed.
+ * </p>
+ *
+ */
+public final class MappedRegion implements Closeable {
+    /**
+     * The number of bytes every window starts after the previous one.
+     *
+     */
+    public static final int WINDOW_SIZE = 1 << 30;
+    /**
+     * The maximum size of a slice (see {@link #slice(long, int)}).
+     *
+     */
+    public static final int MAX_SLICE_SIZE = 1 << 20;
+
+    /**
+     * The position of the region within the file.
+     *
+     */
+    private final long offset;
+    /**
+     * The length of the region in bytes.
+     *
+     */
+    private final long length;
+    /**
+     * The mode the region was mapped with.
+     *
+     */
+    private final FileChannel.MapMode mode;
+    /**
+     * Whether the region is mapped or loaded into off-heap memory.
+     *
+     */
+    private final boolean mapped;
+    /**
+     * The windows. The window with the index <code>i</code> starts at the
+     * position <code>i * WINDOW_SIZE</code> within the region.
+     *
+     */
+    private final ByteBuffer[] windows;
+    /**
+     * The channel the changes are written back into. <code>null</code> if
+     * the region is mapped or not writable.
+     *
+     */
+    private final SeekableByteChannel channel;
+    /**
+     * Whether this region is closed.
+     *
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructor of MappedRegion.
+     *
+     * @param offset
+     *            The position of the region within the file.
+     * @param length
+     *            The length of the region in bytes.
+     * @param mode
+     *            The mode the region was mapped with.
+     * @param mapped
+     *            Whether the region is mapped or loaded into off-heap memory.
+     * @param windows
+     *            The windows.
+     * @param channel
+     *            The channel the changes are written back into.
+     */
+    private MappedRegion(final long offset, final long length, final FileChannel.MapMode mode, final boolean mapped,
+            final ByteBuffer[] windows, final SeekableByteChannel channel) {
+        this.offset = offset;
+        this.length = length;
+        this.mode = mode;
+        this.mapped = mapped;
+        this.windows = windows;
+        this.channel = channel;
+    }
+
+    /**
+     * Maps the given region of the file that is accessed through the given
+     * channel. If the channel is a {@link FileChannel}, the region is mapped.
+     * Otherwise it is loaded into off-heap memory.
+     *
+     * <p>
+     * The region takes the ownership of the channel, i.e. the channel is
+     * closed as soon as it is not needed anymore.
+     * </p>
+     *
+     * @param channel
+     *            The channel to map. Must be readable and must be writable
+     *            unless the mode is
+     *            {@link java.nio.channels.FileChannel.MapMode#READ_ONLY}.
+     * @param offset
+     *            The position of the region within the file.
+     * @param length
+     *            The length of the region in bytes.
+     * @param mode
+     *            The mode to map the region with.
+     * @return The region.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws IllegalArgumentException
+     *             If the region lies outside of the file and the mode is not
+     *             {@link java.nio.channels.FileChannel.MapMode#READ_WRITE}.
+     */
+    public static MappedRegion create(final SeekableByteChannel channel, final long offset, final long length,
+            final FileChannel.MapMode mode) throws IOException, IllegalArgumentException {
+        Assertion.acquire(channel).named("channel").notNull();
+        Assertion.acquire(mode).named("mode").notNull();
+
+        final boolean mapped = channel instanceof FileChannel;
+        final boolean writeBack = !mapped && mode == FileChannel.MapMode.READ_WRITE;
+        final ByteBuffer[] windows;
+        boolean success = false;
+        try {
+            if (offset < 0 || length < 0 || length > Long.MAX_VALUE - offset) {
+                throw new IllegalArgumentException("Invalid region " + offset + "+" + length + "!");
+            }
+            if (mode != FileChannel.MapMode.READ_WRITE && offset + length > channel.size()) {
+                throw new IllegalArgumentException("The region " + offset + "+" + length + " exceeds the file!");
+            }
+
+            windows = new ByteBuffer[(int) ((length + MappedRegion.WINDOW_SIZE - 1) / MappedRegion.WINDOW_SIZE)];
+            try {
+                for (int i = 0; i < windows.length; i++) {
+                    final long start = (long) i * MappedRegion.WINDOW_SIZE;
+                    final int size = (int) Math.min(MappedRegion.WINDOW_SIZE + MappedRegion.MAX_SLICE_SIZE, length - start);
+                    if (mapped) {
+                        windows[i] = ((FileChannel) channel).map(mode, offset + start, size);
+                    } else {
+                        windows[i] = MappedRegion.load(channel, offset + start, size);
+                    }
+                }
+            } catch (final IOException | RuntimeException | Error cause) {
+                for (final ByteBuffer window : windows) {
+                    if (window != null) {
+                        BufferCleaner.clean(window);
+                    }
+                }
+                throw cause;
+            }
+            success = true;
+        } finally {
+            if (!success || !writeBack) {
+                channel.close();
+            }
+        }
+
+        return new MappedRegion(offset, length, mode, mapped, windows, writeBack ? channel : null);
+    }
+
+    /**
+     * Reads a single byte.
+     *
+     * @param position
+     *            The position of the byte within this region.
+     * @return The byte.
+     * @throws IndexOutOfBoundsException
+     *             If the position lies outside of this region.
+     */
+    public byte get(final long position) throws IndexOutOfBoundsException {
+        this.checkAccess(position, 1);
+
+        final int window = (int) (position / MappedRegion.WINDOW_SIZE);
+        return this.windows[window].get((int) (position - (long) window * MappedRegion.WINDOW_SIZE));
+    }
+
+    /**
+     * Reads bytes into the given buffer until either the buffer is full or the
+     * end of this region is reached.
+     *
+     * @param position
+     *            The position within this region to start reading at.
+     * @param dst
+     *            The buffer to read into.
+     * @return The number of bytes read.
+     * @throws IndexOutOfBoundsException
+     *             If the position lies outside of this region.
+     */
+    public int get(final long position, final ByteBuffer dst) throws IndexOutOfBoundsException {
+        Assertion.acquire(dst).named("dst").notNull();
+        this.checkAccess(position, 0);
+
+        final int result = (int) Math.min(dst.remaining(), this.length - position);
+        long current = position;
+        while (current < position + result) {
+            final int window = (int) (current / MappedRegion.WINDOW_SIZE);
+            final int start = (int) (current - (long) window * MappedRegion.WINDOW_SIZE);
+            final int size = (int) Math.min(MappedRegion.WINDOW_SIZE - start, position + result - current);
+            final ByteBuffer source = this.windows[window].duplicate();
+            source.limit(start + size).position(start);
+            dst.put(source);
+            current += size;
+        }
+        return result;
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param position
+     *            The position of the byte within this region.
+     * @param value
+     *            The byte.
+     * @throws IndexOutOfBoundsException
+     *             If the position lies outside of this region.
+     * @throws ReadOnlyBufferException
+     *             If this region is read-only.
+     */
+    public void put(final long position, final byte value) throws IndexOutOfBoundsException, ReadOnlyBufferException {
+        this.checkAccess(position, 1);
+        this.checkWritable();
+
+        final int window = (int) (position / MappedRegion.WINDOW_SIZE);
+        final long start = position - (long) window * MappedRegion.WINDOW_SIZE;
+        this.windows[window].put((int) start, value);
+        if (!this.mapped && window > 0 && start < MappedRegion.MAX_SLICE_SIZE) {
+            this.windows[window - 1].put((int) (start + MappedRegion.WINDOW_SIZE), value);
+        }
+    }
+
+    /**
+     * Writes all remaining bytes of the given buffer.
+     *
+     * @param position
+     *            The position within this region to start writing at.
+     * @param src
+     *            The buffer to write.
+     * @throws IndexOutOfBoundsException
+     *             If the bytes do not fit into this region.
+     * @throws ReadOnlyBufferException
+     *             If this region is read-only.
+     */
+    public void put(final long position, final ByteBuffer src) throws IndexOutOfBoundsException, ReadOnlyBufferException {
+        Assertion.acquire(src).named("src").notNull();
+        this.checkAccess(position, src.remaining());
+        this.checkWritable();
+
+        long current = position;
+        while (src.hasRemaining()) {
+            final int window = (int) (current / MappedRegion.WINDOW_SIZE);
+            final int start = (int) (current - (long) window * MappedRegion.WINDOW_SIZE);
+            final int size = Math.min(MappedRegion.WINDOW_SIZE - start, src.remaining());
+            final ByteBuffer chunk = src.duplicate();
+            chunk.limit(chunk.position() + size);
+            if (!this.mapped && window > 0 && start < MappedRegion.MAX_SLICE_SIZE) {
+                // Keep the overlap of the previous window in sync.
+                final ByteBuffer overlap = chunk.duplicate();
+                overlap.limit(overlap.position() + Math.min(size, MappedRegion.MAX_SLICE_SIZE - start));
+                final ByteBuffer target = this.windows[window - 1].duplicate();
+                target.position(MappedRegion.WINDOW_SIZE + start);
+                target.put(overlap);
+            }
+            final ByteBuffer target = this.windows[window].duplicate();
+            target.position(start);
+            target.put(chunk);
+            src.position(src.position() + size);
+            current += size;
+        }
+    }
+
+    /**
+     * Creates a read-only view of a part of this region without copying any
+     * data.
+     *
+     * @param position
+     *            The position of the part within this region.
+     * @param size
+     *            The size of the part. Must not be larger than
+     *            {@link #MAX_SLICE_SIZE}.
+     * @return The view. Its position is zero and its limit and capacity is the
+     *         given size. It must not be used after this region was closed.
+     * @throws IndexOutOfBoundsException
+     *             If the part lies outside of this region.
+     * @throws IllegalArgumentException
+     *             If the size is larger than {@link #MAX_SLICE_SIZE}.
+     */
+    public ByteBuffer slice(final long position, final int size) throws IndexOutOfBoundsException, IllegalArgumentException {
+        if (size > MappedRegion.MAX_SLICE_SIZE) {
+            throw new IllegalArgumentException("size must not be larger than " + MappedRegion.MAX_SLICE_SIZE + "!");
+        }
+        this.checkAccess(position, size);
+        if (size == 0) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+
+        final int window = (int) (position / MappedRegion.WINDOW_SIZE);
+        final int start = (int) (position - (long) window * MappedRegion.WINDOW_SIZE);
+        final ByteBuffer result = this.windows[window].asReadOnlyBuffer();
+        result.limit(start + size).position(start);
+        return result.slice();
+    }
+
+    /**
+     * Writes all changes of this region into the file. Does nothing if this
+     * region is not
+     * {@link java.nio.channels.FileChannel.MapMode#READ_WRITE}.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public void force() throws IOException {
+        this.checkOpen();
+        if (this.mode != FileChannel.MapMode.READ_WRITE) {
+            return;
+        }
+
+        for (int i = 0; i < this.windows.length; i++) {
+            if (this.mapped) {
+                ((MappedByteBuffer) this.windows[i]).force();
+            } else {
+                final ByteBuffer source = this.windows[i].duplicate();
+                source.limit(Math.min(MappedRegion.WINDOW_SIZE, source.capacity())).position(0);
+                this.channel.position(this.offset + (long) i * MappedRegion.WINDOW_SIZE);
+                while (source.hasRemaining()) {
+                    this.channel.write(source);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Unmaps this region. If this region was loaded into off-heap memory and
+     * is writable, the changes are written back first. Mapped regions are not
+     * forced (see {@link #force()}), the operating system writes their
+     * changes back eventually.
+     * </p>
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+
+        try {
+            if (this.channel != null) {
+                try {
+                    this.force();
+                } finally {
+                    this.channel.close();
+                }
+            }
+        } finally {
+            this.closed = true;
+            for (final ByteBuffer window : this.windows) {
+                BufferCleaner.clean(window);
+            }
+        }
+    }
+
+    /**
+     * Loads the given part of the file into off-heap memory.
+     *
+     * @param channel
+     *            The channel to read from.
+     * @param position
+     *            The position of the part within the file.
+     * @param size
+     *            The size of the part.
+     * @return The buffer containing the part. Bytes after the end of the file
+     *         are zero.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static ByteBuffer load(final SeekableByteChannel channel, final long position, final int size) throws IOException {
+        final ByteBuffer result = ByteBuffer.allocateDirect(size);
+        try {
+            channel.position(position);
+            while (result.hasRemaining() && channel.read(result) >= 0) {
+                // Nothing to do.
+            }
+        } catch (final IOException | RuntimeException cause) {
+            BufferCleaner.clean(result);
+            throw cause;
+        }
+        result.clear();
+        return result;
+    }
+
+    /**
+     * Checks whether this region is open and the given part lies within it.
+     *
+     * @param position
+     *            The position of the part.
+     * @param size
+     *            The size of the part.
+     * @throws IndexOutOfBoundsException
+     *             If the part lies outside of this region.
+     */
+    private void checkAccess(final long position, final long size) throws IndexOutOfBoundsException {
+        this.checkOpen();
+        if (position < 0 || size < 0 || position > this.length - size) {
+            throw new IndexOutOfBoundsException(position + "+" + size + " lies outside of the region!");
+        }
+    }
+
+    /**
+     * Checks whether this region is writable.
+     *
+     * @throws ReadOnlyBufferException
+     *             If this region is read-only.
+     */
+    private void checkWritable() throws ReadOnlyBufferException {
+        if (this.mode == FileChannel.MapMode.READ_ONLY) {
+            throw new ReadOnlyBufferException();
+        }
+    }
+
+    /**
+     * Checks whether this region is open.
+     *
+     * @throws IllegalStateException
+     *             If this region is closed.
+     */
+    private void checkOpen() throws IllegalStateException {
+        if (this.closed) {
+            throw new IllegalStateException("The region is closed!");
+        }
+    }
+
+    /**
+     *
+     * @return {@link #offset}.
+     */
+    public long getOffset() {
+        return this.offset;
+    }
+
+    /**
+     *
+     * @return {@link #length}.
+     */
+    public long getLength() {
+        return this.length;
+    }
+
+    /**
+     *
+     * @return {@link #mode}.
+     */
+    public FileChannel.MapMode getMode() {
+        return this.mode;
+    }
+
+    /**
+     *
+     * @return {@link #mapped}.
+     */
+    public boolean isMapped() {
+        return this.mapped;
+    }
+}
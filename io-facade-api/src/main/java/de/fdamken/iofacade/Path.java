@@ -17,6 +17,9 @@
  */
 package de.fdamken.iofacade;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
 import de.fdamken.iofacade.exception.NoDirectoryIOFacadeRuntimeException;
 import de.fdamken.iofacade.exception.NoFileIOFacadeRuntimeException;
 import de.fdamken.iofacade.property.Copyable;
@@ -31,6 +34,106 @@ import de.fdamken.iofacade.property.Moveable;
  *
  */
 public interface Path extends Copyable, Deletable, Existable, Moveable, FileSystemAware {
+    /**
+     *
+     * @return The name of this path (the last path-part). For the root of the
+     *         file system, this returns an empty string.
+     */
+    String getName();
+
+    /**
+     * The absolute path is relative to the (chrooted) root of the file system
+     * and uses slashes (<code>/</code>) to delimit the path-parts, regardless
+     * of the underlying file system. It can be passed to
+     * {@link FileSystem#getPath(String)} to acquire this path again.
+     *
+     * <p>
+     * For example: <br>
+     * If the file system is chrooted to <code>/var/data</code> and this path
+     * points to <code>/var/data/some/file.txt</code>, this returns
+     * <code>/some/file.txt</code>.
+     * </p>
+     *
+     * @return The absolute path of this path. For the root of the file system,
+     *         this returns <code>/</code>.
+     */
+    String getAbsolutePath();
+
+    /**
+     * Reads the attributes of this path with a single request.
+     *
+     * @return The current {@link PathAttributes} of this path.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     */
+    PathAttributes getAttributes() throws IOException, FileNotFoundException;
+
+    /**
+     * Reads the attributes of this path with a single request without
+     * following symbolic links. If this path is a symbolic link, the
+     * attributes of the link itself are returned, which is of the type
+     * {@link PathAttributes.Type#OTHER}.
+     *
+     * @return The current {@link PathAttributes} of this path.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     */
+    default PathAttributes getLinkAttributes() throws IOException, FileNotFoundException {
+        return this.getAttributes();
+    }
+
+    /**
+     * Checks whether this path is a symbolic link. All other methods follow
+     * symbolic links to their destination.
+     *
+     * @return Whether this path is a symbolic link. Defaults to
+     *         <code>false</code> for implementations without links.
+     */
+    default boolean isSymbolicLink() {
+        return false;
+    }
+
+    /**
+     * Checks whether this path and the given one locate the same file, i.e.
+     * because one of them is a symbolic link to the other one. This is the
+     * fallback to compare paths whose identities are not known (see
+     * {@link PathAttributes#hasIdentity()}).
+     *
+     * @param other
+     *            The path to compare with.
+     * @return Whether both paths locate the same file. Defaults to comparing
+     *         the file systems and absolute paths for implementations without
+     *         links.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    default boolean isSameFile(final Path other) throws IOException {
+        return this.getFileSystem() == other.getFileSystem() && this.getAbsolutePath().equals(other.getAbsolutePath());
+    }
+
+    /**
+     * Forces all changes of this path to be written to the storage device
+     * (<code>fsync</code>). For a directory, this makes the creation, removal
+     * and renaming of its entries durable.
+     *
+     * <p>
+     * By default, this does nothing, because implementations without a local
+     * storage device can not force anything.
+     * </p>
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     */
+    default void sync() throws IOException, FileNotFoundException {
+        // Nothing to do.
+    }
+
     /**
      *
      * @return Whether this path is a file. If this path does not exists, this
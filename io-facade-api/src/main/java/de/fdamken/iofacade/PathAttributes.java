@@ -0,0 +1,219 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade;
+
+import java.util.Objects;
+
+/**
+ * The attributes (metadata) of a {@link Path} at the time they were read.
+ *
+ */
+public final class PathAttributes {
+    /**
+     * The type of the path.
+     *
+     */
+    private final Type type;
+    /**
+     * The size of the path in bytes.
+     *
+     */
+    private final long size;
+    /**
+     * The time of the last modification in milliseconds since the epoch.
+     *
+     */
+    private final long lastModified;
+    /**
+     * The ID of the device the path is located on. <code>-1</code> if
+     * unknown.
+     *
+     */
+    private final long device;
+    /**
+     * The inode of the path on its device. <code>-1</code> if unknown.
+     *
+     */
+    private final long inode;
+
+    /**
+     * Constructor of PathAttributes.
+     *
+     * @param type
+     *            The type of the path.
+     * @param size
+     *            The size of the path in bytes.
+     * @param lastModified
+     *            The time of the last modification in milliseconds since the
+     *            epoch.
+     */
+    public PathAttributes(final Type type, final long size, final long lastModified) {
+        this(type, size, lastModified, -1, -1);
+    }
+
+    /**
+     * Constructor of PathAttributes.
+     *
+     * @param type
+     *            The type of the path.
+     * @param size
+     *            The size of the path in bytes.
+     * @param lastModified
+     *            The time of the last modification in milliseconds since the
+     *            epoch.
+     * @param device
+     *            The ID of the device the path is located on. <code>-1</code>
+     *            if unknown.
+     * @param inode
+     *            The inode of the path on its device. <code>-1</code> if
+     *            unknown.
+     */
+    public PathAttributes(final Type type, final long size, final long lastModified, final long device, final long inode) {
+        this.type = type;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.device = device;
+        this.inode = inode;
+    }
+
+    /**
+     *
+     * @return Whether the path is a file.
+     */
+    public boolean isFile() {
+        return this.type == Type.FILE;
+    }
+
+    /**
+     *
+     * @return Whether the path is a directory.
+     */
+    public boolean isDirectory() {
+        return this.type == Type.DIRECTORY;
+    }
+
+    /**
+     *
+     * @return Whether the identity of the path (the device and the inode) is
+     *         known. Two paths with the same known identity are the same
+     *         file, i.e. because one of them is a link to the other one.
+     */
+    public boolean hasIdentity() {
+        return this.device != -1 && this.inode != -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.type, this.size, this.lastModified, this.device, this.inode);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PathAttributes)) {
+            return false;
+        }
+        final PathAttributes other = (PathAttributes) obj;
+        return this.type == other.type && this.size == other.size && this.lastModified == other.lastModified
+                && this.device == other.device && this.inode == other.inode;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return this.type + "[size=" + this.size + ", lastModified=" + this.lastModified + "]";
+    }
+
+    /**
+     *
+     * @return {@link #type}.
+     */
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     *
+     * @return {@link #size}.
+     */
+    public long getSize() {
+        return this.size;
+    }
+
+    /**
+     *
+     * @return {@link #lastModified}.
+     */
+    public long getLastModified() {
+        return this.lastModified;
+    }
+
+    /**
+     *
+     * @return {@link #device}.
+     */
+    public long getDevice() {
+        return this.device;
+    }
+
+    /**
+     *
+     * @return {@link #inode}.
+     */
+    public long getInode() {
+        return this.inode;
+    }
+
+    /**
+     * The type of a path.
+     *
+     */
+    public static enum Type {
+        /**
+         * A regular file.
+         *
+         */
+        FILE,
+        /**
+         * A directory.
+         *
+         */
+        DIRECTORY,
+        /**
+         * Anything else (i.e. a device).
+         *
+         */
+        OTHER;
+    }
+}
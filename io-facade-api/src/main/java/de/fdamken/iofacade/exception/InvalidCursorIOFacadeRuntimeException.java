@@ -0,0 +1,41 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.exception;
+
+/**
+ * This exception is thrown if a cursor of a paged listing is unknown or has
+ * expired. The listing has to be restarted from the first page.
+ *
+ */
+public class InvalidCursorIOFacadeRuntimeException extends IOFacadeRuntimeException {
+    /**
+     * The serial version UID.
+     *
+     */
+    private static final long serialVersionUID = 2715463361094337641L;
+
+    /**
+     * Constructor of InvalidCursorIOFacadeRuntimeException.
+     *
+     * @param cursor
+     *            The invalid cursor.
+     */
+    public InvalidCursorIOFacadeRuntimeException(final String cursor) {
+        super("The cursor " + cursor + " is unknown or has expired!");
+    }
+}
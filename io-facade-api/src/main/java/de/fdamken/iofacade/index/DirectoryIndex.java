@@ -0,0 +1,1080 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+import de.fdamken.iofacade.Directory;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+import de.fdamken.iofacade.util.Assertion;
+import de.fdamken.iofacade.util.PathFilter;
+
+/**
+ * A persistent index of a file tree. It holds the names, types, sizes and
+ * modification times of all paths below a root directory in a compact file
+ * that is memory-mapped, so queries do not touch the indexed file tree at all.
+ *
+ * <p>
+ * The index file consists of a header, a table of fixed-size entries and a
+ * block of UTF-8 encoded names. The entries are stored in breadth-first order,
+ * so the children of every directory are stored consecutively (sorted by
+ * name).
+ * </p>
+ * <p>
+ * The index is revalidated incrementally by {@link #refresh()}: A directory is
+ * only listed again if its modification time or size has changed, otherwise
+ * its children are taken from the index. Hence refreshing costs one request
+ * per directory instead of one request per path. As modification times have a
+ * coarse granularity on some file systems, a directory that was modified
+ * shortly before it was indexed is always listed again, since it might have
+ * been modified a second time without changing its modification time. <b> NOTE: Modifying the content of
+ * a file does not change the modification time of its directory, so sizes and
+ * modification times of files may be outdated until their directory changes.
+ * Use {@link #rebuild()} to read everything again. </b>
+ * </p>
+ * <p>
+ * Queries may run concurrently with a refresh; they see either the old or the
+ * new state of the index.
+ * </p>
+ * <p>
+ * Symbolic links below the root directory are not followed; they are stored
+ * with their own attributes (see {@link Path#getLinkAttributes()}), hence as
+ * {@link PathAttributes.Type#OTHER}.
+ * </p>
+ *
+ */
+public class DirectoryIndex implements Closeable {
+    /**
+     * The magic number every index file starts with (<code>IOFX</code>).
+     *
+     */
+    private static final int MAGIC = 0x494F4658;
+    /**
+     * The version of the file format.
+     *
+     */
+    private static final int VERSION = 2;
+    /**
+     * The size of the fixed part of the header in bytes.
+     *
+     */
+    private static final int HEADER_SIZE = 28;
+    /**
+     * The coarsest granularity of modification times in milliseconds that is
+     * expected from any file system. Directories whose modification time is
+     * not at least that long before the time they were indexed are always
+     * listed again.
+     *
+     */
+    private static final long TIMESTAMP_GRANULARITY = 2000;
+    /**
+     * The stored code of {@link PathAttributes.Type#FILE}.
+     *
+     */
+    private static final int TYPE_FILE = 1;
+    /**
+     * The stored code of {@link PathAttributes.Type#DIRECTORY}.
+     *
+     */
+    private static final int TYPE_DIRECTORY = 2;
+    /**
+     * The stored code of {@link PathAttributes.Type#OTHER}.
+     *
+     */
+    private static final int TYPE_OTHER = 3;
+    /**
+     * The size of a single entry in bytes.
+     *
+     */
+    private static final int ENTRY_SIZE = 40;
+    /**
+     * The offset of the parent index within an entry.
+     *
+     */
+    private static final int PARENT = 0;
+    /**
+     * The offset of the name offset within an entry.
+     *
+     */
+    private static final int NAME_OFFSET = 4;
+    /**
+     * The offset of the name length within an entry.
+     *
+     */
+    private static final int NAME_LENGTH = 8;
+    /**
+     * The offset of the type (one of the <code>TYPE_*</code> codes) within an
+     * entry.
+     *
+     */
+    private static final int TYPE = 12;
+    /**
+     * The offset of the size within an entry.
+     *
+     */
+    private static final int SIZE = 16;
+    /**
+     * The offset of the modification time within an entry.
+     *
+     */
+    private static final int LAST_MODIFIED = 24;
+    /**
+     * The offset of the index of the first child within an entry.
+     *
+     */
+    private static final int FIRST_CHILD = 32;
+    /**
+     * The offset of the number of children within an entry.
+     *
+     */
+    private static final int CHILD_COUNT = 36;
+
+    /**
+     * The indexed root directory.
+     *
+     */
+    private final Directory root;
+    /**
+     * The absolute path of {@link #root}.
+     *
+     */
+    private final String rootPath;
+    /**
+     * The index file.
+     *
+     */
+    private final java.nio.file.Path indexFile;
+    /**
+     * The current state of the index. <code>null</code> after the index was
+     * closed.
+     *
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * Constructor of DirectoryIndex.
+     *
+     * @param root
+     *            The indexed root directory.
+     * @param indexFile
+     *            The index file.
+     */
+    private DirectoryIndex(final Directory root, final java.nio.file.Path indexFile) {
+        this.root = root;
+        this.rootPath = root.getAbsolutePath();
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Opens the index of the given directory that is stored in the given file.
+     * If the file does not exist or does not contain an index of the given
+     * directory, the index is built from scratch. An existing index is
+     * <b>not</b> refreshed.
+     *
+     * @param root
+     *            The directory to index.
+     * @param indexFile
+     *            The (local) file to store the index in.
+     * @return The opened index.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the given directory does not exist.
+     */
+    public static DirectoryIndex open(final Directory root, final java.nio.file.Path indexFile) throws IOException,
+            FileNotFoundException {
+        Assertion.acquire(root).named("root").notNull();
+        Assertion.acquire(indexFile).named("indexFile").notNull();
+
+        final DirectoryIndex result = new DirectoryIndex(root, indexFile);
+        if (Files.isRegularFile(indexFile)) {
+            result.snapshot = Snapshot.map(indexFile, result.rootPath);
+        }
+        if (result.snapshot == null) {
+            result.rebuild();
+        }
+        return result;
+    }
+
+    /**
+     * Revalidates this index incrementally. Only directories whose
+     * modification time or size has changed since the last refresh (or that
+     * were modified shortly before the last refresh) are listed again.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the root directory does not exist anymore.
+     */
+    public void refresh() throws IOException, FileNotFoundException {
+        this.update(this.getSnapshot());
+    }
+
+    /**
+     * Builds this index from scratch.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the root directory does not exist anymore.
+     */
+    public void rebuild() throws IOException, FileNotFoundException {
+        this.update(null);
+    }
+
+    /**
+     *
+     * @return The number of indexed paths (excluding the root directory).
+     */
+    public int size() {
+        return this.getSnapshot().count - 1;
+    }
+
+    /**
+     * Looks up the given path within this index.
+     *
+     * @param absolutePath
+     *            The absolute path (see {@link Path#getAbsolutePath()}) to look
+     *            up.
+     * @return The indexed entry, if any. Otherwise <code>null</code>.
+     */
+    public Entry lookup(final String absolutePath) {
+        Assertion.acquire(absolutePath).named("absolutePath").notNull();
+
+        final Snapshot current = this.getSnapshot();
+        final int index = this.find(current, absolutePath);
+        return index < 0 ? null : new Entry(current, index, absolutePath);
+    }
+
+    /**
+     * Lists the indexed entries of the given directory.
+     *
+     * @param absolutePath
+     *            The absolute path (see {@link Path#getAbsolutePath()}) of the
+     *            directory.
+     * @return The indexed entries of the given directory, sorted by name. An
+     *         empty list if the directory is not indexed.
+     */
+    public List<Entry> listEntries(final String absolutePath) {
+        Assertion.acquire(absolutePath).named("absolutePath").notNull();
+
+        final Snapshot current = this.getSnapshot();
+        final int index = this.find(current, absolutePath);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        final List<Entry> result = new ArrayList<Entry>(current.childCount(index));
+        for (int child = current.firstChild(index); child < current.firstChild(index) + current.childCount(index); child++) {
+            result.add(new Entry(current, child, DirectoryIndex.resolve(absolutePath, current.name(child))));
+        }
+        return result;
+    }
+
+    /**
+     * Lists all indexed entries below the root directory that are matching the
+     * given {@link PathFilter}. This does the same as
+     * {@link Directory#listEntriesRecursive(PathFilter)}, but answers the
+     * query from the index.
+     *
+     * <p>
+     * <b> NOTE: The {@link Path}s passed to the filter are regular paths of the
+     * file system, so any method that reads from the file system (like
+     * {@link Path#isDirectory()}) does not use the index. Filters that only
+     * depend on the name (like {@link de.fdamken.iofacade.util.PathFilters})
+     * are answered without touching the file system. </b>
+     * </p>
+     *
+     * @param filter
+     *            The {@link PathFilter} that is used to filter the results.
+     * @return All indexed entries that are matching the given
+     *         {@link PathFilter}.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public List<Path> listEntriesRecursive(final PathFilter filter) throws IOException {
+        Assertion.acquire(filter).named("filter").notNull();
+
+        final Snapshot current = this.getSnapshot();
+        final List<Path> result = new ArrayList<Path>();
+
+        String startPath = filter.getStaticPrefix();
+        if (startPath == null || !startPath.startsWith(this.rootPath)) {
+            startPath = this.rootPath;
+        }
+        final int start = this.find(current, startPath);
+        if (start < 0) {
+            return result;
+        }
+        if (start != 0) {
+            // The static prefix itself may be accepted (i.e. by a trailing
+            // "**"), but only directories can be a prefix.
+            if (current.type(start) != PathAttributes.Type.DIRECTORY) {
+                return result;
+            }
+            final Path startDir = this.root.getFileSystem().getPath(startPath);
+            final Boolean filterResult = filter.apply(startDir);
+            if (filterResult != null && filterResult) {
+                result.add(startDir);
+            }
+        }
+
+        final Deque<Integer> pending = new ArrayDeque<Integer>();
+        final Deque<String> pendingPaths = new ArrayDeque<String>();
+        pending.add(start);
+        pendingPaths.add(startPath);
+        while (!pending.isEmpty()) {
+            final int directory = pending.poll();
+            final String directoryPath = pendingPaths.poll();
+            for (int child = current.firstChild(directory); child < current.firstChild(directory)
+                    + current.childCount(directory); child++) {
+                final Path path = this.root.getFileSystem().getPath(DirectoryIndex.resolve(directoryPath, current.name(child)));
+                final Boolean filterResult = filter.apply(path);
+                if (filterResult != null && filterResult) {
+                    result.add(path);
+                }
+                if ((filterResult == null || filterResult) && current.type(child) == PathAttributes.Type.DIRECTORY) {
+                    pending.add(child);
+                    pendingPaths.add(path.getAbsolutePath());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The mapping of the index file is released as soon as it is garbage
+     * collected.
+     * </p>
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() {
+        this.snapshot = null;
+    }
+
+    /**
+     * Builds a new state of this index and replaces the current one.
+     *
+     * @param old
+     *            The state to reuse the children of unchanged directories
+     *            from. If <code>null</code>, every directory is listed.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the root directory does not exist anymore.
+     */
+    private synchronized void update(final Snapshot old) throws IOException, FileNotFoundException {
+        final long indexedAt = System.currentTimeMillis();
+        final Builder builder = new Builder();
+        builder.add(-1, "", this.root.getAttributes());
+
+        final Deque<Pending> pending = new ArrayDeque<Pending>();
+        pending.add(new Pending(0, old == null ? -1 : 0, this.root, this.rootPath));
+        while (!pending.isEmpty()) {
+            final Pending current = pending.poll();
+            builder.firstChild[current.index] = builder.count;
+            if (current.oldIndex >= 0 && old.isUnchanged(current.oldIndex, builder.size[current.index],
+                    builder.lastModified[current.index])) {
+                final int firstChild = old.firstChild(current.oldIndex);
+                for (int child = firstChild; child < firstChild + old.childCount(current.oldIndex); child++) {
+                    final String name = old.name(child);
+                    final String childPath = DirectoryIndex.resolve(current.path, name);
+                    if (old.type(child) == PathAttributes.Type.DIRECTORY) {
+                        final Path path = this.root.getFileSystem().getPath(childPath);
+                        final PathAttributes attributes;
+                        try {
+                            attributes = path.getLinkAttributes();
+                        } catch (final FileNotFoundException dummy) {
+                            continue;
+                        }
+                        final int index = builder.add(current.index, name, attributes);
+                        if (attributes.isDirectory()) {
+                            pending.add(new Pending(index, child, path, childPath));
+                        }
+                    } else {
+                        builder.add(current.index, name, old.type(child), old.size(child), old.lastModified(child));
+                    }
+                }
+            } else {
+                final List<Path> entries = new ArrayList<Path>(current.directory.asDirectory().listEntries());
+                Collections.sort(entries, Comparator.comparing(Path::getName));
+                for (final Path path : entries) {
+                    final PathAttributes attributes;
+                    try {
+                        attributes = path.getLinkAttributes();
+                    } catch (final FileNotFoundException dummy) {
+                        continue;
+                    }
+                    final int index = builder.add(current.index, path.getName(), attributes);
+                    if (attributes.isDirectory()) {
+                        final int oldIndex = current.oldIndex < 0 ? -1 : old.findChild(current.oldIndex, path.getName());
+                        pending.add(new Pending(index, oldIndex, path, DirectoryIndex.resolve(current.path, path.getName())));
+                    }
+                }
+            }
+            builder.childCount[current.index] = builder.count - builder.firstChild[current.index];
+        }
+
+        final java.nio.file.Path tempFile = this.indexFile.resolveSibling(this.indexFile.getFileName() + ".tmp");
+        builder.write(tempFile, this.rootPath, indexedAt);
+        Files.move(tempFile, this.indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.snapshot = Snapshot.map(this.indexFile, this.rootPath);
+    }
+
+    /**
+     * Finds the index of the entry with the given absolute path.
+     *
+     * @param current
+     *            The state to search in.
+     * @param absolutePath
+     *            The absolute path to search for.
+     * @return The index of the found entry. <code>-1</code> if there is no such
+     *         entry.
+     */
+    private int find(final Snapshot current, final String absolutePath) {
+        if (absolutePath.equals(this.rootPath)) {
+            return 0;
+        }
+        final String prefix = this.rootPath.equals("/") ? "/" : this.rootPath + "/";
+        if (!absolutePath.startsWith(prefix)) {
+            return -1;
+        }
+
+        int result = 0;
+        for (final String name : absolutePath.substring(prefix.length()).split("/")) {
+            if (name.isEmpty()) {
+                continue;
+            }
+            result = current.findChild(result, name);
+            if (result < 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @return {@link #snapshot}.
+     * @throws IllegalStateException
+     *             If this index is closed.
+     */
+    private Snapshot getSnapshot() throws IllegalStateException {
+        final Snapshot result = this.snapshot;
+        if (result == null) {
+            throw new IllegalStateException("The index is closed!");
+        }
+        return result;
+    }
+
+    /**
+     * Converts the given type into the code that is stored in the index file.
+     *
+     * @param type
+     *            The type to convert.
+     * @return The code of the given type.
+     */
+    private static int encodeType(final PathAttributes.Type type) {
+        switch (type) {
+            case FILE:
+                return DirectoryIndex.TYPE_FILE;
+            case DIRECTORY:
+                return DirectoryIndex.TYPE_DIRECTORY;
+            default:
+                return DirectoryIndex.TYPE_OTHER;
+        }
+    }
+
+    /**
+     * Converts the given code that is stored in the index file into a type.
+     *
+     * @param code
+     *            The code to convert.
+     * @return The type of the given code. {@link PathAttributes.Type#OTHER}
+     *         for unknown codes.
+     */
+    private static PathAttributes.Type decodeType(final int code) {
+        switch (code) {
+            case TYPE_FILE:
+                return PathAttributes.Type.FILE;
+            case TYPE_DIRECTORY:
+                return PathAttributes.Type.DIRECTORY;
+            default:
+                return PathAttributes.Type.OTHER;
+        }
+    }
+
+    /**
+     * Resolves the given name against the given absolute directory path.
+     *
+     * @param directoryPath
+     *            The absolute path of the directory.
+     * @param name
+     *            The name to resolve.
+     * @return The absolute path of the resolved name.
+     */
+    private static String resolve(final String directoryPath, final String name) {
+        return directoryPath.equals("/") ? "/" + name : directoryPath + "/" + name;
+    }
+
+    /**
+     *
+     * @return {@link #root}.
+     */
+    public Directory getRoot() {
+        return this.root;
+    }
+
+    /**
+     *
+     * @return {@link #indexFile}.
+     */
+    public java.nio.file.Path getIndexFile() {
+        return this.indexFile;
+    }
+
+    /**
+     * A single entry of the index.
+     *
+     */
+    public class Entry {
+        /**
+         * The absolute path of this entry.
+         *
+         */
+        private final String absolutePath;
+        /**
+         * The name of this entry.
+         *
+         */
+        private final String name;
+        /**
+         * The indexed attributes of this entry.
+         *
+         */
+        private final PathAttributes attributes;
+
+        /**
+         * Constructor of Entry.
+         *
+         * @param snapshot
+         *            The state to read the entry from.
+         * @param index
+         *            The index of the entry.
+         * @param absolutePath
+         *            The absolute path of the entry.
+         */
+        private Entry(final Snapshot snapshot, final int index, final String absolutePath) {
+            this.absolutePath = absolutePath;
+            this.name = snapshot.name(index);
+            this.attributes = new PathAttributes(snapshot.type(index), snapshot.size(index), snapshot.lastModified(index));
+        }
+
+        /**
+         * Acquires the path of this entry from the file system of the indexed
+         * directory.
+         *
+         * @return The {@link Path} of this entry.
+         * @throws IOException
+         *             If any I/O error occurs.
+         */
+        public Path toPath() throws IOException {
+            return DirectoryIndex.this.root.getFileSystem().getPath(this.absolutePath);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return this.absolutePath + " " + this.attributes;
+        }
+
+        /**
+         *
+         * @return {@link #absolutePath}.
+         */
+        public String getAbsolutePath() {
+            return this.absolutePath;
+        }
+
+        /**
+         *
+         * @return {@link #name}.
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         *
+         * @return {@link #attributes}.
+         */
+        public PathAttributes getAttributes() {
+            return this.attributes;
+        }
+    }
+
+    /**
+     * A directory that is pending to be indexed.
+     *
+     */
+    private static class Pending {
+        /**
+         * The index of the directory within the new state.
+         *
+         */
+        private final int index;
+        /**
+         * The index of the directory within the old state. <code>-1</code> if
+         * the directory was not indexed before.
+         *
+         */
+        private final int oldIndex;
+        /**
+         * The directory.
+         *
+         */
+        private final Path directory;
+        /**
+         * The absolute path of the directory.
+         *
+         */
+        private final String path;
+
+        /**
+         * Constructor of Pending.
+         *
+         * @param index
+         *            The index of the directory within the new state.
+         * @param oldIndex
+         *            The index of the directory within the old state.
+         * @param directory
+         *            The directory.
+         * @param path
+         *            The absolute path of the directory.
+         */
+        public Pending(final int index, final int oldIndex, final Path directory, final String path) {
+            this.index = index;
+            this.oldIndex = oldIndex;
+            this.directory = directory;
+            this.path = path;
+        }
+    }
+
+    /**
+     * A memory-mapped state of the index.
+     *
+     */
+    private static class Snapshot {
+        /**
+         * The number of entries (including the root directory).
+         *
+         */
+        private final int count;
+        /**
+         * The table of entries.
+         *
+         */
+        private final ByteBuffer table;
+        /**
+         * The UTF-8 encoded names.
+         *
+         */
+        private final ByteBuffer names;
+        /**
+         * The point of time (in milliseconds since the epoch) the building of
+         * this state was started at.
+         *
+         */
+        private final long indexedAt;
+
+        /**
+         * Constructor of Snapshot.
+         *
+         * @param count
+         *            The number of entries.
+         * @param table
+         *            The table of entries.
+         * @param names
+         *            The UTF-8 encoded names.
+         * @param indexedAt
+         *            The point of time the building of this state was started
+         *            at.
+         */
+        public Snapshot(final int count, final ByteBuffer table, final ByteBuffer names, final long indexedAt) {
+            this.count = count;
+            this.table = table;
+            this.names = names;
+            this.indexedAt = indexedAt;
+        }
+
+        /**
+         * Maps the given index file.
+         *
+         * @param file
+         *            The index file to map.
+         * @param rootPath
+         *            The absolute path of the indexed directory.
+         * @return The mapped state. <code>null</code> if the given file is no
+         *         valid index of the given directory.
+         * @throws IOException
+         *             If any I/O error occurs.
+         */
+        public static Snapshot map(final java.nio.file.Path file, final String rootPath) throws IOException {
+            try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                final ByteBuffer header = ByteBuffer.allocate(DirectoryIndex.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                if (channel.read(header, 0) < DirectoryIndex.HEADER_SIZE || header.getInt(0) != DirectoryIndex.MAGIC
+                        || header.getInt(4) != DirectoryIndex.VERSION) {
+                    return null;
+                }
+                final int count = header.getInt(8);
+                final int namesLength = header.getInt(12);
+                final int rootLength = header.getInt(16);
+                final long indexedAt = header.getLong(20);
+
+                final ByteBuffer root = ByteBuffer.allocate(rootLength);
+                channel.read(root, DirectoryIndex.HEADER_SIZE);
+                if (!rootPath.equals(new String(root.array(), StandardCharsets.UTF_8))) {
+                    return null;
+                }
+
+                final long tableOffset = DirectoryIndex.HEADER_SIZE + rootLength;
+                final long tableLength = (long) count * DirectoryIndex.ENTRY_SIZE;
+                if (channel.size() != tableOffset + tableLength + namesLength) {
+                    return null;
+                }
+                final ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, tableOffset, tableLength).order(
+                        ByteOrder.LITTLE_ENDIAN);
+                final ByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, tableOffset + tableLength, namesLength);
+                return new Snapshot(count, table, names, indexedAt);
+            }
+        }
+
+        /**
+         * Checks whether the children of the given directory can be reused
+         * without listing it again. That is the case if neither its
+         * modification time nor its size has changed and it was not modified
+         * within {@link DirectoryIndex#TIMESTAMP_GRANULARITY} before this
+         * state was built.
+         *
+         * @param directory
+         *            The index of the directory.
+         * @param currentSize
+         *            The current size of the directory.
+         * @param currentLastModified
+         *            The current modification time of the directory.
+         * @return Whether the directory is unchanged.
+         */
+        public boolean isUnchanged(final int directory, final long currentSize, final long currentLastModified) {
+            final long lastModified = this.lastModified(directory);
+            return this.type(directory) == PathAttributes.Type.DIRECTORY && lastModified == currentLastModified
+                    && this.size(directory) == currentSize
+                    && lastModified < this.indexedAt - DirectoryIndex.TIMESTAMP_GRANULARITY;
+        }
+
+        /**
+         * Finds the child with the given name (binary search).
+         *
+         * @param directory
+         *            The index of the directory.
+         * @param name
+         *            The name of the child.
+         * @return The index of the child. <code>-1</code> if there is no such
+         *         child.
+         */
+        public int findChild(final int directory, final String name) {
+            int low = this.firstChild(directory);
+            int high = low + this.childCount(directory) - 1;
+            while (low <= high) {
+                final int middle = low + high >>> 1;
+                final int comparison = this.name(middle).compareTo(name);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         *
+         * @param index
+         *            The index of the entry.
+         * @return The name of the entry.
+         */
+        public String name(final int index) {
+            final byte[] bytes = new byte[this.table.getInt(index * DirectoryIndex.ENTRY_SIZE + DirectoryIndex.NAME_LENGTH)];
+            final ByteBuffer source = this.names.duplicate();
+            source.position(this.table.getInt(index * DirectoryIndex.ENTRY_SIZE + DirectoryIndex.NAME_OFFSET));
+            source.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         *
+         * @param index
+         *            The index of the entry.
+         * @return The type of the entry.
+         */
+        public PathAttributes.Type type(final int index) {
+            return DirectoryIndex.decodeType(this.table.getInt(index * DirectoryIndex.ENTRY_SIZE + DirectoryIndex.TYPE));
+        }
+
+        /**
+         *
+         * @param index
+         *            The index of the entry.
+         * @return The size of the entry.
+         */
+        public long size(final int index) {
+            return this.table.getLong(index * DirectoryIndex.ENTRY_SIZE + DirectoryIndex.SIZE);
+        }
+
+        /**
+         *
+         * @param index
+         *            The index of the entry.
+         * @return The modification time of the entry.
+         */
+        public long lastModified(final int index) {
+            return this.table.getLong(index * DirectoryIndex.ENTRY_SIZE + DirectoryIndex.LAST_MODIFIED);
+        }
+
+        /**
+         *
+         * @param index
+         *            The index of the entry.
+         * @return The index of the first child of the entry.
+         */
+        public int firstChild(final int index) {
+            return this.table.getInt(index * DirectoryIndex.ENTRY_SIZE + DirectoryIndex.FIRST_CHILD);
+        }
+
+        /**
+         *
+         * @param index
+         *            The index of the entry.
+         * @return The number of children of the entry.
+         */
+        public int childCount(final int index) {
+            return this.table.getInt(index * DirectoryIndex.ENTRY_SIZE + DirectoryIndex.CHILD_COUNT);
+        }
+    }
+
+    /**
+     * Collects the entries of a new state in primitive arrays.
+     *
+     */
+    private static class Builder {
+        /**
+         * The number of entries.
+         *
+         */
+        private int count;
+        /**
+         * The indices of the parents.
+         *
+         */
+        private int[] parent = new int[1024];
+        /**
+         * The offsets of the names.
+         *
+         */
+        private int[] nameOffset = new int[1024];
+        /**
+         * The lengths of the names.
+         *
+         */
+        private int[] nameLength = new int[1024];
+        /**
+         * The type codes.
+         *
+         */
+        private int[] type = new int[1024];
+        /**
+         * The sizes.
+         *
+         */
+        private long[] size = new long[1024];
+        /**
+         * The modification times.
+         *
+         */
+        private long[] lastModified = new long[1024];
+        /**
+         * The indices of the first children.
+         *
+         */
+        private int[] firstChild = new int[1024];
+        /**
+         * The numbers of children.
+         *
+         */
+        private int[] childCount = new int[1024];
+        /**
+         * The UTF-8 encoded names.
+         *
+         */
+        private final ByteArrayOutputStream names = new ByteArrayOutputStream();
+
+        /**
+         * Adds an entry.
+         *
+         * @param parentIndex
+         *            The index of the parent.
+         * @param name
+         *            The name.
+         * @param attributes
+         *            The attributes.
+         * @return The index of the added entry.
+         */
+        public int add(final int parentIndex, final String name, final PathAttributes attributes) {
+            return this.add(parentIndex, name, attributes.getType(), attributes.getSize(), attributes.getLastModified());
+        }
+
+        /**
+         * Adds an entry.
+         *
+         * @param parentIndex
+         *            The index of the parent.
+         * @param name
+         *            The name.
+         * @param entryType
+         *            The type.
+         * @param entrySize
+         *            The size.
+         * @param entryLastModified
+         *            The modification time.
+         * @return The index of the added entry.
+         */
+        public int add(final int parentIndex, final String name, final PathAttributes.Type entryType, final long entrySize,
+                final long entryLastModified) {
+            if (this.count == this.parent.length) {
+                final int capacity = this.count * 2;
+                this.parent = Arrays.copyOf(this.parent, capacity);
+                this.nameOffset = Arrays.copyOf(this.nameOffset, capacity);
+                this.nameLength = Arrays.copyOf(this.nameLength, capacity);
+                this.type = Arrays.copyOf(this.type, capacity);
+                this.size = Arrays.copyOf(this.size, capacity);
+                this.lastModified = Arrays.copyOf(this.lastModified, capacity);
+                this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+                this.childCount = Arrays.copyOf(this.childCount, capacity);
+            }
+
+            final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            final int index = this.count++;
+            this.parent[index] = parentIndex;
+            this.nameOffset[index] = this.names.size();
+            this.nameLength[index] = bytes.length;
+            this.type[index] = DirectoryIndex.encodeType(entryType);
+            this.size[index] = entrySize;
+            this.lastModified[index] = entryLastModified;
+            this.names.write(bytes, 0, bytes.length);
+            return index;
+        }
+
+        /**
+         * Writes the collected entries into the given file.
+         *
+         * @param file
+         *            The file to write to. Is replaced, if it exists.
+         * @param rootPath
+         *            The absolute path of the indexed directory.
+         * @param indexedAt
+         *            The point of time the building of the entries was started
+         *            at.
+         * @throws IOException
+         *             If any I/O error occurs.
+         */
+        public void write(final java.nio.file.Path file, final String rootPath, final long indexedAt) throws IOException {
+            if ((long) this.count * DirectoryIndex.ENTRY_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("Too many entries to index: " + this.count);
+            }
+
+            final byte[] root = rootPath.getBytes(StandardCharsets.UTF_8);
+            try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                final ByteBuffer header = ByteBuffer.allocate(DirectoryIndex.HEADER_SIZE + root.length).order(
+                        ByteOrder.LITTLE_ENDIAN);
+                header.putInt(DirectoryIndex.MAGIC).putInt(DirectoryIndex.VERSION).putInt(this.count)
+                        .putInt(this.names.size()).putInt(root.length).putLong(indexedAt).put(root).flip();
+                Builder.writeFully(channel, header);
+
+                final ByteBuffer table = ByteBuffer.allocate(1024 * DirectoryIndex.ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < this.count; i++) {
+                    if (!table.hasRemaining()) {
+                        table.flip();
+                        Builder.writeFully(channel, table);
+                        table.clear();
+                    }
+                    table.putInt(this.parent[i]).putInt(this.nameOffset[i]).putInt(this.nameLength[i]).putInt(this.type[i])
+                            .putLong(this.size[i]).putLong(this.lastModified[i]).putInt(this.firstChild[i])
+                            .putInt(this.childCount[i]);
+                }
+                table.flip();
+                Builder.writeFully(channel, table);
+
+                Builder.writeFully(channel, ByteBuffer.wrap(this.names.toByteArray()));
+            }
+        }
+
+        /**
+         * Writes the given buffer completely.
+         *
+         * @param channel
+         *            The channel to write to.
+         * @param buffer
+         *            The buffer to write.
+         * @throws IOException
+         *             If any I/O error occurs.
+         */
+        private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
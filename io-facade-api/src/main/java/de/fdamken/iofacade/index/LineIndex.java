@@ -0,0 +1,690 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.LongPredicate;
+
+import de.fdamken.iofacade.File;
+import de.fdamken.iofacade.FileSystem;
+import de.fdamken.iofacade.PathAttributes;
+import de.fdamken.iofacade.util.Assertion;
+import de.fdamken.iofacade.util.RecordReader;
+
+/**
+ * A sparse index of the line offsets of a text file (see
+ * {@link LineIndexBuilder}). Lines are terminated by <code>\n</code> and
+ * counted from zero. A last line without terminator counts as line, too.
+ *
+ * <p>
+ * Only the offset of every {@link #getSpacing() spacing}-th line is stored in
+ * a primitive array. Looking up a line costs a single seek to the nearest
+ * stored offset and reading at most <code>spacing</code> lines from there.
+ * </p>
+ * <p>
+ * The index remembers the size and the time of the last modification of the
+ * file. If the file grew, it is assumed to be appended to and the index is
+ * extended by scanning the new bytes only. Otherwise, if the file changed, the
+ * index is rebuilt. The index is only brought up to date by
+ * {@link #refresh()}, lookups of lines that were appended afterwards fail.
+ * </p>
+ *
+ */
+public final class LineIndex {
+    /**
+     * The maximum number of indexes that are cached in memory per file system.
+     *
+     */
+    private static final int CACHE_SIZE = 64;
+    /**
+     * The magic number at the start of a stored index (<code>LIDX</code>).
+     *
+     */
+    private static final int MAGIC = 0x4C494458;
+    /**
+     * The size of the buffer the file is scanned with.
+     *
+     */
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    /**
+     * The states of the indexes that are cached in memory, by the absolute
+     * paths of their files. The states do not reference the file system, so it
+     * can be garbage collected with its cache. The cache is dropped by
+     * {@link #releaseCache(FileSystem)}, too.
+     *
+     */
+    private static final Map<FileSystem, Map<String, CachedState>> CACHE = new WeakHashMap<FileSystem, Map<String, CachedState>>();
+
+    /**
+     * The indexed file.
+     *
+     */
+    private final File file;
+    /**
+     * The number of lines between two stored offsets.
+     *
+     */
+    private final int spacing;
+    /**
+     * Whether the index is stored beside the file.
+     *
+     */
+    private boolean persist;
+    /**
+     * The offsets of the lines <code>0</code>, <code>spacing</code>,
+     * <code>2 * spacing</code> and so on. Only the first
+     * {@link #offsetCount} elements are used.
+     *
+     */
+    private long[] offsets = new long[16];
+    /**
+     * The number of stored offsets.
+     *
+     */
+    private int offsetCount = 1;
+    /**
+     * The number of line terminators.
+     *
+     */
+    private long terminatorCount;
+    /**
+     * The offset after the last line terminator.
+     *
+     */
+    private long lastLineStart;
+    /**
+     * The number of bytes that were indexed.
+     *
+     */
+    private long indexedSize;
+    /**
+     * The time of the last modification of the file when it was indexed.
+     * <code>-1</code> if the file was not indexed yet.
+     *
+     */
+    private long lastModified = -1;
+
+    /**
+     * Constructor of LineIndex.
+     *
+     * @param file
+     *            The indexed file.
+     * @param spacing
+     *            The number of lines between two stored offsets.
+     * @param persist
+     *            Whether the index is stored beside the file.
+     */
+    LineIndex(final File file, final int spacing, final boolean persist) {
+        this.file = file;
+        this.spacing = spacing;
+        this.persist = persist;
+    }
+
+    /**
+     * Brings this index up to date with the file. Appended bytes are indexed
+     * incrementally, any other change causes the index to be rebuilt. If the
+     * index is stored beside the file, the stored index is updated, too.
+     *
+     * @return Whether the index changed.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the file does not exist.
+     */
+    public synchronized boolean refresh() throws IOException, FileNotFoundException {
+        final PathAttributes attributes = this.file.getAttributes();
+        if (attributes.getSize() == this.indexedSize && attributes.getLastModified() == this.lastModified) {
+            return false;
+        }
+        final Progress progress;
+        if (attributes.getSize() <= this.indexedSize) {
+            progress = new Progress(new long[16], 1, 0, 0, 0);
+        } else {
+            // Only the unused tail of the offsets is written, so a failed scan
+            // leaves this index intact.
+            progress = new Progress(this.offsets, this.offsetCount, this.terminatorCount, this.lastLineStart,
+                    this.indexedSize);
+        }
+
+        final long scannedSize;
+        try (SeekableByteChannel channel = this.file.openChannel(StandardOpenOption.READ)) {
+            scannedSize = LineIndex.scan(channel, progress.indexedSize, terminator -> {
+                progress.terminatorCount++;
+                progress.lastLineStart = terminator + 1;
+                if (progress.terminatorCount % this.spacing == 0) {
+                    if (progress.offsetCount == progress.offsets.length) {
+                        progress.offsets = Arrays.copyOf(progress.offsets, progress.offsets.length * 2);
+                    }
+                    progress.offsets[progress.offsetCount++] = terminator + 1;
+                }
+                return true;
+            });
+        }
+        this.offsets = progress.offsets;
+        this.offsetCount = progress.offsetCount;
+        this.terminatorCount = progress.terminatorCount;
+        this.lastLineStart = progress.lastLineStart;
+        this.indexedSize = scannedSize;
+        this.lastModified = attributes.getLastModified();
+
+        if (this.persist) {
+            this.store();
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return The number of lines of the file when it was indexed.
+     */
+    public synchronized long getLineCount() {
+        return this.terminatorCount + (this.indexedSize > this.lastLineStart ? 1 : 0);
+    }
+
+    /**
+     * Looks up the offset of the given line.
+     *
+     * @param line
+     *            The number of the line. If this is the number of lines, the
+     *            offset after the last line is returned.
+     * @return The offset of the first byte of the line within the file.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws IndexOutOfBoundsException
+     *             If the line does not exist.
+     */
+    public synchronized long getOffset(final long line) throws IOException, IndexOutOfBoundsException {
+        if (line < 0 || line > this.getLineCount()) {
+            throw new IndexOutOfBoundsException("Line " + line + " does not exist!");
+        }
+        if (line >= this.terminatorCount) {
+            return line == this.terminatorCount ? this.lastLineStart : this.indexedSize;
+        }
+
+        final long stored = this.offsets[(int) (line / this.spacing)];
+        final long skip = line % this.spacing;
+        if (skip == 0) {
+            return stored;
+        }
+
+        final long[] result = new long[] { -1, skip };
+        try (SeekableByteChannel channel = this.file.openChannel(StandardOpenOption.READ)) {
+            LineIndex.scan(channel, stored, terminator -> {
+                if (--result[1] == 0) {
+                    result[0] = terminator + 1;
+                    return false;
+                }
+                return true;
+            });
+        }
+        if (result[0] < 0) {
+            throw new IOException("The file " + this.file.getAbsolutePath() + " changed since it was indexed!");
+        }
+        return result[0];
+    }
+
+    /**
+     * Opens a stream that reads the given lines including their terminators.
+     *
+     * @param first
+     *            The number of the first line to read.
+     * @param count
+     *            The number of lines to read.
+     * @return The opened stream.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws IndexOutOfBoundsException
+     *             If any of the lines does not exist.
+     */
+    public InputStream openLines(final long first, final long count) throws IOException, IndexOutOfBoundsException {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative!");
+        }
+
+        final long start = this.getOffset(first);
+        final long end = this.getOffset(first + count);
+        return this.file.openInputStream(start, end - start);
+    }
+
+    /**
+     * Reads the given lines without allocating anything per line (see
+     * {@link File#forEachLine(RecordReader.RecordConsumer)}).
+     *
+     * @param first
+     *            The number of the first line to read.
+     * @param count
+     *            The maximum number of lines to read. Lines after the end of
+     *            the file are ignored.
+     * @param consumer
+     *            Receives the lines as reusable views, without their
+     *            terminators.
+     * @return The number of lines that were accepted by the consumer.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws IndexOutOfBoundsException
+     *             If the first line does not exist.
+     */
+    public long forEachLine(final long first, final long count, final RecordReader.RecordConsumer consumer)
+            throws IOException, IndexOutOfBoundsException {
+        Assertion.acquire(consumer).named("consumer").notNull();
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative!");
+        }
+
+        final long[] remaining = new long[] { count };
+        try (SeekableByteChannel channel = this.file.openChannel(StandardOpenOption.READ)) {
+            channel.position(this.getOffset(first));
+            return RecordReader.read(channel, (byte) '\n', record -> {
+                if (remaining[0]-- <= 0) {
+                    return false;
+                }
+                if (record.hasRemaining() && record.get(record.limit() - 1) == '\r') {
+                    record.limit(record.limit() - 1);
+                }
+                return consumer.accept(record);
+            });
+        }
+    }
+
+    /**
+     * Determines the file the index of the given file is stored in. It is a
+     * hidden file beside the given file.
+     *
+     * @param file
+     *            The indexed file.
+     * @return The file the index is stored in.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public static File getIndexFile(final File file) throws IOException {
+        Assertion.acquire(file).named("file").notNull();
+
+        final String absolutePath = file.getAbsolutePath();
+        final String parentPath = absolutePath.substring(0, absolutePath.lastIndexOf('/') + 1);
+        return file.getFileSystem().getPath(parentPath + "." + file.getName() + ".lineidx").asFile();
+    }
+
+    /**
+     * Stores this index beside the file.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private void store() throws IOException {
+        LineIndex.getIndexFile(this.file).writeAtomically(out -> {
+            final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            data.writeInt(LineIndex.MAGIC);
+            data.writeInt(this.spacing);
+            data.writeLong(this.indexedSize);
+            data.writeLong(this.lastModified);
+            data.writeLong(this.terminatorCount);
+            data.writeLong(this.lastLineStart);
+            data.writeInt(this.offsetCount);
+            for (int i = 0; i < this.offsetCount; i++) {
+                data.writeLong(this.offsets[i]);
+            }
+            data.flush();
+        }, false);
+    }
+
+    /**
+     * Loads the index of the given file that is stored beside it.
+     *
+     * @param file
+     *            The indexed file.
+     * @param spacing
+     *            The required number of lines between two stored offsets.
+     * @return The loaded index. <code>null</code> if no index is stored, it
+     *         has another spacing or it is truncated or inconsistent, so it
+     *         has to be rebuilt.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    static LineIndex load(final File file, final int spacing) throws IOException {
+        final File indexFile = LineIndex.getIndexFile(file);
+        if (!indexFile.exists()) {
+            return null;
+        }
+
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(indexFile.openInputStream()))) {
+            if (data.readInt() != LineIndex.MAGIC || data.readInt() != spacing) {
+                return null;
+            }
+            final LineIndex result = new LineIndex(file, spacing, true);
+            result.indexedSize = data.readLong();
+            result.lastModified = data.readLong();
+            result.terminatorCount = data.readLong();
+            result.lastLineStart = data.readLong();
+            result.offsetCount = data.readInt();
+            if (result.indexedSize < 0 || result.terminatorCount < 0 || result.terminatorCount > result.indexedSize
+                    || result.lastLineStart < result.terminatorCount || result.lastLineStart > result.indexedSize
+                    || result.terminatorCount == 0 && result.lastLineStart != 0
+                    || result.offsetCount != result.terminatorCount / spacing + 1) {
+                return null;
+            }
+            result.offsets = new long[Math.max(16, result.offsetCount)];
+            for (int i = 0; i < result.offsetCount; i++) {
+                result.offsets[i] = data.readLong();
+                if (i == 0 ? result.offsets[i] != 0 : (result.offsets[i] <= result.offsets[i - 1]
+                        || result.offsets[i] > result.lastLineStart)) {
+                    return null;
+                }
+            }
+            return result;
+        } catch (final EOFException dummy) {
+            // The stored index is truncated.
+            return null;
+        }
+    }
+
+    /**
+     * Fetches the cached index of the given file.
+     *
+     * @param file
+     *            The indexed file.
+     * @param spacing
+     *            The required number of lines between two stored offsets.
+     * @return A new index with the cached state. <code>null</code> if none is
+     *         cached or it has another spacing.
+     */
+    static LineIndex getCached(final File file, final int spacing) {
+        final CachedState state;
+        synchronized (LineIndex.CACHE) {
+            final Map<String, CachedState> states = LineIndex.CACHE.get(file.getFileSystem());
+            state = states == null ? null : states.get(file.getAbsolutePath());
+        }
+        if (state == null || state.spacing != spacing) {
+            return null;
+        }
+
+        final LineIndex result = new LineIndex(file, spacing, state.persist);
+        result.offsets = Arrays.copyOf(state.offsets, Math.max(16, state.offsets.length));
+        result.offsetCount = state.offsets.length;
+        result.terminatorCount = state.terminatorCount;
+        result.lastLineStart = state.lastLineStart;
+        result.indexedSize = state.indexedSize;
+        result.lastModified = state.lastModified;
+        return result;
+    }
+
+    /**
+     * Caches the current state of the given index. The least recently used
+     * index of the same file system is evicted, if necessary.
+     *
+     * @param index
+     *            The index to cache.
+     */
+    static void putCached(final LineIndex index) {
+        final CachedState state;
+        synchronized (index) {
+            state = new CachedState(index.spacing, index.persist, Arrays.copyOf(index.offsets, index.offsetCount),
+                    index.terminatorCount, index.lastLineStart, index.indexedSize, index.lastModified);
+        }
+        synchronized (LineIndex.CACHE) {
+            LineIndex.CACHE.computeIfAbsent(index.file.getFileSystem(), key -> new LinkedHashMap<String, CachedState>(16,
+                    0.75F, true) {
+                /**
+                 * The serial version UID.
+                 *
+                 */
+                private static final long serialVersionUID = -2049216829766587377L;
+
+                /**
+                 * {@inheritDoc}
+                 *
+                 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+                 */
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, CachedState> eldest) {
+                    return this.size() > LineIndex.CACHE_SIZE;
+                }
+            }).put(index.file.getAbsolutePath(), state);
+        }
+    }
+
+    /**
+     * Drops all cached indexes of the given file system.
+     *
+     * @param fileSystem
+     *            The file system to drop the cached indexes of.
+     */
+    public static void releaseCache(final FileSystem fileSystem) {
+        Assertion.acquire(fileSystem).named("fileSystem").notNull();
+
+        synchronized (LineIndex.CACHE) {
+            LineIndex.CACHE.remove(fileSystem);
+        }
+    }
+
+    /**
+     * Scans the given channel for line terminators.
+     *
+     * @param channel
+     *            The channel to scan.
+     * @param position
+     *            The position to start scanning at.
+     * @param listener
+     *            Receives the positions of the line terminators. Returns
+     *            whether to continue scanning.
+     * @return The position scanning stopped at, i.e. the end of the channel
+     *         if it was scanned completely.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static long scan(final SeekableByteChannel channel, final long position, final LongPredicate listener)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(LineIndex.SCAN_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        channel.position(position);
+
+        long bufferStart = position;
+        int count;
+        while ((count = channel.read(buffer)) >= 0) {
+            if (count == 0 && buffer.hasRemaining()) {
+                continue;
+            }
+            final int end = buffer.position();
+            int index = RecordReader.indexOf(buffer, 0, end, (byte) '\n');
+            while (index >= 0) {
+                if (!listener.test(bufferStart + index)) {
+                    return bufferStart + index + 1;
+                }
+                index = RecordReader.indexOf(buffer, index + 1, end, (byte) '\n');
+            }
+            bufferStart += end;
+            buffer.clear();
+        }
+        return bufferStart;
+    }
+
+    /**
+     *
+     * @return {@link #file}.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     *
+     * @return {@link #spacing}.
+     */
+    public int getSpacing() {
+        return this.spacing;
+    }
+
+    /**
+     *
+     * @return {@link #persist}.
+     */
+    public synchronized boolean isPersist() {
+        return this.persist;
+    }
+
+    /**
+     *
+     * @param persist
+     *            The {@link #persist} to set.
+     */
+    synchronized void setPersist(final boolean persist) {
+        this.persist = persist;
+    }
+
+    /**
+     * The state of a scan that is committed to the index only if the scan
+     * succeeds (see {@link LineIndex#refresh()}).
+     *
+     */
+    private static class Progress {
+        /**
+         * The number of bytes that were indexed before the scan.
+         *
+         */
+        private final long indexedSize;
+        /**
+         * The stored offsets (see {@link LineIndex#offsets}).
+         *
+         */
+        private long[] offsets;
+        /**
+         * The number of stored offsets.
+         *
+         */
+        private int offsetCount;
+        /**
+         * The number of line terminators.
+         *
+         */
+        private long terminatorCount;
+        /**
+         * The offset after the last line terminator.
+         *
+         */
+        private long lastLineStart;
+
+        /**
+         * Constructor of Progress.
+         *
+         * @param offsets
+         *            The stored offsets.
+         * @param offsetCount
+         *            The number of stored offsets.
+         * @param terminatorCount
+         *            The number of line terminators.
+         * @param lastLineStart
+         *            The offset after the last line terminator.
+         * @param indexedSize
+         *            The number of bytes that were indexed before the scan.
+         */
+        public Progress(final long[] offsets, final int offsetCount, final long terminatorCount, final long lastLineStart,
+                final long indexedSize) {
+            this.offsets = offsets;
+            this.offsetCount = offsetCount;
+            this.terminatorCount = terminatorCount;
+            this.lastLineStart = lastLineStart;
+            this.indexedSize = indexedSize;
+        }
+    }
+
+    /**
+     * The state of a cached index. It does not reference the indexed file, so
+     * the cache does not keep the file system reachable.
+     *
+     */
+    private static class CachedState {
+        /**
+         * The number of lines between two stored offsets.
+         *
+         */
+        private final int spacing;
+        /**
+         * Whether the index is stored beside the file.
+         *
+         */
+        private final boolean persist;
+        /**
+         * The stored offsets.
+         *
+         */
+        private final long[] offsets;
+        /**
+         * The number of line terminators.
+         *
+         */
+        private final long terminatorCount;
+        /**
+         * The offset after the last line terminator.
+         *
+         */
+        private final long lastLineStart;
+        /**
+         * The number of bytes that were indexed.
+         *
+         */
+        private final long indexedSize;
+        /**
+         * The time of the last modification of the file when it was indexed.
+         *
+         */
+        private final long lastModified;
+
+        /**
+         * Constructor of CachedState.
+         *
+         * @param spacing
+         *            The number of lines between two stored offsets.
+         * @param persist
+         *            Whether the index is stored beside the file.
+         * @param offsets
+         *            The stored offsets.
+         * @param terminatorCount
+         *            The number of line terminators.
+         * @param lastLineStart
+         *            The offset after the last line terminator.
+         * @param indexedSize
+         *            The number of bytes that were indexed.
+         * @param lastModified
+         *            The time of the last modification of the file when it
+         *            was indexed.
+         */
+        public CachedState(final int spacing, final boolean persist, final long[] offsets, final long terminatorCount,
+                final long lastLineStart, final long indexedSize, final long lastModified) {
+            this.spacing = spacing;
+            this.persist = persist;
+            this.offsets = offsets;
+            this.terminatorCount = terminatorCount;
+            this.lastLineStart = lastLineStart;
+            this.indexedSize = indexedSize;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.index;
+
+import java.io.IOException;
+
+import de.fdamken.iofacade.File;
+import de.fdamken.iofacade.util.Assertion;
+
+/**
+ * Builds {@link LineIndex LineIndexes}.
+ *
+ * <p>
+ * For example, to read the lines 1000000 to 1000009 of <code>file</code>:
+ * <code>
+ * <pre>
+ * final {@link LineIndex} index = {@link LineIndexBuilder}.{@link LineIndexBuilder#acquire(File) acquire(file)}.{@link LineIndexBuilder#persist(boolean) persist(true)}.{@link LineIndexBuilder#build() build()};
+ * index.{@link LineIndex#forEachLine(long, long, de.fdamken.iofacade.util.RecordReader.RecordConsumer) forEachLine(1000000, 10, line -&gt; ...)};
+ * </pre>
+ * </code>
+ * </p>
+ *
+ */
+public final class LineIndexBuilder {
+    /**
+     * The default number of lines between two stored offsets.
+     *
+     */
+    public static final int DEFAULT_SPACING = 1024;
+
+    /**
+     * The file to index.
+     *
+     */
+    private final File file;
+    /**
+     * The number of lines between two stored offsets.
+     *
+     */
+    private int spacing = LineIndexBuilder.DEFAULT_SPACING;
+    /**
+     * Whether the index is stored beside the file.
+     *
+     */
+    private boolean persist;
+    /**
+     * Whether the index is cached in memory.
+     *
+     */
+    private boolean cache = true;
+
+    /**
+     * Constructor of LineIndexBuilder.
+     *
+     * @param file
+     *            The file to index.
+     */
+    private LineIndexBuilder(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Constructs a new {@link LineIndexBuilder} object.
+     *
+     * @param file
+     *            The file to index.
+     * @return The created {@link LineIndexBuilder} object.
+     */
+    public static LineIndexBuilder acquire(final File file) {
+        Assertion.acquire(file).named("file").notNull();
+
+        return new LineIndexBuilder(file);
+    }
+
+    /**
+     * Sets the number of lines between two stored offsets. A lookup reads at
+     * most this many lines after a single seek, the index stores one offset
+     * per this many lines. By default, this is {@value #DEFAULT_SPACING}.
+     *
+     * @param spacing
+     *            The number of lines between two stored offsets. Must be
+     *            positive.
+     * @return <code>this</code>
+     */
+    public LineIndexBuilder spacing(final int spacing) {
+        if (spacing <= 0) {
+            throw new IllegalArgumentException("spacing must be positive!");
+        }
+
+        this.spacing = spacing;
+        return this;
+    }
+
+    /**
+     * Sets whether the index is stored in a hidden file beside the indexed
+     * file (see {@link LineIndex#getIndexFile(File)}), so it survives restarts.
+     * By default, the index is not stored.
+     *
+     * @param persist
+     *            Whether the index is stored beside the file.
+     * @return <code>this</code>
+     */
+    public LineIndexBuilder persist(final boolean persist) {
+        this.persist = persist;
+        return this;
+    }
+
+    /**
+     * Sets whether the index is cached in memory, so that building an index
+     * of the same file again only extends the cached one. By default, the
+     * index is cached.
+     *
+     * @param cache
+     *            Whether the index is cached in memory.
+     * @return <code>this</code>
+     */
+    public LineIndexBuilder cache(final boolean cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Builds the index. A cached or stored index is reused if its spacing
+     * matches. In any case, the index is brought up to date (see
+     * {@link LineIndex#refresh()}).
+     *
+     * @return The index.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public LineIndex build() throws IOException {
+        LineIndex result = this.cache ? LineIndex.getCached(this.file, this.spacing) : null;
+        if (result == null && this.persist) {
+            result = LineIndex.load(this.file, this.spacing);
+        }
+        if (result == null) {
+            result = new LineIndex(this.file, this.spacing, this.persist);
+        } else {
+            result.setPersist(result.isPersist() || this.persist);
+        }
+        result.refresh();
+        if (this.cache) {
+            LineIndex.putCached(result);
+        }
+        return result;
+    }
+}
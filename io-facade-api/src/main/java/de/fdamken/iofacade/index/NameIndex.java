@@ -0,0 +1,610 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.index;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import de.fdamken.iofacade.Directory;
+import de.fdamken.iofacade.FileSystem;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.util.Assertion;
+import de.fdamken.iofacade.util.GlobPathFilter;
+import de.fdamken.iofacade.watch.DirectoryEvent;
+import de.fdamken.iofacade.watch.DirectoryListener;
+import de.fdamken.iofacade.watch.DirectoryWatch;
+
+/**
+ * An in-memory index of the names of all paths below a root directory that
+ * answers substring and glob queries without touching the file tree.
+ *
+ * <p>
+ * Every path gets an ID and the ID is added to the posting list of every
+ * trigram (three consecutive characters) of its name. The posting lists are
+ * sorted and stored as delta-encoded variable-length integers, which usually
+ * takes one or two bytes per posting. A query intersects the posting lists of
+ * the trigrams of its literal parts, starting with the shortest one, and only
+ * checks the remaining candidates. Queries without any literal part of at
+ * least three characters fall back to checking every name.
+ * </p>
+ * <p>
+ * The index is kept current either by rescanning the file tree (see
+ * {@link #rescan()}) or by passing the change feed of the file tree into it
+ * (this is a {@link DirectoryListener}, see {@link #watch()}). Removed paths
+ * leave gaps in the posting lists until more than half of all IDs are unused,
+ * then the index is compacted.
+ * </p>
+ * <p>
+ * Queries may run concurrently with each other, updates are exclusive.
+ * </p>
+ *
+ */
+public class NameIndex implements DirectoryListener {
+    /**
+     * The minimum number of unused IDs before the index is compacted.
+     *
+     */
+    private static final int MIN_COMPACTION = 1024;
+
+    /**
+     * The indexed root directory.
+     *
+     */
+    private final Directory root;
+    /**
+     * The lock that guards all following fields.
+     *
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * The absolute paths by ID. <code>null</code> for unused IDs.
+     *
+     */
+    private String[] paths = new String[64];
+    /**
+     * The next ID to assign.
+     *
+     */
+    private int nextId;
+    /**
+     * The IDs by absolute path.
+     *
+     */
+    private final NavigableMap<String, Integer> ids = new TreeMap<String, Integer>();
+    /**
+     * The posting lists by trigram.
+     *
+     */
+    private final Map<Long, PostingList> postings = new HashMap<Long, PostingList>();
+
+    /**
+     * Constructor of NameIndex.
+     *
+     * @param root
+     *            The indexed root directory.
+     */
+    private NameIndex(final Directory root) {
+        this.root = root;
+    }
+
+    /**
+     * Creates an index of the file tree below the given directory.
+     *
+     * @param root
+     *            The root directory to index.
+     * @return The created index.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the given directory does not exist.
+     */
+    public static NameIndex create(final Directory root) throws IOException, FileNotFoundException {
+        Assertion.acquire(root).named("root").notNull().exists();
+
+        final NameIndex result = new NameIndex(root);
+        result.rescan();
+        return result;
+    }
+
+    /**
+     * Lists the whole file tree again and adds and removes all paths that have
+     * changed since the last scan.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the root directory does not exist anymore.
+     */
+    public void rescan() throws IOException, FileNotFoundException {
+        final Set<String> current = new HashSet<String>();
+        for (final Path path : this.root.listEntriesRecursive()) {
+            current.add(path.getAbsolutePath());
+        }
+
+        this.lock.writeLock().lock();
+        try {
+            final Iterator<Map.Entry<String, Integer>> iterator = this.ids.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<String, Integer> entry = iterator.next();
+                if (!current.remove(entry.getKey())) {
+                    this.paths[entry.getValue()] = null;
+                    iterator.remove();
+                }
+            }
+            for (final String absolutePath : current) {
+                this.add(absolutePath);
+            }
+            this.compactIfNecessary();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Watches the root directory and keeps this index current (see
+     * {@link Directory#watch(DirectoryListener)}).
+     *
+     * @return The handle of the watch. Must be closed to stop watching.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public DirectoryWatch watch() throws IOException {
+        return this.root.watch(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.watch.DirectoryListener#onEvents(java.util.List)
+     */
+    @Override
+    public void onEvents(final List<DirectoryEvent> events) {
+        this.lock.writeLock().lock();
+        try {
+            for (final DirectoryEvent event : events) {
+                final String absolutePath = event.getPath().getAbsolutePath();
+                if (event.getKind() == DirectoryEvent.Kind.CREATED) {
+                    if (!this.ids.containsKey(absolutePath)) {
+                        this.add(absolutePath);
+                    }
+                } else if (event.getKind() == DirectoryEvent.Kind.DELETED) {
+                    this.removeTree(absolutePath);
+                }
+            }
+            this.compactIfNecessary();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds all paths whose name contains the given string.
+     *
+     * @param substring
+     *            The string to search for.
+     * @return All matching paths.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public List<Path> findBySubstring(final String substring) throws IOException {
+        Assertion.acquire(substring).named("substring").notNull();
+
+        final List<String> result = new ArrayList<String>();
+        this.lock.readLock().lock();
+        try {
+            final int[] candidates = this.candidates(Arrays.asList(substring));
+            for (int i = 0, count = candidates == null ? this.nextId : candidates.length; i < count; i++) {
+                final String absolutePath = this.paths[candidates == null ? i : candidates[i]];
+                if (absolutePath != null && NameIndex.nameOf(absolutePath).contains(substring)) {
+                    result.add(absolutePath);
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return this.toPaths(result);
+    }
+
+    /**
+     * Finds all paths whose absolute path (see {@link Path#getAbsolutePath()})
+     * matches the given glob pattern (see {@link GlobPathFilter}).
+     *
+     * @param glob
+     *            The glob pattern. Must be absolute (start with a slash).
+     * @return All matching paths.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws IllegalArgumentException
+     *             If the given pattern is invalid.
+     */
+    public List<Path> findByGlob(final String glob) throws IOException, IllegalArgumentException {
+        final GlobPathFilter filter = new GlobPathFilter(glob);
+
+        final List<String> result = new ArrayList<String>();
+        this.lock.readLock().lock();
+        try {
+            final int[] candidates = this.candidates(NameIndex.literalsOf(glob.substring(glob.lastIndexOf('/') + 1)));
+            for (int i = 0, count = candidates == null ? this.nextId : candidates.length; i < count; i++) {
+                final String absolutePath = this.paths[candidates == null ? i : candidates[i]];
+                if (absolutePath != null && filter.matches(absolutePath)) {
+                    result.add(absolutePath);
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return this.toPaths(result);
+    }
+
+    /**
+     *
+     * @return The number of indexed paths.
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.ids.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *
+     * @return The number of assigned IDs, including the unused ones.
+     */
+    int getAssignedIdCount() {
+        this.lock.readLock().lock();
+        try {
+            return this.nextId;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the IDs of all names that contain all of the given literals. Must
+     * be invoked with the read lock held.
+     *
+     * @param literals
+     *            The literals the names have to contain.
+     * @return The sorted IDs of the candidates. May contain unused IDs.
+     *         <code>null</code> if none of the literals contains a trigram, so
+     *         every name is a candidate.
+     */
+    private int[] candidates(final List<String> literals) {
+        final Set<Long> trigrams = new HashSet<Long>();
+        for (final String literal : literals) {
+            for (int i = 0; i + 3 <= literal.length(); i++) {
+                trigrams.add(NameIndex.trigramOf(literal, i));
+            }
+        }
+        if (trigrams.isEmpty()) {
+            return null;
+        }
+
+        final List<PostingList> lists = new ArrayList<PostingList>(trigrams.size());
+        for (final Long trigram : trigrams) {
+            final PostingList list = this.postings.get(trigram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.count));
+
+        int[] result = lists.get(0).decode();
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = NameIndex.intersect(result, lists.get(i).decode());
+        }
+        return result;
+    }
+
+    /**
+     * Adds the given path. Must be invoked with the write lock held.
+     *
+     * @param absolutePath
+     *            The absolute path to add.
+     */
+    private void add(final String absolutePath) {
+        final int id = this.nextId++;
+        if (id == this.paths.length) {
+            this.paths = Arrays.copyOf(this.paths, id * 2);
+        }
+        this.paths[id] = absolutePath;
+        this.ids.put(absolutePath, id);
+
+        final String name = NameIndex.nameOf(absolutePath);
+        for (int i = 0; i + 3 <= name.length(); i++) {
+            this.postings.computeIfAbsent(NameIndex.trigramOf(name, i), dummy -> new PostingList()).add(id);
+        }
+    }
+
+    /**
+     * Removes the given path and all paths below it. Must be invoked with the
+     * write lock held.
+     *
+     * @param absolutePath
+     *            The absolute path to remove.
+     */
+    private void removeTree(final String absolutePath) {
+        final Integer id = this.ids.remove(absolutePath);
+        if (id != null) {
+            this.paths[id] = null;
+        }
+        // '0' is the successor of '/'.
+        final Iterator<Integer> below = this.ids.subMap(absolutePath + "/", absolutePath + "0").values().iterator();
+        while (below.hasNext()) {
+            this.paths[below.next()] = null;
+            below.remove();
+        }
+    }
+
+    /**
+     * Rebuilds the index from scratch if more than half of all IDs are unused.
+     * Must be invoked with the write lock held.
+     *
+     */
+    private void compactIfNecessary() {
+        final int unused = this.nextId - this.ids.size();
+        if (unused < NameIndex.MIN_COMPACTION || unused <= this.ids.size()) {
+            return;
+        }
+
+        final List<String> live = new ArrayList<String>(this.ids.keySet());
+        this.paths = new String[Math.max(64, live.size())];
+        this.nextId = 0;
+        this.ids.clear();
+        this.postings.clear();
+        for (final String absolutePath : live) {
+            this.add(absolutePath);
+        }
+    }
+
+    /**
+     * Converts the given absolute paths into {@link Path}s.
+     *
+     * @param absolutePaths
+     *            The absolute paths to convert.
+     * @return The converted paths.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private List<Path> toPaths(final List<String> absolutePaths) throws IOException {
+        final FileSystem fileSystem = this.root.getFileSystem();
+        final List<Path> result = new ArrayList<Path>(absolutePaths.size());
+        for (final String absolutePath : absolutePaths) {
+            result.add(fileSystem.getPath(absolutePath));
+        }
+        return result;
+    }
+
+    /**
+     * Extracts the name from the given absolute path.
+     *
+     * @param absolutePath
+     *            The absolute path.
+     * @return The name (the last path-part).
+     */
+    private static String nameOf(final String absolutePath) {
+        return absolutePath.substring(absolutePath.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Packs the three characters starting at the given index into a single
+     * value.
+     *
+     * @param string
+     *            The string that contains the trigram.
+     * @param index
+     *            The index of the first character of the trigram.
+     * @return The trigram.
+     */
+    private static long trigramOf(final String string, final int index) {
+        return (long) string.charAt(index) << 32 | (long) string.charAt(index + 1) << 16 | string.charAt(index + 2);
+    }
+
+    /**
+     * Extracts the literal runs of the given glob path-part, i.e. the parts
+     * that every matching name has to contain.
+     *
+     * @param glob
+     *            The glob path-part.
+     * @return The literal runs.
+     */
+    private static List<String> literalsOf(final String glob) {
+        final List<String> result = new ArrayList<String>();
+        final StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            if (c == '\\' && i + 1 < glob.length()) {
+                literal.append(glob.charAt(++i));
+                continue;
+            }
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                result.add(literal.toString());
+                literal.setLength(0);
+                if (c == '[' || c == '{') {
+                    i = NameIndex.skipGroup(glob, i);
+                }
+            } else {
+                literal.append(c);
+            }
+        }
+        result.add(literal.toString());
+        return result;
+    }
+
+    /**
+     * Skips the set (<code>[...]</code>) or the alternatives
+     * (<code>{...}</code>) that start at the given index.
+     *
+     * @param glob
+     *            The glob path-part.
+     * @param start
+     *            The index of the opening bracket.
+     * @return The index of the closing bracket.
+     */
+    private static int skipGroup(final String glob, final int start) {
+        int i = start + 1;
+        if (glob.charAt(start) == '[') {
+            if (i < glob.length() && glob.charAt(i) == '!') {
+                i++;
+            }
+            if (i < glob.length() && glob.charAt(i) == ']') {
+                // A leading bracket is part of the set.
+                i++;
+            }
+            while (i < glob.length() && glob.charAt(i) != ']') {
+                i += glob.charAt(i) == '\\' ? 2 : 1;
+            }
+            return i;
+        }
+
+        int depth = 1;
+        for (; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                i = NameIndex.skipGroup(glob, i);
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Intersects the given sorted arrays.
+     *
+     * @param array0
+     *            The first array.
+     * @param array1
+     *            The second array.
+     * @return The sorted intersection.
+     */
+    private static int[] intersect(final int[] array0, final int[] array1) {
+        final int[] result = new int[Math.min(array0.length, array1.length)];
+        int length = 0;
+        int i = 0;
+        int j = 0;
+        while (i < array0.length && j < array1.length) {
+            if (array0[i] < array1[j]) {
+                i++;
+            } else if (array0[i] > array1[j]) {
+                j++;
+            } else {
+                result[length++] = array0[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    /**
+     * A sorted list of IDs, stored as delta-encoded variable-length integers.
+     *
+     */
+    private static final class PostingList {
+        /**
+         * The encoded IDs.
+         *
+         */
+        private byte[] data = new byte[4];
+        /**
+         * The number of used bytes of {@link #data}.
+         *
+         */
+        private int length;
+        /**
+         * The last added ID. <code>-1</code> if the list is empty.
+         *
+         */
+        private int last = -1;
+        /**
+         * The number of IDs.
+         *
+         */
+        private int count;
+
+        /**
+         * Adds the given ID, if it is not the last one already.
+         *
+         * @param id
+         *            The ID to add. Must not be less than the last ID.
+         */
+        void add(final int id) {
+            if (id == this.last) {
+                return;
+            }
+
+            int delta = id - this.last;
+            this.last = id;
+            this.count++;
+            if (this.length + 5 > this.data.length) {
+                this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, this.length + 5));
+            }
+            while ((delta & ~0x7F) != 0) {
+                this.data[this.length++] = (byte) (delta & 0x7F | 0x80);
+                delta >>>= 7;
+            }
+            this.data[this.length++] = (byte) delta;
+        }
+
+        /**
+         * Decodes all IDs.
+         *
+         * @return The sorted IDs.
+         */
+        int[] decode() {
+            final int[] result = new int[this.count];
+            int id = -1;
+            int position = 0;
+            for (int i = 0; i < this.count; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = this.data[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += delta;
+                result[i] = id;
+            }
+            return result;
+        }
+    }
+}
@@ -29,4 +29,10 @@ public interface FileSystemAware {
      * @return The class that implements the {@link FileSystem} interface.
      */
     Class<? extends FileSystem> getFileSystemClass();
+
+    /**
+     *
+     * @return The {@link FileSystem} instance this path belongs to.
+     */
+    FileSystem getFileSystem();
 }
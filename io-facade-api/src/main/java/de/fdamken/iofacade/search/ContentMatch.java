@@ -0,0 +1,94 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.search;
+
+import de.fdamken.iofacade.File;
+
+/**
+ * A single occurrence of a pattern within the content of a file.
+ *
+ * @see ContentSearch
+ */
+public final class ContentMatch {
+    /**
+     * The file the pattern occurred in.
+     *
+     */
+    private final File file;
+    /**
+     * The index of the pattern that occurred.
+     *
+     */
+    private final int pattern;
+    /**
+     * The offset of the first byte of the occurrence within the file.
+     *
+     */
+    private final long offset;
+
+    /**
+     * Constructor of ContentMatch.
+     *
+     * @param file
+     *            The file the pattern occurred in.
+     * @param pattern
+     *            The index of the pattern that occurred.
+     * @param offset
+     *            The offset of the first byte of the occurrence within the
+     *            file.
+     */
+    public ContentMatch(final File file, final int pattern, final long offset) {
+        this.file = file;
+        this.pattern = pattern;
+        this.offset = offset;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return this.file.getAbsolutePath() + "@" + this.offset + " (pattern " + this.pattern + ")";
+    }
+
+    /**
+     *
+     * @return {@link #file}.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     *
+     * @return {@link #pattern}.
+     */
+    public int getPattern() {
+        return this.pattern;
+    }
+
+    /**
+     *
+     * @return {@link #offset}.
+     */
+    public long getOffset() {
+        return this.offset;
+    }
+}
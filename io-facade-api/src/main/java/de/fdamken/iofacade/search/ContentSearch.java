@@ -0,0 +1,177 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.search;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import de.fdamken.iofacade.File;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+import de.fdamken.iofacade.util.Assertion;
+import de.fdamken.iofacade.util.ParallelDirectoryWalker;
+import de.fdamken.iofacade.util.PathFilter;
+
+/**
+ * Searches the contents of all files within a file tree for byte patterns.
+ *
+ * <p>
+ * The file tree is walked using the {@link ParallelDirectoryWalker} and every
+ * file is scanned by the worker that found it, so multiple files are scanned
+ * concurrently. The contents are streamed through a
+ * {@link MultiPatternMatcher} in chunks using a buffer that is pooled per
+ * worker thread, so no file is ever loaded as a whole.
+ * </p>
+ * <p>
+ * If any error occurs, all workers stop scanning as soon as they have
+ * finished their current chunk and the sink is not invoked anymore.
+ * </p>
+ *
+ */
+public class ContentSearch {
+    /**
+     * The size of the pooled buffers.
+     *
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * The pooled buffers.
+     *
+     */
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[ContentSearch.BUFFER_SIZE]);
+
+    /**
+     * Constructor of ContentSearch.
+     *
+     */
+    private ContentSearch() {
+        // Nothing to do.
+    }
+
+    /**
+     * Searches the contents of all files within the file tree starting from
+     * the given directory that are accepted by the given {@link PathFilter}.
+     * Every occurrence is passed into the given sink as soon as it is found.
+     *
+     * @param rootDir
+     *            The root directory of the file tree.
+     * @param filter
+     *            The {@link PathFilter} to apply.
+     * @param matcher
+     *            The compiled patterns to search for.
+     * @param sink
+     *            The sink that receives all occurrences. This is invoked
+     *            concurrently from multiple threads. The occurrences of a
+     *            single file are passed in order of their end.
+     * @throws FileNotFoundException
+     *             If the given directory was not found.
+     * @throws IOException
+     *             If any I/O error occurs. The search is aborted as soon as
+     *             possible if any error occurs.
+     */
+    public static void search(final Path rootDir, final PathFilter filter, final MultiPatternMatcher matcher,
+            final Consumer<? super ContentMatch> sink) throws FileNotFoundException, IOException {
+        Assertion.acquire(rootDir).named("rootDir").notNull();
+        Assertion.acquire(filter).named("filter").notNull();
+        Assertion.acquire(matcher).named("matcher").notNull();
+        Assertion.acquire(sink).named("sink").notNull();
+
+        final AtomicBoolean aborted = new AtomicBoolean();
+        ParallelDirectoryWalker.walk(rootDir, filter, (path, attributes) -> {
+            // Links to files are searched, too.
+            if (attributes.isFile() || attributes.getType() == PathAttributes.Type.OTHER && path.isFile()) {
+                try {
+                    ContentSearch.search(path.asFile(), matcher, sink, aborted);
+                } catch (final FileNotFoundException dummy) {
+                    // Deleted since it was listed.
+                } catch (final IOException cause) {
+                    aborted.set(true);
+                    throw new UncheckedIOException(cause);
+                } catch (final RuntimeException | Error cause) {
+                    aborted.set(true);
+                    throw cause;
+                }
+            }
+        });
+    }
+
+    /**
+     * Searches the contents of the given file.
+     *
+     * @param file
+     *            The file to search.
+     * @param matcher
+     *            The compiled patterns to search for.
+     * @param sink
+     *            The sink that receives all occurrences.
+     * @throws FileNotFoundException
+     *             If the given file was not found.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public static void search(final File file, final MultiPatternMatcher matcher, final Consumer<? super ContentMatch> sink)
+            throws FileNotFoundException, IOException {
+        Assertion.acquire(file).named("file").notNull();
+        Assertion.acquire(matcher).named("matcher").notNull();
+        Assertion.acquire(sink).named("sink").notNull();
+
+        ContentSearch.search(file, matcher, sink, new AtomicBoolean());
+    }
+
+    /**
+     * Searches the contents of the given file until the end of the file or
+     * until the search is aborted. No occurrence is passed into the sink after
+     * the search was aborted.
+     *
+     * @param file
+     *            The file to search.
+     * @param matcher
+     *            The compiled patterns to search for.
+     * @param sink
+     *            The sink that receives all occurrences.
+     * @param aborted
+     *            Whether the search was aborted. Set by other threads if they
+     *            fail.
+     * @throws FileNotFoundException
+     *             If the given file was not found.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static void search(final File file, final MultiPatternMatcher matcher, final Consumer<? super ContentMatch> sink,
+            final AtomicBoolean aborted) throws FileNotFoundException, IOException {
+        final byte[] buffer = ContentSearch.BUFFERS.get();
+        final MultiPatternMatcher.MatchSink matchSink = (pattern, offset) -> {
+            if (!aborted.get()) {
+                sink.accept(new ContentMatch(file, pattern, offset));
+            }
+        };
+        try (InputStream in = file.openInputStream()) {
+            int state = MultiPatternMatcher.INITIAL_STATE;
+            long position = 0;
+            int read;
+            while (!aborted.get() && (read = in.read(buffer)) >= 0) {
+                state = matcher.scan(buffer, 0, read, state, position, matchSink);
+                position += read;
+            }
+        }
+    }
+}
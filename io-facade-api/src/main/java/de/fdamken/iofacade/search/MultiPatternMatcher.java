@@ -0,0 +1,274 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.fdamken.iofacade.util.Assertion;
+
+/**
+ * Finds all occurrences of multiple byte patterns at once in a single pass
+ * using the Aho-Corasick algorithm.
+ *
+ * <p>
+ * The automaton is compiled into a dense transition table with the failure
+ * links already resolved, so every input byte costs exactly one table lookup,
+ * independent of the number of patterns. The table takes
+ * <code>1 KiB</code> per state, where the number of states is at most the
+ * total length of all patterns.
+ * </p>
+ * <p>
+ * A matcher is immutable and may be shared between threads. The state of a
+ * scan is a plain <code>int</code>, so input can be fed in arbitrary chunks by
+ * passing the state returned by one call of
+ * {@link #scan(byte[], int, int, int, long, MatchSink)} into the next one.
+ * </p>
+ *
+ */
+public final class MultiPatternMatcher {
+    /**
+     * The initial state of a scan.
+     *
+     */
+    public static final int INITIAL_STATE = 0;
+
+    /**
+     * The lengths of the patterns.
+     *
+     */
+    private final int[] patternLengths;
+    /**
+     * The transition table. The successor of state <code>s</code> on byte
+     * <code>b</code> is found at <code>(s &lt;&lt; 8) | b</code>.
+     *
+     */
+    private final int[] transitions;
+    /**
+     * The indices of the patterns that end in every state, not including the
+     * patterns of the {@link #outputLinks}. <code>null</code> if no pattern
+     * ends in a state.
+     *
+     */
+    private final int[][] outputs;
+    /**
+     * The next state on the failure chain of every state that has any
+     * outputs. <code>-1</code> if there is none.
+     *
+     */
+    private final int[] outputLinks;
+    /**
+     * Whether any pattern ends in every state, including the patterns of the
+     * {@link #outputLinks}.
+     *
+     */
+    private final boolean[] accepting;
+
+    /**
+     * Constructor of MultiPatternMatcher.
+     *
+     * @param patternLengths
+     *            The lengths of the patterns.
+     * @param transitions
+     *            The transition table.
+     * @param outputs
+     *            The indices of the patterns that end in every state.
+     * @param outputLinks
+     *            The next state on the failure chain of every state that has
+     *            any outputs.
+     * @param accepting
+     *            Whether any pattern ends in every state.
+     */
+    private MultiPatternMatcher(final int[] patternLengths, final int[] transitions, final int[][] outputs,
+            final int[] outputLinks, final boolean[] accepting) {
+        this.patternLengths = patternLengths;
+        this.transitions = transitions;
+        this.outputs = outputs;
+        this.outputLinks = outputLinks;
+        this.accepting = accepting;
+    }
+
+    /**
+     * Compiles the given patterns.
+     *
+     * @param patterns
+     *            The patterns to search for. None of them may be empty. The
+     *            index of a pattern within this list is reported on every
+     *            match.
+     * @return The compiled {@link MultiPatternMatcher}.
+     */
+    public static MultiPatternMatcher compile(final List<byte[]> patterns) {
+        Assertion.acquire(patterns).named("patterns").notNull();
+        if (patterns.isEmpty()) {
+            throw new IllegalArgumentException("patterns must not be empty!");
+        }
+
+        int maxStates = 1;
+        for (final byte[] pattern : patterns) {
+            Assertion.acquire(pattern).named("pattern").notNull();
+            if (pattern.length == 0) {
+                throw new IllegalArgumentException("pattern must not be empty!");
+            }
+            maxStates += pattern.length;
+        }
+
+        // Build the trie. Missing transitions are -1.
+        int[] transitions = new int[maxStates << 8];
+        Arrays.fill(transitions, -1);
+        final int[][] outputs = new int[maxStates][];
+        final int[] patternLengths = new int[patterns.size()];
+        int states = 1;
+        for (int i = 0; i < patterns.size(); i++) {
+            final byte[] pattern = patterns.get(i);
+            patternLengths[i] = pattern.length;
+            int state = MultiPatternMatcher.INITIAL_STATE;
+            for (final byte b : pattern) {
+                final int index = state << 8 | b & 0xFF;
+                if (transitions[index] < 0) {
+                    transitions[index] = states++;
+                }
+                state = transitions[index];
+            }
+            outputs[state] = MultiPatternMatcher.append(outputs[state], i);
+        }
+        transitions = Arrays.copyOf(transitions, states << 8);
+
+        // Resolve the failure links breadth first.
+        final int[] failures = new int[states];
+        final int[] outputLinks = new int[states];
+        final boolean[] accepting = new boolean[states];
+        final int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        outputLinks[MultiPatternMatcher.INITIAL_STATE] = -1;
+        for (int b = 0; b < 256; b++) {
+            final int child = transitions[b];
+            if (child < 0) {
+                transitions[b] = MultiPatternMatcher.INITIAL_STATE;
+            } else {
+                failures[child] = MultiPatternMatcher.INITIAL_STATE;
+                outputLinks[child] = -1;
+                accepting[child] = outputs[child] != null;
+                queue[tail++] = child;
+            }
+        }
+        while (head < tail) {
+            final int state = queue[head++];
+            for (int b = 0; b < 256; b++) {
+                final int index = state << 8 | b;
+                final int child = transitions[index];
+                final int fallback = transitions[failures[state] << 8 | b];
+                if (child < 0) {
+                    transitions[index] = fallback;
+                } else {
+                    failures[child] = fallback;
+                    outputLinks[child] = outputs[fallback] == null ? outputLinks[fallback] : fallback;
+                    accepting[child] = outputs[child] != null || outputLinks[child] >= 0;
+                    queue[tail++] = child;
+                }
+            }
+        }
+
+        return new MultiPatternMatcher(patternLengths, transitions, Arrays.copyOf(outputs, states), outputLinks, accepting);
+    }
+
+    /**
+     * Appends the given value to the given array.
+     *
+     * @param array
+     *            The array to append to. May be <code>null</code>.
+     * @param value
+     *            The value to append.
+     * @return The new array.
+     */
+    private static int[] append(final int[] array, final int value) {
+        if (array == null) {
+            return new int[] { value };
+        }
+        final int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    /**
+     * Scans the given chunk of input and reports all occurrences of the
+     * patterns that end within the chunk, including those that started in a
+     * previous chunk. Overlapping occurrences are reported as well.
+     *
+     * @param buffer
+     *            The buffer that contains the chunk.
+     * @param offset
+     *            The offset of the chunk within the buffer.
+     * @param length
+     *            The length of the chunk.
+     * @param state
+     *            The state returned by the scan of the previous chunk or
+     *            {@link #INITIAL_STATE} for the first chunk.
+     * @param position
+     *            The position of the first byte of the chunk within the whole
+     *            input.
+     * @param sink
+     *            The sink that receives all occurrences.
+     * @return The state to pass into the scan of the next chunk.
+     */
+    public int scan(final byte[] buffer, final int offset, final int length, final int state, final long position,
+            final MatchSink sink) {
+        final int[] transitions = this.transitions;
+        final boolean[] accepting = this.accepting;
+        int current = state;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            current = transitions[current << 8 | buffer[i] & 0xFF];
+            if (accepting[current]) {
+                final long endPosition = position + (i - offset) + 1;
+                for (int output = current; output >= 0; output = this.outputLinks[output]) {
+                    if (this.outputs[output] != null) {
+                        for (final int pattern : this.outputs[output]) {
+                            sink.accept(pattern, endPosition - this.patternLengths[pattern]);
+                        }
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     *
+     * @return The number of patterns.
+     */
+    public int getPatternCount() {
+        return this.patternLengths.length;
+    }
+
+    /**
+     * Receives the occurrences found by a {@link MultiPatternMatcher}.
+     *
+     */
+    @FunctionalInterface
+    public static interface MatchSink {
+        /**
+         * Invoked for every occurrence.
+         *
+         * @param pattern
+         *            The index of the pattern that occurred.
+         * @param offset
+         *            The position of the first byte of the occurrence.
+         */
+        void accept(final int pattern, final long offset);
+    }
+}
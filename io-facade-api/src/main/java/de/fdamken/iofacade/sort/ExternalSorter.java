@@ -0,0 +1,593 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.sort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import de.fdamken.iofacade.Directory;
+import de.fdamken.iofacade.DirectoryPage;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+import de.fdamken.iofacade.util.Assertion;
+import de.fdamken.iofacade.util.PathFilter;
+
+/**
+ * Sorts the entries of directories that are too large to be sorted in memory
+ * using an external merge sort: The entries are listed page by page (see
+ * {@link Directory#listEntries(PathFilter, int, String)}), every
+ * {@link #runSize(int) run} of entries is sorted in memory and spilled to a
+ * temporary file and finally all runs are merged lazily while the resulting
+ * stream is consumed. If all entries fit into a single run, nothing is
+ * spilled at all.
+ *
+ * <p>
+ * For example, to list the entries of <code>dir</code> ordered by size: <code>
+ * <pre>
+ * try (Stream&lt;{@link PathRecord}&gt; entries = {@link ExternalSorter}.{@link ExternalSorter#acquire(Directory) acquire(dir)}.{@link ExternalSorter#order(PathOrder) order(PathOrder.BY_SIZE)}.{@link ExternalSorter#sort() sort()}) {
+ *     ...
+ * }
+ * </pre>
+ * </code>
+ * </p>
+ * <p>
+ * The returned stream holds the temporary files and must be closed.
+ * </p>
+ *
+ */
+public final class ExternalSorter {
+    /**
+     * The default number of entries per run.
+     *
+     */
+    public static final int DEFAULT_RUN_SIZE = 100000;
+    /**
+     * The maximum number of runs that are merged at once. If there are more
+     * runs, these are merged in multiple passes so the number of open files is
+     * bounded.
+     *
+     */
+    private static final int MAX_MERGE_WIDTH = 64;
+    /**
+     * The maximum number of entries that are listed at once.
+     *
+     */
+    private static final int MAX_PAGE_SIZE = 1024;
+
+    /**
+     * The directory to sort the entries of.
+     *
+     */
+    private final Directory directory;
+    /**
+     * The {@link PathFilter} to apply.
+     *
+     */
+    private PathFilter filter = path -> true;
+    /**
+     * The order to sort the entries by.
+     *
+     */
+    private PathOrder order = PathOrder.BY_NAME;
+    /**
+     * The maximum number of entries that are sorted in memory.
+     *
+     */
+    private int runSize = ExternalSorter.DEFAULT_RUN_SIZE;
+    /**
+     * The directory to create the temporary files in. <code>null</code> for
+     * the default temporary-file directory.
+     *
+     */
+    private java.nio.file.Path tempDirectory;
+
+    /**
+     * Constructor of ExternalSorter.
+     *
+     * @param directory
+     *            The directory to sort the entries of.
+     */
+    private ExternalSorter(final Directory directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Constructs a new {@link ExternalSorter} object.
+     *
+     * @param directory
+     *            The directory to sort the entries of.
+     * @return The created {@link ExternalSorter} object.
+     */
+    public static ExternalSorter acquire(final Directory directory) {
+        Assertion.acquire(directory).named("directory").notNull();
+
+        return new ExternalSorter(directory);
+    }
+
+    /**
+     * Sets the {@link PathFilter} to apply. By default, every path is accepted.
+     *
+     * @param filter
+     *            The {@link PathFilter} to apply.
+     * @return <code>this</code>
+     */
+    public ExternalSorter filter(final PathFilter filter) {
+        Assertion.acquire(filter).named("filter").notNull();
+
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Sets the order to sort the entries by. By default, the entries are sorted
+     * by name.
+     *
+     * @param order
+     *            The order to sort the entries by.
+     * @return <code>this</code>
+     */
+    public ExternalSorter order(final PathOrder order) {
+        Assertion.acquire(order).named("order").notNull();
+
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of entries that are sorted in memory. By default,
+     * this is {@value #DEFAULT_RUN_SIZE}.
+     *
+     * @param runSize
+     *            The maximum number of entries per run. Must be positive.
+     * @return <code>this</code>
+     */
+    public ExternalSorter runSize(final int runSize) {
+        if (runSize < 1) {
+            throw new IllegalArgumentException("runSize must be positive!");
+        }
+
+        this.runSize = runSize;
+        return this;
+    }
+
+    /**
+     * Sets the directory to create the temporary files in. By default, the
+     * default temporary-file directory is used.
+     *
+     * @param tempDirectory
+     *            The directory to create the temporary files in.
+     * @return <code>this</code>
+     */
+    public ExternalSorter tempDirectory(final java.nio.file.Path tempDirectory) {
+        Assertion.acquire(tempDirectory).named("tempDirectory").notNull();
+
+        this.tempDirectory = tempDirectory;
+        return this;
+    }
+
+    /**
+     * Sorts the entries of the directory.
+     *
+     * @return The sorted entries. The stream must be closed to delete the
+     *         temporary files. Errors reading the temporary files are thrown
+     *         as {@link UncheckedIOException}.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the directory does not exist.
+     */
+    public Stream<PathRecord> sort() throws IOException, FileNotFoundException {
+        final List<PathRecord> buffer = new ArrayList<PathRecord>();
+        final List<java.nio.file.Path> runs = new ArrayList<java.nio.file.Path>();
+        java.nio.file.Path workDirectory = null;
+        try {
+            final int pageSize = Math.min(this.runSize, ExternalSorter.MAX_PAGE_SIZE);
+            String cursor = null;
+            do {
+                final DirectoryPage page = this.directory.listEntries(this.filter, pageSize, cursor);
+                for (final Path path : page.getEntries()) {
+                    final PathAttributes attributes;
+                    if (this.order.requiresAttributes()) {
+                        try {
+                            attributes = path.getAttributes();
+                        } catch (final FileNotFoundException dummy) {
+                            // Deleted since it was listed.
+                            continue;
+                        }
+                    } else {
+                        attributes = null;
+                    }
+                    buffer.add(new PathRecord(path.getAbsolutePath(), attributes));
+
+                    if (buffer.size() >= this.runSize) {
+                        if (workDirectory == null) {
+                            workDirectory = this.createWorkDirectory();
+                        }
+                        runs.add(this.spill(workDirectory, runs.size(), buffer));
+                        buffer.clear();
+                    }
+                }
+                cursor = page.getCursor();
+            } while (cursor != null);
+
+            if (runs.isEmpty()) {
+                Collections.sort(buffer, this.order);
+                return buffer.stream();
+            }
+            if (!buffer.isEmpty()) {
+                runs.add(this.spill(workDirectory, runs.size(), buffer));
+                buffer.clear();
+            }
+
+            List<java.nio.file.Path> pending = runs;
+            int generation = 0;
+            while (pending.size() > ExternalSorter.MAX_MERGE_WIDTH) {
+                generation++;
+                final List<java.nio.file.Path> merged = new ArrayList<java.nio.file.Path>();
+                for (int i = 0; i < pending.size(); i += ExternalSorter.MAX_MERGE_WIDTH) {
+                    final List<java.nio.file.Path> group = pending.subList(i,
+                            Math.min(i + ExternalSorter.MAX_MERGE_WIDTH, pending.size()));
+                    final java.nio.file.Path run = workDirectory.resolve("run-" + generation + "-" + merged.size());
+                    try (Merger merger = new Merger(group, this.order);
+                            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+                        out.writeInt(merger.getRemaining());
+                        while (merger.hasNext()) {
+                            ExternalSorter.write(out, merger.next());
+                        }
+                    }
+                    for (final java.nio.file.Path file : group) {
+                        Files.delete(file);
+                    }
+                    merged.add(run);
+                }
+                pending = merged;
+            }
+
+            final Merger merger = new Merger(pending, this.order);
+            final java.nio.file.Path finalWorkDirectory = workDirectory;
+            return StreamSupport.stream(Spliterators.spliterator(merger, merger.getRemaining(), Spliterator.ORDERED
+                    | Spliterator.NONNULL), false).onClose(() -> {
+                try {
+                    merger.close();
+                } finally {
+                    ExternalSorter.deleteWorkDirectory(finalWorkDirectory);
+                }
+            });
+        } catch (final IOException | RuntimeException | Error cause) {
+            if (workDirectory != null) {
+                ExternalSorter.deleteWorkDirectory(workDirectory);
+            }
+            throw cause;
+        }
+    }
+
+    /**
+     * Creates the directory the runs are written to.
+     *
+     * @return The created directory.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private java.nio.file.Path createWorkDirectory() throws IOException {
+        return this.tempDirectory == null ? Files.createTempDirectory("io-facade-sort") : Files.createTempDirectory(
+                this.tempDirectory, "io-facade-sort");
+    }
+
+    /**
+     * Sorts the given records and writes them into a new run.
+     *
+     * @param workDirectory
+     *            The directory to write the run into.
+     * @param index
+     *            The index of the run.
+     * @param records
+     *            The records to sort and write.
+     * @return The file of the run.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private java.nio.file.Path spill(final java.nio.file.Path workDirectory, final int index, final List<PathRecord> records)
+            throws IOException {
+        Collections.sort(records, this.order);
+
+        final java.nio.file.Path run = workDirectory.resolve("run-0-" + index);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+            out.writeInt(records.size());
+            for (final PathRecord record : records) {
+                ExternalSorter.write(out, record);
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Writes the given record.
+     *
+     * @param out
+     *            The stream to write to.
+     * @param record
+     *            The record to write.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static void write(final DataOutputStream out, final PathRecord record) throws IOException {
+        out.writeUTF(record.getAbsolutePath());
+        final PathAttributes attributes = record.getAttributes();
+        if (attributes == null) {
+            out.writeByte(-1);
+        } else {
+            out.writeByte(attributes.getType().ordinal());
+            out.writeLong(attributes.getSize());
+            out.writeLong(attributes.getLastModified());
+        }
+    }
+
+    /**
+     * Reads a record.
+     *
+     * @param in
+     *            The stream to read from.
+     * @return The read record.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static PathRecord read(final DataInputStream in) throws IOException {
+        final String absolutePath = in.readUTF();
+        final byte type = in.readByte();
+        if (type < 0) {
+            return new PathRecord(absolutePath, null);
+        }
+        final long size = in.readLong();
+        final long lastModified = in.readLong();
+        return new PathRecord(absolutePath, new PathAttributes(PathAttributes.Type.values()[type], size, lastModified));
+    }
+
+    /**
+     * Deletes the given work directory including all runs, ignoring any errors.
+     *
+     * @param workDirectory
+     *            The directory to delete.
+     */
+    private static void deleteWorkDirectory(final java.nio.file.Path workDirectory) {
+        try (Stream<java.nio.file.Path> runs = Files.list(workDirectory)) {
+            runs.forEach(run -> {
+                try {
+                    Files.deleteIfExists(run);
+                } catch (final IOException dummy) {
+                    // Ignore.
+                }
+            });
+        } catch (final IOException | UncheckedIOException dummy) {
+            // Ignore.
+        }
+        try {
+            Files.deleteIfExists(workDirectory);
+        } catch (final IOException dummy) {
+            // Ignore.
+        }
+    }
+
+    /**
+     * Merges multiple sorted runs using a heap of the heads of the runs.
+     *
+     */
+    private static final class Merger implements Iterator<PathRecord>, Closeable {
+        /**
+         * The readers of all runs that have records left, ordered by their
+         * heads.
+         *
+         */
+        private final PriorityQueue<RunReader> heap;
+        /**
+         * All readers.
+         *
+         */
+        private final List<RunReader> readers = new ArrayList<RunReader>();
+        /**
+         * The number of records that are left.
+         *
+         */
+        private int remaining;
+
+        /**
+         * Constructor of Merger.
+         *
+         * @param runs
+         *            The runs to merge.
+         * @param order
+         *            The order of the runs.
+         * @throws IOException
+         *             If any I/O error occurs.
+         */
+        Merger(final List<java.nio.file.Path> runs, final PathOrder order) throws IOException {
+            this.heap = new PriorityQueue<RunReader>(runs.size(), (reader0, reader1) -> order.compare(reader0.getHead(),
+                    reader1.getHead()));
+            try {
+                for (final java.nio.file.Path run : runs) {
+                    final RunReader reader = new RunReader(run);
+                    this.readers.add(reader);
+                    this.remaining += reader.getRemaining();
+                    if (reader.advance()) {
+                        this.heap.add(reader);
+                    }
+                }
+            } catch (final IOException | RuntimeException cause) {
+                this.close();
+                throw cause;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.util.Iterator#hasNext()
+         */
+        @Override
+        public boolean hasNext() {
+            return !this.heap.isEmpty();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.util.Iterator#next()
+         */
+        @Override
+        public PathRecord next() {
+            final RunReader reader = this.heap.poll();
+            if (reader == null) {
+                throw new NoSuchElementException();
+            }
+            final PathRecord record = reader.getHead();
+            try {
+                if (reader.advance()) {
+                    this.heap.add(reader);
+                }
+            } catch (final IOException cause) {
+                throw new UncheckedIOException(cause);
+            }
+            this.remaining--;
+            return record;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.Closeable#close()
+         */
+        @Override
+        public void close() {
+            this.heap.clear();
+            for (final RunReader reader : this.readers) {
+                reader.close();
+            }
+        }
+
+        /**
+         *
+         * @return {@link #remaining}.
+         */
+        int getRemaining() {
+            return this.remaining;
+        }
+    }
+
+    /**
+     * Reads the records of a single run.
+     *
+     */
+    private static final class RunReader {
+        /**
+         * The stream to read from.
+         *
+         */
+        private final DataInputStream in;
+        /**
+         * The number of records that are left (not including the head).
+         *
+         */
+        private int remaining;
+        /**
+         * The current record.
+         *
+         */
+        private PathRecord head;
+
+        /**
+         * Constructor of RunReader.
+         *
+         * @param run
+         *            The run to read.
+         * @throws IOException
+         *             If any I/O error occurs.
+         */
+        RunReader(final java.nio.file.Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+            try {
+                this.remaining = this.in.readInt();
+            } catch (final IOException cause) {
+                this.close();
+                throw cause;
+            }
+        }
+
+        /**
+         * Reads the next record into {@link #head}. Closes the stream if there
+         * are no records left.
+         *
+         * @return Whether there was a record left.
+         * @throws IOException
+         *             If any I/O error occurs.
+         */
+        boolean advance() throws IOException {
+            if (this.remaining == 0) {
+                this.head = null;
+                this.close();
+                return false;
+            }
+            this.head = ExternalSorter.read(this.in);
+            this.remaining--;
+            return true;
+        }
+
+        /**
+         * Closes the stream, ignoring any errors.
+         *
+         */
+        void close() {
+            try {
+                this.in.close();
+            } catch (final IOException dummy) {
+                // Ignore.
+            }
+        }
+
+        /**
+         *
+         * @return {@link #remaining}.
+         */
+        int getRemaining() {
+            return this.remaining;
+        }
+
+        /**
+         *
+         * @return {@link #head}.
+         */
+        PathRecord getHead() {
+            return this.head;
+        }
+    }
+}
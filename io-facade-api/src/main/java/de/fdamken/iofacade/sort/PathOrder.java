@@ -0,0 +1,165 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.sort;
+
+import java.util.Comparator;
+
+import de.fdamken.iofacade.util.Assertion;
+
+/**
+ * The order of a sorted listing.
+ *
+ * <p>
+ * Any comparator can be used as order (see {@link #of(Comparator, boolean)}).
+ * The predefined orders sort by name, size and modification time and can be
+ * combined using {@link #reversed()} and {@link #thenComparing(Comparator)},
+ * which keep {@link #requiresAttributes()} intact. The other combining methods
+ * of {@link Comparator} return plain comparators.
+ * </p>
+ *
+ */
+@FunctionalInterface
+public interface PathOrder extends Comparator<PathRecord> {
+    /**
+     * Orders by name.
+     *
+     */
+    PathOrder BY_NAME = new PathOrder() {
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.util.Comparator#compare(java.lang.Object,
+         *      java.lang.Object)
+         */
+        @Override
+        public int compare(final PathRecord record0, final PathRecord record1) {
+            return record0.getName().compareTo(record1.getName());
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.iofacade.sort.PathOrder#requiresAttributes()
+         */
+        @Override
+        public boolean requiresAttributes() {
+            return false;
+        }
+    };
+    /**
+     * Orders by size, then by name.
+     *
+     */
+    PathOrder BY_SIZE = (record0, record1) -> {
+        final int result = Long.compare(record0.getAttributes().getSize(), record1.getAttributes().getSize());
+        return result == 0 ? PathOrder.BY_NAME.compare(record0, record1) : result;
+    };
+    /**
+     * Orders by modification time, then by name.
+     *
+     */
+    PathOrder BY_LAST_MODIFIED = (record0, record1) -> {
+        final int result = Long.compare(record0.getAttributes().getLastModified(), record1.getAttributes().getLastModified());
+        return result == 0 ? PathOrder.BY_NAME.compare(record0, record1) : result;
+    };
+
+    /**
+     * Whether this order requires the attributes of the paths. If not, the
+     * attributes are not read, which saves a request per path.
+     *
+     * @return Whether the attributes are required. Defaults to
+     *         <code>true</code>.
+     */
+    default boolean requiresAttributes() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The reversed order requires the attributes if this order does.
+     * </p>
+     *
+     * @see java.util.Comparator#reversed()
+     */
+    @Override
+    default PathOrder reversed() {
+        final PathOrder order = this;
+        return PathOrder.of((record0, record1) -> order.compare(record1, record0), order.requiresAttributes());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The combined order requires the attributes if any of both orders does.
+     * Comparators that are no {@link PathOrder} are assumed to require the
+     * attributes.
+     * </p>
+     *
+     * @see java.util.Comparator#thenComparing(java.util.Comparator)
+     */
+    @Override
+    default PathOrder thenComparing(final Comparator<? super PathRecord> other) {
+        Assertion.acquire(other).named("other").notNull();
+
+        final PathOrder order = this;
+        return PathOrder.of((record0, record1) -> {
+            final int result = order.compare(record0, record1);
+            return result == 0 ? other.compare(record0, record1) : result;
+        }, order.requiresAttributes() || !(other instanceof PathOrder) || ((PathOrder) other).requiresAttributes());
+    }
+
+    /**
+     * Creates an order from the given comparator.
+     *
+     * @param comparator
+     *            The comparator to order by.
+     * @param requiresAttributes
+     *            Whether the comparator reads the attributes of the paths (see
+     *            {@link #requiresAttributes()}).
+     * @return The created order.
+     */
+    static PathOrder of(final Comparator<? super PathRecord> comparator, final boolean requiresAttributes) {
+        Assertion.acquire(comparator).named("comparator").notNull();
+
+        return new PathOrder() {
+            /**
+             * {@inheritDoc}
+             *
+             * @see java.util.Comparator#compare(java.lang.Object,
+             *      java.lang.Object)
+             */
+            @Override
+            public int compare(final PathRecord record0, final PathRecord record1) {
+                return comparator.compare(record0, record1);
+            }
+
+            /**
+             * {@inheritDoc}
+             *
+             * @see de.fdamken.iofacade.sort.PathOrder#requiresAttributes()
+             */
+            @Override
+            public boolean requiresAttributes() {
+                return requiresAttributes;
+            }
+        };
+    }
+}
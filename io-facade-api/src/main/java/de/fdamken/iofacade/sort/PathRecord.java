@@ -0,0 +1,88 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.sort;
+
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+
+/**
+ * A path that is being sorted, together with the attributes that were read
+ * when it was listed.
+ *
+ */
+public final class PathRecord {
+    /**
+     * The absolute path (see {@link Path#getAbsolutePath()}).
+     *
+     */
+    private final String absolutePath;
+    /**
+     * The attributes. <code>null</code> if the {@link PathOrder} does not
+     * require any attributes.
+     *
+     */
+    private final PathAttributes attributes;
+
+    /**
+     * Constructor of PathRecord.
+     *
+     * @param absolutePath
+     *            The absolute path.
+     * @param attributes
+     *            The attributes. <code>null</code> if the {@link PathOrder}
+     *            does not require any attributes.
+     */
+    public PathRecord(final String absolutePath, final PathAttributes attributes) {
+        this.absolutePath = absolutePath;
+        this.attributes = attributes;
+    }
+
+    /**
+     *
+     * @return The name of the path (the last path-part).
+     */
+    public String getName() {
+        return this.absolutePath.substring(this.absolutePath.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return this.attributes == null ? this.absolutePath : this.absolutePath + " " + this.attributes;
+    }
+
+    /**
+     *
+     * @return {@link #absolutePath}.
+     */
+    public String getAbsolutePath() {
+        return this.absolutePath;
+    }
+
+    /**
+     *
+     * @return {@link #attributes}.
+     */
+    public PathAttributes getAttributes() {
+        return this.attributes;
+    }
+}
@@ -0,0 +1,99 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.fdamken.iofacade.File;
+import de.fdamken.iofacade.Path;
+
+/**
+ * Replaces the content of many files atomically (see
+ * {@link File#writeAtomically(de.fdamken.iofacade.File.ContentWriter)}) and
+ * forces every parent directory only once for all of them instead of once per
+ * file. The replacements are only as atomic as the implementation of the
+ * files makes them (see
+ * {@link File#writeAtomically(de.fdamken.iofacade.File.ContentWriter, boolean)}).
+ *
+ * <p>
+ * The replacements are visible as soon as {@link #write(File,
+ * de.fdamken.iofacade.File.ContentWriter)} returns, but they are durable only
+ * after {@link #commit()} returned. A batch can be used by multiple threads
+ * concurrently and can be committed multiple times.
+ * </p>
+ *
+ */
+public class AtomicWriteBatch {
+    /**
+     * The parent directories that were not forced yet, by their absolute
+     * paths.
+     *
+     */
+    private final Map<String, Path> pendingDirectories = new ConcurrentHashMap<String, Path>();
+
+    /**
+     * Replaces the content of the given file atomically without forcing its
+     * parent directory.
+     *
+     * @param file
+     *            The file to write.
+     * @param writer
+     *            Writes the new content.
+     * @throws IOException
+     *             If any I/O error occurs. The file is unchanged, then, if
+     *             the replacement is atomic.
+     */
+    public void write(final File file, final File.ContentWriter writer) throws IOException {
+        Assertion.acquire(file).named("file").notNull();
+
+        file.writeAtomically(writer, false);
+
+        final String absolutePath = file.getAbsolutePath();
+        final String parentPath = absolutePath.substring(0, absolutePath.lastIndexOf('/') + 1);
+        if (!this.pendingDirectories.containsKey(parentPath)) {
+            this.pendingDirectories.put(parentPath, file.getFileSystem().getPath(parentPath));
+        }
+    }
+
+    /**
+     * Forces every parent directory of the files written since the last
+     * commit.
+     *
+     * @throws IOException
+     *             If any I/O error occurs. The directories that were not
+     *             forced remain pending.
+     */
+    public void commit() throws IOException {
+        final List<String> parentPaths = new ArrayList<String>(this.pendingDirectories.keySet());
+        for (final String parentPath : parentPaths) {
+            final Path directory = this.pendingDirectories.remove(parentPath);
+            if (directory != null) {
+                try {
+                    directory.sync();
+                } catch (final IOException | RuntimeException cause) {
+                    this.pendingDirectories.putIfAbsent(parentPath, directory);
+                    throw cause;
+                }
+            }
+        }
+    }
+}
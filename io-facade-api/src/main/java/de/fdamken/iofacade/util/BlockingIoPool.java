@@ -0,0 +1,77 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executes blocking I/O asynchronously on a dedicated pool of daemon threads,
+ * so it never occupies the threads of the common fork/join pool that are
+ * meant for computations.
+ *
+ */
+public class BlockingIoPool {
+    /**
+     * The pool the blocking I/O is executed on.
+     *
+     */
+    private static final ExecutorService IO_POOL = Executors.newFixedThreadPool(
+            Math.max(4, Runtime.getRuntime().availableProcessors()), runnable -> {
+                final Thread thread = new Thread(runnable, "io-facade-blocking-io");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Constructor of BlockingIoPool.
+     *
+     */
+    private BlockingIoPool() {
+        // Nothing to do.
+    }
+
+    /**
+     * Executes the given blocking I/O operation on the pool.
+     *
+     * @param <T>
+     *            The type of the result.
+     * @param operation
+     *            The operation to execute.
+     * @return The future that is completed with the result of the operation.
+     *         If the operation fails, the future is completed exceptionally
+     *         with the thrown {@link IOException} or
+     *         {@link RuntimeException}.
+     */
+    public static <T> CompletableFuture<T> submit(final Callable<T> operation) {
+        Assertion.acquire(operation).named("operation").notNull();
+
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        BlockingIoPool.IO_POOL.execute(() -> {
+            try {
+                result.complete(operation.call());
+            } catch (final Exception cause) {
+                result.completeExceptionally(cause);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Releases the memory of direct and mapped {@link ByteBuffer ByteBuffers}
+ * explicitly instead of waiting for the garbage collector.
+ *
+ * <p>
+ * There is no public API for this, so the cleaner is looked up reflectively:
+ * <code>sun.misc.Unsafe#invokeCleaner(ByteBuffer)</code> on Java 9 and newer
+ * and <code>sun.nio.ch.DirectBuffer#cleaner()</code> on Java 8. If neither is
+ * accessible, cleaning does nothing and the memory is released as soon as the
+ * buffer is garbage collected.
+ * </p>
+ * <p>
+ * A buffer must not be accessed in any way after it was cleaned, this includes
+ * all views and slices of it. Doing so may crash the JVM.
+ * </p>
+ *
+ */
+public class BufferCleaner {
+    /**
+     * The logger.
+     *
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(BufferCleaner.class);
+
+    /**
+     * The method that cleans a buffer. Either
+     * <code>Unsafe#invokeCleaner(ByteBuffer)</code> or
+     * <code>Cleaner#clean()</code>. <code>null</code> if none is accessible.
+     *
+     */
+    private static final Method CLEAN_METHOD;
+    /**
+     * The <code>Unsafe</code> instance. <code>null</code> if
+     * <code>Cleaner#clean()</code> is used.
+     *
+     */
+    private static final Object UNSAFE;
+    /**
+     * The method <code>DirectBuffer#cleaner()</code>. <code>null</code> if
+     * <code>Unsafe#invokeCleaner(ByteBuffer)</code> is used.
+     *
+     */
+    private static final Method CLEANER_METHOD;
+
+    static {
+        Method cleanMethod = null;
+        Object unsafe = null;
+        Method cleanerMethod = null;
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            cleanMethod = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            unsafe = unsafeField.get(null);
+        } catch (final ReflectiveOperationException | RuntimeException dummy) {
+            cleanMethod = null;
+            unsafe = null;
+            try {
+                cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            } catch (final ReflectiveOperationException | RuntimeException cause) {
+                cleanerMethod = null;
+                cleanMethod = null;
+                BufferCleaner.LOGGER.debug("Buffers can not be cleaned explicitly!", cause);
+            }
+        }
+        CLEAN_METHOD = cleanMethod;
+        UNSAFE = unsafe;
+        CLEANER_METHOD = cleanerMethod;
+    }
+
+    /**
+     * Constructor of BufferCleaner.
+     *
+     */
+    private BufferCleaner() {
+        // Nothing to do.
+    }
+
+    /**
+     * Releases the memory of the given buffer, if it is direct. Heap buffers
+     * are ignored.
+     *
+     * @param buffer
+     *            The buffer to clean. Must not be a view or slice of another
+     *            buffer.
+     * @return Whether the memory was released. If <code>false</code>, it is
+     *         released as soon as the buffer is garbage collected.
+     */
+    public static boolean clean(final ByteBuffer buffer) {
+        Assertion.acquire(buffer).named("buffer").notNull();
+
+        if (!buffer.isDirect() || BufferCleaner.CLEAN_METHOD == null) {
+            return false;
+        }
+
+        try {
+            if (BufferCleaner.UNSAFE != null) {
+                BufferCleaner.CLEAN_METHOD.invoke(BufferCleaner.UNSAFE, buffer);
+            } else {
+                final Object cleaner = BufferCleaner.CLEANER_METHOD.invoke(buffer);
+                if (cleaner == null) {
+                    return false;
+                }
+                BufferCleaner.CLEAN_METHOD.invoke(cleaner);
+            }
+            return true;
+        } catch (final ReflectiveOperationException | RuntimeException cause) {
+            BufferCleaner.LOGGER.debug("Failed to clean buffer!", cause);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.text.Normalizer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import de.fdamken.iofacade.FileSystem;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+
+/**
+ * Looks up the existence or the attributes of many paths at once.
+ *
+ * <p>
+ * The lookups are split into batches that run concurrently on the fork/join
+ * pool of the file system (see {@link FileSystem#getParallelism()}), so the
+ * latency of the single requests overlaps. Existence checks are additionally
+ * grouped by parent directory: If many paths share the same parent and the
+ * parent does not contain many more entries, the parent is listed once and
+ * only the paths that are found in the listing are probed. The results are
+ * always the same as those of {@link Path#exists()}, including for dangling
+ * symbolic links and on case-insensitive file systems.
+ * </p>
+ *
+ */
+public class BulkLookup {
+    /**
+     * The minimum number of paths with the same parent that are checked by
+     * listing the parent instead of probing every path.
+     *
+     */
+    private static final int LISTING_THRESHOLD = 16;
+    /**
+     * The maximum number of entries a parent may contain per path of the
+     * group, so that listing it is still cheaper than probing every path of
+     * the group.
+     *
+     */
+    private static final int LISTING_FACTOR = 4;
+    /**
+     * The number of paths that are probed by a single batch.
+     *
+     */
+    private static final int PROBE_BATCH_SIZE = 64;
+
+    /**
+     * Constructor of BulkLookup.
+     *
+     */
+    private BulkLookup() {
+        // Nothing to do.
+    }
+
+    /**
+     * Checks the existence of all given paths.
+     *
+     * @param fileSystem
+     *            The file system the paths belong to.
+     * @param paths
+     *            The paths to check.
+     * @return Whether the paths exist, keyed by the given paths in iteration
+     *         order.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public static Map<Path, Boolean> existsAll(final FileSystem fileSystem, final Collection<? extends Path> paths)
+            throws IOException {
+        Assertion.acquire(fileSystem).named("fileSystem").notNull();
+        Assertion.acquire(paths).named("paths").notNull();
+
+        final List<Path> input = new ArrayList<Path>(paths);
+        final boolean[] results = new boolean[input.size()];
+
+        final Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+        final List<Integer> probes = new ArrayList<Integer>();
+        for (int i = 0; i < input.size(); i++) {
+            final Path path = input.get(i);
+            final String absolutePath = path.getAbsolutePath();
+            final int separator = absolutePath.lastIndexOf('/');
+            if (path.getFileSystem() == fileSystem && separator >= 0 && absolutePath.length() > 1) {
+                groups.computeIfAbsent(separator == 0 ? "/" : absolutePath.substring(0, separator),
+                        dummy -> new ArrayList<Integer>()).add(i);
+            } else {
+                probes.add(i);
+            }
+        }
+
+        final List<Integer> listed = new ArrayList<Integer>();
+        final List<Callable<Void>> listings = new ArrayList<Callable<Void>>();
+        for (final Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            if (group.getValue().size() < BulkLookup.LISTING_THRESHOLD) {
+                probes.addAll(group.getValue());
+            } else {
+                listings.add(() -> {
+                    final List<Integer> remaining = BulkLookup.listGroup(fileSystem.getPath(group.getKey()), input,
+                            group.getValue());
+                    synchronized (listed) {
+                        listed.addAll(remaining);
+                    }
+                    return null;
+                });
+            }
+        }
+        BulkLookup.invokeAll(fileSystem, listings);
+        probes.addAll(listed);
+
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int start = 0; start < probes.size(); start += BulkLookup.PROBE_BATCH_SIZE) {
+            final List<Integer> batch = probes.subList(start, Math.min(start + BulkLookup.PROBE_BATCH_SIZE, probes.size()));
+            tasks.add(() -> {
+                for (final int index : batch) {
+                    results[index] = input.get(index).exists();
+                }
+                return null;
+            });
+        }
+        BulkLookup.invokeAll(fileSystem, tasks);
+
+        final Map<Path, Boolean> result = new LinkedHashMap<Path, Boolean>();
+        for (int i = 0; i < input.size(); i++) {
+            result.put(input.get(i), results[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Checks a group of paths that share the given parent by listing the
+     * parent. The listing only answers for paths whose names are not listed at
+     * all (not even in a different case or normalization form), as these can
+     * not exist. All other paths may be case-insensitive matches or dangling
+     * symbolic links, so they have to be probed with {@link Path#exists()}.
+     *
+     * <p>
+     * The listing is aborted as soon as the parent turns out to contain more
+     * than {@link #LISTING_FACTOR} times as many entries as the group holds
+     * paths; all paths of the group are probed then.
+     * </p>
+     *
+     * @param parent
+     *            The parent of all paths of the group.
+     * @param input
+     *            All paths to check.
+     * @param group
+     *            The indices of the paths of the group within the input.
+     * @return The indices of the paths that still have to be probed. The paths
+     *         that are not returned do not exist.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static List<Integer> listGroup(final Path parent, final List<Path> input, final List<Integer> group)
+            throws IOException {
+        if (!parent.exists() || !parent.isDirectory()) {
+            return Collections.emptyList();
+        }
+
+        final long limit = (long) group.size() * BulkLookup.LISTING_FACTOR;
+        final Set<String> listedKeys = new HashSet<String>();
+        final long[] count = new long[1];
+        try {
+            parent.asDirectory().listEntries(path -> {
+                if (++count[0] > limit) {
+                    throw new ListingTooLargeException();
+                }
+                listedKeys.add(BulkLookup.toKey(path.getName()));
+                return false;
+            });
+        } catch (final ListingTooLargeException dummy) {
+            return group;
+        } catch (final FileNotFoundException dummy) {
+            // Deleted concurrently.
+            return Collections.emptyList();
+        }
+
+        final List<Integer> remaining = new ArrayList<Integer>();
+        for (final int index : group) {
+            final String name = input.get(index).getName();
+            if (".".equals(name) || "..".equals(name) || listedKeys.contains(BulkLookup.toKey(name))) {
+                remaining.add(index);
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Computes the key a name is compared by with the names of a listing. The
+     * key is independent of the case and the Unicode normalization form, so it
+     * is safe on file systems that ignore either.
+     *
+     * @param name
+     *            The name to compute the key of.
+     * @return The key of the given name.
+     */
+    private static String toKey(final String name) {
+        return Normalizer.normalize(name, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Reads the attributes of all given paths.
+     *
+     * @param fileSystem
+     *            The file system the paths belong to.
+     * @param paths
+     *            The paths to read the attributes of.
+     * @return The attributes of the paths, keyed by the given paths in
+     *         iteration order. The value is <code>null</code> for paths that
+     *         do not exist.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public static Map<Path, PathAttributes> statAll(final FileSystem fileSystem, final Collection<? extends Path> paths)
+            throws IOException {
+        Assertion.acquire(fileSystem).named("fileSystem").notNull();
+        Assertion.acquire(paths).named("paths").notNull();
+
+        final List<Path> input = new ArrayList<Path>(paths);
+        final PathAttributes[] results = new PathAttributes[input.size()];
+
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int start = 0; start < input.size(); start += BulkLookup.PROBE_BATCH_SIZE) {
+            final int from = start;
+            final int to = Math.min(start + BulkLookup.PROBE_BATCH_SIZE, input.size());
+            tasks.add(() -> {
+                for (int i = from; i < to; i++) {
+                    try {
+                        results[i] = input.get(i).getAttributes();
+                    } catch (final FileNotFoundException dummy) {
+                        // Does not exist.
+                    }
+                }
+                return null;
+            });
+        }
+        BulkLookup.invokeAll(fileSystem, tasks);
+
+        final Map<Path, PathAttributes> result = new LinkedHashMap<Path, PathAttributes>();
+        for (int i = 0; i < input.size(); i++) {
+            result.put(input.get(i), results[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Runs all given tasks on the pool of the given file system and waits for
+     * them to complete.
+     *
+     * @param fileSystem
+     *            The file system to run the tasks for.
+     * @param tasks
+     *            The tasks to run.
+     * @throws IOException
+     *             If any task has thrown an {@link IOException}.
+     */
+    private static void invokeAll(final FileSystem fileSystem, final List<Callable<Void>> tasks) throws IOException {
+        if (tasks.size() == 1) {
+            try {
+                tasks.get(0).call();
+            } catch (final IOException | RuntimeException cause) {
+                throw cause;
+            } catch (final Exception cause) {
+                throw new IllegalStateException(cause);
+            }
+            return;
+        }
+
+        final List<Future<Void>> futures = ParallelDirectoryWalker.getPool(fileSystem).invokeAll(tasks);
+        for (final Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (final InterruptedException cause) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the lookup!", cause);
+            } catch (final ExecutionException cause) {
+                if (cause.getCause() instanceof IOException) {
+                    throw (IOException) cause.getCause();
+                } else if (cause.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) cause.getCause();
+                } else if (cause.getCause() instanceof Error) {
+                    throw (Error) cause.getCause();
+                }
+                throw new IllegalStateException(cause.getCause());
+            }
+        }
+    }
+
+    /**
+     * Thrown to abort a listing of a directory that holds too many entries for
+     * the listing to pay off.
+     *
+     */
+    private static class ListingTooLargeException extends RuntimeException {
+        /**
+         * The serial version UID.
+         *
+         */
+        private static final long serialVersionUID = 4518031872660381214L;
+
+        /**
+         * Constructor of ListingTooLargeException.
+         *
+         */
+        public ListingTooLargeException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import de.fdamken.iofacade.Path;
+
+/**
+ * A {@link Spliterator} over a file tree. Directories are listed lazily while
+ * the spliterator is traversed.
+ *
+ * <p>
+ * The spliterator splits at directory boundaries: Splitting hands off half of
+ * the directories that are still to be listed, so every part lists its own
+ * directories and parallel streams fan the I/O out over their pool. If only
+ * one directory is pending, it is listed to find more directories to hand off.
+ * The size is estimated from the average number of entries of all directories
+ * that were listed so far.
+ * </p>
+ * <p>
+ * The {@link PathFilter} is honored like everywhere else. Symbolic links are
+ * reported, but never stepped into (see
+ * {@link DirectoryWalker#followLinks(boolean)} for following links). Errors
+ * listing a directory are thrown as {@link UncheckedIOException}.
+ * </p>
+ *
+ */
+public class DirectorySpliterator implements Spliterator<Path> {
+    /**
+     * The number of entries per directory that is estimated before any
+     * directory was listed.
+     *
+     */
+    private static final long INITIAL_ENTRIES_PER_DIRECTORY = 16;
+
+    /**
+     * The {@link PathFilter} to apply.
+     *
+     */
+    private final PathFilter filter;
+    /**
+     * The accepted entries that were listed, but not passed on yet.
+     *
+     */
+    private final Deque<Path> entries;
+    /**
+     * The directories that are still to be listed.
+     *
+     */
+    private final Deque<Path> directories;
+    /**
+     * The number of directories that were listed so far, including those of
+     * the spliterator this one was split off from.
+     *
+     */
+    private long listedDirectories;
+    /**
+     * The number of accepted entries found so far, including those of the
+     * spliterator this one was split off from.
+     *
+     */
+    private long listedEntries;
+
+    /**
+     * Constructor of DirectorySpliterator.
+     *
+     * @param rootDir
+     *            The root directory of the file tree. This is not reported
+     *            itself.
+     * @param filter
+     *            The {@link PathFilter} to apply.
+     * @throws FileNotFoundException
+     *             If the root directory was not found.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public DirectorySpliterator(final Path rootDir, final PathFilter filter) throws FileNotFoundException, IOException {
+        Assertion.acquire(rootDir).named("rootDir").notNull().exists();
+        Assertion.acquire(filter).named("filter").notNull();
+
+        this.filter = filter;
+        this.entries = new ArrayDeque<Path>();
+        this.directories = new ArrayDeque<Path>();
+        final Path startDir = DirectoryUtil.resolveStartDirectory(rootDir, filter);
+        if (startDir != null && startDir.isDirectory()) {
+            if (DirectoryUtil.isAcceptedStartDirectory(rootDir, startDir, filter)) {
+                this.entries.add(startDir);
+            }
+            this.directories.add(startDir);
+        }
+    }
+
+    /**
+     * Constructor of DirectorySpliterator.
+     *
+     * @param parent
+     *            The spliterator this one is split off from.
+     * @param entries
+     *            The entries to pass on.
+     * @param directories
+     *            The directories to list.
+     */
+    private DirectorySpliterator(final DirectorySpliterator parent, final Deque<Path> entries, final Deque<Path> directories) {
+        this.filter = parent.filter;
+        this.entries = entries;
+        this.directories = directories;
+        this.listedDirectories = parent.listedDirectories;
+        this.listedEntries = parent.listedEntries;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+     */
+    @Override
+    public boolean tryAdvance(final Consumer<? super Path> action) {
+        while (this.entries.isEmpty()) {
+            if (this.directories.isEmpty()) {
+                return false;
+            }
+            this.list(this.directories.pollFirst());
+        }
+        action.accept(this.entries.pollFirst());
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.util.Spliterator#forEachRemaining(java.util.function.Consumer)
+     */
+    @Override
+    public void forEachRemaining(final Consumer<? super Path> action) {
+        do {
+            while (!this.entries.isEmpty()) {
+                action.accept(this.entries.pollFirst());
+            }
+            if (this.directories.isEmpty()) {
+                return;
+            }
+            this.list(this.directories.pollFirst());
+        } while (true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.util.Spliterator#trySplit()
+     */
+    @Override
+    public Spliterator<Path> trySplit() {
+        if (this.directories.size() == 1 && this.entries.size() < 2) {
+            this.list(this.directories.pollFirst());
+        }
+
+        if (this.directories.size() >= 2) {
+            return new DirectorySpliterator(this, new ArrayDeque<Path>(), DirectorySpliterator.takeHalf(this.directories));
+        } else if (this.entries.size() >= 2) {
+            return new DirectorySpliterator(this, DirectorySpliterator.takeHalf(this.entries), new ArrayDeque<Path>());
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.util.Spliterator#estimateSize()
+     */
+    @Override
+    public long estimateSize() {
+        final long entriesPerDirectory = this.listedDirectories == 0 ? DirectorySpliterator.INITIAL_ENTRIES_PER_DIRECTORY
+                : Math.max(1, this.listedEntries / this.listedDirectories);
+        return this.entries.size() + this.directories.size() * entriesPerDirectory;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.util.Spliterator#characteristics()
+     */
+    @Override
+    public int characteristics() {
+        return Spliterator.DISTINCT | Spliterator.NONNULL;
+    }
+
+    /**
+     * Lists the given directory and adds the accepted entries and the
+     * sub-directories to step into.
+     *
+     * @param directory
+     *            The directory to list.
+     * @throws UncheckedIOException
+     *             If any I/O error occurs.
+     */
+    private void list(final Path directory) throws UncheckedIOException {
+        try {
+            for (final Path path : directory.asDirectory().listEntries()) {
+                final Boolean filterResult = this.filter.apply(path);
+                if ((filterResult == null || filterResult) && path.isDirectory() && !path.isSymbolicLink()) {
+                    this.directories.add(path);
+                }
+                if (filterResult != null && filterResult) {
+                    this.entries.add(path);
+                    this.listedEntries++;
+                }
+            }
+        } catch (final FileNotFoundException dummy) {
+            // Deleted since it was listed.
+        } catch (final IOException cause) {
+            throw new UncheckedIOException(cause);
+        }
+        this.listedDirectories++;
+    }
+
+    /**
+     * Removes the first half of the elements of the given deque.
+     *
+     * @param deque
+     *            The deque to remove the elements from.
+     * @return The removed elements.
+     */
+    private static Deque<Path> takeHalf(final Deque<Path> deque) {
+        final int count = deque.size() / 2;
+        final Deque<Path> result = new ArrayDeque<Path>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(deque.pollFirst());
+        }
+        return result;
+    }
+}
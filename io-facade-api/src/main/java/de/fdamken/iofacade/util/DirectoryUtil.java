@@ -21,6 +21,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import de.fdamken.iofacade.Path;
 
@@ -44,9 +46,14 @@ public class DirectoryUtil {
      * lookup the {@link PathFilter} for further documentation about the
      * meanings of the result of the {@link PathFilter#apply(Path)} method.
      *
+     * <p>
+     * The file tree is walked concurrently using the
+     * {@link ParallelDirectoryWalker}, so the order of the result is undefined.
+     * </p>
+     *
      * @param rootDir
-     *            The root directory to start listing from. This is included in
-     *            the result.
+     *            The root directory to start listing from. This is not
+     *            included in the result.
      * @param filter
      *            The {@link PathFilter} to apply.
      * @return All files in the given directory and its sub-directories,
@@ -58,18 +65,83 @@ public class DirectoryUtil {
      */
     public static List<Path> listEntriesRecursive(final Path rootDir, final PathFilter filter) throws FileNotFoundException,
             IOException {
-        final List<Path> result = new ArrayList<Path>();
-        if (rootDir.isDirectory()) {
-            for (final Path path : rootDir.asDirectory().listEntries()) {
-                final Boolean fileFilterResult = filter.apply(path);
-                if (fileFilterResult == null || fileFilterResult) {
-                    result.addAll(DirectoryUtil.listEntriesRecursive(path, filter));
-                }
-                if (fileFilterResult != null && fileFilterResult) {
-                    result.add(path);
-                }
-            }
+        final Queue<Path> result = new ConcurrentLinkedQueue<Path>();
+        ParallelDirectoryWalker.walk(rootDir, filter, result::add);
+        return new ArrayList<Path>(result);
+    }
+
+    /**
+     * Resolves the directory a walk of the given root directory has to start
+     * from. If the given {@link PathFilter} has a static prefix (see
+     * {@link PathFilter#getStaticPrefix()}) that is located below the root
+     * directory, the walk can start directly from there.
+     *
+     * @param rootDir
+     *            The root directory of the walk.
+     * @param filter
+     *            The {@link PathFilter} that is applied during the walk.
+     * @return The directory to start walking from. This is either the root
+     *         directory or a directory below it. If the static prefix is not
+     *         an existing directory or is located outside of the root
+     *         directory, <code>null</code> is returned as no path can be
+     *         accepted. A start directory below the root directory may be
+     *         accepted by the filter itself (i.e. by a trailing
+     *         <code>**</code>), so walkers have to check it (see
+     *         {@link #isAcceptedStartDirectory(Path, Path, PathFilter)}).
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public static Path resolveStartDirectory(final Path rootDir, final PathFilter filter) throws IOException {
+        final String prefix = filter.getStaticPrefix();
+        if (prefix == null) {
+            return rootDir;
+        }
+
+        final String root = rootDir.getAbsolutePath();
+        if (root.equals(prefix) || DirectoryUtil.isBelow(root, prefix)) {
+            return rootDir;
+        }
+        if (DirectoryUtil.isBelow(prefix, root)) {
+            final Path result = rootDir.getFileSystem().getPath(prefix);
+            return result.isDirectory() ? result : null;
         }
-        return result;
+        return null;
+    }
+
+    /**
+     * Checks whether the given start directory (see
+     * {@link #resolveStartDirectory(Path, PathFilter)}) has to be reported by
+     * a walk, as it is located below the root directory and is accepted by the
+     * given filter. Otherwise, it is listed only.
+     *
+     * @param rootDir
+     *            The root directory of the walk.
+     * @param startDir
+     *            The directory the walk starts from.
+     * @param filter
+     *            The {@link PathFilter} that is applied during the walk.
+     * @return Whether the start directory has to be reported.
+     */
+    public static boolean isAcceptedStartDirectory(final Path rootDir, final Path startDir, final PathFilter filter) {
+        if (startDir.getAbsolutePath().equals(rootDir.getAbsolutePath())) {
+            return false;
+        }
+        final Boolean filterResult = filter.apply(startDir);
+        return filterResult != null && filterResult;
+    }
+
+    /**
+     * Checks whether the given absolute path is located below the given
+     * absolute directory path.
+     *
+     * @param path
+     *            The path to check.
+     * @param directory
+     *            The directory path.
+     * @return Whether <code>path</code> is located below
+     *         <code>directory</code>.
+     */
+    private static boolean isBelow(final String path, final String directory) {
+        return directory.equals("/") ? !path.equals("/") : path.startsWith(directory + "/");
     }
 }
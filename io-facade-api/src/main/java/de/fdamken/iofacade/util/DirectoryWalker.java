@@ -0,0 +1,563 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+
+/**
+ * Walks file trees iteratively using an explicit deque of pending directories
+ * instead of recursion, so arbitrarily deep file trees can be walked without
+ * running into a {@link StackOverflowError}. The amount of work can be capped
+ * using a maximum depth, a maximum number of entries and a deadline.
+ *
+ * <p>
+ * For example, to list at most 1000 entries that are at most two levels below
+ * <code>dir</code>: <code>
+ * <pre>
+ * {@link DirectoryWalker}.{@link DirectoryWalker#acquire(Path) acquire(dir)}.{@link DirectoryWalker#maxDepth(int) maxDepth(2)}.{@link DirectoryWalker#maxEntries(long) maxEntries(1000)}.{@link DirectoryWalker#list() list()};
+ * </pre>
+ * </code>
+ * </p>
+ * <p>
+ * The {@link PathFilter} is honored like everywhere else. Especially
+ * directories the filter returns <code>false</code> for are never listed, so
+ * whole sub-trees can be pruned cheaply. If the filter has a static prefix
+ * (see {@link PathFilter#getStaticPrefix()}), the walk starts directly from
+ * there. The prefix directory itself is reported if the filter accepts it.
+ * </p>
+ *
+ */
+public final class DirectoryWalker {
+    /**
+     * The root directory to start walking from.
+     *
+     */
+    private final Path rootDir;
+    /**
+     * The {@link PathFilter} to apply.
+     *
+     */
+    private PathFilter filter = path -> true;
+    /**
+     * The order to walk the file tree in.
+     *
+     */
+    private Order order = Order.DEPTH_FIRST;
+    /**
+     * The maximum depth of reported entries. The direct children of the root
+     * directory have the depth <code>1</code>.
+     *
+     */
+    private int maxDepth = Integer.MAX_VALUE;
+    /**
+     * The maximum number of reported entries.
+     *
+     */
+    private long maxEntries = Long.MAX_VALUE;
+    /**
+     * The point of time (in milliseconds since the epoch) after which the walk
+     * is aborted.
+     *
+     */
+    private long deadline = Long.MAX_VALUE;
+    /**
+     * Whether symbolic links to directories are followed.
+     *
+     */
+    private boolean followLinks;
+    /**
+     * What to do if a directory is reached a second time while following
+     * links.
+     *
+     */
+    private LoopPolicy loopPolicy = LoopPolicy.SKIP;
+
+    /**
+     * Constructor of DirectoryWalker.
+     *
+     * @param rootDir
+     *            The root directory to start walking from.
+     */
+    private DirectoryWalker(final Path rootDir) {
+        this.rootDir = rootDir;
+    }
+
+    /**
+     * Constructs a new {@link DirectoryWalker} object.
+     *
+     * @param rootDir
+     *            The root directory to start walking from. This is not
+     *            reported itself.
+     * @return The created {@link DirectoryWalker} object.
+     */
+    public static DirectoryWalker acquire(final Path rootDir) {
+        Assertion.acquire(rootDir).named("rootDir").notNull();
+
+        return new DirectoryWalker(rootDir);
+    }
+
+    /**
+     * Sets the {@link PathFilter} to apply. By default, every path is accepted.
+     *
+     * @param filter
+     *            The {@link PathFilter} to apply.
+     * @return <code>this</code>
+     */
+    public DirectoryWalker filter(final PathFilter filter) {
+        Assertion.acquire(filter).named("filter").notNull();
+
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Sets the order to walk the file tree in. By default, the file tree is
+     * walked depth first.
+     *
+     * @param order
+     *            The order to walk the file tree in.
+     * @return <code>this</code>
+     */
+    public DirectoryWalker order(final Order order) {
+        Assertion.acquire(order).named("order").notNull();
+
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * Sets the maximum depth of the reported entries. The direct children of
+     * the root directory have the depth <code>1</code>. Directories on the
+     * maximum depth are reported, but not listed.
+     *
+     * @param maxDepth
+     *            The maximum depth. Must be positive.
+     * @return <code>this</code>
+     */
+    public DirectoryWalker maxDepth(final int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("maxDepth must be positive!");
+        }
+
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of reported entries. As soon as the limit is
+     * reached, the walk is aborted without listing any further directory. If
+     * the limit is <code>0</code>, nothing is listed at all.
+     *
+     * @param maxEntries
+     *            The maximum number of entries. Must not be negative.
+     * @return <code>this</code>
+     */
+    public DirectoryWalker maxEntries(final long maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries must not be negative!");
+        }
+
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * Sets the deadline of the walk. As soon as the deadline has passed, the
+     * walk is aborted. The directory that is being listed at that time is not
+     * interrupted.
+     *
+     * @param deadline
+     *            The deadline in milliseconds since the epoch (see
+     *            {@link System#currentTimeMillis()}).
+     * @return <code>this</code>
+     */
+    public DirectoryWalker deadline(final long deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Sets the deadline of the walk relative to now.
+     *
+     * @param timeout
+     *            The maximum time the walk may take.
+     * @param unit
+     *            The unit of <code>timeout</code>.
+     * @return <code>this</code>
+     * @see #deadline(long)
+     */
+    public DirectoryWalker timeout(final long timeout, final TimeUnit unit) {
+        Assertion.acquire(unit).named("unit").notNull();
+
+        return this.deadline(System.currentTimeMillis() + unit.toMillis(timeout));
+    }
+
+    /**
+     * Sets whether symbolic links to directories are stepped into. By default,
+     * links are reported, but never followed.
+     *
+     * <p>
+     * While following links, the identities (see
+     * {@link PathAttributes#hasIdentity()}) of all listed directories are
+     * recorded in a {@link LongPairHashSet}. A directory that is reached a
+     * second time is never listed again, but handled according to the
+     * {@link #loopPolicy(LoopPolicy) loop policy}. Directories without a known
+     * identity are compared with their ancestors instead (see
+     * {@link Path#isSameFile(Path)}), like
+     * {@link java.nio.file.Files#walkFileTree(java.nio.file.Path, java.nio.file.FileVisitor)}
+     * does, so loops are detected, but a directory that is reachable via two
+     * distinct branches is listed twice.
+     * </p>
+     *
+     * @param followLinks
+     *            Whether links are followed.
+     * @return <code>this</code>
+     */
+    public DirectoryWalker followLinks(final boolean followLinks) {
+        this.followLinks = followLinks;
+        return this;
+    }
+
+    /**
+     * Sets what to do if a directory is reached a second time while following
+     * links. By default, it is skipped.
+     *
+     * @param loopPolicy
+     *            The loop policy.
+     * @return <code>this</code>
+     */
+    public DirectoryWalker loopPolicy(final LoopPolicy loopPolicy) {
+        Assertion.acquire(loopPolicy).named("loopPolicy").notNull();
+
+        this.loopPolicy = loopPolicy;
+        return this;
+    }
+
+    /**
+     * Walks the file tree and passes every path that is accepted by the
+     * {@link PathFilter} into the given sink.
+     *
+     * @param sink
+     *            The sink that receives all matching paths.
+     * @return Why the walk has ended.
+     * @throws FileNotFoundException
+     *             If the root directory was not found.
+     * @throws FileSystemLoopException
+     *             If a directory is reached a second time while following
+     *             links and the loop policy is {@link LoopPolicy#FAIL}.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public Result walk(final Consumer<? super Path> sink) throws FileNotFoundException, FileSystemLoopException, IOException {
+        Assertion.acquire(sink).named("sink").notNull();
+
+        if (!this.rootDir.isDirectory()) {
+            return Result.COMPLETED;
+        }
+        final Path startDir = DirectoryUtil.resolveStartDirectory(this.rootDir, this.filter);
+        if (startDir == null) {
+            return Result.COMPLETED;
+        }
+        final int startDepth = DirectoryWalker.depthOf(startDir) - DirectoryWalker.depthOf(this.rootDir);
+        final boolean reportStart = startDepth <= this.maxDepth
+                && DirectoryUtil.isAcceptedStartDirectory(this.rootDir, startDir, this.filter);
+        if (!reportStart && startDepth >= this.maxDepth) {
+            return Result.COMPLETED;
+        }
+        if (this.maxEntries == 0) {
+            return Result.MAX_ENTRIES_REACHED;
+        }
+
+        long entries = 0;
+        if (reportStart) {
+            sink.accept(startDir);
+            if (++entries >= this.maxEntries) {
+                return Result.MAX_ENTRIES_REACHED;
+            }
+            if (startDepth >= this.maxDepth) {
+                return Result.COMPLETED;
+            }
+        }
+
+        final LongPairHashSet visited = this.followLinks ? new LongPairHashSet() : null;
+        if (visited != null) {
+            this.visit(visited, startDir, null);
+        }
+
+        final Deque<Pending> pending = new ArrayDeque<Pending>();
+        pending.add(new Pending(startDir, startDepth, null));
+        while (!pending.isEmpty()) {
+            if (System.currentTimeMillis() > this.deadline) {
+                return Result.DEADLINE_EXCEEDED;
+            }
+
+            final Pending current = pending.pollFirst();
+            final int depth = current.depth + 1;
+            final List<Pending> children = new ArrayList<Pending>();
+            for (final Path path : current.directory.asDirectory().listEntries()) {
+                final Boolean filterResult = this.filter.apply(path);
+                boolean stepIn = (filterResult == null || filterResult) && depth < this.maxDepth && path.isDirectory()
+                        && (this.followLinks || !path.isSymbolicLink());
+                if (stepIn && visited != null && !this.visit(visited, path, current)) {
+                    if (this.loopPolicy == LoopPolicy.FAIL) {
+                        throw new FileSystemLoopException(path.getAbsolutePath());
+                    } else if (this.loopPolicy == LoopPolicy.SKIP) {
+                        continue;
+                    }
+                    stepIn = false;
+                }
+                if (filterResult != null && filterResult) {
+                    sink.accept(path);
+                    if (++entries >= this.maxEntries) {
+                        return Result.MAX_ENTRIES_REACHED;
+                    }
+                }
+                if (stepIn) {
+                    children.add(new Pending(path, depth, current));
+                }
+            }
+            this.order.enqueue(pending, children);
+        }
+        return Result.COMPLETED;
+    }
+
+    /**
+     * Walks the file tree and collects all paths that are accepted by the
+     * {@link PathFilter}. If any limit is reached, the entries that were found
+     * until then are returned.
+     *
+     * @return All paths that are accepted by the {@link PathFilter}.
+     * @throws FileNotFoundException
+     *             If the root directory was not found.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public List<Path> list() throws FileNotFoundException, IOException {
+        final List<Path> result = new ArrayList<Path>();
+        this.walk(result::add);
+        return result;
+    }
+
+    /**
+     * Records the identity of the given directory as visited.
+     *
+     * @param visited
+     *            The identities of all visited directories.
+     * @param directory
+     *            The directory to record.
+     * @param parent
+     *            The pending parent directory. <code>null</code> for the start
+     *            directory.
+     * @return Whether the directory was not visited before. If the directory
+     *         has no known identity, whether it is not the same file as any of
+     *         its ancestors.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private boolean visit(final LongPairHashSet visited, final Path directory, final Pending parent) throws IOException {
+        final PathAttributes attributes;
+        try {
+            attributes = directory.getAttributes();
+        } catch (final FileNotFoundException dummy) {
+            // Deleted since it was listed or a dangling link.
+            return true;
+        }
+        if (attributes.hasIdentity()) {
+            return visited.add(attributes.getDevice(), attributes.getInode());
+        }
+        for (Pending ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            if (directory.isSameFile(ancestor.directory)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the depth of the given path below the root of its file system.
+     *
+     * @param path
+     *            The path to compute the depth of.
+     * @return The number of path-parts of the given path.
+     */
+    private static int depthOf(final Path path) {
+        final String absolutePath = path.getAbsolutePath();
+        int result = 0;
+        for (int i = 0; i < absolutePath.length(); i++) {
+            if (absolutePath.charAt(i) == '/' && i + 1 < absolutePath.length()) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The order a file tree is walked in.
+     *
+     */
+    public static enum Order {
+        /**
+         * All directories on one level are listed before any directory on the
+         * next level.
+         *
+         */
+        BREADTH_FIRST {
+            /**
+             * {@inheritDoc}
+             *
+             * @see de.fdamken.iofacade.util.DirectoryWalker.Order#enqueue(java.util.Deque,
+             *      java.util.List)
+             */
+            @Override
+            void enqueue(final Deque<Pending> pending, final List<Pending> children) {
+                pending.addAll(children);
+            }
+        },
+        /**
+         * The sub-directories of a directory are listed before its siblings.
+         *
+         */
+        DEPTH_FIRST {
+            /**
+             * {@inheritDoc}
+             *
+             * @see de.fdamken.iofacade.util.DirectoryWalker.Order#enqueue(java.util.Deque,
+             *      java.util.List)
+             */
+            @Override
+            void enqueue(final Deque<Pending> pending, final List<Pending> children) {
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    pending.addFirst(children.get(i));
+                }
+            }
+        };
+
+        /**
+         * Adds the sub-directories of the directory that was just listed to
+         * the deque of pending directories.
+         *
+         * @param pending
+         *            The directories that are still to be listed. The head of
+         *            the deque is listed next.
+         * @param children
+         *            The sub-directories to step into in listing order.
+         */
+        abstract void enqueue(final Deque<Pending> pending, final List<Pending> children);
+    }
+
+    /**
+     * Describes what to do if a directory is reached a second time while
+     * following links, which usually means that a link points to one of its
+     * ancestors.
+     *
+     */
+    public static enum LoopPolicy {
+        /**
+         * The path is neither reported nor stepped into.
+         *
+         */
+        SKIP,
+        /**
+         * The path is reported (if accepted by the filter), but not stepped
+         * into.
+         *
+         */
+        REPORT,
+        /**
+         * The walk is aborted with a {@link FileSystemLoopException}.
+         *
+         */
+        FAIL;
+    }
+
+    /**
+     * Describes why a walk has ended.
+     *
+     */
+    public static enum Result {
+        /**
+         * The whole file tree was walked.
+         *
+         */
+        COMPLETED,
+        /**
+         * The walk was aborted as the maximum number of entries was reached.
+         * This is also returned if the last entry of the file tree is exactly
+         * the last allowed one.
+         *
+         */
+        MAX_ENTRIES_REACHED,
+        /**
+         * The walk was aborted as the deadline has passed.
+         *
+         */
+        DEADLINE_EXCEEDED;
+    }
+
+    /**
+     * A directory that is pending to be listed.
+     *
+     */
+    private static class Pending {
+        /**
+         * The directory to list.
+         *
+         */
+        private final Path directory;
+        /**
+         * The depth of the directory. The root directory has the depth
+         * <code>0</code>.
+         *
+         */
+        private final int depth;
+        /**
+         * The pending parent directory. <code>null</code> for the start
+         * directory.
+         *
+         */
+        private final Pending parent;
+
+        /**
+         * Constructor of Pending.
+         *
+         * @param directory
+         *            The directory to list.
+         * @param depth
+         *            The depth of the directory.
+         * @param parent
+         *            The pending parent directory. <code>null</code> for the
+         *            start directory.
+         */
+        public Pending(final Path directory, final int depth, final Pending parent) {
+            this.directory = directory;
+            this.depth = depth;
+            this.parent = parent;
+        }
+    }
+}
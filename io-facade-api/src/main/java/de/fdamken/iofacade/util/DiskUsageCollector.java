@@ -0,0 +1,228 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.fdamken.iofacade.DiskUsage;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+
+/**
+ * Computes the disk usage of file trees using the
+ * {@link ParallelDirectoryWalker}. Every path is read exactly once and added
+ * to the accumulators of all of its ancestors down to the breakdown depth.
+ * The accumulators are {@link LongAdder}s, so the walker threads do not
+ * contend on shared counters.
+ *
+ * <p>
+ * The attributes are read without following symbolic links (see
+ * {@link Path#getLinkAttributes()}), so links are neither counted as files
+ * nor as directories and linked files are not counted twice.
+ * </p>
+ *
+ */
+public class DiskUsageCollector {
+    /**
+     * Constructor of DiskUsageCollector.
+     *
+     */
+    private DiskUsageCollector() {
+        // Nothing to do.
+    }
+
+    /**
+     * Computes the disk usage of the file tree starting from the given
+     * directory. Only the paths that are accepted by the given
+     * {@link PathFilter} are counted.
+     *
+     * @param rootDir
+     *            The root directory of the file tree.
+     * @param filter
+     *            The {@link PathFilter} to apply.
+     * @param depth
+     *            The depth of the per-directory breakdown. <code>0</code> to
+     *            compute the total only, <code>1</code> to additionally break
+     *            down the direct sub-directories and so on.
+     * @return The disk usage.
+     * @throws FileNotFoundException
+     *             If the given directory was not found.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public static DiskUsage collect(final Path rootDir, final PathFilter filter, final int depth)
+            throws FileNotFoundException, IOException {
+        Assertion.acquire(rootDir).named("rootDir").notNull();
+        Assertion.acquire(filter).named("filter").notNull();
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must not be negative!");
+        }
+
+        if (!rootDir.exists()) {
+            throw new FileNotFoundException(rootDir.getAbsolutePath());
+        }
+
+        final String rootPath = DiskUsageCollector.normalize(rootDir.getAbsolutePath());
+        final Map<String, Accumulator> accumulators = new ConcurrentHashMap<String, Accumulator>();
+        final Accumulator root = new Accumulator();
+        accumulators.put(rootPath, root);
+        ParallelDirectoryWalker.walk(rootDir, filter, (path, attributes) -> {
+            final String absolutePath = path.getAbsolutePath();
+            root.add(attributes);
+            int ancestorDepth = 0;
+            int index = rootPath.length();
+            while (ancestorDepth < depth) {
+                index = absolutePath.indexOf('/', index + 1);
+                if (index < 0) {
+                    break;
+                }
+                ancestorDepth++;
+                accumulators.computeIfAbsent(absolutePath.substring(0, index), key -> new Accumulator()).add(attributes);
+            }
+            if (attributes.isDirectory() && ancestorDepth < depth) {
+                accumulators.computeIfAbsent(absolutePath, key -> new Accumulator());
+            }
+        });
+
+        final Map<String, List<String>> children = new HashMap<String, List<String>>();
+        for (final String key : accumulators.keySet()) {
+            if (!key.equals(rootPath)) {
+                final String parent = key.substring(0, key.lastIndexOf('/'));
+                children.computeIfAbsent(parent, dummy -> new ArrayList<String>()).add(key);
+            }
+        }
+        return DiskUsageCollector.build(rootPath.isEmpty() ? "/" : rootPath, rootPath, accumulators, children);
+    }
+
+    /**
+     * Normalizes the given absolute path so that appending a slash yields the
+     * prefix of all descendants.
+     *
+     * @param absolutePath
+     *            The absolute path to normalize.
+     * @return The normalized path. The root path is normalized to the empty
+     *         string.
+     */
+    private static String normalize(final String absolutePath) {
+        return absolutePath.endsWith("/") ? absolutePath.substring(0, absolutePath.length() - 1) : absolutePath;
+    }
+
+    /**
+     * Builds the {@link DiskUsage} of the given node recursively.
+     *
+     * @param absolutePath
+     *            The absolute path of the node.
+     * @param key
+     *            The key of the node.
+     * @param accumulators
+     *            All accumulators, keyed by the normalized absolute path.
+     * @param children
+     *            The keys of the children of all nodes, keyed by the key of the
+     *            parent.
+     * @return The built {@link DiskUsage}.
+     */
+    private static DiskUsage build(final String absolutePath, final String key, final Map<String, Accumulator> accumulators,
+            final Map<String, List<String>> children) {
+        final List<String> childKeys = children.getOrDefault(key, Collections.<String> emptyList());
+        Collections.sort(childKeys);
+        final List<DiskUsage> childUsages = new ArrayList<DiskUsage>(childKeys.size());
+        for (final String childKey : childKeys) {
+            childUsages.add(DiskUsageCollector.build(childKey, childKey, accumulators, children));
+        }
+        return accumulators.get(key).toDiskUsage(absolutePath, childUsages);
+    }
+
+    /**
+     * Accumulates the usage of a single node.
+     *
+     */
+    private static class Accumulator {
+        /**
+         * The total size of all files in bytes.
+         *
+         */
+        private final LongAdder bytes = new LongAdder();
+        /**
+         * The number of files.
+         *
+         */
+        private final LongAdder files = new LongAdder();
+        /**
+         * The number of directories.
+         *
+         */
+        private final LongAdder directories = new LongAdder();
+        /**
+         * The size histogram.
+         *
+         */
+        private final LongAdder[] histogram = new LongAdder[DiskUsage.HISTOGRAM_SIZE];
+
+        /**
+         * Constructor of Accumulator.
+         *
+         */
+        public Accumulator() {
+            for (int i = 0; i < this.histogram.length; i++) {
+                this.histogram[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Adds the path with the given attributes.
+         *
+         * @param attributes
+         *            The attributes of the path.
+         */
+        public void add(final PathAttributes attributes) {
+            if (attributes.isDirectory()) {
+                this.directories.increment();
+            } else if (attributes.isFile()) {
+                this.files.increment();
+                this.bytes.add(attributes.getSize());
+                this.histogram[DiskUsage.bucketOf(attributes.getSize())].increment();
+            }
+        }
+
+        /**
+         * Creates a snapshot of this accumulator.
+         *
+         * @param absolutePath
+         *            The absolute path of the node.
+         * @param children
+         *            The usage of the children of the node.
+         * @return The created {@link DiskUsage}.
+         */
+        public DiskUsage toDiskUsage(final String absolutePath, final List<DiskUsage> children) {
+            final long[] histogram = new long[this.histogram.length];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = this.histogram[i].sum();
+            }
+            return new DiskUsage(absolutePath, this.bytes.sum(), this.files.sum(), this.directories.sum(), histogram,
+                    Collections.unmodifiableList(children));
+        }
+    }
+}
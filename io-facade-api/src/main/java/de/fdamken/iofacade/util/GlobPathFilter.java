@@ -0,0 +1,776 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import de.fdamken.iofacade.Path;
+
+/**
+ * A {@link PathFilter} that matches the absolute paths (see
+ * {@link Path#getAbsolutePath()}) against a glob pattern.
+ *
+ * <p>
+ * The pattern is split into path-parts. Every path-part is compiled into a
+ * deterministic finite automaton, so matching a path-part costs a single table
+ * lookup per character. The following syntax is supported:
+ * <table border="1px solid black">
+ * <tr>
+ * <td><code>**</code></td>
+ * <td>any number of path-parts (including none); must be a path-part of its
+ * own</td>
+ * </tr>
+ * <tr>
+ * <td><code>*</code></td>
+ * <td>any number of characters within a path-part</td>
+ * </tr>
+ * <tr>
+ * <td><code>?</code></td>
+ * <td>exactly one character</td>
+ * </tr>
+ * <tr>
+ * <td><code>[a-z]</code>, <code>[!a-z]</code></td>
+ * <td>one character (not) within the given set</td>
+ * </tr>
+ * <tr>
+ * <td><code>{foo,bar}</code></td>
+ * <td>one of the given alternatives</td>
+ * </tr>
+ * <tr>
+ * <td><code>\</code></td>
+ * <td>escapes the next character</td>
+ * </tr>
+ * </table>
+ * </p>
+ * <p>
+ * As the path-parts are matched one after the other, the filter knows whether
+ * any path below a directory can still match. Directories that match
+ * partially are stepped into (<code>null</code>), directories that can never
+ * lead to a match are pruned (<code>false</code>). Additionally, the leading
+ * path-parts without any wildcards make up the static prefix of this filter.
+ * </p>
+ *
+ */
+public class GlobPathFilter implements PathFilter {
+    /**
+     * The maximum number of states of the automaton of a single path-part.
+     *
+     */
+    private static final int MAX_STATES = 4096;
+
+    /**
+     * The glob pattern.
+     *
+     */
+    private final String pattern;
+    /**
+     * The automatons of the path-parts. <code>null</code> elements represent
+     * <code>**</code>.
+     *
+     */
+    private final SegmentAutomaton[] segments;
+    /**
+     * The static prefix of this filter.
+     *
+     */
+    private final String staticPrefix;
+
+    /**
+     * Constructor of GlobPathFilter.
+     *
+     * @param pattern
+     *            The glob pattern. Must be absolute (start with a slash).
+     * @throws IllegalArgumentException
+     *             If the given pattern is invalid.
+     */
+    public GlobPathFilter(final String pattern) throws IllegalArgumentException {
+        Assertion.acquire(pattern).named("pattern").notNull().startsWith("/");
+
+        this.pattern = pattern;
+
+        final List<String> parts = GlobPathFilter.split(pattern, true);
+        this.segments = new SegmentAutomaton[parts.size()];
+        final StringBuilder prefix = new StringBuilder();
+        boolean literal = true;
+        for (int i = 0; i < parts.size(); i++) {
+            final String part = parts.get(i);
+            if (part.equals("**")) {
+                this.segments[i] = null;
+                literal = false;
+            } else {
+                this.segments[i] = new SegmentAutomaton(part);
+                if (literal && i < parts.size() - 1 && this.segments[i].literal != null) {
+                    prefix.append('/').append(this.segments[i].literal);
+                } else {
+                    literal = false;
+                }
+            }
+        }
+        this.staticPrefix = prefix.length() == 0 ? "/" : prefix.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.util.PathFilter#apply(de.fdamken.iofacade.Path)
+     */
+    @Override
+    public Boolean apply(final Path path) {
+        final BitSet positions = this.run(path.getAbsolutePath());
+        if (positions.get(this.segments.length)) {
+            return true;
+        }
+        return positions.isEmpty() ? false : null;
+    }
+
+    /**
+     * Checks whether the given absolute path matches the pattern.
+     *
+     * @param absolutePath
+     *            The absolute path to check.
+     * @return Whether the given path matches the pattern.
+     */
+    public boolean matches(final String absolutePath) {
+        return this.run(absolutePath).get(this.segments.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.util.PathFilter#getStaticPrefix()
+     */
+    @Override
+    public String getStaticPrefix() {
+        return this.staticPrefix;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return this.pattern;
+    }
+
+    /**
+     * Feeds all path-parts of the given path into the path-part automatons.
+     *
+     * @param absolutePath
+     *            The path to feed.
+     * @return The positions within {@link #segments} that are reachable after
+     *         the given path. The position <code>segments.length</code> means
+     *         that the whole pattern was matched. Empty if the path and every
+     *         path below it can never match.
+     */
+    private BitSet run(final String absolutePath) {
+        BitSet positions = this.closure(0);
+        for (final String part : GlobPathFilter.split(absolutePath, false)) {
+            final BitSet next = new BitSet(this.segments.length + 1);
+            for (int i = positions.nextSetBit(0); i >= 0 && i < this.segments.length; i = positions.nextSetBit(i + 1)) {
+                if (this.segments[i] == null) {
+                    next.or(this.closure(i));
+                } else if (this.segments[i].matches(part)) {
+                    next.or(this.closure(i + 1));
+                }
+            }
+            if (next.isEmpty()) {
+                return next;
+            }
+            positions = next;
+        }
+        return positions;
+    }
+
+    /**
+     * Computes the positions that are reachable from the given position
+     * without consuming any path-part (<code>**</code> may match nothing).
+     *
+     * @param position
+     *            The start position.
+     * @return The reachable positions, including the given one.
+     */
+    private BitSet closure(final int position) {
+        final BitSet result = new BitSet(this.segments.length + 1);
+        int i = position;
+        result.set(i);
+        while (i < this.segments.length && this.segments[i] == null) {
+            result.set(++i);
+        }
+        return result;
+    }
+
+    /**
+     * Splits the given path into its non-empty path-parts.
+     *
+     * @param path
+     *            The path to split.
+     * @param escapes
+     *            Whether a backslash escapes the next character (and hence
+     *            slashes can be escaped).
+     * @return The path-parts.
+     */
+    private static List<String> split(final String path, final boolean escapes) {
+        final List<String> result = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (i > start) {
+                    result.add(path.substring(start, i));
+                }
+                start = i + 1;
+            } else if (escapes && path.charAt(i) == '\\' && i + 1 < path.length()) {
+                i++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A deterministic finite automaton that matches a single path-part.
+     *
+     * <p>
+     * The characters are partitioned into intervals that behave identically
+     * within the pattern, so the transition table only needs one column per
+     * interval.
+     * </p>
+     *
+     */
+    private static class SegmentAutomaton {
+        /**
+         * The unescaped path-part, if it does not contain any wildcards.
+         * Otherwise <code>null</code>.
+         *
+         */
+        private final String literal;
+        /**
+         * The first characters of the character intervals (sorted).
+         *
+         */
+        private final char[] intervals;
+        /**
+         * The transition table (<code>[state][interval]</code>).
+         *
+         */
+        private final int[][] transitions;
+        /**
+         * Whether a state is accepting.
+         *
+         */
+        private final boolean[] accepting;
+
+        /**
+         * Constructor of SegmentAutomaton.
+         *
+         * @param glob
+         *            The glob pattern of a single path-part.
+         * @throws IllegalArgumentException
+         *             If the given pattern is invalid.
+         */
+        public SegmentAutomaton(final String glob) throws IllegalArgumentException {
+            final Parser parser = new Parser(glob);
+            final List<Node> nodes = parser.parseSequence(false);
+            if (parser.position < glob.length()) {
+                throw new IllegalArgumentException("Unexpected " + glob.charAt(parser.position) + " in " + glob + "!");
+            }
+
+            final StringBuilder literalBuilder = new StringBuilder();
+            boolean isLiteral = true;
+            for (final Node node : nodes) {
+                if (node.kind != Node.CHAR) {
+                    isLiteral = false;
+                    break;
+                }
+                literalBuilder.append(node.from);
+            }
+            this.literal = isLiteral ? literalBuilder.toString() : null;
+
+            final List<NfaState> states = new ArrayList<NfaState>();
+            final NfaState match = new NfaState(states, NfaState.MATCH);
+            final NfaState start = SegmentAutomaton.compile(states, nodes, match);
+
+            final TreeSet<Character> bounds = new TreeSet<Character>();
+            bounds.add('\0');
+            for (final NfaState state : states) {
+                if (state.kind == NfaState.CHARS) {
+                    for (int i = 0; i < state.ranges.length; i += 2) {
+                        bounds.add(state.ranges[i]);
+                        if (state.ranges[i + 1] < Character.MAX_VALUE) {
+                            bounds.add((char) (state.ranges[i + 1] + 1));
+                        }
+                    }
+                }
+            }
+            this.intervals = new char[bounds.size()];
+            int index = 0;
+            for (final char bound : bounds) {
+                this.intervals[index++] = bound;
+            }
+
+            final Map<BitSet, Integer> ids = new HashMap<BitSet, Integer>();
+            final List<BitSet> dfaStates = new ArrayList<BitSet>();
+            final List<int[]> table = new ArrayList<int[]>();
+            final Deque<Integer> pending = new ArrayDeque<Integer>();
+            final BitSet initial = new BitSet();
+            SegmentAutomaton.addClosure(initial, start);
+            ids.put(initial, 0);
+            dfaStates.add(initial);
+            pending.add(0);
+            while (!pending.isEmpty()) {
+                final int id = pending.poll();
+                final BitSet current = dfaStates.get(id);
+                final int[] row = new int[this.intervals.length];
+                for (int interval = 0; interval < this.intervals.length; interval++) {
+                    final char c = this.intervals[interval];
+                    final BitSet next = new BitSet();
+                    for (int i = current.nextSetBit(0); i >= 0; i = current.nextSetBit(i + 1)) {
+                        final NfaState state = states.get(i);
+                        if (state.kind == NfaState.CHARS && state.accepts(c)) {
+                            SegmentAutomaton.addClosure(next, state.out);
+                        }
+                    }
+                    Integer nextId = ids.get(next);
+                    if (nextId == null) {
+                        if (dfaStates.size() >= GlobPathFilter.MAX_STATES) {
+                            throw new IllegalArgumentException("Pattern is too complex: " + glob);
+                        }
+                        nextId = dfaStates.size();
+                        ids.put(next, nextId);
+                        dfaStates.add(next);
+                        pending.add(nextId);
+                    }
+                    row[interval] = nextId;
+                }
+                while (table.size() <= id) {
+                    table.add(null);
+                }
+                table.set(id, row);
+            }
+
+            this.transitions = table.toArray(new int[table.size()][]);
+            this.accepting = new boolean[dfaStates.size()];
+            for (int i = 0; i < this.accepting.length; i++) {
+                this.accepting[i] = dfaStates.get(i).get(match.id);
+            }
+        }
+
+        /**
+         * Checks whether the given path-part matches.
+         *
+         * @param part
+         *            The path-part to check.
+         * @return Whether the given path-part matches.
+         */
+        public boolean matches(final String part) {
+            if (this.literal != null) {
+                return this.literal.equals(part);
+            }
+
+            int state = 0;
+            for (int i = 0; i < part.length(); i++) {
+                int interval = Arrays.binarySearch(this.intervals, part.charAt(i));
+                if (interval < 0) {
+                    interval = -interval - 2;
+                }
+                state = this.transitions[state][interval];
+            }
+            return this.accepting[state];
+        }
+
+        /**
+         * Compiles the given nodes into NFA states (backwards, so every node
+         * knows its successor).
+         *
+         * @param states
+         *            The list of all NFA states.
+         * @param nodes
+         *            The nodes to compile.
+         * @param next
+         *            The state that follows the given nodes.
+         * @return The first state of the compiled nodes.
+         */
+        private static NfaState compile(final List<NfaState> states, final List<Node> nodes, final NfaState next) {
+            NfaState result = next;
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                final Node node = nodes.get(i);
+                switch (node.kind) {
+                    case Node.CHAR:
+                        result = new NfaState(states, new char[] { node.from, node.from }, result);
+                        break;
+                    case Node.CLASS:
+                        result = new NfaState(states, node.ranges, result);
+                        break;
+                    case Node.STAR:
+                        final NfaState loop = new NfaState(states, NfaState.SPLIT);
+                        loop.out = new NfaState(states, new char[] { '\0', Character.MAX_VALUE }, loop);
+                        loop.out1 = result;
+                        result = loop;
+                        break;
+                    case Node.ALTERNATIVES:
+                        final NfaState split = new NfaState(states, NfaState.SPLIT);
+                        split.alternatives = new ArrayList<NfaState>();
+                        for (final List<Node> alternative : node.alternatives) {
+                            split.alternatives.add(SegmentAutomaton.compile(states, alternative, result));
+                        }
+                        result = split;
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown node kind " + node.kind + "!");
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Adds the given state and every state reachable from it without
+         * consuming a character.
+         *
+         * @param set
+         *            The set to add the state IDs to.
+         * @param state
+         *            The state to add.
+         */
+        private static void addClosure(final BitSet set, final NfaState state) {
+            if (set.get(state.id)) {
+                return;
+            }
+            set.set(state.id);
+            if (state.kind == NfaState.SPLIT) {
+                if (state.alternatives == null) {
+                    SegmentAutomaton.addClosure(set, state.out);
+                    SegmentAutomaton.addClosure(set, state.out1);
+                } else {
+                    for (final NfaState alternative : state.alternatives) {
+                        SegmentAutomaton.addClosure(set, alternative);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A state of a non-deterministic finite automaton.
+     *
+     */
+    private static class NfaState {
+        /**
+         * Kind of states that consume a character within {@link #ranges}.
+         *
+         */
+        private static final int CHARS = 0;
+        /**
+         * Kind of states that branch without consuming a character.
+         *
+         */
+        private static final int SPLIT = 1;
+        /**
+         * Kind of the accepting state.
+         *
+         */
+        private static final int MATCH = 2;
+
+        /**
+         * The ID of this state (the index within the list of all states).
+         *
+         */
+        private final int id;
+        /**
+         * The kind of this state.
+         *
+         */
+        private final int kind;
+        /**
+         * The accepted character ranges (pairs of inclusive bounds).
+         *
+         */
+        private char[] ranges;
+        /**
+         * The successor.
+         *
+         */
+        private NfaState out;
+        /**
+         * The second successor of a split.
+         *
+         */
+        private NfaState out1;
+        /**
+         * The successors of a split with more than two successors.
+         *
+         */
+        private List<NfaState> alternatives;
+
+        /**
+         * Constructor of NfaState.
+         *
+         * @param states
+         *            The list of all states to add this state to.
+         * @param kind
+         *            The kind of this state.
+         */
+        public NfaState(final List<NfaState> states, final int kind) {
+            this.id = states.size();
+            this.kind = kind;
+
+            states.add(this);
+        }
+
+        /**
+         * Constructor of NfaState.
+         *
+         * @param states
+         *            The list of all states to add this state to.
+         * @param ranges
+         *            The accepted character ranges.
+         * @param out
+         *            The successor.
+         */
+        public NfaState(final List<NfaState> states, final char[] ranges, final NfaState out) {
+            this(states, NfaState.CHARS);
+
+            this.ranges = ranges;
+            this.out = out;
+        }
+
+        /**
+         * Checks whether this state accepts the given character.
+         *
+         * @param c
+         *            The character to check.
+         * @return Whether this state accepts the given character.
+         */
+        public boolean accepts(final char c) {
+            for (int i = 0; i < this.ranges.length; i += 2) {
+                if (c >= this.ranges[i] && c <= this.ranges[i + 1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A node of a parsed glob pattern.
+     *
+     */
+    private static class Node {
+        /**
+         * Kind of nodes that match a single character.
+         *
+         */
+        private static final int CHAR = 0;
+        /**
+         * Kind of nodes that match a single character within a set.
+         *
+         */
+        private static final int CLASS = 1;
+        /**
+         * Kind of nodes that match any number of characters.
+         *
+         */
+        private static final int STAR = 2;
+        /**
+         * Kind of nodes that match one of some alternatives.
+         *
+         */
+        private static final int ALTERNATIVES = 3;
+
+        /**
+         * The kind of this node.
+         *
+         */
+        private final int kind;
+        /**
+         * The character to match ({@link #CHAR} only).
+         *
+         */
+        private char from;
+        /**
+         * The character ranges to match ({@link #CLASS} only).
+         *
+         */
+        private char[] ranges;
+        /**
+         * The alternatives ({@link #ALTERNATIVES} only).
+         *
+         */
+        private List<List<Node>> alternatives;
+
+        /**
+         * Constructor of Node.
+         *
+         * @param kind
+         *            The kind of this node.
+         */
+        public Node(final int kind) {
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * A recursive-descent parser for the glob pattern of a single path-part.
+     *
+     */
+    private static class Parser {
+        /**
+         * The pattern to parse.
+         *
+         */
+        private final String glob;
+        /**
+         * The current position within {@link #glob}.
+         *
+         */
+        private int position;
+
+        /**
+         * Constructor of Parser.
+         *
+         * @param glob
+         *            The pattern to parse.
+         */
+        public Parser(final String glob) {
+            this.glob = glob;
+        }
+
+        /**
+         * Parses a sequence of nodes.
+         *
+         * @param inAlternatives
+         *            Whether the sequence is an alternative (and hence ends
+         *            at a <code>,</code> or a <code>}</code>).
+         * @return The parsed nodes.
+         */
+        public List<Node> parseSequence(final boolean inAlternatives) {
+            final List<Node> result = new ArrayList<Node>();
+            while (this.position < this.glob.length()) {
+                final char c = this.glob.charAt(this.position);
+                if (inAlternatives && (c == ',' || c == '}')) {
+                    break;
+                }
+                this.position++;
+                final Node node;
+                switch (c) {
+                    case '*':
+                        node = new Node(Node.STAR);
+                        break;
+                    case '?':
+                        node = new Node(Node.CLASS);
+                        node.ranges = new char[] { '\0', Character.MAX_VALUE };
+                        break;
+                    case '[':
+                        node = this.parseClass();
+                        break;
+                    case '{':
+                        node = new Node(Node.ALTERNATIVES);
+                        node.alternatives = new ArrayList<List<Node>>();
+                        do {
+                            node.alternatives.add(this.parseSequence(true));
+                        } while (this.next() == ',');
+                        break;
+                    case '\\':
+                        node = new Node(Node.CHAR);
+                        node.from = this.next();
+                        break;
+                    default:
+                        node = new Node(Node.CHAR);
+                        node.from = c;
+                        break;
+                }
+                result.add(node);
+            }
+            return result;
+        }
+
+        /**
+         * Parses a character class. The opening bracket is already consumed.
+         *
+         * @return The parsed node.
+         */
+        private Node parseClass() {
+            final boolean negated = this.position < this.glob.length()
+                    && (this.glob.charAt(this.position) == '!' || this.glob.charAt(this.position) == '^');
+            if (negated) {
+                this.position++;
+            }
+
+            final BitSet chars = new BitSet(Character.MAX_VALUE + 1);
+            boolean first = true;
+            char c;
+            while ((c = this.next()) != ']' || first) {
+                first = false;
+                if (c == '\\') {
+                    c = this.next();
+                }
+                char to = c;
+                if (this.position + 1 < this.glob.length() && this.glob.charAt(this.position) == '-'
+                        && this.glob.charAt(this.position + 1) != ']') {
+                    this.position++;
+                    to = this.next();
+                    if (to == '\\') {
+                        to = this.next();
+                    }
+                }
+                if (to < c) {
+                    throw new IllegalArgumentException("Invalid range " + c + "-" + to + " in " + this.glob + "!");
+                }
+                chars.set(c, to + 1);
+            }
+            if (negated) {
+                chars.flip(0, Character.MAX_VALUE + 1);
+            }
+
+            final List<Character> ranges = new ArrayList<Character>();
+            for (int from = chars.nextSetBit(0); from >= 0; from = chars.nextSetBit(from)) {
+                final int to = chars.nextClearBit(from);
+                ranges.add((char) from);
+                ranges.add((char) (to - 1));
+                from = to;
+            }
+            final Node result = new Node(Node.CLASS);
+            result.ranges = new char[ranges.size()];
+            for (int i = 0; i < result.ranges.length; i++) {
+                result.ranges[i] = ranges.get(i);
+            }
+            return result;
+        }
+
+        /**
+         * Consumes the next character.
+         *
+         * @return The consumed character.
+         * @throws IllegalArgumentException
+         *             If the end of the pattern is reached.
+         */
+        private char next() throws IllegalArgumentException {
+            if (this.position >= this.glob.length()) {
+                throw new IllegalArgumentException("Unexpected end of " + this.glob + "!");
+            }
+            return this.glob.charAt(this.position++);
+        }
+    }
+}
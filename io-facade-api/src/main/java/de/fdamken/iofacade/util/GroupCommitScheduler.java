@@ -0,0 +1,394 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import de.fdamken.iofacade.File;
+import de.fdamken.iofacade.FileSystem;
+import de.fdamken.iofacade.Path;
+
+/**
+ * Makes many small writes durable together (group commit).
+ *
+ * <p>
+ * Instead of forcing every written file on its own (see {@link Path#sync()}),
+ * the files are collected for a short commit window. Then all files of the
+ * batch are forced concurrently on the fork/join pool of their file system,
+ * every parent directory is forced once for the whole batch and only then the
+ * futures of the files are completed. This trades a few milliseconds of
+ * latency for a much higher throughput, because the storage device can merge
+ * the flushes. A batch is committed early if it reaches the maximum batch size.
+ * </p>
+ * <p>
+ * Batches are committed by a single thread of the scheduler, one after
+ * another. While a batch is committed, the next one is collected; full batches
+ * wait for their commit, so no batch grows beyond the maximum batch size.
+ * </p>
+ *
+ */
+public class GroupCommitScheduler implements Closeable {
+    /**
+     * The default commit window in milliseconds.
+     *
+     */
+    public static final long DEFAULT_COMMIT_WINDOW = 5;
+    /**
+     * The default maximum number of files per batch.
+     *
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+    /**
+     * The time in milliseconds files are collected before they are committed.
+     *
+     */
+    private final long commitWindow;
+    /**
+     * The maximum number of files per batch.
+     *
+     */
+    private final int maxBatchSize;
+    /**
+     * The executor that commits the batches.
+     *
+     */
+    private final ScheduledExecutorService committer;
+    /**
+     * The lock that guards {@link #batch}, {@link #fullBatches} and
+     * {@link #closed}.
+     *
+     */
+    private final Object lock = new Object();
+    /**
+     * The full batches that wait to be committed, oldest first.
+     *
+     */
+    private final Deque<List<PendingSync>> fullBatches = new ArrayDeque<List<PendingSync>>();
+    /**
+     * The files that are collected for the next commit.
+     *
+     */
+    private List<PendingSync> batch = new ArrayList<PendingSync>();
+    /**
+     * Whether this scheduler is closed.
+     *
+     */
+    private boolean closed;
+
+    /**
+     * Constructor of GroupCommitScheduler.
+     *
+     */
+    public GroupCommitScheduler() {
+        this(GroupCommitScheduler.DEFAULT_COMMIT_WINDOW, GroupCommitScheduler.DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor of GroupCommitScheduler.
+     *
+     * @param commitWindow
+     *            The time in milliseconds files are collected before they are
+     *            committed.
+     * @param maxBatchSize
+     *            The maximum number of files per batch.
+     */
+    public GroupCommitScheduler(final long commitWindow, final int maxBatchSize) {
+        if (commitWindow < 0) {
+            throw new IllegalArgumentException("commitWindow must not be negative!");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive!");
+        }
+
+        this.commitWindow = commitWindow;
+        this.maxBatchSize = maxBatchSize;
+        this.committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "io-facade-group-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Writes the content of the given file in the calling thread and makes it
+     * durable with the next batch.
+     *
+     * @param file
+     *            The file to write. Must exist.
+     * @param writer
+     *            Writes the content.
+     * @return The future that is completed as soon as the file and its parent
+     *         directory are forced.
+     * @throws IOException
+     *             If any I/O error occurs while writing.
+     */
+    public CompletableFuture<Void> write(final File file, final File.ContentWriter writer) throws IOException {
+        Assertion.acquire(file).named("file").notNull();
+        Assertion.acquire(writer).named("writer").notNull();
+
+        try (OutputStream out = file.openOutputStream()) {
+            writer.write(out);
+        }
+        return this.sync(file);
+    }
+
+    /**
+     * Makes the given file, which was written before, durable with the next
+     * batch.
+     *
+     * @param path
+     *            The file to force.
+     * @return The future that is completed as soon as the file and its parent
+     *         directory are forced. If forcing fails, it is completed
+     *         exceptionally with the {@link IOException}.
+     * @throws IllegalStateException
+     *             If this scheduler is closed.
+     */
+    public CompletableFuture<Void> sync(final Path path) throws IllegalStateException {
+        Assertion.acquire(path).named("path").notNull();
+
+        final PendingSync pending = new PendingSync(path);
+        synchronized (this.lock) {
+            if (this.closed) {
+                throw new IllegalStateException("The scheduler is closed!");
+            }
+
+            this.batch.add(pending);
+            if (this.batch.size() == 1) {
+                this.committer.schedule(this::commit, this.commitWindow, TimeUnit.MILLISECONDS);
+            }
+            if (this.batch.size() == this.maxBatchSize) {
+                this.fullBatches.add(this.batch);
+                this.batch = new ArrayList<PendingSync>();
+                this.committer.execute(this::commit);
+            }
+        }
+        return pending.future;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The pending files are still committed right away, but this does not wait
+     * for it.
+     * </p>
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() {
+        synchronized (this.lock) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+
+            this.committer.execute(this::commitAll);
+            this.committer.shutdown();
+        }
+    }
+
+    /**
+     * Commits all full batches and the current batch.
+     *
+     */
+    private void commitAll() {
+        while (this.commitNext()) {
+            // Commit the next batch.
+        }
+    }
+
+    /**
+     * Commits the next batch, if any.
+     *
+     */
+    private void commit() {
+        this.commitNext();
+    }
+
+    /**
+     * Commits the oldest full batch or, if there is none, the current batch.
+     *
+     * @return Whether any batch was committed.
+     */
+    private boolean commitNext() {
+        final List<PendingSync> committed;
+        synchronized (this.lock) {
+            if (!this.fullBatches.isEmpty()) {
+                committed = this.fullBatches.poll();
+            } else if (!this.batch.isEmpty()) {
+                committed = this.batch;
+                this.batch = new ArrayList<PendingSync>();
+            } else {
+                return false;
+            }
+        }
+
+        try {
+            GroupCommitScheduler.commitBatch(committed);
+        } catch (final RuntimeException | Error cause) {
+            // Nobody waits for the committer, so every caller has to learn
+            // about the error through its future.
+            for (final PendingSync pending : committed) {
+                pending.future.completeExceptionally(cause);
+            }
+            if (cause instanceof Error) {
+                throw cause;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forces all files of the given batch and their parent directories and
+     * completes their futures.
+     *
+     * @param committed
+     *            The batch to commit.
+     */
+    private static void commitBatch(final List<PendingSync> committed) {
+        final List<CompletableFuture<Void>> fileSyncs = new ArrayList<CompletableFuture<Void>>(committed.size());
+        for (final PendingSync pending : committed) {
+            fileSyncs.add(GroupCommitScheduler.syncAsync(pending.path));
+        }
+
+        final Map<FileSystem, Map<String, List<PendingSync>>> parents = new IdentityHashMap<FileSystem,
+                Map<String, List<PendingSync>>>();
+        for (int i = 0; i < committed.size(); i++) {
+            final PendingSync pending = committed.get(i);
+            final Throwable error = GroupCommitScheduler.await(fileSyncs.get(i));
+            if (error != null) {
+                pending.future.completeExceptionally(error);
+                continue;
+            }
+
+            final String absolutePath = pending.path.getAbsolutePath();
+            final String parentPath = absolutePath.substring(0, absolutePath.lastIndexOf('/') + 1);
+            parents.computeIfAbsent(pending.path.getFileSystem(), key -> new HashMap<String, List<PendingSync>>())
+                    .computeIfAbsent(parentPath, key -> new ArrayList<PendingSync>()).add(pending);
+        }
+
+        final List<CompletableFuture<Void>> directorySyncs = new ArrayList<CompletableFuture<Void>>();
+        final List<List<PendingSync>> directoryFiles = new ArrayList<List<PendingSync>>();
+        for (final Map.Entry<FileSystem, Map<String, List<PendingSync>>> fileSystemEntry : parents.entrySet()) {
+            for (final Map.Entry<String, List<PendingSync>> entry : fileSystemEntry.getValue().entrySet()) {
+                final Path directory;
+                try {
+                    directory = fileSystemEntry.getKey().getPath(entry.getKey());
+                } catch (final IOException cause) {
+                    for (final PendingSync pending : entry.getValue()) {
+                        pending.future.completeExceptionally(cause);
+                    }
+                    continue;
+                }
+                directorySyncs.add(GroupCommitScheduler.syncAsync(directory));
+                directoryFiles.add(entry.getValue());
+            }
+        }
+
+        for (int i = 0; i < directorySyncs.size(); i++) {
+            final Throwable error = GroupCommitScheduler.await(directorySyncs.get(i));
+            for (final PendingSync pending : directoryFiles.get(i)) {
+                if (error == null) {
+                    pending.future.complete(null);
+                } else {
+                    pending.future.completeExceptionally(error);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces the given path on the fork/join pool of its file system.
+     *
+     * @param path
+     *            The path to force.
+     * @return The future that is completed as soon as the path is forced.
+     */
+    private static CompletableFuture<Void> syncAsync(final Path path) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                path.sync();
+            } catch (final IOException cause) {
+                throw new UncheckedIOException(cause);
+            }
+        }, ParallelDirectoryWalker.getPool(path.getFileSystem()));
+    }
+
+    /**
+     * Waits for the given future.
+     *
+     * @param future
+     *            The future to wait for.
+     * @return The error the future was completed with. <code>null</code> if it
+     *         was completed normally.
+     */
+    private static Throwable await(final CompletableFuture<Void> future) {
+        try {
+            future.join();
+            return null;
+        } catch (final CompletionException cause) {
+            final Throwable error = cause.getCause();
+            return error instanceof UncheckedIOException ? error.getCause() : error;
+        }
+    }
+
+    /**
+     * A file that is waiting for the next commit.
+     *
+     */
+    private static class PendingSync {
+        /**
+         * The file to force.
+         *
+         */
+        private final Path path;
+        /**
+         * The future that is completed as soon as the file is committed.
+         *
+         */
+        private final CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+        /**
+         * Constructor of PendingSync.
+         *
+         * @param path
+         *            The file to force.
+         */
+        public PendingSync(final Path path) {
+            this.path = path;
+        }
+    }
+}
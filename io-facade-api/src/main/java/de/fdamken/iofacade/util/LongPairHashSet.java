@@ -0,0 +1,204 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+/**
+ * A set of pairs of primitive <code>long</code>s, i.e. the
+ * <code>(device, inode)</code> identities of files.
+ *
+ * <p>
+ * The pairs are stored in parallel primitive arrays using open addressing with
+ * linear probing, so neither the pairs nor the entries are boxed and both
+ * {@link #add(long, long)} and {@link #contains(long, long)} take constant
+ * time on average. The table is kept at most half full.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ */
+public final class LongPairHashSet {
+    /**
+     * The default initial capacity.
+     *
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The first values of the pairs.
+     *
+     */
+    private long[] firsts;
+    /**
+     * The second values of the pairs.
+     *
+     */
+    private long[] seconds;
+    /**
+     * Whether a slot is used.
+     *
+     */
+    private boolean[] used;
+    /**
+     * The number of pairs.
+     *
+     */
+    private int size;
+
+    /**
+     * Constructor of LongPairHashSet.
+     *
+     */
+    public LongPairHashSet() {
+        this(LongPairHashSet.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor of LongPairHashSet.
+     *
+     * @param expectedSize
+     *            The number of pairs that is expected to be added. Must not be
+     *            negative.
+     */
+    public LongPairHashSet(final int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize must not be negative!");
+        }
+
+        this.allocate(Math.max(LongPairHashSet.DEFAULT_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1));
+    }
+
+    /**
+     * Adds the given pair.
+     *
+     * @param first
+     *            The first value of the pair.
+     * @param second
+     *            The second value of the pair.
+     * @return Whether the pair was added, <code>false</code> if it was
+     *         contained already.
+     */
+    public boolean add(final long first, final long second) {
+        final int mask = this.used.length - 1;
+        int slot = LongPairHashSet.hash(first, second) & mask;
+        while (this.used[slot]) {
+            if (this.firsts[slot] == first && this.seconds[slot] == second) {
+                return false;
+            }
+            slot = slot + 1 & mask;
+        }
+
+        this.used[slot] = true;
+        this.firsts[slot] = first;
+        this.seconds[slot] = second;
+        if (++this.size * 2 > this.used.length) {
+            this.grow();
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the given pair is contained.
+     *
+     * @param first
+     *            The first value of the pair.
+     * @param second
+     *            The second value of the pair.
+     * @return Whether the pair is contained.
+     */
+    public boolean contains(final long first, final long second) {
+        final int mask = this.used.length - 1;
+        int slot = LongPairHashSet.hash(first, second) & mask;
+        while (this.used[slot]) {
+            if (this.firsts[slot] == first && this.seconds[slot] == second) {
+                return true;
+            }
+            slot = slot + 1 & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all pairs.
+     *
+     */
+    public void clear() {
+        this.allocate(LongPairHashSet.DEFAULT_CAPACITY);
+        this.size = 0;
+    }
+
+    /**
+     *
+     * @return The number of pairs.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Doubles the capacity and re-inserts all pairs.
+     *
+     */
+    private void grow() {
+        final long[] oldFirsts = this.firsts;
+        final long[] oldSeconds = this.seconds;
+        final boolean[] oldUsed = this.used;
+        this.allocate(oldUsed.length * 2);
+        final int mask = this.used.length - 1;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = LongPairHashSet.hash(oldFirsts[i], oldSeconds[i]) & mask;
+                while (this.used[slot]) {
+                    slot = slot + 1 & mask;
+                }
+                this.used[slot] = true;
+                this.firsts[slot] = oldFirsts[i];
+                this.seconds[slot] = oldSeconds[i];
+            }
+        }
+    }
+
+    /**
+     * Allocates empty tables.
+     *
+     * @param capacity
+     *            The capacity. Must be a power of two.
+     */
+    private void allocate(final int capacity) {
+        this.firsts = new long[capacity];
+        this.seconds = new long[capacity];
+        this.used = new boolean[capacity];
+    }
+
+    /**
+     * Computes the hash of the given pair.
+     *
+     * @param first
+     *            The first value of the pair.
+     * @param second
+     *            The second value of the pair.
+     * @return The hash.
+     */
+    private static int hash(final long first, final long second) {
+        long hash = first * 0x9E3779B97F4A7C15L + second;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+}
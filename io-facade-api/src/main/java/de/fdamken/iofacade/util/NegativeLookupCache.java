@@ -0,0 +1,476 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import de.fdamken.iofacade.watch.DirectoryEvent;
+import de.fdamken.iofacade.watch.DirectoryListener;
+
+/**
+ * Remembers paths that are known not to exist, so repeated probes of missing
+ * paths do not have to hit the file system.
+ *
+ * <p>
+ * Two sources of knowledge are combined: Recent misses are remembered
+ * directly and the names of every fully listed directory are summarized in a
+ * Bloom filter. A path whose name is not contained in the Bloom filter of its
+ * parent is known not to exist, without ever having been probed. Both kinds of
+ * entries expire after a fixed time to live, as changes that are not made
+ * through the facade can only be noticed by a watch.
+ * </p>
+ * <p>
+ * Implementations have to report all writes (see {@link #created(String)} and
+ * {@link #deleted(String)}). As this is a {@link DirectoryListener}, it can be
+ * attached to a watch to learn about changes made by others.
+ * </p>
+ * <p>
+ * Probes and listings race with concurrent writes: A path may be created
+ * after it was probed, but before the miss is recorded. Hence every
+ * invalidation increments a generation counter (see {@link #getGeneration()}).
+ * Callers read it before they start to probe or list and pass it when
+ * recording the result, which is dropped if any invalidation has happened in
+ * between.
+ * </p>
+ * <p>
+ * All paths are absolute paths (see
+ * {@link de.fdamken.iofacade.Path#getAbsolutePath()}). This class is thread
+ * safe.
+ * </p>
+ *
+ */
+public class NegativeLookupCache implements DirectoryListener {
+    /**
+     * The number of bits per name of the Bloom filters.
+     *
+     */
+    private static final int BITS_PER_NAME = 10;
+    /**
+     * The number of hash functions of the Bloom filters.
+     *
+     */
+    private static final int HASH_FUNCTIONS = 7;
+
+    /**
+     * The time to live of all entries in nanoseconds. If this is less than or
+     * equal to zero, the cache is disabled.
+     *
+     */
+    private final long ttl;
+    /**
+     * The expiry times of the recent misses, keyed by absolute path, in
+     * access order.
+     *
+     */
+    private final Map<String, Long> misses;
+    /**
+     * The keys of {@link #misses} in lexicographical order, so all misses
+     * below a directory can be found without scanning every miss.
+     *
+     */
+    private final NavigableSet<String> sortedMisses = new TreeSet<String>();
+    /**
+     * The Bloom filters of the names of the last listing, keyed by the
+     * absolute path of the directory, in access order.
+     *
+     */
+    private final Map<String, BloomFilter> listings;
+    /**
+     * The number of invalidations so far.
+     *
+     */
+    private long generation;
+
+    /**
+     * Constructor of NegativeLookupCache.
+     *
+     * @param ttl
+     *            The time to live of all entries in milliseconds. If this is
+     *            less than or equal to zero, the cache is disabled.
+     * @param maxEntries
+     *            The maximum number of misses and, separately, of directory
+     *            listings that are remembered. The least recently used ones
+     *            are dropped first.
+     */
+    public NegativeLookupCache(final long ttl, final int maxEntries) {
+        this.ttl = ttl * 1000000L;
+        this.misses = new LinkedHashMap<String, Long>(16, 0.75F, true) {
+            /**
+             * The serial version UID.
+             *
+             */
+            private static final long serialVersionUID = -2786215340734457263L;
+
+            /**
+             * {@inheritDoc}
+             *
+             * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+             */
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+                if (this.size() > maxEntries) {
+                    NegativeLookupCache.this.sortedMisses.remove(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.listings = new LinkedHashMap<String, BloomFilter>(16, 0.75F, true) {
+            /**
+             * The serial version UID.
+             *
+             */
+            private static final long serialVersionUID = 7052357312470718813L;
+
+            /**
+             * {@inheritDoc}
+             *
+             * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+             */
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, BloomFilter> eldest) {
+                return this.size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     *
+     * @return Whether this cache is enabled at all.
+     */
+    public boolean isEnabled() {
+        return this.ttl > 0;
+    }
+
+    /**
+     * Checks whether the given path is known not to exist.
+     *
+     * @param absolutePath
+     *            The absolute path to check.
+     * @return <code>true</code> if the path is known not to exist,
+     *         <code>false</code> if it is unknown.
+     */
+    public synchronized boolean isKnownMissing(final String absolutePath) {
+        if (!this.isEnabled()) {
+            return false;
+        }
+
+        final long now = System.nanoTime();
+        final Long expiry = this.misses.get(absolutePath);
+        if (expiry != null) {
+            if (expiry - now > 0) {
+                return true;
+            }
+            this.removeMiss(absolutePath);
+        }
+
+        final int separator = absolutePath.lastIndexOf('/');
+        if (separator < 0 || absolutePath.length() == 1) {
+            return false;
+        }
+        final String parent = separator == 0 ? "/" : absolutePath.substring(0, separator);
+        final BloomFilter listing = this.listings.get(parent);
+        if (listing == null) {
+            return false;
+        }
+        if (listing.expiry - now <= 0) {
+            this.listings.remove(parent);
+            return false;
+        }
+        return !listing.mightContain(absolutePath.substring(separator + 1));
+    }
+
+    /**
+     *
+     * @return The number of invalidations so far. Must be read before probing
+     *         or listing and passed into {@link #recordMiss(String, long)} or
+     *         {@link #recordListing(String, Collection, long)}.
+     */
+    public synchronized long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Remembers that the given path does not exist, i.e. because it was just
+     * deleted through the facade.
+     *
+     * @param absolutePath
+     *            The absolute path that does not exist.
+     */
+    public synchronized void recordMiss(final String absolutePath) {
+        if (this.isEnabled()) {
+            this.misses.put(absolutePath, System.nanoTime() + this.ttl);
+            this.sortedMisses.add(absolutePath);
+        }
+    }
+
+    /**
+     * Remembers that the given path was probed and did not exist, unless
+     * anything was invalidated since the probe was started.
+     *
+     * @param absolutePath
+     *            The absolute path that does not exist.
+     * @param probeGeneration
+     *            The generation (see {@link #getGeneration()}) that was
+     *            current before the probe was started.
+     */
+    public synchronized void recordMiss(final String absolutePath, final long probeGeneration) {
+        if (this.generation == probeGeneration) {
+            this.recordMiss(absolutePath);
+        }
+    }
+
+    /**
+     * Remembers the names of all entries of the given directory, unless
+     * anything was invalidated since the listing was started. Must only be
+     * invoked with the result of a complete, unfiltered listing.
+     *
+     * @param directory
+     *            The absolute path of the listed directory.
+     * @param names
+     *            The names of all entries.
+     * @param listingGeneration
+     *            The generation (see {@link #getGeneration()}) that was
+     *            current before the listing was started.
+     */
+    public void recordListing(final String directory, final Collection<String> names, final long listingGeneration) {
+        if (!this.isEnabled()) {
+            return;
+        }
+
+        final BloomFilter listing = new BloomFilter(names.size(), System.nanoTime() + this.ttl);
+        for (final String name : names) {
+            listing.add(name);
+        }
+        synchronized (this) {
+            if (this.generation == listingGeneration) {
+                this.listings.put(directory, listing);
+            }
+        }
+    }
+
+    /**
+     * Forgets everything that contradicts the existence of the given path,
+     * i.e. because it was just created. As the path may be a directory that
+     * was moved or copied including its contents, everything that is known
+     * about paths below it is forgotten as well.
+     *
+     * @param absolutePath
+     *            The absolute path that exists now.
+     */
+    public synchronized void created(final String absolutePath) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        this.generation++;
+
+        // Anything below the path may exist now.
+        final String prefix = absolutePath.endsWith("/") ? absolutePath : absolutePath + "/";
+        final Iterator<String> descendants = this.sortedMisses.tailSet(prefix).iterator();
+        while (descendants.hasNext()) {
+            final String descendant = descendants.next();
+            if (!descendant.startsWith(prefix)) {
+                break;
+            }
+            descendants.remove();
+            this.misses.remove(descendant);
+        }
+        this.forgetListings(absolutePath);
+
+        // The path and all of its ancestors exist now.
+        String path = absolutePath;
+        int separator;
+        while ((separator = path.lastIndexOf('/')) >= 0 && path.length() > 1) {
+            this.removeMiss(path);
+            final String parent = separator == 0 ? "/" : path.substring(0, separator);
+            final BloomFilter listing = this.listings.get(parent);
+            if (listing != null) {
+                listing.add(path.substring(separator + 1));
+            }
+            path = parent;
+        }
+    }
+
+    /**
+     * Forgets the listings of the given path and all paths below it, as they
+     * were just deleted.
+     *
+     * @param absolutePath
+     *            The absolute path that was deleted.
+     */
+    public synchronized void deleted(final String absolutePath) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        this.generation++;
+
+        this.forgetListings(absolutePath);
+    }
+
+    /**
+     * Forgets everything.
+     *
+     */
+    public synchronized void clear() {
+        this.generation++;
+        this.misses.clear();
+        this.sortedMisses.clear();
+        this.listings.clear();
+    }
+
+    /**
+     * Forgets the miss of the given path.
+     *
+     * @param absolutePath
+     *            The absolute path to forget.
+     */
+    private void removeMiss(final String absolutePath) {
+        if (this.misses.remove(absolutePath) != null) {
+            this.sortedMisses.remove(absolutePath);
+        }
+    }
+
+    /**
+     * Forgets the listings of the given path and all paths below it.
+     *
+     * @param absolutePath
+     *            The absolute path to forget the listings of.
+     */
+    private void forgetListings(final String absolutePath) {
+        final String prefix = absolutePath.endsWith("/") ? absolutePath : absolutePath + "/";
+        final Iterator<String> iterator = this.listings.keySet().iterator();
+        while (iterator.hasNext()) {
+            final String directory = iterator.next();
+            if (directory.equals(absolutePath) || directory.startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.watch.DirectoryListener#onEvents(java.util.List)
+     */
+    @Override
+    public void onEvents(final List<DirectoryEvent> events) {
+        for (final DirectoryEvent event : events) {
+            if (event.getKind() == DirectoryEvent.Kind.DELETED) {
+                this.deleted(event.getPath().getAbsolutePath());
+            } else {
+                this.created(event.getPath().getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * A Bloom filter of names.
+     *
+     */
+    private static final class BloomFilter {
+        /**
+         * The bits.
+         *
+         */
+        private final long[] bits;
+        /**
+         * The number of bits.
+         *
+         */
+        private final int size;
+        /**
+         * The point of time (see {@link System#nanoTime()}) this filter
+         * expires.
+         *
+         */
+        private final long expiry;
+
+        /**
+         * Constructor of BloomFilter.
+         *
+         * @param expectedNames
+         *            The number of names that are expected to be added.
+         * @param expiry
+         *            The point of time this filter expires.
+         */
+        BloomFilter(final int expectedNames, final long expiry) {
+            this.size = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64L, (long) expectedNames
+                    * NegativeLookupCache.BITS_PER_NAME));
+            this.bits = new long[(this.size + 63) / 64];
+            this.expiry = expiry;
+        }
+
+        /**
+         * Adds the given name.
+         *
+         * @param name
+         *            The name to add.
+         */
+        void add(final String name) {
+            final long hash = BloomFilter.hash(name);
+            final int hash0 = (int) hash;
+            final int hash1 = (int) (hash >>> 32);
+            for (int i = 0; i < NegativeLookupCache.HASH_FUNCTIONS; i++) {
+                final int bit = ((hash0 + i * hash1) & Integer.MAX_VALUE) % this.size;
+                this.bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        /**
+         * Checks whether the given name might have been added.
+         *
+         * @param name
+         *            The name to check.
+         * @return <code>false</code> if the name was definitely not added.
+         */
+        boolean mightContain(final String name) {
+            final long hash = BloomFilter.hash(name);
+            final int hash0 = (int) hash;
+            final int hash1 = (int) (hash >>> 32);
+            for (int i = 0; i < NegativeLookupCache.HASH_FUNCTIONS; i++) {
+                final int bit = ((hash0 + i * hash1) & Integer.MAX_VALUE) % this.size;
+                if ((this.bits[bit >>> 6] & 1L << bit) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Computes the 64 bit FNV-1a hash of the given name.
+         *
+         * @param name
+         *            The name to hash.
+         * @return The hash.
+         */
+        private static long hash(final String name) {
+            long hash = 0xCBF29CE484222325L;
+            for (int i = 0; i < name.length(); i++) {
+                hash ^= name.charAt(i);
+                hash *= 0x100000001B3L;
+            }
+            return hash;
+        }
+    }
+}
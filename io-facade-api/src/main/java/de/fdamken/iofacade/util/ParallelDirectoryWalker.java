@@ -0,0 +1,369 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import de.fdamken.iofacade.FileSystem;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+
+/**
+ * Walks file trees using a fork/join pool. Every directory is listed by its own
+ * task, so sibling directories are listed concurrently and idle workers steal
+ * pending directories from busy ones.
+ *
+ * <p>
+ * The results are not collected by the walker but streamed into a sink as soon
+ * as they are found. Hence the memory used by the walker itself is bounded by
+ * the number of directories that are pending to be listed, independent of the
+ * size of the file tree. The sink must be thread safe and no order is
+ * guaranteed.
+ * </p>
+ * <p>
+ * If the {@link PathFilter} has a static prefix (see
+ * {@link PathFilter#getStaticPrefix()}), the walk starts directly from there.
+ * The prefix directory itself is reported if the filter accepts it.
+ * </p>
+ * <p>
+ * Symbolic links are reported, but never stepped into, so the walk terminates
+ * without recording the visited directories. <b> NOTE: A directory that is
+ * reachable twice (i.e. via a bind mount) is listed twice, like by
+ * {@link java.nio.file.Files#walkFileTree(java.nio.file.Path, java.nio.file.FileVisitor)}.
+ * Use {@link DirectoryWalker} with {@link DirectoryWalker#followLinks(boolean)}
+ * to detect such directories. </b>
+ * </p>
+ * <p>
+ * The tasks are never joined, so the call stack does not grow with the depth of
+ * the file tree. A sub-directory is only forked into a new task while the
+ * current worker has few queued tasks (see
+ * {@link ForkJoinTask#getSurplusQueuedTaskCount()}); otherwise it is listed by
+ * the current task itself, so the number of tasks stays bounded even for very
+ * wide file trees.
+ * </p>
+ * <p>
+ * If any error occurs (either while listing a directory or thrown by the
+ * filter or the sink), no further directory is listed and the sink is not
+ * invoked anymore. The walk only returns (or throws) after every task has
+ * finished, so the sink is never invoked after the walk has ended.
+ * </p>
+ *
+ */
+public class ParallelDirectoryWalker {
+    /**
+     * A map where the fork/join pools of the file systems are cached. Every
+     * file system gets its own pool with the parallelism returned by
+     * {@link FileSystem#getParallelism()}. The pools are shut down by
+     * {@link #releasePool(FileSystem)}.
+     *
+     */
+    private static final Map<FileSystem, ForkJoinPool> POOL_CACHE = new WeakHashMap<FileSystem, ForkJoinPool>();
+    /**
+     * The maximum number of tasks a worker may have queued before it stops
+     * forking new tasks and lists sub-directories itself.
+     *
+     */
+    private static final int MAX_SURPLUS_TASKS = 3;
+
+    /**
+     * Constructor of ParallelDirectoryWalker.
+     *
+     */
+    private ParallelDirectoryWalker() {
+        // Nothing to do.
+    }
+
+    /**
+     * Walks the file tree starting from the given directory. Every path that
+     * is accepted by the given {@link PathFilter} is passed into the given
+     * sink. Please lookup the {@link PathFilter} for further documentation
+     * about the meanings of the result of the {@link PathFilter#apply(Path)}
+     * method.
+     *
+     * @param rootDir
+     *            The root directory to start walking from. This is not passed
+     *            into the sink.
+     * @param filter
+     *            The {@link PathFilter} to apply.
+     * @param sink
+     *            The sink that receives all matching paths. This is invoked
+     *            concurrently from multiple threads.
+     * @throws FileNotFoundException
+     *             If the given directory was not found.
+     * @throws IOException
+     *             If any I/O error occurs. The walk is aborted as soon as
+     *             possible if any error occurs. An
+     *             {@link UncheckedIOException} thrown by the filter or the sink
+     *             is unwrapped and rethrown as its cause.
+     */
+    public static void walk(final Path rootDir, final PathFilter filter, final Consumer<? super Path> sink)
+            throws FileNotFoundException, IOException {
+        Assertion.acquire(sink).named("sink").notNull();
+
+        ParallelDirectoryWalker.walk(rootDir, filter, (path, attributes) -> sink.accept(path));
+    }
+
+    /**
+     * Walks the file tree starting from the given directory (see
+     * {@link #walk(Path, PathFilter, Consumer)}). Every matching path is passed
+     * into the given sink together with its attributes.
+     *
+     * <p>
+     * The walker has to read the attributes of every entry that is not
+     * rejected by the filter anyway in order to decide whether to step into
+     * it. Passing them on saves the sink from reading them again, which
+     * matters on remote file systems where every request is a round trip.
+     * </p>
+     *
+     * @param rootDir
+     *            The root directory to start walking from. This is not passed
+     *            into the sink.
+     * @param filter
+     *            The {@link PathFilter} to apply.
+     * @param sink
+     *            The sink that receives all matching paths and their
+     *            attributes. The attributes are read without following
+     *            symbolic links (see {@link Path#getLinkAttributes()}). Paths
+     *            that were deleted before their attributes were read are not
+     *            passed in. This is invoked concurrently from multiple threads.
+     * @throws FileNotFoundException
+     *             If the given directory was not found.
+     * @throws IOException
+     *             If any I/O error occurs. The walk is aborted as soon as
+     *             possible if any error occurs. An
+     *             {@link UncheckedIOException} thrown by the filter or the sink
+     *             is unwrapped and rethrown as its cause.
+     */
+    public static void walk(final Path rootDir, final PathFilter filter,
+            final BiConsumer<? super Path, ? super PathAttributes> sink) throws FileNotFoundException, IOException {
+        Assertion.acquire(rootDir).named("rootDir").notNull();
+        Assertion.acquire(filter).named("filter").notNull();
+        Assertion.acquire(sink).named("sink").notNull();
+
+        if (!rootDir.isDirectory()) {
+            return;
+        }
+        final Path startDir = DirectoryUtil.resolveStartDirectory(rootDir, filter);
+        if (startDir == null) {
+            return;
+        }
+
+        final PathAttributes startAttributes;
+        try {
+            startAttributes = startDir.getLinkAttributes();
+        } catch (final FileNotFoundException dummy) {
+            // Deleted in the meantime.
+            return;
+        }
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final BiConsumer<Path, PathAttributes> guardedSink = (path, attributes) -> {
+            if (error.get() == null) {
+                sink.accept(path, attributes);
+            }
+        };
+        if (DirectoryUtil.isAcceptedStartDirectory(rootDir, startDir, filter)) {
+            try {
+                guardedSink.accept(startDir, startAttributes);
+            } catch (final RuntimeException | Error cause) {
+                error.set(cause);
+            }
+        }
+        if (error.get() == null) {
+            ParallelDirectoryWalker.getPool(rootDir.getFileSystem()).invoke(new WalkTask(null, startDir, filter, guardedSink,
+                    error));
+        }
+
+        final Throwable cause = error.get();
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) cause).getCause();
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * Shuts down the fork/join pool of the given file system, if any. Running
+     * tasks are completed, but no new tasks are accepted. A new pool is created
+     * if the file system is used again afterwards.
+     *
+     * @param fileSystem
+     *            The file system to release the pool of.
+     */
+    public static void releasePool(final FileSystem fileSystem) {
+        Assertion.acquire(fileSystem).named("fileSystem").notNull();
+
+        final ForkJoinPool pool;
+        synchronized (ParallelDirectoryWalker.POOL_CACHE) {
+            pool = ParallelDirectoryWalker.POOL_CACHE.remove(fileSystem);
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Fetches the fork/join pool of the given file system and creates it, if
+     * necessary. If the parallelism of the file system has changed since the
+     * pool was created, the pool is replaced.
+     *
+     * @param fileSystem
+     *            The file system to fetch the pool for.
+     * @return The pool.
+     */
+    static ForkJoinPool getPool(final FileSystem fileSystem) {
+        assert fileSystem != null : "FileSystem must not be null!";
+
+        final int parallelism = Math.max(1, fileSystem.getParallelism());
+        synchronized (ParallelDirectoryWalker.POOL_CACHE) {
+            ForkJoinPool result = ParallelDirectoryWalker.POOL_CACHE.get(fileSystem);
+            if (result == null || result.isShutdown() || result.getParallelism() != parallelism) {
+                if (result != null) {
+                    result.shutdown();
+                }
+                result = new ForkJoinPool(parallelism);
+                ParallelDirectoryWalker.POOL_CACHE.put(fileSystem, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A task that lists a directory, forks a new task for sub-directories to
+     * step in (or lists them itself if enough tasks are queued) and completes
+     * as soon as all sub-tasks are completed.
+     *
+     */
+    private static class WalkTask extends CountedCompleter<Void> {
+        /**
+         * The serial version UID.
+         *
+         */
+        private static final long serialVersionUID = 3870297615573437624L;
+
+        /**
+         * The directory to list.
+         *
+         */
+        private final Path directory;
+        /**
+         * The {@link PathFilter} to apply.
+         *
+         */
+        private final PathFilter filter;
+        /**
+         * The sink that receives all matching paths.
+         *
+         */
+        private final BiConsumer<? super Path, ? super PathAttributes> sink;
+        /**
+         * The first error that occurred during the walk. Shared by all tasks.
+         *
+         */
+        private final AtomicReference<Throwable> error;
+
+        /**
+         * Constructor of WalkTask.
+         *
+         * @param parent
+         *            The parent task. <code>null</code> for the root task.
+         * @param directory
+         *            The directory to list.
+         * @param filter
+         *            The {@link PathFilter} to apply.
+         * @param sink
+         *            The sink that receives all matching paths.
+         * @param error
+         *            The first error that occurred during the walk.
+         */
+        public WalkTask(final WalkTask parent, final Path directory, final PathFilter filter,
+                final BiConsumer<? super Path, ? super PathAttributes> sink, final AtomicReference<Throwable> error) {
+            super(parent);
+
+            this.directory = directory;
+            this.filter = filter;
+            this.sink = sink;
+            this.error = error;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.util.concurrent.CountedCompleter#compute()
+         */
+        @Override
+        public void compute() {
+            final Deque<Path> pending = new ArrayDeque<Path>();
+            pending.add(this.directory);
+            try {
+                while (!pending.isEmpty() && this.error.get() == null) {
+                    for (final Path path : pending.pollFirst().asDirectory().listEntries()) {
+                        if (this.error.get() != null) {
+                            break;
+                        }
+
+                        final Boolean filterResult = this.filter.apply(path);
+                        if (filterResult != null && !filterResult) {
+                            continue;
+                        }
+
+                        // A single request tells both whether to step in and
+                        // whether the path is a link (which is never a
+                        // directory without following it).
+                        final PathAttributes attributes;
+                        try {
+                            attributes = path.getLinkAttributes();
+                        } catch (final FileNotFoundException dummy) {
+                            // Deleted since it was listed.
+                            continue;
+                        }
+                        if (attributes.isDirectory()) {
+                            if (ForkJoinTask.getSurplusQueuedTaskCount() < ParallelDirectoryWalker.MAX_SURPLUS_TASKS) {
+                                this.addToPendingCount(1);
+                                new WalkTask(this, path, this.filter, this.sink, this.error).fork();
+                            } else {
+                                pending.addFirst(path);
+                            }
+                        }
+                        if (filterResult != null) {
+                            this.sink.accept(path, attributes);
+                        }
+                    }
+                }
+            } catch (final IOException | RuntimeException | Error cause) {
+                this.error.compareAndSet(null, cause);
+            }
+            this.tryComplete();
+        }
+    }
+}
@@ -53,6 +53,12 @@ public interface PathFilter extends Function<Path, Boolean> {
      * <td>exclude</td>
      * <td>exclude &amp; step in</td>
      * </tr>
+     * <tr>
+     * <th>Link to a directory</th>
+     * <td>include &amp; follow</td>
+     * <td>exclude</td>
+     * <td>exclude &amp; follow</td>
+     * </tr>
      * </table>
      * <ul>
      * <li><code>include</code> means that the invoking method should include
@@ -62,7 +68,9 @@ public interface PathFilter extends Function<Path, Boolean> {
      * <li><code>step in</code> means that the invoking method should step into
      * that path (i.e. in a recursive context)</li>
      * <li><code>follow</code> means that a link should be followed to its
-     * destination</li>
+     * destination, if the invoking method follows links at all (see
+     * {@link DirectoryWalker#followLinks(boolean)}); it is stepped into like a
+     * directory then</li>
      * </ul>
      * </p>
      *
@@ -70,4 +78,17 @@ public interface PathFilter extends Function<Path, Boolean> {
      */
     @Override
     public Boolean apply(Path path);
+
+    /**
+     * The static prefix of a path filter is the absolute path of a directory
+     * (see {@link Path#getAbsolutePath()}) below which all accepted paths are
+     * located. Walkers may use it to start walking directly from that
+     * directory instead of listing every directory on the way.
+     *
+     * @return The static prefix of this path filter, if any. Otherwise
+     *         <code>null</code>.
+     */
+    default String getStaticPrefix() {
+        return null;
+    }
 }
@@ -0,0 +1,96 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.fdamken.iofacade.Path;
+
+/**
+ * Factory methods for commonly used {@link PathFilter}s that know which
+ * sub-trees can never match, so walkers can skip them without listing them.
+ *
+ */
+public class PathFilters {
+    /**
+     * Constructor of PathFilters.
+     *
+     */
+    private PathFilters() {
+        // Nothing to do.
+    }
+
+    /**
+     * Creates a {@link PathFilter} that accepts all paths whose absolute path
+     * (see {@link Path#getAbsolutePath()}) matches the given glob pattern (i.e.
+     * <code>/data/&#42;&#42;/2024-&#42;/&#42;.parquet</code>). Please lookup
+     * {@link GlobPathFilter} for the supported syntax.
+     *
+     * @param pattern
+     *            The glob pattern. Must be absolute (start with a slash).
+     * @return The created {@link PathFilter}.
+     * @throws IllegalArgumentException
+     *             If the given pattern is invalid.
+     */
+    public static GlobPathFilter glob(final String pattern) throws IllegalArgumentException {
+        return new GlobPathFilter(pattern);
+    }
+
+    /**
+     * Creates a {@link PathFilter} that accepts all paths whose absolute path
+     * (see {@link Path#getAbsolutePath()}) matches the given regular
+     * expression completely.
+     *
+     * <p>
+     * Paths that do not match are only stepped into if a longer path could
+     * still match (see {@link Matcher#hitEnd()}), otherwise they are pruned.
+     * </p>
+     *
+     * @param regex
+     *            The regular expression.
+     * @return The created {@link PathFilter}.
+     */
+    public static PathFilter regex(final Pattern regex) {
+        Assertion.acquire(regex).named("regex").notNull();
+
+        return path -> {
+            final Matcher matcher = regex.matcher(path.getAbsolutePath());
+            if (matcher.matches()) {
+                return true;
+            }
+            return matcher.hitEnd() ? null : false;
+        };
+    }
+
+    /**
+     * Creates a {@link PathFilter} that accepts all paths whose absolute path
+     * (see {@link Path#getAbsolutePath()}) matches the given regular
+     * expression completely.
+     *
+     * @param regex
+     *            The regular expression.
+     * @return The created {@link PathFilter}.
+     * @see #regex(Pattern)
+     */
+    public static PathFilter regex(final String regex) {
+        Assertion.acquire(regex).named("regex").notNull();
+
+        return PathFilters.regex(Pattern.compile(regex));
+    }
+}
@@ -0,0 +1,159 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that reads at most a given number of bytes from another
+ * stream. Closing it closes the other stream.
+ *
+ */
+public class RangeInputStream extends FilterInputStream {
+    /**
+     * The number of bytes that may still be read.
+     *
+     */
+    private long remaining;
+
+    /**
+     * Constructor of RangeInputStream.
+     *
+     * @param in
+     *            The stream to read from.
+     * @param length
+     *            The maximum number of bytes to read.
+     */
+    public RangeInputStream(final InputStream in, final long length) {
+        super(in);
+
+        Assertion.acquire(in).named("in").notNull();
+        if (length < 0) {
+            throw new IllegalArgumentException("length must not be negative!");
+        }
+
+        this.remaining = length;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.FilterInputStream#read()
+     */
+    @Override
+    public int read() throws IOException {
+        if (this.remaining <= 0) {
+            return -1;
+        }
+
+        final int result = this.in.read();
+        if (result >= 0) {
+            this.remaining--;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.FilterInputStream#read(byte[], int, int)
+     */
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (this.remaining <= 0) {
+            return -1;
+        }
+
+        final int result = this.in.read(b, off, (int) Math.min(len, this.remaining));
+        if (result > 0) {
+            this.remaining -= result;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.FilterInputStream#skip(long)
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        final long result = this.in.skip(Math.min(n, this.remaining));
+        if (result > 0) {
+            this.remaining -= result;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.FilterInputStream#available()
+     */
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(this.in.available(), this.remaining);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Marks are not supported.
+     * </p>
+     *
+     * @see java.io.FilterInputStream#markSupported()
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Marks are not supported, so this does nothing.
+     * </p>
+     *
+     * @see java.io.FilterInputStream#mark(int)
+     */
+    @Override
+    public synchronized void mark(final int readlimit) {
+        // Nothing to do.
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Marks are not supported, so this always fails.
+     * </p>
+     *
+     * @see java.io.FilterInputStream#reset()
+     */
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
@@ -0,0 +1,408 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An input stream that reads ahead of its consumer asynchronously, so
+ * sequential scans do not stall on every buffer refill.
+ *
+ * <p>
+ * Up to a window of buffers is kept in flight on a dedicated I/O pool. If the
+ * channel is a {@link FileChannel}, the buffers are read concurrently by
+ * positional reads. Otherwise they are read one after another, but still ahead
+ * of the consumer.
+ * </p>
+ * <p>
+ * The window adapts to the consumption rate: Every time the consumer has to
+ * wait for a buffer, the window is doubled up to the maximum window. If the
+ * consumer does not have to wait for a while, the window is shrunk by one
+ * buffer in order to save memory.
+ * </p>
+ * <p>
+ * Like every input stream, this stream must not be read by multiple threads
+ * concurrently.
+ * </p>
+ *
+ */
+public class ReadAheadInputStream extends InputStream {
+    /**
+     * The default size of a single buffer.
+     *
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    /**
+     * The default maximum number of buffers in flight.
+     *
+     */
+    public static final int DEFAULT_MAX_WINDOW = 16;
+
+    /**
+     * The pool the buffers are read on.
+     *
+     */
+    private static final ExecutorService IO_POOL = Executors.newFixedThreadPool(
+            Math.max(4, Runtime.getRuntime().availableProcessors()), runnable -> {
+                final Thread thread = new Thread(runnable, "io-facade-read-ahead");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * The channel to read from.
+     *
+     */
+    private final SeekableByteChannel channel;
+    /**
+     * Whether the channel supports concurrent positional reads.
+     *
+     */
+    private final boolean positional;
+    /**
+     * The size of a single buffer.
+     *
+     */
+    private final int bufferSize;
+    /**
+     * The maximum number of buffers in flight.
+     *
+     */
+    private final int maxWindow;
+    /**
+     * The buffers in flight, in the order of their positions.
+     *
+     */
+    private final Deque<CompletableFuture<ByteBuffer>> inFlight = new ArrayDeque<CompletableFuture<ByteBuffer>>();
+    /**
+     * The consumed buffers that can be reused.
+     *
+     */
+    private final Deque<ByteBuffer> freeBuffers = new ArrayDeque<ByteBuffer>();
+    /**
+     * The current number of buffers in flight.
+     *
+     */
+    private int window = 2;
+    /**
+     * The number of buffers taken in a row without waiting.
+     *
+     */
+    private int readyInRow;
+    /**
+     * The position of the next buffer to request.
+     *
+     */
+    private long nextPosition;
+    /**
+     * The last buffer that was requested, if the channel is read sequentially.
+     *
+     */
+    private CompletableFuture<ByteBuffer> lastRequest;
+    /**
+     * The buffer that is consumed currently. <code>null</code> before the
+     * first read.
+     *
+     */
+    private ByteBuffer current;
+    /**
+     * Whether the last buffer was taken, i.e. no more buffers are requested.
+     *
+     */
+    private boolean eof;
+    /**
+     * Whether this stream is closed.
+     *
+     */
+    private boolean closed;
+
+    /**
+     * Constructor of ReadAheadInputStream.
+     *
+     * @param channel
+     *            The channel to read from. Starts reading at its current
+     *            position.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public ReadAheadInputStream(final SeekableByteChannel channel) throws IOException {
+        this(channel, ReadAheadInputStream.DEFAULT_BUFFER_SIZE, ReadAheadInputStream.DEFAULT_MAX_WINDOW);
+    }
+
+    /**
+     * Constructor of ReadAheadInputStream.
+     *
+     * @param channel
+     *            The channel to read from. Starts reading at its current
+     *            position.
+     * @param bufferSize
+     *            The size of a single buffer.
+     * @param maxWindow
+     *            The maximum number of buffers in flight.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public ReadAheadInputStream(final SeekableByteChannel channel, final int bufferSize, final int maxWindow)
+            throws IOException {
+        Assertion.acquire(channel).named("channel").notNull();
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive!");
+        }
+        if (maxWindow <= 0) {
+            throw new IllegalArgumentException("maxWindow must be positive!");
+        }
+
+        this.channel = channel;
+        this.positional = channel instanceof FileChannel;
+        this.bufferSize = bufferSize;
+        this.maxWindow = maxWindow;
+        this.window = Math.min(this.window, maxWindow);
+        this.nextPosition = channel.position();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#read()
+     */
+    @Override
+    public int read() throws IOException {
+        if (!this.fill()) {
+            return -1;
+        }
+        return this.current.get() & 0xFF;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#read(byte[], int, int)
+     */
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!this.fill()) {
+            return -1;
+        }
+
+        final int result = Math.min(len, this.current.remaining());
+        this.current.get(b, off, result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#skip(long)
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        if (n <= 0 || !this.fill()) {
+            return 0;
+        }
+
+        final int result = (int) Math.min(n, this.current.remaining());
+        this.current.position(this.current.position() + result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#available()
+     */
+    @Override
+    public int available() throws IOException {
+        this.ensureOpen();
+
+        return this.current == null ? 0 : this.current.remaining();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Buffers in flight are discarded.
+     * </p>
+     *
+     * @see java.io.InputStream#close()
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+
+        for (final CompletableFuture<ByteBuffer> request : this.inFlight) {
+            try {
+                request.join();
+            } catch (final CompletionException dummy) {
+                // The buffer is discarded anyway.
+            }
+        }
+        this.inFlight.clear();
+        this.freeBuffers.clear();
+        this.current = null;
+        this.channel.close();
+    }
+
+    /**
+     * Makes sure that the current buffer has remaining bytes.
+     *
+     * @return Whether the current buffer has remaining bytes.
+     *         <code>false</code> if the end of the channel is reached.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private boolean fill() throws IOException {
+        this.ensureOpen();
+
+        while (this.current == null || !this.current.hasRemaining()) {
+            if (this.current != null) {
+                this.current.clear();
+                this.freeBuffers.push(this.current);
+                this.current = null;
+            }
+            if (this.eof) {
+                return false;
+            }
+
+            this.request();
+            final CompletableFuture<ByteBuffer> next = this.inFlight.poll();
+            if (next.isDone()) {
+                if (++this.readyInRow >= 4 * this.window && this.window > 1) {
+                    this.window--;
+                    this.readyInRow = 0;
+                }
+            } else {
+                this.window = Math.min(this.maxWindow, 2 * this.window);
+                this.readyInRow = 0;
+            }
+
+            try {
+                this.current = next.join();
+            } catch (final CompletionException cause) {
+                if (cause.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause.getCause()).getCause();
+                }
+                throw cause;
+            }
+            if (this.current.limit() < this.bufferSize) {
+                // Only the last buffer is not filled completely.
+                this.eof = true;
+            } else {
+                this.request();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Requests buffers until the window is full.
+     *
+     */
+    private void request() {
+        while (this.inFlight.size() < this.window) {
+            final ByteBuffer buffer = this.freeBuffers.isEmpty() ? ByteBuffer.allocate(this.bufferSize) : this.freeBuffers
+                    .pop();
+            final CompletableFuture<ByteBuffer> request;
+            if (this.positional) {
+                final long position = this.nextPosition;
+                this.nextPosition += this.bufferSize;
+                request = CompletableFuture.supplyAsync(() -> this.readBuffer(buffer, position), ReadAheadInputStream.IO_POOL);
+            } else if (this.lastRequest == null) {
+                request = CompletableFuture.supplyAsync(() -> this.readBuffer(buffer, -1), ReadAheadInputStream.IO_POOL);
+            } else {
+                request = this.lastRequest.handleAsync((previous, error) -> this.readBuffer(buffer, -1),
+                        ReadAheadInputStream.IO_POOL);
+            }
+            this.lastRequest = request;
+            this.inFlight.add(request);
+        }
+    }
+
+    /**
+     * Reads until the given buffer is full or the end of the channel is
+     * reached.
+     *
+     * @param buffer
+     *            The buffer to read into.
+     * @param position
+     *            The position to read at. <code>-1</code> to read from the
+     *            current position of the channel.
+     * @return The given buffer, flipped.
+     * @throws UncheckedIOException
+     *             If any I/O error occurs.
+     */
+    private ByteBuffer readBuffer(final ByteBuffer buffer, final long position) throws UncheckedIOException {
+        try {
+            while (buffer.hasRemaining()) {
+                final int count;
+                if (position < 0) {
+                    count = this.channel.read(buffer);
+                } else {
+                    count = ((FileChannel) this.channel).read(buffer, position + buffer.position());
+                }
+                if (count < 0) {
+                    break;
+                }
+            }
+        } catch (final IOException cause) {
+            throw new UncheckedIOException(cause);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Checks whether this stream is open.
+     *
+     * @throws IOException
+     *             If this stream is closed.
+     */
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     *
+     * @return {@link #window}. The current number of buffers in flight.
+     */
+    public int getWindow() {
+        return this.window;
+    }
+}
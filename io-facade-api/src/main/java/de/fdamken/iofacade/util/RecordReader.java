@@ -0,0 +1,238 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Splits the content of a channel into records that are separated by a
+ * delimiter byte, i.e. lines, without allocating anything per record.
+ *
+ * <p>
+ * The content is read into a pooled direct buffer and every record is handed
+ * to a {@link RecordConsumer} as a view of that buffer. The same view is reused
+ * for all records, so the consumer must not keep it. Records that span two
+ * reads are moved to the start of the buffer. The buffer is only grown if a
+ * single record does not fit into it.
+ * </p>
+ * <p>
+ * Delimiters are searched eight bytes at a time (SWAR, see
+ * {@link #indexOf(ByteBuffer, int, int, byte)}).
+ * </p>
+ *
+ */
+public class RecordReader {
+    /**
+     * The size of the pooled buffers.
+     *
+     */
+    private static final int BUFFER_SIZE = 256 * 1024;
+    /**
+     * The least significant bit of every byte of a long.
+     *
+     */
+    private static final long LOW_BITS = 0x0101010101010101L;
+    /**
+     * The most significant bit of every byte of a long.
+     *
+     */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    /**
+     * The pooled buffer of every thread. <code>null</code> while it is in use,
+     * so nested reads get their own buffer.
+     *
+     */
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(() -> RecordReader
+            .allocate(RecordReader.BUFFER_SIZE));
+
+    /**
+     * Constructor of RecordReader.
+     *
+     */
+    private RecordReader() {
+        // Nothing to do.
+    }
+
+    /**
+     * Reads all records from the given channel.
+     *
+     * @param channel
+     *            The channel to read from. Read until its end, but not closed.
+     * @param delimiter
+     *            The byte that separates two records. It is not part of the
+     *            records. If the content does not end with it, the remaining
+     *            bytes are the last record.
+     * @param consumer
+     *            Receives the records.
+     * @return The number of records that were accepted by the consumer.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public static long read(final ReadableByteChannel channel, final byte delimiter, final RecordConsumer consumer)
+            throws IOException {
+        Assertion.acquire(channel).named("channel").notNull();
+        Assertion.acquire(consumer).named("consumer").notNull();
+
+        ByteBuffer buffer = RecordReader.BUFFERS.get();
+        RecordReader.BUFFERS.set(null);
+        if (buffer == null) {
+            buffer = RecordReader.allocate(RecordReader.BUFFER_SIZE);
+        }
+        buffer.clear();
+        ByteBuffer view = buffer.duplicate();
+
+        long result = 0;
+        try {
+            int start = 0;
+            boolean eof = false;
+            while (!eof) {
+                final int scanFrom = buffer.position();
+                eof = channel.read(buffer) < 0;
+                final int end = buffer.position();
+
+                int index = RecordReader.indexOf(buffer, scanFrom, end, delimiter);
+                while (index >= 0) {
+                    view.clear();
+                    view.position(start).limit(index);
+                    if (!consumer.accept(view)) {
+                        return result;
+                    }
+                    result++;
+                    start = index + 1;
+                    index = RecordReader.indexOf(buffer, start, end, delimiter);
+                }
+
+                if (eof) {
+                    if (end > start) {
+                        view.clear();
+                        view.position(start).limit(end);
+                        if (consumer.accept(view)) {
+                            result++;
+                        }
+                    }
+                } else if (start > 0) {
+                    buffer.limit(end).position(start);
+                    buffer.compact();
+                    start = 0;
+                } else if (!buffer.hasRemaining()) {
+                    // A single record fills the whole buffer.
+                    final ByteBuffer grown = RecordReader.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    grown.put(buffer);
+                    buffer = grown;
+                    view = buffer.duplicate();
+                }
+            }
+            return result;
+        } finally {
+            if (buffer.capacity() == RecordReader.BUFFER_SIZE) {
+                RecordReader.BUFFERS.set(buffer);
+            }
+        }
+    }
+
+    /**
+     * Searches the given byte within the given part of a buffer. Eight bytes
+     * are compared at once by testing the bytes of <code>word ^ pattern</code>
+     * for zero.
+     *
+     * @param buffer
+     *            The buffer to search in. Its position and limit are ignored
+     *            and not changed. Direct buffers are searched the fastest.
+     * @param from
+     *            The index to start searching at.
+     * @param to
+     *            The index to stop searching at (exclusive).
+     * @param value
+     *            The byte to search.
+     * @return The index of the first occurrence. <code>-1</code> if the byte
+     *         does not occur.
+     */
+    public static int indexOf(final ByteBuffer buffer, final int from, final int to, final byte value) {
+        final long pattern = (value & 0xFFL) * RecordReader.LOW_BITS;
+        final boolean littleEndian = buffer.order() == ByteOrder.LITTLE_ENDIAN;
+
+        int index = from;
+        for (; index <= to - 8; index += 8) {
+            final long word = buffer.getLong(index) ^ pattern;
+            final long found = (word - RecordReader.LOW_BITS) & ~word & RecordReader.HIGH_BITS;
+            if (found != 0) {
+                // Only bytes above the first match can be false positives.
+                return index + (littleEndian ? Long.numberOfTrailingZeros(found) : RecordReader.firstMatchBigEndian(word)) / 8;
+            }
+        }
+        for (; index < to; index++) {
+            if (buffer.get(index) == value) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first zero byte of a word that was read in big endian order.
+     * The SWAR test is not exact for big endian words, so the bytes are
+     * checked one by one.
+     *
+     * @param word
+     *            The word. Contains at least one zero byte.
+     * @return The bit offset of the first zero byte, counted from the most
+     *         significant bit.
+     */
+    private static int firstMatchBigEndian(final long word) {
+        int shift = 56;
+        while ((word >>> shift & 0xFF) != 0) {
+            shift -= 8;
+        }
+        return 56 - shift;
+    }
+
+    /**
+     * Allocates a buffer that is searched efficiently.
+     *
+     * @param capacity
+     *            The capacity of the buffer.
+     * @return The buffer.
+     */
+    private static ByteBuffer allocate(final int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Receives the records found by a {@link RecordReader}.
+     *
+     */
+    @FunctionalInterface
+    public static interface RecordConsumer {
+        /**
+         * Invoked for every record.
+         *
+         * @param record
+         *            A view of the record between its position and its limit.
+         *            The view is reused for the next record, so it must not be
+         *            kept. It may be modified freely.
+         * @return Whether to continue with the next record.
+         * @throws IOException
+         *             If any I/O error occurs. Stops reading.
+         */
+        boolean accept(ByteBuffer record) throws IOException;
+    }
+}
@@ -0,0 +1,385 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import de.fdamken.iofacade.File;
+
+/**
+ * Emulates a {@link SeekableByteChannel} on top of the streams of a
+ * {@link File}, for implementations that do not support random access
+ * natively.
+ *
+ * <p>
+ * Read-only channels read from a buffered input stream. Seeking forward skips
+ * the bytes in between, seeking backward reopens the stream. Writable channels
+ * copy the content of the file into a local temporary file when they are
+ * opened, read and write that copy and write it back through
+ * {@link File#openOutputStream()} when they are closed, if anything was
+ * changed.
+ * </p>
+ * <p>
+ * Supported options are {@link StandardOpenOption#READ},
+ * {@link StandardOpenOption#WRITE}, {@link StandardOpenOption#APPEND},
+ * {@link StandardOpenOption#TRUNCATE_EXISTING},
+ * {@link StandardOpenOption#CREATE} and
+ * {@link StandardOpenOption#CREATE_NEW}. All other options are ignored.
+ * </p>
+ *
+ */
+public class StreamSeekableByteChannel implements SeekableByteChannel {
+    /**
+     * The size of the buffer of the input stream.
+     *
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The emulated file.
+     *
+     */
+    private final File file;
+    /**
+     * Whether reading is allowed.
+     *
+     */
+    private final boolean readable;
+    /**
+     * Whether every write appends to the end of the file.
+     *
+     */
+    private final boolean append;
+    /**
+     * The local copy of the file. <code>null</code> if the channel is
+     * read-only.
+     *
+     */
+    private final FileChannel copy;
+    /**
+     * Whether the local copy has to be written back.
+     *
+     */
+    private boolean dirty;
+    /**
+     * The current input stream of read-only channels. <code>null</code> if no
+     * stream is open.
+     *
+     */
+    private InputStream in;
+    /**
+     * The position of {@link #in} within the file.
+     *
+     */
+    private long inPosition;
+    /**
+     * The position of this channel.
+     *
+     */
+    private long position;
+    /**
+     * Whether this channel is open.
+     *
+     */
+    private boolean open = true;
+
+    /**
+     * Constructor of StreamSeekableByteChannel.
+     *
+     * @param file
+     *            The file to emulate the channel for.
+     * @param options
+     *            The options to open the file with.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the file does not exist and should not be created.
+     */
+    public StreamSeekableByteChannel(final File file, final Set<? extends OpenOption> options) throws IOException,
+            FileNotFoundException {
+        Assertion.acquire(file).named("file").notNull();
+        Assertion.acquire(options).named("options").notNull();
+
+        this.file = file;
+        this.append = options.contains(StandardOpenOption.APPEND);
+        final boolean writable = this.append || options.contains(StandardOpenOption.WRITE);
+        this.readable = !writable || options.contains(StandardOpenOption.READ);
+
+        if (writable && options.contains(StandardOpenOption.CREATE_NEW)) {
+            file.create();
+        } else if (writable && options.contains(StandardOpenOption.CREATE) && !file.exists()) {
+            file.create();
+        } else {
+            Assertion.acquire(file).exists();
+        }
+
+        if (writable) {
+            final java.nio.file.Path copyFile = Files.createTempFile("io-facade-channel", null);
+            this.copy = FileChannel.open(copyFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            try {
+                if (options.contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+                    this.dirty = true;
+                } else {
+                    try (InputStream content = file.openInputStream()) {
+                        this.copy.transferFrom(Channels.newChannel(content), 0, Long.MAX_VALUE);
+                    }
+                }
+            } catch (final IOException | RuntimeException cause) {
+                this.copy.close();
+                throw cause;
+            }
+            if (this.append) {
+                this.position = this.copy.size();
+            }
+        } else {
+            this.copy = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.nio.channels.SeekableByteChannel#read(java.nio.ByteBuffer)
+     */
+    @Override
+    public synchronized int read(final ByteBuffer dst) throws IOException {
+        this.ensureOpen();
+        if (!this.readable) {
+            throw new NonReadableChannelException();
+        }
+
+        if (this.copy != null) {
+            final int result = this.copy.read(dst, this.position);
+            if (result > 0) {
+                this.position += result;
+            }
+            return result;
+        }
+
+        if (this.in == null || this.inPosition > this.position) {
+            this.reopen();
+        }
+        while (this.inPosition < this.position) {
+            final long skipped = this.in.skip(this.position - this.inPosition);
+            if (skipped <= 0) {
+                if (this.in.read() < 0) {
+                    return -1;
+                }
+                this.inPosition++;
+            } else {
+                this.inPosition += skipped;
+            }
+        }
+
+        final int length = Math.min(dst.remaining(), StreamSeekableByteChannel.BUFFER_SIZE);
+        final int result;
+        if (dst.hasArray()) {
+            result = this.in.read(dst.array(), dst.arrayOffset() + dst.position(), length);
+            if (result > 0) {
+                dst.position(dst.position() + result);
+            }
+        } else {
+            final byte[] buffer = new byte[length];
+            result = this.in.read(buffer);
+            if (result > 0) {
+                dst.put(buffer, 0, result);
+            }
+        }
+        if (result > 0) {
+            this.inPosition += result;
+            this.position += result;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.nio.channels.SeekableByteChannel#write(java.nio.ByteBuffer)
+     */
+    @Override
+    public synchronized int write(final ByteBuffer src) throws IOException {
+        this.ensureOpen();
+        if (this.copy == null) {
+            throw new NonWritableChannelException();
+        }
+
+        if (this.append) {
+            this.position = this.copy.size();
+        }
+        int result = 0;
+        while (src.hasRemaining()) {
+            result += this.copy.write(src, this.position + result);
+        }
+        this.position += result;
+        this.dirty = true;
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.nio.channels.SeekableByteChannel#position()
+     */
+    @Override
+    public synchronized long position() throws IOException {
+        this.ensureOpen();
+
+        return this.position;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.nio.channels.SeekableByteChannel#position(long)
+     */
+    @Override
+    public synchronized SeekableByteChannel position(final long newPosition) throws IOException {
+        this.ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("newPosition must not be negative!");
+        }
+
+        this.position = newPosition;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.nio.channels.SeekableByteChannel#size()
+     */
+    @Override
+    public synchronized long size() throws IOException {
+        this.ensureOpen();
+
+        return this.copy == null ? this.file.getAttributes().getSize() : this.copy.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.nio.channels.SeekableByteChannel#truncate(long)
+     */
+    @Override
+    public synchronized SeekableByteChannel truncate(final long size) throws IOException {
+        this.ensureOpen();
+        if (this.copy == null) {
+            throw new NonWritableChannelException();
+        }
+        if (size < 0) {
+            throw new IllegalArgumentException("size must not be negative!");
+        }
+
+        if (size < this.copy.size()) {
+            this.copy.truncate(size);
+            this.dirty = true;
+        }
+        this.position = Math.min(this.position, size);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.nio.channels.Channel#isOpen()
+     */
+    @Override
+    public synchronized boolean isOpen() {
+        return this.open;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * If anything was changed, the local copy is written back into the file.
+     * </p>
+     *
+     * @see java.nio.channels.Channel#close()
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!this.open) {
+            return;
+        }
+        this.open = false;
+
+        try {
+            if (this.dirty) {
+                try (OutputStream out = this.file.openOutputStream()) {
+                    final long size = this.copy.size();
+                    long written = 0;
+                    while (written < size) {
+                        written += this.copy.transferTo(written, size - written, Channels.newChannel(out));
+                    }
+                }
+            }
+        } finally {
+            if (this.copy != null) {
+                this.copy.close();
+            }
+            if (this.in != null) {
+                this.in.close();
+            }
+        }
+    }
+
+    /**
+     * Closes the current input stream, if any, and opens a new one at the
+     * start of the file.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private void reopen() throws IOException {
+        if (this.in != null) {
+            this.in.close();
+        }
+        this.in = new BufferedInputStream(this.file.openInputStream(), StreamSeekableByteChannel.BUFFER_SIZE);
+        this.inPosition = 0;
+    }
+
+    /**
+     * Checks whether this channel is open.
+     *
+     * @throws ClosedChannelException
+     *             If this channel is closed.
+     */
+    private void ensureOpen() throws ClosedChannelException {
+        if (!this.open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+import de.fdamken.iofacade.FileRange;
+
+/**
+ * Reads many ranges of a file at once (see
+ * {@link de.fdamken.iofacade.File#readVectored(List, IntFunction)}).
+ *
+ * <p>
+ * Ranges that are close to each other are coalesced into a single read, as
+ * long as the gap between them is not larger than the maximum gap and the
+ * merged read is not larger than the maximum merged size. The bytes in the
+ * gaps are read and thrown away, which is cheaper than another request for
+ * most storages. All merged reads are issued concurrently. The data of every
+ * range is a slice of the buffer of its merged read, so no data is copied.
+ * </p>
+ *
+ */
+public class VectoredReader {
+    /**
+     * The default maximum gap between two ranges that are coalesced.
+     *
+     */
+    public static final int DEFAULT_MAX_GAP = 4 * 1024;
+    /**
+     * The default maximum size of a merged read.
+     *
+     */
+    public static final int DEFAULT_MAX_MERGED_SIZE = 1024 * 1024;
+
+    /**
+     * Constructor of VectoredReader.
+     *
+     */
+    private VectoredReader() {
+        // Nothing to do.
+    }
+
+    /**
+     * Reads the given ranges. The future of every range is completed as soon
+     * as its merged read is completed.
+     *
+     * @param ranges
+     *            The ranges to read. May overlap and may be in any order.
+     * @param allocator
+     *            Allocates the buffers of the merged reads. Receives the
+     *            required size.
+     * @param maxGap
+     *            The maximum gap between two ranges that are coalesced.
+     * @param maxMergedSize
+     *            The maximum size of a merged read. Ranges that are larger on
+     *            their own are read alone.
+     * @param reader
+     *            Reads a sequence of bytes into the given buffer, starting at
+     *            the given position within the file (see
+     *            {@link de.fdamken.iofacade.File#readAsync(ByteBuffer, long)}).
+     * @return The future that is completed as soon as all ranges are
+     *         completed. It is never completed exceptionally, failures are
+     *         reported through the futures of the ranges.
+     */
+    public static CompletableFuture<Void> read(final List<FileRange> ranges, final IntFunction<ByteBuffer> allocator,
+            final int maxGap, final int maxMergedSize, final BiFunction<ByteBuffer, Long, CompletableFuture<Integer>> reader) {
+        Assertion.acquire(ranges).named("ranges").notNull();
+        Assertion.acquire(allocator).named("allocator").notNull();
+        Assertion.acquire(reader).named("reader").notNull();
+
+        final List<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>>();
+        for (final List<FileRange> group : VectoredReader.coalesce(ranges, maxGap, maxMergedSize)) {
+            final long start = group.get(0).getOffset();
+            long end = start;
+            for (final FileRange range : group) {
+                end = Math.max(end, range.getEnd());
+            }
+
+            final CompletableFuture<ByteBuffer> merged = new CompletableFuture<ByteBuffer>();
+            try {
+                final ByteBuffer buffer = allocator.apply((int) (end - start));
+                buffer.limit(buffer.position() + (int) (end - start));
+                VectoredReader.readFully(reader, buffer.slice(), start, merged);
+            } catch (final RuntimeException cause) {
+                merged.completeExceptionally(cause);
+            }
+            futures.add(merged.handle((buffer, error) -> {
+                for (final FileRange range : group) {
+                    VectoredReader.complete(range, start, buffer, error);
+                }
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+    }
+
+    /**
+     * Sorts the given ranges by their offsets and groups ranges that should
+     * be read together.
+     *
+     * @param ranges
+     *            The ranges to group.
+     * @param maxGap
+     *            The maximum gap between two ranges within a group.
+     * @param maxMergedSize
+     *            The maximum size of a group.
+     * @return The groups. Every group is sorted by the offsets of the ranges.
+     */
+    public static List<List<FileRange>> coalesce(final List<FileRange> ranges, final int maxGap, final int maxMergedSize) {
+        Assertion.acquire(ranges).named("ranges").notNull();
+
+        final List<FileRange> sorted = new ArrayList<FileRange>(ranges);
+        sorted.sort(Comparator.comparingLong(FileRange::getOffset));
+
+        final List<List<FileRange>> result = new ArrayList<List<FileRange>>();
+        List<FileRange> group = null;
+        long start = 0;
+        long end = 0;
+        for (final FileRange range : sorted) {
+            if (group != null && range.getOffset() - end <= maxGap
+                    && Math.max(end, range.getEnd()) - start <= maxMergedSize) {
+                group.add(range);
+                end = Math.max(end, range.getEnd());
+            } else {
+                group = new ArrayList<FileRange>();
+                group.add(range);
+                result.add(group);
+                start = range.getOffset();
+                end = range.getEnd();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads until the given buffer is full or the end of the file is reached.
+     *
+     * @param reader
+     *            Reads a sequence of bytes.
+     * @param buffer
+     *            The buffer to read into.
+     * @param start
+     *            The position within the file the buffer starts at.
+     * @param result
+     *            The future that is completed with the buffer, flipped.
+     */
+    private static void readFully(final BiFunction<ByteBuffer, Long, CompletableFuture<Integer>> reader,
+            final ByteBuffer buffer, final long start, final CompletableFuture<ByteBuffer> result) {
+        reader.apply(buffer, start + buffer.position()).whenComplete((count, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else if (count < 0 || !buffer.hasRemaining()) {
+                buffer.flip();
+                result.complete(buffer);
+            } else {
+                VectoredReader.readFully(reader, buffer, start, result);
+            }
+        });
+    }
+
+    /**
+     * Completes the future of the given range.
+     *
+     * @param range
+     *            The range to complete.
+     * @param start
+     *            The position within the file the buffer starts at.
+     * @param buffer
+     *            The buffer of the merged read. <code>null</code> if the read
+     *            failed.
+     * @param error
+     *            The error of the merged read. <code>null</code> if the read
+     *            succeeded.
+     */
+    private static void complete(final FileRange range, final long start, final ByteBuffer buffer, final Throwable error) {
+        if (error != null) {
+            range.getData().completeExceptionally(error);
+            return;
+        }
+
+        final int position = (int) (range.getOffset() - start);
+        if (position + range.getLength() > buffer.limit()) {
+            range.getData().completeExceptionally(new EOFException("The file ends before " + range + "!"));
+            return;
+        }
+        final ByteBuffer data = buffer.duplicate();
+        data.limit(position + range.getLength()).position(position);
+        range.getData().complete(data.slice());
+    }
+}
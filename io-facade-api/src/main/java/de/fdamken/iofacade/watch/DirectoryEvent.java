@@ -0,0 +1,98 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.watch;
+
+import de.fdamken.iofacade.Path;
+
+/**
+ * Describes a change of a path within a watched directory.
+ *
+ */
+public final class DirectoryEvent {
+    /**
+     * The kind of the change.
+     *
+     */
+    private final Kind kind;
+    /**
+     * The changed path.
+     *
+     */
+    private final Path path;
+
+    /**
+     * Constructor of DirectoryEvent.
+     *
+     * @param kind
+     *            The kind of the change.
+     * @param path
+     *            The changed path.
+     */
+    public DirectoryEvent(final Kind kind, final Path path) {
+        this.kind = kind;
+        this.path = path;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return this.kind + " " + this.path.getAbsolutePath();
+    }
+
+    /**
+     *
+     * @return {@link #kind}.
+     */
+    public Kind getKind() {
+        return this.kind;
+    }
+
+    /**
+     *
+     * @return {@link #path}.
+     */
+    public Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * The kind of a change.
+     *
+     */
+    public static enum Kind {
+        /**
+         * The path was created.
+         *
+         */
+        CREATED,
+        /**
+         * The path was modified.
+         *
+         */
+        MODIFIED,
+        /**
+         * The path was deleted.
+         *
+         */
+        DELETED;
+    }
+}
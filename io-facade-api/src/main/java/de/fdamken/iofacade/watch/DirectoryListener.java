@@ -0,0 +1,40 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.watch;
+
+import java.util.List;
+
+/**
+ * A directory listener is notified about changes within a watched directory.
+ *
+ */
+@FunctionalInterface
+public interface DirectoryListener {
+    /**
+     * Invoked with all changes that were detected together. The changes are
+     * coalesced, so there is at most one event per path.
+     *
+     * <p>
+     * <b> NOTE: This is invoked from a background thread. </b>
+     * </p>
+     *
+     * @param events
+     *            The detected changes. Never empty.
+     */
+    void onEvents(final List<DirectoryEvent> events);
+}
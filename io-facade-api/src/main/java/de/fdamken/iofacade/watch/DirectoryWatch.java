@@ -0,0 +1,46 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.watch;
+
+import java.io.Closeable;
+
+/**
+ * A handle of a running watch of a directory. Closing the handle stops the
+ * watch.
+ *
+ */
+public interface DirectoryWatch extends Closeable {
+    /**
+     *
+     * @return Whether the watch is still running.
+     */
+    boolean isOpen();
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Stops the watch. No events are delivered after this method has returned,
+     * except for a notification that is already running.
+     * </p>
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,115 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.watch;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fdamken.iofacade.watch.DirectoryEvent.Kind;
+
+/**
+ * Coalesces {@link DirectoryEvent}s, so at most one event per path is
+ * delivered. For example, a path that is created and modified afterwards
+ * results in a single {@link Kind#CREATED} event and a path that is created and
+ * deleted again results in no event at all.
+ *
+ * <p>
+ * <b> NOTE: This class is not thread safe. </b>
+ * </p>
+ *
+ */
+public class EventCoalescer {
+    /**
+     * The pending events by the absolute paths of their paths (in order of
+     * their first occurrence).
+     *
+     */
+    private final Map<String, DirectoryEvent> events = new LinkedHashMap<String, DirectoryEvent>();
+
+    /**
+     * Adds the given event.
+     *
+     * @param event
+     *            The event to add.
+     */
+    public void add(final DirectoryEvent event) {
+        final String key = event.getPath().getAbsolutePath();
+        final DirectoryEvent previous = this.events.get(key);
+        if (previous == null) {
+            this.events.put(key, event);
+            return;
+        }
+
+        final Kind kind = EventCoalescer.merge(previous.getKind(), event.getKind());
+        if (kind == null) {
+            this.events.remove(key);
+        } else {
+            this.events.put(key, new DirectoryEvent(kind, event.getPath()));
+        }
+    }
+
+    /**
+     * Adds all given events.
+     *
+     * @param newEvents
+     *            The events to add.
+     */
+    public void addAll(final List<DirectoryEvent> newEvents) {
+        for (final DirectoryEvent event : newEvents) {
+            this.add(event);
+        }
+    }
+
+    /**
+     *
+     * @return Whether no event is pending.
+     */
+    public boolean isEmpty() {
+        return this.events.isEmpty();
+    }
+
+    /**
+     * Removes and returns all pending events.
+     *
+     * @return The pending events.
+     */
+    public List<DirectoryEvent> drain() {
+        final List<DirectoryEvent> result = new ArrayList<DirectoryEvent>(this.events.values());
+        this.events.clear();
+        return result;
+    }
+
+    /**
+     * Merges two consecutive kinds of changes of the same path.
+     *
+     * @param first
+     *            The first change.
+     * @param second
+     *            The second change.
+     * @return The merged change. <code>null</code> if the changes cancel each
+     *         other out.
+     */
+    private static Kind merge(final Kind first, final Kind second) {
+        if (first == Kind.CREATED) {
+            return second == Kind.DELETED ? null : Kind.CREATED;
+        }
+        return second == Kind.DELETED ? Kind.DELETED : Kind.MODIFIED;
+    }
+}
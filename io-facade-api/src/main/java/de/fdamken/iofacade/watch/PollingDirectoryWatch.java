@@ -0,0 +1,237 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.watch;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fdamken.iofacade.Directory;
+import de.fdamken.iofacade.util.Assertion;
+import de.fdamken.iofacade.util.PathFilter;
+
+/**
+ * A generic {@link DirectoryWatch} that detects changes by scanning the
+ * watched file tree periodically and comparing the {@link TreeSnapshot}s.
+ *
+ * <p>
+ * The interval between two scans adapts to the activity: It is reset to the
+ * minimum interval as soon as a change was detected and doubles with every scan
+ * that did not detect any change, up to the maximum interval.
+ * </p>
+ *
+ */
+public class PollingDirectoryWatch implements DirectoryWatch {
+    /**
+     * The default minimum interval between two scans in milliseconds.
+     *
+     */
+    public static final long DEFAULT_MIN_INTERVAL = 250;
+    /**
+     * The default maximum interval between two scans in milliseconds.
+     *
+     */
+    public static final long DEFAULT_MAX_INTERVAL = 10000;
+
+    /**
+     * The logger.
+     *
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(PollingDirectoryWatch.class);
+    /**
+     * The executor that runs the scans of all polling watches.
+     *
+     */
+    private static final ScheduledExecutorService EXECUTOR = Executors.newScheduledThreadPool(Runtime.getRuntime()
+            .availableProcessors(), runnable -> {
+        final Thread thread = new Thread(runnable, "io-facade-polling-watch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The watched directory.
+     *
+     */
+    private final Directory directory;
+    /**
+     * The {@link PathFilter} to apply.
+     *
+     */
+    private final PathFilter filter;
+    /**
+     * The listener to notify.
+     *
+     */
+    private final DirectoryListener listener;
+    /**
+     * The minimum interval between two scans in milliseconds.
+     *
+     */
+    private final long minInterval;
+    /**
+     * The maximum interval between two scans in milliseconds.
+     *
+     */
+    private final long maxInterval;
+    /**
+     * The current interval between two scans in milliseconds.
+     *
+     */
+    private long interval;
+    /**
+     * The result of the last scan.
+     *
+     */
+    private TreeSnapshot snapshot;
+    /**
+     * The next scheduled scan.
+     *
+     */
+    private ScheduledFuture<?> next;
+    /**
+     * Whether this watch is still running.
+     *
+     */
+    private volatile boolean open = true;
+
+    /**
+     * Constructor of PollingDirectoryWatch. Starts watching with the default
+     * intervals.
+     *
+     * @param directory
+     *            The directory to watch.
+     * @param filter
+     *            The {@link PathFilter} to apply.
+     * @param listener
+     *            The listener to notify.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the given directory does not exist.
+     */
+    public PollingDirectoryWatch(final Directory directory, final PathFilter filter, final DirectoryListener listener)
+            throws IOException, FileNotFoundException {
+        this(directory, filter, listener, PollingDirectoryWatch.DEFAULT_MIN_INTERVAL, PollingDirectoryWatch.DEFAULT_MAX_INTERVAL);
+    }
+
+    /**
+     * Constructor of PollingDirectoryWatch. Starts watching.
+     *
+     * @param directory
+     *            The directory to watch.
+     * @param filter
+     *            The {@link PathFilter} to apply.
+     * @param listener
+     *            The listener to notify.
+     * @param minInterval
+     *            The minimum interval between two scans in milliseconds.
+     * @param maxInterval
+     *            The maximum interval between two scans in milliseconds.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the given directory does not exist.
+     */
+    public PollingDirectoryWatch(final Directory directory, final PathFilter filter, final DirectoryListener listener,
+            final long minInterval, final long maxInterval) throws IOException, FileNotFoundException {
+        Assertion.acquire(directory).named("directory").notNull().exists();
+        Assertion.acquire(filter).named("filter").notNull();
+        Assertion.acquire(listener).named("listener").notNull();
+        if (minInterval <= 0 || maxInterval < minInterval) {
+            throw new IllegalArgumentException("The intervals must be positive and minInterval <= maxInterval!");
+        }
+
+        this.directory = directory;
+        this.filter = filter;
+        this.listener = listener;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.interval = minInterval;
+        this.snapshot = TreeSnapshot.scan(directory, filter);
+
+        this.schedule();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.watch.DirectoryWatch#isOpen()
+     */
+    @Override
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.watch.DirectoryWatch#close()
+     */
+    @Override
+    public synchronized void close() {
+        this.open = false;
+        this.next.cancel(false);
+    }
+
+    /**
+     * Scans the watched directory and notifies the listener about any
+     * changes.
+     *
+     */
+    private void poll() {
+        if (!this.open) {
+            return;
+        }
+
+        try {
+            final TreeSnapshot newer = TreeSnapshot.scan(this.directory, this.filter);
+            final List<DirectoryEvent> events = this.snapshot.diff(newer);
+            this.snapshot = newer;
+            if (events.isEmpty()) {
+                this.interval = Math.min(this.interval * 2, this.maxInterval);
+            } else {
+                this.interval = this.minInterval;
+                if (this.open) {
+                    this.listener.onEvents(events);
+                }
+            }
+        } catch (final IOException | RuntimeException cause) {
+            PollingDirectoryWatch.LOGGER.error("Failed to poll " + this.directory.getAbsolutePath() + "!", cause);
+        } finally {
+            this.schedule();
+        }
+    }
+
+    /**
+     * Schedules the next scan, if this watch is still running.
+     *
+     */
+    private synchronized void schedule() {
+        if (this.open) {
+            this.next = PollingDirectoryWatch.EXECUTOR.schedule(this::poll, this.interval, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.watch;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import de.fdamken.iofacade.Directory;
+import de.fdamken.iofacade.FileSystem;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+import de.fdamken.iofacade.util.PathFilter;
+
+/**
+ * The state of a file tree at a certain time. Two snapshots can be compared to
+ * find out what has changed in between.
+ *
+ * <p>
+ * Only the paths that are accepted by the {@link PathFilter} are recorded, but
+ * every directory the filter steps into is scanned. Symbolic links are
+ * recorded, but never stepped into.
+ * </p>
+ * <p>
+ * <b> NOTE: This class is not thread safe. </b>
+ * </p>
+ *
+ */
+public class TreeSnapshot {
+    /**
+     * The file system of the scanned directory.
+     *
+     */
+    private final FileSystem fileSystem;
+    /**
+     * The absolute path of the scanned directory.
+     *
+     */
+    private final String rootPath;
+    /**
+     * The attributes of the recorded paths by their absolute paths.
+     *
+     */
+    private final NavigableMap<String, PathAttributes> entries = new TreeMap<String, PathAttributes>();
+    /**
+     * All directories that were scanned (including the scanned directory
+     * itself).
+     *
+     */
+    private final List<Path> directories = new ArrayList<Path>();
+
+    /**
+     * Constructor of TreeSnapshot.
+     *
+     * @param fileSystem
+     *            The file system of the scanned directory.
+     * @param rootPath
+     *            The absolute path of the scanned directory.
+     */
+    private TreeSnapshot(final FileSystem fileSystem, final String rootPath) {
+        this.fileSystem = fileSystem;
+        this.rootPath = rootPath;
+    }
+
+    /**
+     * Scans the file tree starting from the given directory.
+     *
+     * @param directory
+     *            The directory to scan. This is not recorded itself.
+     * @param filter
+     *            The {@link PathFilter} to apply.
+     * @return The created snapshot.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the given directory does not exist.
+     */
+    public static TreeSnapshot scan(final Directory directory, final PathFilter filter) throws IOException,
+            FileNotFoundException {
+        final TreeSnapshot result = new TreeSnapshot(directory.getFileSystem(), directory.getAbsolutePath());
+        final Deque<Path> pending = new ArrayDeque<Path>();
+        pending.add(directory);
+        while (!pending.isEmpty()) {
+            final Path current = pending.poll();
+            final List<Path> children;
+            try {
+                children = current.asDirectory().listEntries();
+            } catch (final IOException cause) {
+                if (current == directory || current.exists()) {
+                    throw cause;
+                }
+                continue;
+            }
+            result.directories.add(current);
+
+            for (final Path path : children) {
+                final Boolean filterResult = filter.apply(path);
+                if (filterResult != null && !filterResult) {
+                    continue;
+                }
+                final PathAttributes attributes;
+                try {
+                    attributes = path.getAttributes();
+                } catch (final FileNotFoundException dummy) {
+                    continue;
+                }
+                if (filterResult != null) {
+                    result.entries.put(path.getAbsolutePath(), attributes);
+                }
+                if (attributes.isDirectory() && !path.isSymbolicLink()) {
+                    pending.add(path);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compares this snapshot with a newer one of the same directory.
+     *
+     * @param newer
+     *            The newer snapshot.
+     * @return The changes from this snapshot to the newer one.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public List<DirectoryEvent> diff(final TreeSnapshot newer) throws IOException {
+        return this.diff(this.entries, newer.entries);
+    }
+
+    /**
+     * Records the given attributes.
+     *
+     * @param absolutePath
+     *            The absolute path of the recorded path.
+     * @param attributes
+     *            The attributes to record.
+     * @return The previously recorded attributes, if any. Otherwise
+     *         <code>null</code>.
+     */
+    public PathAttributes put(final String absolutePath, final PathAttributes attributes) {
+        return this.entries.put(absolutePath, attributes);
+    }
+
+    /**
+     * Removes the given path and everything below it.
+     *
+     * @param absolutePath
+     *            The absolute path of the path to remove.
+     * @return The removed paths (absolute paths).
+     */
+    public List<String> removeTree(final String absolutePath) {
+        final List<String> result = new ArrayList<String>();
+        if (this.entries.remove(absolutePath) != null) {
+            result.add(absolutePath);
+        }
+        final Map<String, PathAttributes> below = TreeSnapshot.below(this.entries, absolutePath);
+        result.addAll(below.keySet());
+        below.clear();
+        return result;
+    }
+
+    /**
+     * Replaces everything below the directory of the given snapshot with the
+     * content of the given snapshot.
+     *
+     * @param subtree
+     *            A newer snapshot of this directory or any directory below
+     *            it.
+     * @return The changes that were applied.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public List<DirectoryEvent> updateTree(final TreeSnapshot subtree) throws IOException {
+        final Map<String, PathAttributes> below = TreeSnapshot.below(this.entries, subtree.rootPath);
+        final List<DirectoryEvent> result = this.diff(below, subtree.entries);
+        below.clear();
+        this.entries.putAll(subtree.entries);
+        return result;
+    }
+
+    /**
+     * Compares the given recorded entries.
+     *
+     * @param older
+     *            The older entries.
+     * @param newer
+     *            The newer entries.
+     * @return The changes from the older entries to the newer ones.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private List<DirectoryEvent> diff(final Map<String, PathAttributes> older, final Map<String, PathAttributes> newer)
+            throws IOException {
+        final List<DirectoryEvent> result = new ArrayList<DirectoryEvent>();
+        for (final Map.Entry<String, PathAttributes> entry : newer.entrySet()) {
+            final PathAttributes previous = older.get(entry.getKey());
+            if (previous == null) {
+                result.add(new DirectoryEvent(DirectoryEvent.Kind.CREATED, this.fileSystem.getPath(entry.getKey())));
+            } else if (!previous.equals(entry.getValue())) {
+                result.add(new DirectoryEvent(DirectoryEvent.Kind.MODIFIED, this.fileSystem.getPath(entry.getKey())));
+            }
+        }
+        for (final String absolutePath : older.keySet()) {
+            if (!newer.containsKey(absolutePath)) {
+                result.add(new DirectoryEvent(DirectoryEvent.Kind.DELETED, this.fileSystem.getPath(absolutePath)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a view of all entries below the given path.
+     *
+     * @param entries
+     *            The entries.
+     * @param absolutePath
+     *            The absolute path of the directory.
+     * @return A modifiable view of all entries below the given path.
+     */
+    private static NavigableMap<String, PathAttributes> below(final NavigableMap<String, PathAttributes> entries,
+            final String absolutePath) {
+        if (absolutePath.equals("/")) {
+            return entries.tailMap("/", false);
+        }
+        // '0' is the character after '/'.
+        return entries.subMap(absolutePath + "/", true, absolutePath + "0", false);
+    }
+
+    /**
+     *
+     * @return The number of recorded paths.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     *
+     * @return {@link #directories}.
+     */
+    public List<Path> getDirectories() {
+        return this.directories;
+    }
+}
@@ -0,0 +1,135 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests of {@link NegativeLookupCache}.
+ *
+ */
+public class NegativeLookupCacheTest {
+    /**
+     * The cache under test.
+     *
+     */
+    private final NegativeLookupCache cache = new NegativeLookupCache(60000, 100);
+
+    /**
+     * Recorded misses are answered until the path is created.
+     *
+     */
+    @Test
+    public void testMissUntilCreated() {
+        this.cache.recordMiss("/a/b");
+        Assert.assertTrue(this.cache.isKnownMissing("/a/b"));
+
+        this.cache.created("/a/b");
+        Assert.assertFalse(this.cache.isKnownMissing("/a/b"));
+    }
+
+    /**
+     * Creating a directory forgets the misses below it, as it may have been
+     * moved or copied including its contents.
+     *
+     */
+    @Test
+    public void testCreatedForgetsDescendants() {
+        this.cache.recordMiss("/b/x");
+        this.cache.recordMiss("/b/x/y");
+        this.cache.recordMiss("/bc");
+
+        this.cache.created("/b");
+
+        Assert.assertFalse(this.cache.isKnownMissing("/b/x"));
+        Assert.assertFalse(this.cache.isKnownMissing("/b/x/y"));
+        Assert.assertTrue(this.cache.isKnownMissing("/bc"));
+    }
+
+    /**
+     * Creating a directory forgets the listings below it.
+     *
+     */
+    @Test
+    public void testCreatedForgetsListingsOfDescendants() {
+        this.cache.recordListing("/b/x", Arrays.asList("a"), this.cache.getGeneration());
+        Assert.assertTrue(this.cache.isKnownMissing("/b/x/z"));
+
+        this.cache.created("/b");
+
+        Assert.assertFalse(this.cache.isKnownMissing("/b/x/z"));
+    }
+
+    /**
+     * Listed names are known to exist, all other names are known missing.
+     *
+     */
+    @Test
+    public void testListing() {
+        this.cache.recordListing("/dir", Arrays.asList("a", "b"), this.cache.getGeneration());
+
+        Assert.assertFalse(this.cache.isKnownMissing("/dir/a"));
+        Assert.assertTrue(this.cache.isKnownMissing("/dir/c"));
+
+        this.cache.created("/dir/c");
+        Assert.assertFalse(this.cache.isKnownMissing("/dir/c"));
+    }
+
+    /**
+     * A listing is not recorded if anything was invalidated while it was
+     * running.
+     *
+     */
+    @Test
+    public void testListingRacingWithCreate() {
+        final long generation = this.cache.getGeneration();
+        this.cache.created("/dir/c");
+        this.cache.recordListing("/dir", Arrays.asList("a", "b"), generation);
+
+        Assert.assertFalse(this.cache.isKnownMissing("/dir/c"));
+    }
+
+    /**
+     * A probe is not recorded if anything was invalidated while it was
+     * running.
+     *
+     */
+    @Test
+    public void testMissRacingWithCreate() {
+        final long generation = this.cache.getGeneration();
+        this.cache.created("/dir/c");
+        this.cache.recordMiss("/dir/c", generation);
+
+        Assert.assertFalse(this.cache.isKnownMissing("/dir/c"));
+    }
+
+    /**
+     * A disabled cache does not remember anything.
+     *
+     */
+    @Test
+    public void testDisabled() {
+        final NegativeLookupCache disabled = new NegativeLookupCache(0, 100);
+        disabled.recordMiss("/a");
+
+        Assert.assertFalse(disabled.isKnownMissing("/a"));
+    }
+}
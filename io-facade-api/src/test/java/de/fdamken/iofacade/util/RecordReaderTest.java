@@ -0,0 +1,276 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests of {@link RecordReader}.
+ *
+ */
+public class RecordReaderTest {
+    /**
+     * Records of every length that span the refills of the buffer are
+     * delivered completely, no matter how much a single read returns.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testRecordsSpanningRefills() throws IOException {
+        final List<byte[]> records = new ArrayList<byte[]>();
+        int total = 0;
+        for (int i = 0; total < 1024 * 1024; i++) {
+            final byte[] record = RecordReaderTest.record(i, i * 7919 % 5000);
+            records.add(record);
+            total += record.length + 1;
+        }
+
+        for (final int chunkSize : new int[] { 1000, 4096, 100 * 1024, Integer.MAX_VALUE }) {
+            this.assertRecords(records, true, chunkSize);
+            this.assertRecords(records, false, chunkSize);
+        }
+    }
+
+    /**
+     * A record that is larger than the buffer grows it and the records around
+     * it are not affected.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testRecordLargerThanBuffer() throws IOException {
+        final List<byte[]> records = new ArrayList<byte[]>();
+        records.add(RecordReaderTest.record(1, 100));
+        records.add(RecordReaderTest.record(2, 600 * 1024));
+        records.add(RecordReaderTest.record(3, 100));
+        records.add(RecordReaderTest.record(4, 300 * 1024));
+
+        this.assertRecords(records, true, 8192);
+        this.assertRecords(records, false, Integer.MAX_VALUE);
+        // The pooled buffer of this thread is still intact.
+        this.assertRecords(records.subList(0, 1), true, 8192);
+    }
+
+    /**
+     * Delimiters at the very end of a refill split the records correctly.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testDelimiterAtEndOfRefill() throws IOException {
+        final List<byte[]> records = new ArrayList<byte[]>();
+        records.add(RecordReaderTest.record(1, 1023));
+        records.add(RecordReaderTest.record(2, 1023));
+        records.add(new byte[0]);
+        records.add(RecordReaderTest.record(3, 1023));
+
+        this.assertRecords(records, true, 1024);
+    }
+
+    /**
+     * Reading stops as soon as the consumer declines a record.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testConsumerStops() throws IOException {
+        final byte[] content = "a\nb\nc\nd".getBytes(StandardCharsets.US_ASCII);
+        final int[] seen = new int[1];
+
+        final long accepted = RecordReader.read(new ChunkedChannel(content, 1), (byte) '\n', record -> ++seen[0] < 3);
+
+        Assert.assertEquals(2, accepted);
+        Assert.assertEquals(3, seen[0]);
+    }
+
+    /**
+     * Reads that are nested into a consumer use their own buffer.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testNestedRead() throws IOException {
+        final byte[] content = "ab\ncd\n".getBytes(StandardCharsets.US_ASCII);
+        final StringBuilder result = new StringBuilder();
+
+        RecordReader.read(new ChunkedChannel(content, 2), (byte) '\n', outer -> {
+            result.append(RecordReaderTest.toString(outer)).append('[');
+            RecordReader.read(new ChunkedChannel("x,y".getBytes(StandardCharsets.US_ASCII), 1), (byte) ',', inner -> {
+                result.append(RecordReaderTest.toString(inner));
+                return true;
+            });
+            result.append(']');
+            return true;
+        });
+
+        Assert.assertEquals("ab[xy]cd[xy]", result.toString());
+    }
+
+    /**
+     * Reads the given records separated by <code>\n</code> and checks that
+     * exactly they are delivered.
+     *
+     * @param records
+     *            The records.
+     * @param terminated
+     *            Whether the last record is followed by a delimiter.
+     * @param chunkSize
+     *            The maximum number of bytes a single read returns.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private void assertRecords(final List<byte[]> records, final boolean terminated, final int chunkSize)
+            throws IOException {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (int i = 0; i < records.size(); i++) {
+            content.write(records.get(i));
+            if (terminated || i < records.size() - 1) {
+                content.write('\n');
+            }
+        }
+
+        final int[] index = new int[1];
+        final long accepted = RecordReader.read(new ChunkedChannel(content.toByteArray(), chunkSize), (byte) '\n',
+                record -> {
+                    final byte[] actual = new byte[record.remaining()];
+                    record.get(actual);
+                    Assert.assertArrayEquals(records.get(index[0]++), actual);
+                    return true;
+                });
+
+        Assert.assertEquals(records.size(), accepted);
+        Assert.assertEquals(records.size(), index[0]);
+    }
+
+    /**
+     * Creates a record without delimiters.
+     *
+     * @param seed
+     *            Determines the content.
+     * @param length
+     *            The length of the record.
+     * @return The record.
+     */
+    private static byte[] record(final int seed, final int length) {
+        final byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) ('a' + (seed + i) % 26);
+        }
+        return result;
+    }
+
+    /**
+     * Converts the remaining bytes of the given buffer into a string.
+     *
+     * @param buffer
+     *            The buffer.
+     * @return The string.
+     */
+    private static String toString(final ByteBuffer buffer) {
+        final StringBuilder result = new StringBuilder();
+        while (buffer.hasRemaining()) {
+            result.append((char) buffer.get());
+        }
+        return result.toString();
+    }
+
+    /**
+     * A channel that returns at most a fixed number of bytes per read.
+     *
+     */
+    private static class ChunkedChannel implements ReadableByteChannel {
+        /**
+         * The content.
+         *
+         */
+        private final byte[] content;
+        /**
+         * The maximum number of bytes per read.
+         *
+         */
+        private final int chunkSize;
+        /**
+         * The number of bytes read so far.
+         *
+         */
+        private int position;
+
+        /**
+         * Constructor of ChunkedChannel.
+         *
+         * @param content
+         *            The content.
+         * @param chunkSize
+         *            The maximum number of bytes per read.
+         */
+        public ChunkedChannel(final byte[] content, final int chunkSize) {
+            this.content = content;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.ReadableByteChannel#read(java.nio.ByteBuffer)
+         */
+        @Override
+        public int read(final ByteBuffer dst) {
+            if (this.position == this.content.length) {
+                return -1;
+            }
+            final int count = Math.min(Math.min(this.chunkSize, dst.remaining()), this.content.length - this.position);
+            dst.put(this.content, this.position, count);
+            this.position += count;
+            return count;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.Channel#isOpen()
+         */
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.Channel#close()
+         */
+        @Override
+        public void close() {
+            // Nothing to do.
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.FileRange;
+
+/**
+ * Tests of {@link VectoredReader}.
+ *
+ */
+public class VectoredReaderTest {
+    /**
+     * The content that is read.
+     *
+     */
+    private final byte[] content = new byte[10000];
+    /**
+     * The positions of the reads that were issued.
+     *
+     */
+    private final List<Long> reads = new ArrayList<Long>();
+
+    /**
+     * Constructor of VectoredReaderTest.
+     *
+     */
+    public VectoredReaderTest() {
+        for (int i = 0; i < this.content.length; i++) {
+            this.content[i] = (byte) (i * 13);
+        }
+    }
+
+    /**
+     * Ranges are grouped by gap and merged size, regardless of their order.
+     *
+     */
+    @Test
+    public void testCoalesce() {
+        final FileRange a = new FileRange(0, 10);
+        final FileRange b = new FileRange(15, 10);
+        final FileRange c = new FileRange(100, 10);
+        final FileRange d = new FileRange(105, 200);
+
+        final List<List<FileRange>> groups = VectoredReader.coalesce(Arrays.asList(d, c, b, a), 5, 200);
+
+        Assert.assertEquals(3, groups.size());
+        Assert.assertEquals(Arrays.asList(a, b), groups.get(0));
+        Assert.assertEquals(Arrays.asList(c), groups.get(1));
+        Assert.assertEquals(Arrays.asList(d), groups.get(2));
+    }
+
+    /**
+     * Every range receives its bytes, even if the reads return less than
+     * requested, and close ranges are read together.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testRead() throws Exception {
+        final List<FileRange> ranges = Arrays.asList(new FileRange(5000, 100), new FileRange(0, 10), new FileRange(20, 30),
+                new FileRange(5050, 100));
+
+        VectoredReader.read(ranges, ByteBuffer::allocate, 16, 1000, this.reader(7)).get();
+
+        for (final FileRange range : ranges) {
+            this.assertData(range);
+        }
+        Assert.assertTrue(this.reads.contains(Long.valueOf(0)));
+        Assert.assertTrue(this.reads.contains(Long.valueOf(5000)));
+        Assert.assertFalse(this.reads.contains(Long.valueOf(20)));
+        Assert.assertFalse(this.reads.contains(Long.valueOf(5050)));
+    }
+
+    /**
+     * Ranges beyond the end of the content fail with an {@link EOFException},
+     * the others of the same merged read succeed.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testReadBeyondEnd() throws Exception {
+        final FileRange inside = new FileRange(9900, 50);
+        final FileRange beyond = new FileRange(9960, 50);
+
+        VectoredReader.read(Arrays.asList(inside, beyond), ByteBuffer::allocate, 100, 1000, this.reader(Integer.MAX_VALUE))
+                .get();
+
+        this.assertData(inside);
+        try {
+            beyond.getData().get();
+            Assert.fail();
+        } catch (final ExecutionException cause) {
+            Assert.assertTrue(cause.getCause() instanceof EOFException);
+        }
+    }
+
+    /**
+     * Failed reads are reported through the ranges of the merged read only.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testReadFailure() throws Exception {
+        final FileRange failing = new FileRange(0, 10);
+        final FileRange succeeding = new FileRange(5000, 10);
+        final BiFunction<ByteBuffer, Long, CompletableFuture<Integer>> reader = this.reader(Integer.MAX_VALUE);
+
+        VectoredReader.read(Arrays.asList(failing, succeeding), ByteBuffer::allocate, 100, 1000, (buffer, position) -> {
+            if (position.longValue() == 0) {
+                final CompletableFuture<Integer> result = new CompletableFuture<Integer>();
+                result.completeExceptionally(new IOException("Failed!"));
+                return result;
+            }
+            return reader.apply(buffer, position);
+        }).get();
+
+        this.assertData(succeeding);
+        try {
+            failing.getData().get();
+            Assert.fail();
+        } catch (final ExecutionException cause) {
+            Assert.assertTrue(cause.getCause() instanceof IOException);
+        }
+    }
+
+    /**
+     * Creates a reader of {@link #content} that records its reads.
+     *
+     * @param maxCount
+     *            The maximum number of bytes a single read returns.
+     * @return The reader.
+     */
+    private BiFunction<ByteBuffer, Long, CompletableFuture<Integer>> reader(final int maxCount) {
+        return (buffer, position) -> {
+            synchronized (this.reads) {
+                this.reads.add(position);
+            }
+            if (position.longValue() >= this.content.length) {
+                return CompletableFuture.completedFuture(Integer.valueOf(-1));
+            }
+            final int count = Math.min(Math.min(maxCount, buffer.remaining()), this.content.length
+                    - position.intValue());
+            buffer.put(this.content, position.intValue(), count);
+            return CompletableFuture.completedFuture(Integer.valueOf(count));
+        };
+    }
+
+    /**
+     * Checks that the given range received the right bytes.
+     *
+     * @param range
+     *            The range to check.
+     * @throws Exception
+     *             If any error occurs.
+     */
+    private void assertData(final FileRange range) throws Exception {
+        final ByteBuffer data = range.getData().get();
+        Assert.assertEquals(range.getLength(), data.remaining());
+        final byte[] actual = new byte[data.remaining()];
+        data.get(actual);
+        Assert.assertArrayEquals(Arrays.copyOfRange(this.content, (int) range.getOffset(), (int) range.getEnd()), actual);
+    }
+}
@@ -0,0 +1,332 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.impl.basic;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares the {@link AsynchronousFileChannel}s of asynchronous reads and writes,
+ * so concurrent transfers on the same file use a single channel. A channel is
+ * opened by the first transfer and closed as soon as the last running
+ * transfer is completed, so no channel outlives its transfers and changes of
+ * the file are never hidden by a stale channel.
+ *
+ * <p>
+ * All channels are completed by an executor that is created on demand and
+ * shut down by {@link #close()} as soon as its last channel is closed.
+ * </p>
+ *
+ */
+public class AsyncChannelRegistry {
+    /**
+     * The logger.
+     *
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncChannelRegistry.class);
+
+    /**
+     * The number of threads of the executor. If this is less than or equal to
+     * zero, the number of available processors is used.
+     *
+     */
+    private final int threads;
+    /**
+     * The open read channels by their files.
+     *
+     */
+    private final Map<java.nio.file.Path, SharedChannel> readers = new HashMap<java.nio.file.Path, SharedChannel>();
+    /**
+     * The open write channels by their files.
+     *
+     */
+    private final Map<java.nio.file.Path, SharedChannel> writers = new HashMap<java.nio.file.Path, SharedChannel>();
+    /**
+     * The executor new channels are opened with. Created lazily.
+     *
+     */
+    private Executor executor;
+
+    /**
+     * Constructor of AsyncChannelRegistry.
+     *
+     * @param threads
+     *            The number of threads of the executor. If this is less than
+     *            or equal to zero, the number of available processors is used.
+     */
+    public AsyncChannelRegistry(final int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Acquires a channel on the given file. If another transfer on the file
+     * with the same mode is running, its channel is shared. Every acquired
+     * channel has to be released by {@link SharedChannel#release()}.
+     *
+     * @param path
+     *            The file to open the channel on.
+     * @param write
+     *            Whether to open the channel for writing or for reading.
+     * @return The acquired channel.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the file does not exist.
+     */
+    public SharedChannel acquire(final java.nio.file.Path path, final boolean write) throws IOException,
+            FileNotFoundException {
+        final Map<java.nio.file.Path, SharedChannel> channels = write ? this.writers : this.readers;
+        final Executor channelExecutor;
+        synchronized (this) {
+            final SharedChannel shared = channels.get(path);
+            if (shared != null) {
+                shared.users++;
+                return shared;
+            }
+            if (this.executor == null) {
+                this.executor = new Executor(this.threads);
+            }
+            channelExecutor = this.executor;
+            channelExecutor.channels++;
+        }
+
+        final AsynchronousFileChannel channel;
+        try {
+            final OpenOption option = write ? StandardOpenOption.WRITE : StandardOpenOption.READ;
+            channel = AsynchronousFileChannel.open(path, Collections.singleton(option), channelExecutor.service);
+        } catch (final NoSuchFileException cause) {
+            this.releaseExecutor(channelExecutor);
+            throw new FileNotFoundException(path.toString());
+        } catch (final IOException | RuntimeException cause) {
+            this.releaseExecutor(channelExecutor);
+            throw cause;
+        }
+
+        final SharedChannel raced;
+        synchronized (this) {
+            raced = channels.get(path);
+            if (raced == null) {
+                final SharedChannel shared = new SharedChannel(path, write, channel, channelExecutor);
+                channels.put(path, shared);
+                return shared;
+            }
+            raced.users++;
+        }
+        // Another transfer opened a channel in the meantime.
+        AsyncChannelRegistry.closeQuietly(channel);
+        this.releaseExecutor(channelExecutor);
+        return raced;
+    }
+
+    /**
+     * Shuts down the executor as soon as all of its channels are closed.
+     * Running transfers are completed. A new executor is created on demand.
+     *
+     */
+    public void close() {
+        final Executor retired;
+        synchronized (this) {
+            retired = this.executor;
+            this.executor = null;
+            if (retired == null) {
+                return;
+            }
+            retired.retired = true;
+        }
+        this.releaseExecutor(retired, 0);
+    }
+
+    /**
+     * Releases one channel of the given executor and shuts it down, if it is
+     * retired and this was its last channel.
+     *
+     * @param channelExecutor
+     *            The executor to release.
+     */
+    private void releaseExecutor(final Executor channelExecutor) {
+        this.releaseExecutor(channelExecutor, 1);
+    }
+
+    /**
+     * Releases the given number of channels of the given executor and shuts
+     * it down, if it is retired and has no channels anymore.
+     *
+     * @param channelExecutor
+     *            The executor to release.
+     * @param channels
+     *            The number of channels to release.
+     */
+    private void releaseExecutor(final Executor channelExecutor, final int channels) {
+        synchronized (this) {
+            channelExecutor.channels -= channels;
+            if (!channelExecutor.retired || channelExecutor.channels > 0) {
+                return;
+            }
+        }
+        channelExecutor.service.shutdown();
+    }
+
+    /**
+     * Closes the given channel and logs failures.
+     *
+     * @param channel
+     *            The channel to close.
+     */
+    private static void closeQuietly(final AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (final IOException cause) {
+            AsyncChannelRegistry.LOGGER.warn("Failed to close an unused asynchronous channel!", cause);
+        }
+    }
+
+    /**
+     * An executor together with the number of its open channels.
+     *
+     */
+    private static class Executor {
+        /**
+         * The executor service.
+         *
+         */
+        private final ExecutorService service;
+        /**
+         * The number of channels that are open or being opened with
+         * {@link #service}.
+         *
+         */
+        private int channels;
+        /**
+         * Whether {@link #service} is shut down as soon as it has no channels
+         * anymore.
+         *
+         */
+        private boolean retired;
+
+        /**
+         * Constructor of Executor.
+         *
+         * @param threads
+         *            The number of threads. If this is less than or equal to
+         *            zero, the number of available processors is used.
+         */
+        public Executor(final int threads) {
+            this.service = Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime()
+                    .availableProcessors(), runnable -> {
+                final Thread thread = new Thread(runnable, "io-facade-async-io");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * A channel that is shared by all running transfers on a file.
+     *
+     */
+    public class SharedChannel {
+        /**
+         * The file the channel is opened on.
+         *
+         */
+        private final java.nio.file.Path path;
+        /**
+         * Whether the channel is opened for writing or for reading.
+         *
+         */
+        private final boolean write;
+        /**
+         * The channel.
+         *
+         */
+        private final AsynchronousFileChannel channel;
+        /**
+         * The executor the channel is completed by.
+         *
+         */
+        private final Executor executor;
+        /**
+         * The number of transfers that acquired and not yet released this
+         * channel.
+         *
+         */
+        private int users = 1;
+
+        /**
+         * Constructor of SharedChannel.
+         *
+         * @param path
+         *            The file the channel is opened on.
+         * @param write
+         *            Whether the channel is opened for writing or for reading.
+         * @param channel
+         *            The channel.
+         * @param executor
+         *            The executor the channel is completed by.
+         */
+        private SharedChannel(final java.nio.file.Path path, final boolean write, final AsynchronousFileChannel channel,
+                final Executor executor) {
+            this.path = path;
+            this.write = write;
+            this.channel = channel;
+            this.executor = executor;
+        }
+
+        /**
+         * Releases this channel. The channel is closed, if no other transfer
+         * uses it anymore.
+         *
+         * @throws IOException
+         *             If closing the channel fails.
+         */
+        public void release() throws IOException {
+            final AsyncChannelRegistry registry = AsyncChannelRegistry.this;
+            synchronized (registry) {
+                if (--this.users > 0) {
+                    return;
+                }
+                (this.write ? registry.writers : registry.readers).remove(this.path, this);
+            }
+            try {
+                this.channel.close();
+            } finally {
+                registry.releaseExecutor(this.executor);
+            }
+        }
+
+        /**
+         *
+         * @return {@link #channel}.
+         */
+        public AsynchronousFileChannel getChannel() {
+            return this.channel;
+        }
+    }
+}
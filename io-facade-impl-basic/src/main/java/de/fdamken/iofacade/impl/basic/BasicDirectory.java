@@ -21,15 +21,22 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 import de.fdamken.iofacade.Directory;
+import de.fdamken.iofacade.DirectoryPage;
 import de.fdamken.iofacade.FileSystem;
 import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.exception.InvalidCursorIOFacadeRuntimeException;
 import de.fdamken.iofacade.util.Assertion;
 import de.fdamken.iofacade.util.DirectoryUtil;
+import de.fdamken.iofacade.util.NegativeLookupCache;
 import de.fdamken.iofacade.util.PathFilter;
+import de.fdamken.iofacade.watch.DirectoryListener;
+import de.fdamken.iofacade.watch.DirectoryWatch;
 
 /**
  * Basic Java IO implementation of {@link Directory}.
@@ -61,16 +68,54 @@ public class BasicDirectory extends BasicPath implements Directory {
     /**
      * {@inheritDoc}
      *
+     * <p>
+     * If enabled, the names of all entries are passed into the negative cache
+     * of the file system (see {@link NegativeLookupCache}).
+     * </p>
+     *
      * @see de.fdamken.iofacade.Directory#listEntries(de.fdamken.iofacade.util.PathFilter)
      */
     @Override
     public List<Path> listEntries(final PathFilter filter) throws IOException, FileNotFoundException {
         final PathConvertingArrayList result = new PathConvertingArrayList(this.getFileSystem());
-        Files.list(this.getPath()).filter(path -> Objects.equals(filter.apply(new BasicPath(this.getFileSystem(), path)), true))
-                .forEach(result::addPath);
+        final NegativeLookupCache negativeCache = this.getNegativeCache();
+        final List<String> names = negativeCache.isEnabled() ? new ArrayList<String>() : null;
+        final long generation = negativeCache.getGeneration();
+        try (Stream<java.nio.file.Path> entries = Files.list(this.getPath())) {
+            entries.forEach(path -> {
+                if (names != null) {
+                    names.add(Objects.toString(path.getFileName()));
+                }
+                if (Objects.equals(filter.apply(new BasicPath(this.getFileSystem(), path)), true)) {
+                    result.addPath(path);
+                }
+            });
+        }
+        if (names != null) {
+            negativeCache.recordListing(this.getAbsolutePath(), names, generation);
+        }
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The underlying {@link java.nio.file.DirectoryStream} is kept open between
+     * two pages.
+     * </p>
+     *
+     * @see de.fdamken.iofacade.Directory#listEntries(de.fdamken.iofacade.util.PathFilter,
+     *      int, java.lang.String)
+     */
+    @Override
+    public DirectoryPage listEntries(final PathFilter filter, final int pageSize, final String cursor) throws IOException,
+            FileNotFoundException, InvalidCursorIOFacadeRuntimeException {
+        Assertion.acquire(this).exists();
+
+        return ((BasicFileSystem) this.getFileSystem()).getDirectoryStreams().nextPage(this, filter, pageSize, cursor);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -80,4 +125,28 @@ public class BasicDirectory extends BasicPath implements Directory {
     public List<Path> listEntriesRecursive(final PathFilter filter) throws IOException, FileNotFoundException {
         return DirectoryUtil.listEntriesRecursive(this, filter);
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * If enabled, the negative cache of the file system (see
+     * {@link NegativeLookupCache}) is kept current from the events.
+     * </p>
+     *
+     * @see de.fdamken.iofacade.Directory#watch(de.fdamken.iofacade.util.PathFilter,
+     *      de.fdamken.iofacade.watch.DirectoryListener)
+     */
+    @Override
+    public DirectoryWatch watch(final PathFilter filter, final DirectoryListener listener) throws IOException,
+            FileNotFoundException {
+        final NegativeLookupCache negativeCache = this.getNegativeCache();
+        if (!negativeCache.isEnabled()) {
+            return BasicDirectoryWatch.start(this, filter, listener);
+        }
+        return BasicDirectoryWatch.start(this, filter, events -> {
+            negativeCache.onEvents(events);
+            listener.onEvents(events);
+        });
+    }
 }
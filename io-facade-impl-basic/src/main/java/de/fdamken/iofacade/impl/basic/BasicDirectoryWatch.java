@@ -0,0 +1,395 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.impl.basic;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fdamken.iofacade.Directory;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+import de.fdamken.iofacade.util.Assertion;
+import de.fdamken.iofacade.util.PathFilter;
+import de.fdamken.iofacade.watch.DirectoryEvent;
+import de.fdamken.iofacade.watch.DirectoryListener;
+import de.fdamken.iofacade.watch.DirectoryWatch;
+import de.fdamken.iofacade.watch.EventCoalescer;
+import de.fdamken.iofacade.watch.TreeSnapshot;
+
+/**
+ * Basic Java IO implementation of {@link DirectoryWatch} that is backed by a
+ * {@link WatchService}.
+ *
+ * <p>
+ * Every directory the {@link PathFilter} steps into is registered, including
+ * directories that are created later on. Events that arrive within a short
+ * window are coalesced into a single notification. If the
+ * {@link WatchService} has lost events (overflow), the file tree is scanned
+ * again and compared with the last known state.
+ * </p>
+ *
+ */
+public class BasicDirectoryWatch implements DirectoryWatch, Runnable {
+    /**
+     * The time in milliseconds to wait for further events before the
+     * listener is notified.
+     *
+     */
+    private static final long COALESCING_WINDOW = 50;
+    /**
+     * The maximum number of coalescing windows before the listener is
+     * notified, even if events are still arriving.
+     *
+     */
+    private static final int MAX_COALESCING_WINDOWS = 20;
+
+    /**
+     * The logger.
+     *
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(BasicDirectoryWatch.class);
+
+    /**
+     * The watched directory.
+     *
+     */
+    private final BasicDirectory directory;
+    /**
+     * The {@link PathFilter} to apply.
+     *
+     */
+    private final PathFilter filter;
+    /**
+     * The listener to notify.
+     *
+     */
+    private final DirectoryListener listener;
+    /**
+     * The underlying watch service.
+     *
+     */
+    private final WatchService watchService;
+    /**
+     * The registered directories by their watch keys.
+     *
+     */
+    private final Map<WatchKey, java.nio.file.Path> keys = new HashMap<WatchKey, java.nio.file.Path>();
+    /**
+     * Collects the events until the listener is notified.
+     *
+     */
+    private final EventCoalescer coalescer = new EventCoalescer();
+    /**
+     * The last known state of the watched file tree.
+     *
+     */
+    private final TreeSnapshot snapshot;
+    /**
+     * Whether this watch is still running.
+     *
+     */
+    private volatile boolean open = true;
+
+    /**
+     * Constructor of BasicDirectoryWatch. Registers the directories, but does
+     * not start watching (see {@link #start(BasicDirectory, PathFilter, DirectoryListener)}).
+     *
+     * @param directory
+     *            The directory to watch.
+     * @param filter
+     *            The {@link PathFilter} to apply.
+     * @param listener
+     *            The listener to notify.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the given directory does not exist.
+     */
+    private BasicDirectoryWatch(final BasicDirectory directory, final PathFilter filter, final DirectoryListener listener)
+            throws IOException, FileNotFoundException {
+        Assertion.acquire(directory).named("directory").notNull().exists();
+        Assertion.acquire(filter).named("filter").notNull();
+        Assertion.acquire(listener).named("listener").notNull();
+
+        this.directory = directory;
+        this.filter = filter;
+        this.listener = listener;
+        this.watchService = directory.getPath().getFileSystem().newWatchService();
+        try {
+            // Register the root first, so no change gets lost while scanning.
+            this.register(directory);
+            this.snapshot = TreeSnapshot.scan(directory, filter);
+            this.registerAll(this.snapshot.getDirectories());
+        } catch (final IOException | RuntimeException | Error cause) {
+            try {
+                this.watchService.close();
+            } catch (final IOException suppressed) {
+                cause.addSuppressed(suppressed);
+            }
+            throw cause;
+        }
+    }
+
+    /**
+     * Starts watching the given directory.
+     *
+     * @param directory
+     *            The directory to watch.
+     * @param filter
+     *            The {@link PathFilter} to apply.
+     * @param listener
+     *            The listener to notify.
+     * @return The started watch.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If the given directory does not exist.
+     */
+    public static BasicDirectoryWatch start(final BasicDirectory directory, final PathFilter filter,
+            final DirectoryListener listener) throws IOException, FileNotFoundException {
+        final BasicDirectoryWatch result = new BasicDirectoryWatch(directory, filter, listener);
+
+        final Thread thread = new Thread(result, "io-facade-watch " + directory.getAbsolutePath());
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+        try {
+            while (this.open) {
+                WatchKey key = this.watchService.take();
+                boolean overflow = false;
+                int windows = 0;
+                while (key != null) {
+                    overflow |= this.process(key);
+                    key = windows++ < BasicDirectoryWatch.MAX_COALESCING_WINDOWS ? this.watchService.poll(
+                            BasicDirectoryWatch.COALESCING_WINDOW, TimeUnit.MILLISECONDS) : null;
+                }
+                if (overflow) {
+                    this.rescan(this.directory);
+                }
+                if (!this.coalescer.isEmpty() && this.open) {
+                    this.notifyListener(this.coalescer.drain());
+                }
+            }
+        } catch (final ClosedWatchServiceException | InterruptedException dummy) {
+            // Watch was closed.
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.watch.DirectoryWatch#isOpen()
+     */
+    @Override
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.watch.DirectoryWatch#close()
+     */
+    @Override
+    public void close() {
+        this.open = false;
+        try {
+            this.watchService.close();
+        } catch (final IOException cause) {
+            BasicDirectoryWatch.LOGGER.warn("Failed to close the watch service!", cause);
+        }
+    }
+
+    /**
+     * Processes all events of the given key.
+     *
+     * @param key
+     *            The signalled key.
+     * @return Whether any events were lost.
+     */
+    private boolean process(final WatchKey key) {
+        final java.nio.file.Path dir = this.keys.get(key);
+        if (dir == null) {
+            key.cancel();
+            return false;
+        }
+
+        boolean overflow = false;
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            final BasicPath path = new BasicPath(this.directory.getFileSystem(), dir.resolve((java.nio.file.Path) event.context()));
+            try {
+                this.handle(path, event.kind());
+            } catch (final IOException | RuntimeException cause) {
+                BasicDirectoryWatch.LOGGER.warn("Failed to handle " + event.kind() + " of " + path.getAbsolutePath() + "!", cause);
+                overflow = true;
+            }
+        }
+        if (!key.reset()) {
+            this.keys.remove(key);
+        }
+        return overflow;
+    }
+
+    /**
+     * Handles a single event.
+     *
+     * @param path
+     *            The path the event is about.
+     * @param kind
+     *            The kind of the event.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private void handle(final BasicPath path, final WatchEvent.Kind<?> kind) throws IOException {
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            this.removeTree(path);
+            return;
+        }
+        final Boolean filterResult = this.filter.apply(path);
+        if (filterResult != null && !filterResult) {
+            return;
+        }
+        final PathAttributes attributes;
+        try {
+            attributes = path.getAttributes();
+        } catch (final FileNotFoundException dummy) {
+            // Deleted in the meantime.
+            this.removeTree(path);
+            return;
+        }
+
+        if (filterResult != null) {
+            final PathAttributes previous = this.snapshot.put(path.getAbsolutePath(), attributes);
+            if (previous == null) {
+                this.coalescer.add(new DirectoryEvent(DirectoryEvent.Kind.CREATED, path));
+            } else if (!previous.equals(attributes)) {
+                this.coalescer.add(new DirectoryEvent(DirectoryEvent.Kind.MODIFIED, path));
+            }
+        }
+        if (attributes.isDirectory() && kind == StandardWatchEventKinds.ENTRY_CREATE && !path.isSymbolicLink()) {
+            // The content may have been created before the registration.
+            this.register(path);
+            this.rescan(path.asDirectory());
+        }
+    }
+
+    /**
+     * Removes the given path and everything below it from the last known state
+     * and adds the corresponding events.
+     *
+     * @param path
+     *            The deleted path.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private void removeTree(final BasicPath path) throws IOException {
+        for (final String removed : this.snapshot.removeTree(path.getAbsolutePath())) {
+            this.coalescer.add(new DirectoryEvent(DirectoryEvent.Kind.DELETED, this.directory.getFileSystem().getPath(removed)));
+        }
+    }
+
+    /**
+     * Scans the given directory again, registers all directories and adds the
+     * changes compared to the last known state.
+     *
+     * @param dir
+     *            The directory to scan.
+     */
+    private void rescan(final Directory dir) {
+        try {
+            final TreeSnapshot subtree = TreeSnapshot.scan(dir, this.filter);
+            this.registerAll(subtree.getDirectories());
+            this.coalescer.addAll(this.snapshot.updateTree(subtree));
+        } catch (final IOException cause) {
+            BasicDirectoryWatch.LOGGER.warn("Failed to scan " + dir.getAbsolutePath() + "!", cause);
+        }
+    }
+
+    /**
+     * Registers all given directories.
+     *
+     * @param directories
+     *            The directories to register.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private void registerAll(final List<Path> directories) throws IOException {
+        for (final Path dir : directories) {
+            this.register(dir);
+        }
+    }
+
+    /**
+     * Registers the given directory. Directories that do not exist anymore are
+     * ignored.
+     *
+     * @param dir
+     *            The directory to register.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private void register(final Path dir) throws IOException {
+        final java.nio.file.Path path = ((BasicPath) dir).getPath();
+        try {
+            this.keys.put(path.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), path);
+        } catch (final NoSuchFileException dummy) {
+            // Deleted in the meantime.
+        }
+    }
+
+    /**
+     * Notifies the listener.
+     *
+     * @param events
+     *            The events to pass.
+     */
+    private void notifyListener(final List<DirectoryEvent> events) {
+        try {
+            this.listener.onEvents(events);
+        } catch (final RuntimeException cause) {
+            BasicDirectoryWatch.LOGGER.error("Listener failed to handle events!", cause);
+        }
+    }
+}
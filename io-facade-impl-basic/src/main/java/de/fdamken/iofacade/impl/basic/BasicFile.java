@@ -21,12 +21,29 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
 
 import de.fdamken.iofacade.File;
+import de.fdamken.iofacade.FileRange;
 import de.fdamken.iofacade.FileSystem;
 import de.fdamken.iofacade.util.Assertion;
+import de.fdamken.iofacade.util.VectoredReader;
 
 /**
  * Basic Java IO implementation of {@link File}.
@@ -55,6 +72,7 @@ public class BasicFile extends BasicPath implements File {
         Assertion.acquire(this).notExists();
 
         Files.createFile(this.getPath());
+        this.getNegativeCache().created(this.getAbsolutePath());
     }
 
     /**
@@ -80,4 +98,382 @@ public class BasicFile extends BasicPath implements File {
 
         return Files.newOutputStream(this.getPath());
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.File#openOutputStream(de.fdamken.iofacade.File.WriteMode)
+     */
+    @Override
+    public OutputStream openOutputStream(final WriteMode mode) throws IOException, FileNotFoundException {
+        Assertion.acquire(mode).named("mode").notNull();
+        Assertion.acquire(this).exists();
+
+        if (mode == WriteMode.APPEND) {
+            return Files.newOutputStream(this.getPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return Files.newOutputStream(this.getPath());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The temporary file is renamed over this file with
+     * {@link StandardCopyOption#ATOMIC_MOVE}. Unlike the default, the
+     * replacement is atomic, so this file is unchanged if it fails.
+     * </p>
+     *
+     * @see de.fdamken.iofacade.File#writeAtomically(de.fdamken.iofacade.File.ContentWriter,
+     *      boolean)
+     */
+    @Override
+    public void writeAtomically(final ContentWriter writer, final boolean syncDirectory) throws IOException {
+        Assertion.acquire(writer).named("writer").notNull();
+
+        final java.nio.file.Path target = this.getPath().toAbsolutePath();
+        final java.nio.file.Path parent = target.getParent();
+        final java.nio.file.Path temp = Files.createFile(parent.resolve("." + target.getFileName() + "."
+                + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp"));
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writer.write(out);
+            }
+            BasicPath.force(temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException | RuntimeException cause) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (final IOException suppressed) {
+                cause.addSuppressed(suppressed);
+            }
+            throw cause;
+        }
+        this.getNegativeCache().created(this.getAbsolutePath());
+        if (syncDirectory) {
+            BasicPath.force(parent);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The returned channel is a native {@link FileChannel}.
+     * </p>
+     *
+     * @see de.fdamken.iofacade.File#openChannel(java.nio.file.OpenOption[])
+     */
+    @Override
+    public FileChannel openChannel(final OpenOption... options) throws IOException, FileNotFoundException {
+        final Set<OpenOption> optionSet = new HashSet<OpenOption>(Arrays.asList(options));
+        final boolean create = optionSet.contains(StandardOpenOption.CREATE)
+                || optionSet.contains(StandardOpenOption.CREATE_NEW);
+        if (!create) {
+            Assertion.acquire(this).exists();
+        }
+
+        final FileChannel result;
+        try {
+            result = FileChannel.open(this.getPath(), optionSet);
+        } catch (final NoSuchFileException cause) {
+            throw new FileNotFoundException(this.getPath().toString());
+        }
+        if (create) {
+            this.getNegativeCache().created(this.getAbsolutePath());
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Every invocation opens and closes its own {@link FileChannel}. To read
+     * a file piece by piece, keep a channel open instead (see
+     * {@link #openChannel(OpenOption...)}).
+     * </p>
+     *
+     * @see de.fdamken.iofacade.File#read(java.nio.ByteBuffer, long)
+     */
+    @Override
+    public int read(final ByteBuffer dst, final long position) throws IOException, FileNotFoundException {
+        try (FileChannel channel = this.openChannel(StandardOpenOption.READ)) {
+            return channel.read(dst, position);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Like {@link #read(ByteBuffer, long)}, this opens a {@link FileChannel}
+     * for this invocation only.
+     * </p>
+     *
+     * @see de.fdamken.iofacade.File#write(java.nio.ByteBuffer, long)
+     */
+    @Override
+    public int write(final ByteBuffer src, final long position) throws IOException, FileNotFoundException {
+        try (FileChannel channel = this.openChannel(StandardOpenOption.WRITE)) {
+            int result = 0;
+            while (src.hasRemaining()) {
+                result += channel.write(src, position + result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The read is performed by an {@link AsynchronousFileChannel} that is
+     * shared with all concurrent transfers on this file (see
+     * {@link AsyncChannelRegistry}) and completed by the executor of the file
+     * system (see {@link BasicFileSystemConfig#getAsyncThreads()}).
+     * </p>
+     *
+     * @see de.fdamken.iofacade.File#readAsync(java.nio.ByteBuffer, long)
+     */
+    @Override
+    public CompletableFuture<Integer> readAsync(final ByteBuffer dst, final long position) {
+        return this.transferAsync(dst, position, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The write is performed by an {@link AsynchronousFileChannel} that is
+     * shared with all concurrent transfers on this file (see
+     * {@link AsyncChannelRegistry}) and completed by the executor of the file
+     * system (see {@link BasicFileSystemConfig#getAsyncThreads()}).
+     * </p>
+     *
+     * @see de.fdamken.iofacade.File#writeAsync(java.nio.ByteBuffer, long)
+     */
+    @Override
+    public CompletableFuture<Integer> writeAsync(final ByteBuffer src, final long position) {
+        return this.transferAsync(src, position, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * All merged ranges are read through a single
+     * {@link AsynchronousFileChannel}.
+     * </p>
+     *
+     * @see de.fdamken.iofacade.File#readVectored(java.util.List,
+     *      java.util.function.IntFunction)
+     */
+    @Override
+    public CompletableFuture<Void> readVectored(final List<FileRange> ranges, final IntFunction<ByteBuffer> allocator) {
+        Assertion.acquire(ranges).named("ranges").notNull();
+
+        final AsyncChannelRegistry.SharedChannel shared;
+        try {
+            shared = this.acquireAsyncChannel(false);
+        } catch (final IOException | RuntimeException cause) {
+            for (final FileRange range : ranges) {
+                range.getData().completeExceptionally(cause);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return VectoredReader.read(ranges, allocator, VectoredReader.DEFAULT_MAX_GAP, VectoredReader.DEFAULT_MAX_MERGED_SIZE,
+                (buffer, position) -> {
+                    final CompletableFuture<Integer> result = new CompletableFuture<Integer>();
+                    final TransferHandler handler = new TransferHandler(shared, buffer, position, false, result, false);
+                    try {
+                        shared.getChannel().read(buffer, position, null, handler);
+                    } catch (final RuntimeException cause) {
+                        handler.failed(cause, null);
+                    }
+                    return result;
+                }).whenComplete((result, error) -> {
+            try {
+                shared.release();
+            } catch (final IOException dummy) {
+                // The channel was only read, so nothing is lost.
+            }
+        });
+    }
+
+    /**
+     * Acquires an {@link AsynchronousFileChannel} on this file from the file
+     * system. It has to be released afterwards.
+     *
+     * @param write
+     *            Whether to write or to read.
+     * @return The acquired channel.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this file does not exist.
+     */
+    private AsyncChannelRegistry.SharedChannel acquireAsyncChannel(final boolean write) throws IOException,
+            FileNotFoundException {
+        return ((BasicFileSystem) this.getFileSystem()).getAsyncChannels().acquire(this.getPath(), write);
+    }
+
+    /**
+     * Acquires an {@link AsynchronousFileChannel} and starts an asynchronous
+     * read or write.
+     *
+     * @param buffer
+     *            The buffer to read into or to write.
+     * @param position
+     *            The position within this file to start at.
+     * @param write
+     *            Whether to write or to read.
+     * @return The future that is completed with the number of bytes read or
+     *         written.
+     */
+    private CompletableFuture<Integer> transferAsync(final ByteBuffer buffer, final long position, final boolean write) {
+        Assertion.acquire(buffer).named("buffer").notNull();
+
+        final CompletableFuture<Integer> result = new CompletableFuture<Integer>();
+        final AsyncChannelRegistry.SharedChannel shared;
+        try {
+            shared = this.acquireAsyncChannel(write);
+        } catch (final IOException | RuntimeException cause) {
+            result.completeExceptionally(cause);
+            return result;
+        }
+
+        final TransferHandler handler = new TransferHandler(shared, buffer, position, write, result, true);
+        try {
+            if (write) {
+                shared.getChannel().write(buffer, position, null, handler);
+            } else {
+                shared.getChannel().read(buffer, position, null, handler);
+            }
+        } catch (final RuntimeException cause) {
+            handler.failed(cause, null);
+        }
+        return result;
+    }
+
+    /**
+     * Completes an asynchronous read or write. Writes are continued until the
+     * whole buffer is written. The channel is released afterwards, if
+     * requested.
+     *
+     */
+    private static class TransferHandler implements CompletionHandler<Integer, Void> {
+        /**
+         * The channel to read from or to write into.
+         *
+         */
+        private final AsyncChannelRegistry.SharedChannel shared;
+        /**
+         * The buffer to read into or to write.
+         *
+         */
+        private final ByteBuffer buffer;
+        /**
+         * The position within the file the transfer started at.
+         *
+         */
+        private final long position;
+        /**
+         * Whether to write or to read.
+         *
+         */
+        private final boolean write;
+        /**
+         * The future to complete.
+         *
+         */
+        private final CompletableFuture<Integer> future;
+        /**
+         * Whether to release the channel as soon as the transfer is completed.
+         *
+         */
+        private final boolean release;
+        /**
+         * The number of bytes written so far.
+         *
+         */
+        private int written;
+
+        /**
+         * Constructor of TransferHandler.
+         *
+         * @param shared
+         *            The channel to read from or to write into.
+         * @param buffer
+         *            The buffer to read into or to write.
+         * @param position
+         *            The position within the file the transfer started at.
+         * @param write
+         *            Whether to write or to read.
+         * @param future
+         *            The future to complete.
+         * @param release
+         *            Whether to release the channel as soon as the transfer is
+         *            completed.
+         */
+        public TransferHandler(final AsyncChannelRegistry.SharedChannel shared, final ByteBuffer buffer,
+                final long position, final boolean write, final CompletableFuture<Integer> future, final boolean release) {
+            this.shared = shared;
+            this.buffer = buffer;
+            this.position = position;
+            this.write = write;
+            this.future = future;
+            this.release = release;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.CompletionHandler#completed(java.lang.Object,
+         *      java.lang.Object)
+         */
+        @Override
+        public void completed(final Integer result, final Void attachment) {
+            if (this.write) {
+                this.written += result;
+                if (this.buffer.hasRemaining()) {
+                    try {
+                        this.shared.getChannel().write(this.buffer, this.position + this.written, null, this);
+                    } catch (final RuntimeException cause) {
+                        this.failed(cause, null);
+                    }
+                    return;
+                }
+            }
+
+            if (this.release) {
+                try {
+                    this.shared.release();
+                } catch (final IOException cause) {
+                    this.future.completeExceptionally(cause);
+                    return;
+                }
+            }
+            this.future.complete(this.write ? this.written : result);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.CompletionHandler#failed(java.lang.Throwable,
+         *      java.lang.Object)
+         */
+        @Override
+        public void failed(final Throwable exc, final Void attachment) {
+            if (this.release) {
+                try {
+                    this.shared.release();
+                } catch (final IOException cause) {
+                    exc.addSuppressed(cause);
+                }
+            }
+            this.future.completeExceptionally(exc);
+        }
+    }
 }
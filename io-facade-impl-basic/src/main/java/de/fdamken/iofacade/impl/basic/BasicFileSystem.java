@@ -19,6 +19,7 @@ package de.fdamken.iofacade.impl.basic;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Paths;
 import java.util.Objects;
 
@@ -28,6 +29,7 @@ import de.fdamken.iofacade.FileSystem;
 import de.fdamken.iofacade.Path;
 import de.fdamken.iofacade.config.Implementation;
 import de.fdamken.iofacade.util.Assertion;
+import de.fdamken.iofacade.util.NegativeLookupCache;
 
 /**
  * Basic Java IO implementation of {@link FileSystem}.
@@ -42,6 +44,21 @@ public class BasicFileSystem extends AbstractFileSystem {
      *
      */
     private final BasicFileSystemConfig config;
+    /**
+     * The open listings of paged listings.
+     *
+     */
+    private final DirectoryStreamRegistry directoryStreams;
+    /**
+     * The cache of paths that are known not to exist.
+     *
+     */
+    private final NegativeLookupCache negativeCache;
+    /**
+     * The channels of asynchronous reads and writes.
+     *
+     */
+    private final AsyncChannelRegistry asyncChannels;
 
     /**
      * Constructor of BasicFileSystem.
@@ -51,6 +68,9 @@ public class BasicFileSystem extends AbstractFileSystem {
      */
     public BasicFileSystem(final BasicFileSystemConfig config) {
         this.config = config;
+        this.directoryStreams = new DirectoryStreamRegistry(this, config.getListingIdleTimeout(), config.getMaxOpenListings());
+        this.negativeCache = new NegativeLookupCache(config.getNegativeCacheTtl(), config.getNegativeCacheSize());
+        this.asyncChannels = new AsyncChannelRegistry(config.getAsyncThreads());
     }
 
     /**
@@ -88,12 +108,24 @@ public class BasicFileSystem extends AbstractFileSystem {
     /**
      * {@inheritDoc}
      *
+     * <p>
+     * Directories are copied recursively relative to open directory handles,
+     * if possible (see {@link SecureTreeOperations}).
+     * </p>
+     *
      * @see de.fdamken.iofacade.AbstractFileSystem#nativeCopy(de.fdamken.iofacade.Path,
      *      de.fdamken.iofacade.Path)
      */
     @Override
     protected void nativeCopy(final Path from, final Path to) throws IOException {
-        Files.copy(this.asBasicPath(from).getPath(), this.asBasicPath(to).getPath());
+        final java.nio.file.Path source = this.asBasicPath(from).getPath();
+        final java.nio.file.Path target = this.asBasicPath(to).getPath();
+        if (Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS)) {
+            SecureTreeOperations.copyTree(source, target);
+        } else {
+            Files.copy(source, target);
+        }
+        this.negativeCache.created(to.getAbsolutePath());
     }
 
     /**
@@ -105,6 +137,39 @@ public class BasicFileSystem extends AbstractFileSystem {
     @Override
     protected void nativeMove(final Path from, final Path to) throws IOException {
         Files.move(this.asBasicPath(from).getPath(), this.asBasicPath(to).getPath());
+        this.negativeCache.deleted(from.getAbsolutePath());
+        this.negativeCache.recordMiss(from.getAbsolutePath());
+        this.negativeCache.created(to.getAbsolutePath());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.FileSystem#getParallelism()
+     */
+    @Override
+    public int getParallelism() {
+        final int parallelism = this.config.getParallelism();
+        return parallelism > 0 ? parallelism : super.getParallelism();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Additionally, the executor that completes asynchronous reads and writes
+     * is shut down as soon as all running transfers are completed (see
+     * {@link AsyncChannelRegistry#close()}) and all open paged listings are
+     * closed (see {@link DirectoryStreamRegistry#close()}).
+     * </p>
+     *
+     * @see de.fdamken.iofacade.FileSystem#close()
+     */
+    @Override
+    public void close() {
+        this.directoryStreams.close();
+        this.asyncChannels.close();
+        super.close();
     }
 
     /**
@@ -131,4 +196,28 @@ public class BasicFileSystem extends AbstractFileSystem {
     public BasicFileSystemConfig getConfig() {
         return this.config;
     }
+
+    /**
+     *
+     * @return {@link #directoryStreams}.
+     */
+    DirectoryStreamRegistry getDirectoryStreams() {
+        return this.directoryStreams;
+    }
+
+    /**
+     *
+     * @return {@link #negativeCache}.
+     */
+    NegativeLookupCache getNegativeCache() {
+        return this.negativeCache;
+    }
+
+    /**
+     *
+     * @return {@link #asyncChannels}.
+     */
+    AsyncChannelRegistry getAsyncChannels() {
+        return this.asyncChannels;
+    }
 }
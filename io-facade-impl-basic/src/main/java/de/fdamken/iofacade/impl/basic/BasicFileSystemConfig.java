@@ -35,4 +35,64 @@ public interface BasicFileSystemConfig extends FileSystemConfig {
     @Default("/")
     @Optional
     String getRoot();
+
+    /**
+     *
+     * @return The number of threads that are used to walk file trees. If this
+     *         is less than or equal to zero, the number of available
+     *         processors is used.
+     */
+    @Default("0")
+    @Optional
+    int getParallelism();
+
+    /**
+     *
+     * @return The time in milliseconds after which the open listing behind
+     *         the cursor of a paged listing is closed, if it is not continued.
+     */
+    @Default("60000")
+    @Optional
+    int getListingIdleTimeout();
+
+    /**
+     *
+     * @return The maximum number of paged listings that are kept open at
+     *         once. If a new listing is started while this many are open, the
+     *         least recently continued one is closed.
+     */
+    @Default("256")
+    @Optional
+    int getMaxOpenListings();
+
+    /**
+     *
+     * @return The time in milliseconds for which paths that are known not to
+     *         exist are answered without asking the file system (see
+     *         {@link de.fdamken.iofacade.util.NegativeLookupCache}). If this is
+     *         less than or equal to zero, nothing is cached.
+     */
+    @Default("0")
+    @Optional
+    int getNegativeCacheTtl();
+
+    /**
+     *
+     * @return The maximum number of missing paths and, separately, of
+     *         directory listings that are remembered by the negative cache.
+     */
+    @Default("10000")
+    @Optional
+    int getNegativeCacheSize();
+
+    /**
+     *
+     * @return The number of threads that complete asynchronous reads and
+     *         writes (see {@link de.fdamken.iofacade.File#readAsync(java.nio.ByteBuffer, long)}).
+     *         If this is less than or equal to zero, the number of available
+     *         processors is used.
+     */
+    @Default("0")
+    @Optional
+    int getAsyncThreads();
 }
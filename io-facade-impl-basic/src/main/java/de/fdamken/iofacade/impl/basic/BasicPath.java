@@ -19,22 +19,40 @@ package de.fdamken.iofacade.impl.basic;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Objects;
 
 import de.fdamken.iofacade.Directory;
 import de.fdamken.iofacade.File;
 import de.fdamken.iofacade.FileSystem;
 import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
 import de.fdamken.iofacade.exception.NoDirectoryIOFacadeRuntimeException;
 import de.fdamken.iofacade.exception.NoFileIOFacadeRuntimeException;
 import de.fdamken.iofacade.util.Assertion;
+import de.fdamken.iofacade.util.NegativeLookupCache;
 
 /**
  * Basic Java IO implementation of {@link Path}.
  *
  */
 public class BasicPath implements Path {
+    /**
+     * The attributes that are read from the <code>unix</code> view, if
+     * available.
+     *
+     */
+    private static final String UNIX_ATTRIBUTES = "unix:isRegularFile,isDirectory,size,lastModifiedTime,dev,ino";
+
     /**
      * The file system.
      *
@@ -76,23 +94,58 @@ public class BasicPath implements Path {
     /**
      * {@inheritDoc}
      *
+     * <p>
+     * Directories are deleted relative to open directory handles, if possible
+     * (see {@link SecureTreeOperations}).
+     * </p>
+     *
      * @see de.fdamken.iofacade.property.Deletable#delete()
      */
     @Override
     public void delete() throws IOException, FileNotFoundException {
         Assertion.acquire(this).exists();
 
-        Files.delete(this.path);
+        if (Files.isDirectory(this.path, LinkOption.NOFOLLOW_LINKS)) {
+            SecureTreeOperations.deleteTree(this.path);
+        } else {
+            Files.delete(this.path);
+        }
+
+        final NegativeLookupCache negativeCache = this.getNegativeCache();
+        if (negativeCache.isEnabled()) {
+            final String absolutePath = this.getAbsolutePath();
+            negativeCache.deleted(absolutePath);
+            negativeCache.recordMiss(absolutePath);
+        }
     }
 
     /**
      * {@inheritDoc}
      *
+     * <p>
+     * If enabled, paths that are known not to exist are answered from the
+     * negative cache of the file system (see {@link NegativeLookupCache}).
+     * </p>
+     *
      * @see de.fdamken.iofacade.property.Existable#exists()
      */
     @Override
     public boolean exists() {
-        return Files.exists(this.path);
+        final NegativeLookupCache negativeCache = this.getNegativeCache();
+        if (!negativeCache.isEnabled()) {
+            return Files.exists(this.path);
+        }
+
+        final String absolutePath = this.getAbsolutePath();
+        if (negativeCache.isKnownMissing(absolutePath)) {
+            return false;
+        }
+        final long generation = negativeCache.getGeneration();
+        final boolean result = Files.exists(this.path);
+        if (!result) {
+            negativeCache.recordMiss(absolutePath, generation);
+        }
+        return result;
     }
 
     /**
@@ -117,6 +170,151 @@ public class BasicPath implements Path {
         return BasicFileSystem.class;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.Path#getName()
+     */
+    @Override
+    public String getName() {
+        return Objects.toString(this.path.getFileName(), "");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.Path#getAbsolutePath()
+     */
+    @Override
+    public String getAbsolutePath() {
+        final java.nio.file.Path root = Paths.get(((BasicFileSystem) this.fileSystem).getConfig().getRoot());
+        final StringBuilder result = new StringBuilder();
+        for (final java.nio.file.Path part : root.relativize(this.path)) {
+            if (part.toString().length() > 0) {
+                result.append('/').append(part);
+            }
+        }
+        return result.length() == 0 ? "/" : result.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.Path#getAttributes()
+     */
+    @Override
+    public PathAttributes getAttributes() throws IOException, FileNotFoundException {
+        return this.readAttributes();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.Path#getLinkAttributes()
+     */
+    @Override
+    public PathAttributes getLinkAttributes() throws IOException, FileNotFoundException {
+        return this.readAttributes(LinkOption.NOFOLLOW_LINKS);
+    }
+
+    /**
+     * Reads the attributes of this path with a single request.
+     *
+     * @param options
+     *            The options that indicate how symbolic links are handled.
+     * @return The current {@link PathAttributes} of this path.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws FileNotFoundException
+     *             If this path does not exist.
+     */
+    private PathAttributes readAttributes(final LinkOption... options) throws IOException, FileNotFoundException {
+        try {
+            if (this.path.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+                final Map<String, Object> attributes = Files.readAttributes(this.path, BasicPath.UNIX_ATTRIBUTES, options);
+                return new PathAttributes(BasicPath.typeOf((Boolean) attributes.get("isRegularFile"),
+                        (Boolean) attributes.get("isDirectory")), (Long) attributes.get("size"),
+                        ((FileTime) attributes.get("lastModifiedTime")).toMillis(), (Long) attributes.get("dev"),
+                        (Long) attributes.get("ino"));
+            }
+            final BasicFileAttributes attributes = Files.readAttributes(this.path, BasicFileAttributes.class, options);
+            return new PathAttributes(BasicPath.typeOf(attributes.isRegularFile(), attributes.isDirectory()), attributes.size(),
+                    attributes.lastModifiedTime().toMillis());
+        } catch (final NoSuchFileException cause) {
+            throw new FileNotFoundException(this.path.toString());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.Path#sync()
+     */
+    @Override
+    public void sync() throws IOException, FileNotFoundException {
+        Assertion.acquire(this).exists();
+
+        BasicPath.force(this.path);
+    }
+
+    /**
+     * Forces all changes of the given file or directory to be written to the
+     * storage device.
+     *
+     * @param path
+     *            The file or directory to force.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    static void force(final java.nio.file.Path path) throws IOException {
+        final boolean directory = Files.isDirectory(path);
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (final IOException cause) {
+            if (directory) {
+                // Some platforms (i.e. Windows) can not open directories. The
+                // entries are durable without forcing the directory, then.
+                return;
+            }
+            throw cause;
+        }
+        try (FileChannel forced = channel) {
+            forced.force(true);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.Path#isSymbolicLink()
+     */
+    @Override
+    public boolean isSymbolicLink() {
+        return Files.isSymbolicLink(this.path);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Paths that do not exist are never the same file as any other path.
+     * </p>
+     *
+     * @see de.fdamken.iofacade.Path#isSameFile(de.fdamken.iofacade.Path)
+     */
+    @Override
+    public boolean isSameFile(final Path other) throws IOException {
+        if (!(other instanceof BasicPath)) {
+            return false;
+        }
+        try {
+            return Files.isSameFile(this.path, ((BasicPath) other).path);
+        } catch (final NoSuchFileException dummy) {
+            return false;
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -158,13 +356,41 @@ public class BasicPath implements Path {
     }
 
     /**
+     * {@inheritDoc}
      *
-     * @return {@link #fileSystem}.
+     * @see de.fdamken.iofacade.property.FileSystemAware#getFileSystem()
      */
+    @Override
     public FileSystem getFileSystem() {
         return this.fileSystem;
     }
 
+    /**
+     * Determines the type of a path.
+     *
+     * @param regularFile
+     *            Whether the path is a regular file.
+     * @param directory
+     *            Whether the path is a directory.
+     * @return The type of the path.
+     */
+    private static PathAttributes.Type typeOf(final boolean regularFile, final boolean directory) {
+        if (regularFile) {
+            return PathAttributes.Type.FILE;
+        } else if (directory) {
+            return PathAttributes.Type.DIRECTORY;
+        }
+        return PathAttributes.Type.OTHER;
+    }
+
+    /**
+     *
+     * @return The cache of paths that are known not to exist.
+     */
+    NegativeLookupCache getNegativeCache() {
+        return ((BasicFileSystem) this.fileSystem).getNegativeCache();
+    }
+
     /**
      *
      * @return {@link #path}.
@@ -0,0 +1,327 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.impl.basic;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fdamken.iofacade.DirectoryPage;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.exception.InvalidCursorIOFacadeRuntimeException;
+import de.fdamken.iofacade.util.PathFilter;
+
+/**
+ * Keeps the {@link DirectoryStream}s of paged listings open between two pages,
+ * so every page costs time and memory proportional to the page size only.
+ *
+ * <p>
+ * Every page hands out a new cursor, so a cursor can only be used once.
+ * Listings that were not continued within the idle timeout are closed. The
+ * number of open listings is bounded: Starting a listing while the maximum
+ * number of listings is open closes the least recently continued one.
+ * </p>
+ *
+ */
+public class DirectoryStreamRegistry {
+    /**
+     * The logger.
+     *
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryStreamRegistry.class);
+    /**
+     * The executor that closes idle listings.
+     *
+     */
+    private static final ScheduledExecutorService EXPIRER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "io-facade-listing-expirer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The file system the listings belong to.
+     *
+     */
+    private final BasicFileSystem fileSystem;
+    /**
+     * The time in milliseconds after which an idle listing is closed.
+     *
+     */
+    private final long idleTimeout;
+    /**
+     * The maximum number of listings that are kept open at once.
+     *
+     */
+    private final int maxOpenListings;
+    /**
+     * The open listings by their current cursors.
+     *
+     */
+    private final Map<String, Listing> listings = new ConcurrentHashMap<String, Listing>();
+
+    /**
+     * Constructor of DirectoryStreamRegistry.
+     *
+     * @param fileSystem
+     *            The file system the listings belong to.
+     * @param idleTimeout
+     *            The time in milliseconds after which an idle listing is
+     *            closed.
+     * @param maxOpenListings
+     *            The maximum number of listings that are kept open at once.
+     */
+    public DirectoryStreamRegistry(final BasicFileSystem fileSystem, final long idleTimeout, final int maxOpenListings) {
+        this.fileSystem = fileSystem;
+        this.idleTimeout = idleTimeout;
+        this.maxOpenListings = Math.max(1, maxOpenListings);
+    }
+
+    /**
+     * Fetches the next page of a listing.
+     *
+     * @param directory
+     *            The listed directory.
+     * @param filter
+     *            The {@link PathFilter} that is used to filter the results.
+     * @param pageSize
+     *            The maximum number of entries of the page.
+     * @param cursor
+     *            The cursor of the previous page or <code>null</code> to start
+     *            a new listing.
+     * @return The page.
+     * @throws IOException
+     *             If any I/O error occurs.
+     * @throws InvalidCursorIOFacadeRuntimeException
+     *             If the given cursor is unknown or has expired.
+     */
+    public DirectoryPage nextPage(final BasicDirectory directory, final PathFilter filter, final int pageSize,
+            final String cursor) throws IOException, InvalidCursorIOFacadeRuntimeException {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive!");
+        }
+
+        final Listing listing;
+        if (cursor == null) {
+            while (this.listings.size() >= this.maxOpenListings) {
+                this.evictLeastRecentlyUsed();
+            }
+            listing = new Listing(directory.getPath(), Files.newDirectoryStream(directory.getPath()));
+            this.scheduleExpiry(listing, this.idleTimeout);
+        } else {
+            listing = this.listings.remove(cursor);
+            if (listing == null) {
+                throw new InvalidCursorIOFacadeRuntimeException(cursor);
+            } else if (!listing.directory.equals(directory.getPath())) {
+                synchronized (listing) {
+                    listing.close();
+                }
+                throw new InvalidCursorIOFacadeRuntimeException(cursor);
+            }
+        }
+
+        synchronized (listing) {
+            if (listing.closed) {
+                throw new InvalidCursorIOFacadeRuntimeException(cursor);
+            }
+            listing.lastAccess = System.currentTimeMillis();
+
+            final List<Path> entries = new ArrayList<Path>(Math.min(pageSize, 1024));
+            try {
+                while (entries.size() < pageSize && listing.iterator.hasNext()) {
+                    final Path path = new BasicPath(this.fileSystem, listing.iterator.next());
+                    final Boolean filterResult = filter.apply(path);
+                    if (filterResult != null && filterResult) {
+                        entries.add(path);
+                    }
+                }
+                if (!listing.iterator.hasNext()) {
+                    listing.close();
+                    return new DirectoryPage(entries, null);
+                }
+            } catch (final DirectoryIteratorException cause) {
+                listing.close();
+                throw cause.getCause();
+            } catch (final RuntimeException cause) {
+                listing.close();
+                throw cause;
+            }
+
+            final String nextCursor = UUID.randomUUID().toString();
+            listing.cursor = nextCursor;
+            this.listings.put(nextCursor, listing);
+            return new DirectoryPage(entries, nextCursor);
+        }
+    }
+
+    /**
+     * Closes all open listings. Their cursors become invalid.
+     *
+     */
+    public void close() {
+        for (final Listing listing : this.listings.values()) {
+            synchronized (listing) {
+                if (listing.cursor != null) {
+                    this.listings.remove(listing.cursor, listing);
+                }
+                listing.close();
+            }
+        }
+    }
+
+    /**
+     *
+     * @return The number of open listings that wait to be continued.
+     */
+    int getOpenListingCount() {
+        return this.listings.size();
+    }
+
+    /**
+     * Closes the open listing that was continued least recently.
+     *
+     */
+    private void evictLeastRecentlyUsed() {
+        Listing eldest = null;
+        for (final Listing listing : this.listings.values()) {
+            if (eldest == null || listing.lastAccess < eldest.lastAccess) {
+                eldest = listing;
+            }
+        }
+        if (eldest == null) {
+            return;
+        }
+        synchronized (eldest) {
+            this.listings.remove(eldest.cursor, eldest);
+            eldest.close();
+        }
+    }
+
+    /**
+     * Schedules the check whether the given listing is idle.
+     *
+     * @param listing
+     *            The listing to check.
+     * @param delay
+     *            The delay of the check in milliseconds.
+     */
+    private void scheduleExpiry(final Listing listing, final long delay) {
+        DirectoryStreamRegistry.EXPIRER.schedule(() -> this.expire(listing), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Closes the given listing, if it is idle. Otherwise, the check is
+     * scheduled again.
+     *
+     * @param listing
+     *            The listing to check.
+     */
+    private void expire(final Listing listing) {
+        synchronized (listing) {
+            if (listing.closed) {
+                return;
+            }
+            final long idle = System.currentTimeMillis() - listing.lastAccess;
+            if (idle < this.idleTimeout) {
+                this.scheduleExpiry(listing, this.idleTimeout - idle);
+            } else {
+                if (listing.cursor != null) {
+                    this.listings.remove(listing.cursor, listing);
+                }
+                listing.close();
+            }
+        }
+    }
+
+    /**
+     * An open listing.
+     *
+     */
+    private static class Listing {
+        /**
+         * The listed directory.
+         *
+         */
+        private final java.nio.file.Path directory;
+        /**
+         * The open stream.
+         *
+         */
+        private final DirectoryStream<java.nio.file.Path> stream;
+        /**
+         * The iterator of {@link #stream}.
+         *
+         */
+        private final Iterator<java.nio.file.Path> iterator;
+        /**
+         * The current cursor of this listing.
+         *
+         */
+        private String cursor;
+        /**
+         * The time of the last access in milliseconds since the epoch.
+         *
+         */
+        private volatile long lastAccess = System.currentTimeMillis();
+        /**
+         * Whether {@link #stream} is closed.
+         *
+         */
+        private boolean closed;
+
+        /**
+         * Constructor of Listing.
+         *
+         * @param directory
+         *            The listed directory.
+         * @param stream
+         *            The open stream.
+         */
+        public Listing(final java.nio.file.Path directory, final DirectoryStream<java.nio.file.Path> stream) {
+            this.directory = directory;
+            this.stream = stream;
+            this.iterator = stream.iterator();
+        }
+
+        /**
+         * Closes the stream.
+         *
+         */
+        public void close() {
+            this.closed = true;
+            try {
+                this.stream.close();
+            } catch (final IOException cause) {
+                DirectoryStreamRegistry.LOGGER.warn("Failed to close the listing of " + this.directory + "!", cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,542 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.impl.basic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Deletes and copies file trees relative to open directory handles.
+ *
+ * <p>
+ * If the platform supports {@link SecureDirectoryStream}s, every entry is
+ * accessed relative to the open handle of its directory (like
+ * <code>openat</code> and friends), so the kernel does not have to resolve the
+ * full path from the root again for every single operation. This also makes
+ * the operations safe against concurrent renames of any ancestor: Once a
+ * directory is open, the operation stays within it. Symbolic links are never
+ * followed. Otherwise, the operations fall back to
+ * {@link Files#walkFileTree(java.nio.file.Path, java.nio.file.FileVisitor)}.
+ * </p>
+ * <p>
+ * Both operations are iterative, but keep one open directory handle per level
+ * (two while copying) until the level is done. To stay well below the usual
+ * limit of open file descriptors per process, sub-trees below
+ * {@link #MAX_DEPTH} levels are handled by the path-based fallback instead
+ * (which is not safe against concurrent renames), so deep file trees are
+ * still deleted or copied completely.
+ * </p>
+ * <p>
+ * <b> NOTE: Only deleting and copying is done relative to open directory
+ * handles. Walking file trees (see
+ * {@link de.fdamken.iofacade.util.DirectoryWalker} and
+ * {@link de.fdamken.iofacade.util.ParallelDirectoryWalker}) still resolves
+ * every path from the root. </b>
+ * </p>
+ *
+ */
+final class SecureTreeOperations {
+    /**
+     * The size of the buffer that is used to copy files that are not backed by
+     * a {@link FileChannel}.
+     *
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * The maximum number of nested directories that are open at once. Deeper
+     * sub-trees are handled by the fallback.
+     *
+     */
+    static final int MAX_DEPTH = 256;
+
+    /**
+     * Constructor of SecureTreeOperations.
+     *
+     */
+    private SecureTreeOperations() {
+        // Nothing to do.
+    }
+
+    /**
+     * Deletes the given directory including all of its contents.
+     *
+     * @param directory
+     *            The directory to delete.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public static void deleteTree(final java.nio.file.Path directory) throws IOException {
+        final java.nio.file.Path parent = directory.toAbsolutePath().getParent();
+        if (parent != null) {
+            try (DirectoryStream<java.nio.file.Path> parentStream = Files.newDirectoryStream(parent)) {
+                final SecureDirectoryStream<java.nio.file.Path> secureParent = SecureTreeOperations.asSecure(parentStream);
+                if (secureParent != null) {
+                    SecureTreeOperations.deleteTree(secureParent, directory.getFileName());
+                    return;
+                }
+            }
+        }
+
+        SecureTreeOperations.walkDeleteTree(directory);
+    }
+
+    /**
+     * Deletes the given directory including all of its contents using
+     * {@link Files#walkFileTree(java.nio.file.Path, java.nio.file.FileVisitor)}.
+     *
+     * @param directory
+     *            The directory to delete.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static void walkDeleteTree(final java.nio.file.Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<java.nio.file.Path>() {
+            /**
+             * {@inheritDoc}
+             *
+             * @see java.nio.file.SimpleFileVisitor#visitFile(java.lang.Object,
+             *      java.nio.file.attribute.BasicFileAttributes)
+             */
+            @Override
+            public FileVisitResult visitFile(final java.nio.file.Path file, final BasicFileAttributes attributes)
+                    throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            /**
+             * {@inheritDoc}
+             *
+             * @see java.nio.file.SimpleFileVisitor#postVisitDirectory(java.lang.Object,
+             *      java.io.IOException)
+             */
+            @Override
+            public FileVisitResult postVisitDirectory(final java.nio.file.Path dir, final IOException cause)
+                    throws IOException {
+                if (cause != null) {
+                    throw cause;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Deletes the directory with the given name relative to the given parent.
+     *
+     * @param parent
+     *            The open parent directory.
+     * @param name
+     *            The name of the directory to delete.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static void deleteTree(final SecureDirectoryStream<java.nio.file.Path> parent, final java.nio.file.Path name)
+            throws IOException {
+        final Deque<Frame> stack = new ArrayDeque<Frame>();
+        try {
+            stack.push(new Frame(parent, name, parent.newDirectoryStream(name, LinkOption.NOFOLLOW_LINKS)));
+            while (!stack.isEmpty()) {
+                final Frame frame = stack.peek();
+                if (frame.entries.hasNext()) {
+                    final java.nio.file.Path entryPath = frame.entries.next();
+                    final java.nio.file.Path entry = entryPath.getFileName();
+                    try {
+                        if (!SecureTreeOperations.readAttributes(frame.stream, entry).isDirectory()) {
+                            frame.stream.deleteFile(entry);
+                        } else if (stack.size() >= SecureTreeOperations.MAX_DEPTH) {
+                            SecureTreeOperations.walkDeleteTree(entryPath);
+                        } else {
+                            stack.push(new Frame(frame.stream, entry, frame.stream.newDirectoryStream(entry,
+                                    LinkOption.NOFOLLOW_LINKS)));
+                        }
+                    } catch (final NoSuchFileException dummy) {
+                        // Deleted concurrently.
+                    }
+                } else {
+                    stack.pop().stream.close();
+                    frame.parent.deleteDirectory(frame.name);
+                }
+            }
+        } finally {
+            SecureTreeOperations.closeAll(stack);
+        }
+    }
+
+    /**
+     * Copies the given directory including all of its contents. Symbolic links
+     * are copied as links. No attributes are copied.
+     *
+     * @param source
+     *            The directory to copy.
+     * @param target
+     *            The destination. Must not exist.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    public static void copyTree(final java.nio.file.Path source, final java.nio.file.Path target) throws IOException {
+        Files.createDirectory(target);
+        try (DirectoryStream<java.nio.file.Path> sourceStream = Files.newDirectoryStream(source);
+                DirectoryStream<java.nio.file.Path> targetStream = Files.newDirectoryStream(target)) {
+            final SecureDirectoryStream<java.nio.file.Path> secureSource = SecureTreeOperations.asSecure(sourceStream);
+            final SecureDirectoryStream<java.nio.file.Path> secureTarget = SecureTreeOperations.asSecure(targetStream);
+            if (secureSource != null && secureTarget != null) {
+                SecureTreeOperations.copyTree(secureSource, secureTarget, target);
+                return;
+            }
+        }
+
+        SecureTreeOperations.walkCopyTree(source, target);
+    }
+
+    /**
+     * Copies the contents of the given directory into the given existing
+     * directory using
+     * {@link Files#walkFileTree(java.nio.file.Path, java.nio.file.FileVisitor)}.
+     *
+     * @param source
+     *            The directory to copy the contents of.
+     * @param target
+     *            The existing destination.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static void walkCopyTree(final java.nio.file.Path source, final java.nio.file.Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<java.nio.file.Path>() {
+            /**
+             * {@inheritDoc}
+             *
+             * @see java.nio.file.SimpleFileVisitor#preVisitDirectory(java.lang.Object,
+             *      java.nio.file.attribute.BasicFileAttributes)
+             */
+            @Override
+            public FileVisitResult preVisitDirectory(final java.nio.file.Path dir, final BasicFileAttributes attributes)
+                    throws IOException {
+                if (!dir.equals(source)) {
+                    Files.createDirectory(target.resolve(source.relativize(dir)));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            /**
+             * {@inheritDoc}
+             *
+             * @see java.nio.file.SimpleFileVisitor#visitFile(java.lang.Object,
+             *      java.nio.file.attribute.BasicFileAttributes)
+             */
+            @Override
+            public FileVisitResult visitFile(final java.nio.file.Path file, final BasicFileAttributes attributes)
+                    throws IOException {
+                Files.copy(file, target.resolve(source.relativize(file)), LinkOption.NOFOLLOW_LINKS);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Copies the contents of the given open source directory into the given
+     * open target directory.
+     *
+     * @param source
+     *            The open source directory.
+     * @param target
+     *            The open target directory.
+     * @param targetPath
+     *            The path of the target directory.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static void copyTree(final SecureDirectoryStream<java.nio.file.Path> source,
+            final SecureDirectoryStream<java.nio.file.Path> target, final java.nio.file.Path targetPath) throws IOException {
+        final Set<OpenOption> readOptions = new HashSet<OpenOption>(Arrays.asList(StandardOpenOption.READ,
+                LinkOption.NOFOLLOW_LINKS));
+        final Set<OpenOption> writeOptions = new HashSet<OpenOption>(Arrays.asList(StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE_NEW));
+        final Deque<CopyFrame> stack = new ArrayDeque<CopyFrame>();
+        stack.push(new CopyFrame(source, target, targetPath));
+        try {
+            while (!stack.isEmpty()) {
+                final CopyFrame frame = stack.peek();
+                if (!frame.entries.hasNext()) {
+                    stack.pop();
+                    if (!stack.isEmpty()) {
+                        // The root streams are owned by the caller.
+                        frame.close();
+                    }
+                    continue;
+                }
+
+                final java.nio.file.Path sourcePath = frame.entries.next();
+                final java.nio.file.Path entry = sourcePath.getFileName();
+                final BasicFileAttributes attributes;
+                try {
+                    attributes = SecureTreeOperations.readAttributes(frame.source, entry);
+                } catch (final NoSuchFileException dummy) {
+                    // Deleted concurrently.
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    final java.nio.file.Path childTargetPath = frame.targetPath.resolve(entry);
+                    Files.createDirectory(childTargetPath);
+                    if (stack.size() >= SecureTreeOperations.MAX_DEPTH) {
+                        SecureTreeOperations.walkCopyTree(sourcePath, childTargetPath);
+                        continue;
+                    }
+                    final SecureDirectoryStream<java.nio.file.Path> childSource = frame.source.newDirectoryStream(entry,
+                            LinkOption.NOFOLLOW_LINKS);
+                    final SecureDirectoryStream<java.nio.file.Path> childTarget;
+                    try {
+                        childTarget = frame.target.newDirectoryStream(entry, LinkOption.NOFOLLOW_LINKS);
+                    } catch (final IOException | RuntimeException cause) {
+                        SecureTreeOperations.closeQuietly(childSource);
+                        throw cause;
+                    }
+                    stack.push(new CopyFrame(childSource, childTarget, childTargetPath));
+                } else if (attributes.isRegularFile()) {
+                    try (SeekableByteChannel in = frame.source.newByteChannel(entry, readOptions);
+                            SeekableByteChannel out = frame.target.newByteChannel(entry, writeOptions)) {
+                        SecureTreeOperations.transfer(in, out);
+                    }
+                } else {
+                    Files.copy(sourcePath, frame.targetPath.resolve(entry), LinkOption.NOFOLLOW_LINKS,
+                            StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        } finally {
+            // The root streams are owned by the caller.
+            while (stack.size() > 1) {
+                stack.pop().close();
+            }
+        }
+    }
+
+    /**
+     * Transfers all bytes from the given input channel into the given output
+     * channel.
+     *
+     * @param in
+     *            The channel to read from.
+     * @param out
+     *            The channel to write to.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static void transfer(final SeekableByteChannel in, final SeekableByteChannel out) throws IOException {
+        if (in instanceof FileChannel) {
+            final FileChannel channel = (FileChannel) in;
+            final long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                final long transferred = channel.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            if (position >= size) {
+                return;
+            }
+            in.position(position);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(SecureTreeOperations.BUFFER_SIZE);
+        while (in.read(buffer) >= 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads the attributes of the entry with the given name without following
+     * symbolic links.
+     *
+     * @param directory
+     *            The open directory that contains the entry.
+     * @param name
+     *            The name of the entry.
+     * @return The attributes.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static BasicFileAttributes readAttributes(final SecureDirectoryStream<java.nio.file.Path> directory,
+            final java.nio.file.Path name) throws IOException {
+        return directory.getFileAttributeView(name, BasicFileAttributeView.class, LinkOption.NOFOLLOW_LINKS).readAttributes();
+    }
+
+    /**
+     * Converts the given stream into a {@link SecureDirectoryStream}, if it is
+     * one.
+     *
+     * @param stream
+     *            The stream to convert.
+     * @return The converted stream or <code>null</code> if the stream is not
+     *         secure.
+     */
+    @SuppressWarnings("unchecked")
+    private static SecureDirectoryStream<java.nio.file.Path> asSecure(final DirectoryStream<java.nio.file.Path> stream) {
+        return stream instanceof SecureDirectoryStream ? (SecureDirectoryStream<java.nio.file.Path>) stream : null;
+    }
+
+    /**
+     * Closes the streams of all given frames, ignoring any errors.
+     *
+     * @param frames
+     *            The frames to close.
+     */
+    private static void closeAll(final Deque<Frame> frames) {
+        for (final Frame frame : frames) {
+            SecureTreeOperations.closeQuietly(frame.stream);
+        }
+    }
+
+    /**
+     * Closes the given stream, ignoring any errors.
+     *
+     * @param stream
+     *            The stream to close.
+     */
+    private static void closeQuietly(final DirectoryStream<java.nio.file.Path> stream) {
+        try {
+            stream.close();
+        } catch (final IOException dummy) {
+            // Ignore.
+        }
+    }
+
+    /**
+     * An open directory on the stack of a delete.
+     *
+     */
+    private static final class Frame {
+        /**
+         * The open parent directory.
+         *
+         */
+        private final SecureDirectoryStream<java.nio.file.Path> parent;
+        /**
+         * The name of the directory within the parent.
+         *
+         */
+        private final java.nio.file.Path name;
+        /**
+         * The open directory.
+         *
+         */
+        private final SecureDirectoryStream<java.nio.file.Path> stream;
+        /**
+         * The entries of the directory that are left.
+         *
+         */
+        private final Iterator<java.nio.file.Path> entries;
+
+        /**
+         * Constructor of Frame.
+         *
+         * @param parent
+         *            The open parent directory.
+         * @param name
+         *            The name of the directory within the parent.
+         * @param stream
+         *            The open directory.
+         */
+        Frame(final SecureDirectoryStream<java.nio.file.Path> parent, final java.nio.file.Path name,
+                final SecureDirectoryStream<java.nio.file.Path> stream) {
+            this.parent = parent;
+            this.name = name;
+            this.stream = stream;
+            this.entries = stream.iterator();
+        }
+    }
+
+    /**
+     * A pair of open directories on the stack of a copy.
+     *
+     */
+    private static final class CopyFrame {
+        /**
+         * The open source directory.
+         *
+         */
+        private final SecureDirectoryStream<java.nio.file.Path> source;
+        /**
+         * The open target directory.
+         *
+         */
+        private final SecureDirectoryStream<java.nio.file.Path> target;
+        /**
+         * The path of the target directory.
+         *
+         */
+        private final java.nio.file.Path targetPath;
+        /**
+         * The entries of the source directory that are left.
+         *
+         */
+        private final Iterator<java.nio.file.Path> entries;
+
+        /**
+         * Constructor of CopyFrame.
+         *
+         * @param source
+         *            The open source directory.
+         * @param target
+         *            The open target directory.
+         * @param targetPath
+         *            The path of the target directory.
+         */
+        CopyFrame(final SecureDirectoryStream<java.nio.file.Path> source, final SecureDirectoryStream<java.nio.file.Path> target,
+                final java.nio.file.Path targetPath) {
+            this.source = source;
+            this.target = target;
+            this.targetPath = targetPath;
+            this.entries = source.iterator();
+        }
+
+        /**
+         * Closes both directories, ignoring any errors.
+         *
+         */
+        void close() {
+            SecureTreeOperations.closeQuietly(this.source);
+            SecureTreeOperations.closeQuietly(this.target);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link MappedRegion} with regions that are larger than a single
+ * {@link ByteBuffer} can address. The files are sparse, so only the accessed
+ * pages take space.
+ *
+ */
+public class MappedRegionTest extends AbstractBasicFileSystemTest {
+    /**
+     * The size of the sparse file (3 GiB plus a bit).
+     *
+     */
+    private static final long FILE_SIZE = 3L * MappedRegion.WINDOW_SIZE + 4096;
+
+    /**
+     * Single bytes at the window boundaries above 2 GiB are written and read
+     * at the right positions.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testSingleBytesAtWindowBoundaries() throws IOException {
+        final File file = this.createSparseFile("/file", MappedRegionTest.FILE_SIZE);
+
+        final long[] positions = new long[] { MappedRegion.WINDOW_SIZE - 1L, MappedRegion.WINDOW_SIZE,
+                2L * MappedRegion.WINDOW_SIZE - 1, 2L * MappedRegion.WINDOW_SIZE, 2L * MappedRegion.WINDOW_SIZE + 1,
+                3L * MappedRegion.WINDOW_SIZE, MappedRegionTest.FILE_SIZE - 1 };
+        try (MappedRegion region = file.map(0, MappedRegionTest.FILE_SIZE, FileChannel.MapMode.READ_WRITE)) {
+            for (int i = 0; i < positions.length; i++) {
+                region.put(positions[i], (byte) (i + 1));
+            }
+            for (int i = 0; i < positions.length; i++) {
+                Assert.assertEquals(i + 1, region.get(positions[i]));
+            }
+            Assert.assertEquals(0, region.get(2L * MappedRegion.WINDOW_SIZE + 2));
+        }
+
+        try (RandomAccessFile raw = new RandomAccessFile(this.resolve("/file").toFile(), "r")) {
+            for (int i = 0; i < positions.length; i++) {
+                raw.seek(positions[i]);
+                Assert.assertEquals(i + 1, raw.read());
+            }
+        }
+    }
+
+    /**
+     * Bulk reads and writes that span a window boundary above 2 GiB see the
+     * same bytes as the file.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testBulkAccessAcrossWindowBoundary() throws IOException {
+        final File file = this.createSparseFile("/file", MappedRegionTest.FILE_SIZE);
+        final long boundary = 2L * MappedRegion.WINDOW_SIZE;
+        final byte[] data = new byte[8192];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + 7);
+        }
+
+        try (MappedRegion region = file.map(0, MappedRegionTest.FILE_SIZE, FileChannel.MapMode.READ_WRITE)) {
+            region.put(boundary - 4096, ByteBuffer.wrap(data));
+
+            final ByteBuffer dst = ByteBuffer.allocate(data.length);
+            Assert.assertEquals(data.length, region.get(boundary - 4096, dst));
+            Assert.assertArrayEquals(data, dst.array());
+
+            // The slice is served by the overlap of the lower window.
+            final ByteBuffer slice = region.slice(boundary - 4096, data.length);
+            final byte[] sliced = new byte[data.length];
+            slice.get(sliced);
+            Assert.assertArrayEquals(data, sliced);
+
+            for (int i = 0; i < data.length; i++) {
+                Assert.assertEquals(data[i], region.get(boundary - 4096 + i));
+            }
+        }
+
+        try (RandomAccessFile raw = new RandomAccessFile(this.resolve("/file").toFile(), "r")) {
+            final byte[] read = new byte[data.length];
+            raw.seek(boundary - 4096);
+            raw.readFully(read);
+            Assert.assertArrayEquals(data, read);
+        }
+    }
+
+    /**
+     * Regions that start above 2 GiB are addressed relative to their offset.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testOffsetAbove2GiB() throws IOException {
+        final File file = this.createSparseFile("/file", MappedRegionTest.FILE_SIZE);
+        final long offset = 2L * MappedRegion.WINDOW_SIZE + 12345;
+        try (RandomAccessFile raw = new RandomAccessFile(this.resolve("/file").toFile(), "rw")) {
+            raw.seek(offset);
+            raw.write(new byte[] { 1, 2, 3 });
+        }
+
+        try (MappedRegion region = file.map(offset, 3, FileChannel.MapMode.READ_ONLY)) {
+            Assert.assertEquals(3, region.getLength());
+            Assert.assertEquals(1, region.get(0));
+            Assert.assertEquals(2, region.get(1));
+            Assert.assertEquals(3, region.get(2));
+            try {
+                region.get(3);
+                Assert.fail();
+            } catch (final IndexOutOfBoundsException dummy) {
+                // Expected.
+            }
+        }
+    }
+
+    /**
+     * Regions that exceed the file are only allowed to be mapped writable.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadOnlyBeyondEnd() throws IOException {
+        final File file = this.createSparseFile("/file", MappedRegionTest.FILE_SIZE);
+
+        file.map(MappedRegionTest.FILE_SIZE - 1, 2, FileChannel.MapMode.READ_ONLY).close();
+    }
+
+    /**
+     * Creates a sparse file of the given size.
+     *
+     * @param path
+     *            The path of the file relative to the root.
+     * @param size
+     *            The size of the file.
+     * @return The created file.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private File createSparseFile(final String path, final long size) throws IOException {
+        final File result = this.createFile(path, "").asFile();
+        try (RandomAccessFile raw = new RandomAccessFile(this.resolve(path).toFile(), "rw")) {
+            raw.setLength(size);
+        }
+        return result;
+    }
+}
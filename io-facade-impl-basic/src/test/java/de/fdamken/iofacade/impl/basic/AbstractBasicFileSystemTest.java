@@ -0,0 +1,152 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.impl.basic;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.config.config.annotation.Default;
+
+/**
+ * Base class of tests that work on a {@link BasicFileSystem} which is rooted in
+ * a temporary directory. The temporary directory is deleted after every test.
+ *
+ */
+public abstract class AbstractBasicFileSystemTest {
+    /**
+     * The temporary directory the file system is rooted in.
+     *
+     */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The configuration values that differ from the defaults, keyed by the name
+     * of the method of {@link BasicFileSystemConfig}.
+     *
+     */
+    private final Map<String, Object> config = new HashMap<String, Object>();
+    /**
+     * The file system under test.
+     *
+     */
+    protected BasicFileSystem fileSystem;
+
+    /**
+     * Creates the file system under test.
+     *
+     */
+    @Before
+    public void setUpFileSystem() {
+        this.config.put("getRoot", this.temporaryFolder.getRoot().getAbsolutePath());
+        this.configure(this.config);
+        this.fileSystem = new BasicFileSystem((BasicFileSystemConfig) Proxy.newProxyInstance(
+                BasicFileSystemConfig.class.getClassLoader(), new Class<?>[] { BasicFileSystemConfig.class },
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(this.config, args);
+                    } else if (this.config.containsKey(method.getName())) {
+                        return this.config.get(method.getName());
+                    }
+                    final String value = method.getAnnotation(Default.class).value();
+                    if (method.getReturnType() == int.class) {
+                        return Integer.valueOf(value);
+                    } else if (method.getReturnType() == boolean.class) {
+                        return Boolean.valueOf(value);
+                    }
+                    return value;
+                }));
+    }
+
+    /**
+     * Releases the resources of the file system under test.
+     *
+     */
+    @After
+    public void tearDownFileSystem() {
+        this.fileSystem.close();
+    }
+
+    /**
+     * Invoked before the file system is created to change the configuration.
+     * Does nothing by default.
+     *
+     * @param config
+     *            The configuration values that differ from the defaults, keyed
+     *            by the name of the method of {@link BasicFileSystemConfig}.
+     */
+    protected void configure(final Map<String, Object> config) {
+        // Nothing to do.
+    }
+
+    /**
+     * Resolves the given path in the temporary directory.
+     *
+     * @param path
+     *            The path relative to the root of the file system.
+     * @return The native path.
+     */
+    protected java.nio.file.Path resolve(final String path) {
+        return this.temporaryFolder.getRoot().toPath().resolve(path.replaceFirst("^/+", ""));
+    }
+
+    /**
+     * Creates a file with the given content (and all missing parent
+     * directories) without passing through the file system under test.
+     *
+     * @param path
+     *            The path of the file relative to the root of the file system.
+     * @param content
+     *            The content of the file.
+     * @return The created file.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    protected Path createFile(final String path, final String content) throws IOException {
+        final java.nio.file.Path file = this.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return this.fileSystem.getPath(path);
+    }
+
+    /**
+     * Creates a directory (and all missing parent directories) without passing
+     * through the file system under test.
+     *
+     * @param path
+     *            The path of the directory relative to the root of the file
+     *            system.
+     * @return The created directory.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    protected Path createDirectory(final String path) throws IOException {
+        Files.createDirectories(this.resolve(path));
+        return this.fileSystem.getPath(path);
+    }
+}
@@ -0,0 +1,199 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.impl.basic;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.File;
+import de.fdamken.iofacade.FileRange;
+
+/**
+ * Tests of the asynchronous reads and writes of {@link BasicFile}.
+ *
+ */
+public class BasicFileAsyncTest extends AbstractBasicFileSystemTest {
+    /**
+     * Written bytes are read back.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final File file = this.createFile("/file", "0123456789").asFile();
+
+        final ByteBuffer src = ByteBuffer.wrap("abc".getBytes(StandardCharsets.US_ASCII));
+        Assert.assertEquals(3, file.writeAsync(src, 4).get().intValue());
+
+        final ByteBuffer dst = ByteBuffer.allocate(16);
+        Assert.assertEquals(10, file.readAsync(dst, 0).get().intValue());
+        Assert.assertEquals("0123abc789", new String(dst.array(), 0, dst.position(), StandardCharsets.US_ASCII));
+        Assert.assertEquals(-1, file.readAsync(ByteBuffer.allocate(1), 10).get().intValue());
+    }
+
+    /**
+     * Concurrent reads of the same file share a channel and all receive their
+     * data.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testConcurrentReads() throws Exception {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append((char) ('a' + i % 26));
+        }
+        final File file = this.createFile("/file", content.toString()).asFile();
+
+        final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+        final List<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>();
+        for (int i = 0; i < 100; i++) {
+            final ByteBuffer buffer = ByteBuffer.allocate(10);
+            buffers.add(buffer);
+            futures.add(file.readAsync(buffer, i * 10));
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(10, futures.get(i).get().intValue());
+            Assert.assertEquals(content.substring(i * 10, i * 10 + 10), new String(buffers.get(i).array(),
+                    StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Transfers on missing files fail with a {@link FileNotFoundException}.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testMissingFile() throws Exception {
+        final File file = this.fileSystem.getPath("/missing").asFile();
+
+        try {
+            file.readAsync(ByteBuffer.allocate(1), 0).get();
+            Assert.fail();
+        } catch (final ExecutionException cause) {
+            Assert.assertTrue(cause.getCause() instanceof FileNotFoundException);
+        }
+        try {
+            file.writeAsync(ByteBuffer.allocate(1), 0).get();
+            Assert.fail();
+        } catch (final ExecutionException cause) {
+            Assert.assertTrue(cause.getCause() instanceof FileNotFoundException);
+        }
+    }
+
+    /**
+     * The file system stays usable after it was closed.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testUsableAfterClose() throws Exception {
+        final File file = this.createFile("/file", "abc").asFile();
+        Assert.assertEquals(3, file.readAsync(ByteBuffer.allocate(3), 0).get().intValue());
+
+        this.fileSystem.close();
+
+        Assert.assertEquals(3, file.readAsync(ByteBuffer.allocate(3), 0).get().intValue());
+    }
+
+    /**
+     * Closing the file system while transfers are running lets them complete.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testCloseWhileRunning() throws Exception {
+        final File file = this.createFile("/file", "").asFile();
+        final List<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(file.writeAsync(ByteBuffer.allocate(4096), i * 4096L));
+        }
+
+        this.fileSystem.close();
+
+        for (final CompletableFuture<Integer> future : futures) {
+            Assert.assertEquals(4096, future.get().intValue());
+        }
+        Assert.assertEquals(50 * 4096L, Files.size(this.resolve("/file")));
+    }
+
+    /**
+     * Vectored reads deliver every range, ranges beyond the end fail and
+     * missing files fail all ranges.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testReadVectored() throws Exception {
+        final File file = this.createFile("/file", "0123456789abcdefghij").asFile();
+        final FileRange first = new FileRange(2, 3);
+        final FileRange second = new FileRange(15, 5);
+        final FileRange beyond = new FileRange(18, 5);
+
+        file.readVectored(Arrays.asList(second, beyond, first), ByteBuffer::allocate).get();
+
+        Assert.assertEquals("234", BasicFileAsyncTest.toString(first.getData().get()));
+        Assert.assertEquals("fghij", BasicFileAsyncTest.toString(second.getData().get()));
+        try {
+            beyond.getData().get();
+            Assert.fail();
+        } catch (final ExecutionException cause) {
+            Assert.assertTrue(cause.getCause() instanceof EOFException);
+        }
+
+        final FileRange missing = new FileRange(0, 1);
+        this.fileSystem.getPath("/missing").asFile().readVectored(Arrays.asList(missing), ByteBuffer::allocate).get();
+        try {
+            missing.getData().get();
+            Assert.fail();
+        } catch (final ExecutionException cause) {
+            Assert.assertTrue(cause.getCause() instanceof FileNotFoundException);
+        }
+    }
+
+    /**
+     * Converts the remaining bytes of the given buffer into a string.
+     *
+     * @param buffer
+     *            The buffer.
+     * @return The string.
+     */
+    private static String toString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,175 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.impl.basic;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.File;
+import de.fdamken.iofacade.util.AtomicWriteBatch;
+
+/**
+ * Tests of {@link BasicFile#writeAtomically(File.ContentWriter, boolean)}.
+ *
+ */
+public class BasicFileAtomicWriteTest extends AbstractBasicFileSystemTest {
+    /**
+     * The content of existing files is replaced and missing files are
+     * created.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testReplaceAndCreate() throws IOException {
+        this.createDirectory("/dir");
+        final File existing = this.createFile("/dir/existing", "old").asFile();
+        final File missing = this.fileSystem.getPath("/dir/missing").asFile();
+
+        existing.writeAtomically(out -> out.write("new".getBytes(StandardCharsets.US_ASCII)));
+        missing.writeAtomically(out -> out.write("created".getBytes(StandardCharsets.US_ASCII)));
+
+        Assert.assertEquals("new", this.read("/dir/existing"));
+        Assert.assertEquals("created", this.read("/dir/missing"));
+        Assert.assertEquals(2, this.countEntries("/dir"));
+    }
+
+    /**
+     * A failing writer leaves the file and no temporary file behind.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testFailingWriter() throws IOException {
+        this.createDirectory("/dir");
+        final File file = this.createFile("/dir/file", "old").asFile();
+
+        try {
+            file.writeAtomically(out -> {
+                out.write("partial".getBytes(StandardCharsets.US_ASCII));
+                throw new IOException("Failed!");
+            });
+            Assert.fail();
+        } catch (final IOException dummy) {
+            // Expected.
+        }
+
+        Assert.assertEquals("old", this.read("/dir/file"));
+        Assert.assertEquals(1, this.countEntries("/dir"));
+    }
+
+    /**
+     * A writer that throws an unchecked exception leaves the file and no
+     * temporary file behind.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testFailingWriterUnchecked() throws IOException {
+        this.createDirectory("/dir");
+        final File file = this.createFile("/dir/file", "old").asFile();
+
+        try {
+            file.writeAtomically(out -> {
+                throw new IllegalStateException("Failed!");
+            });
+            Assert.fail();
+        } catch (final IllegalStateException dummy) {
+            // Expected.
+        }
+
+        Assert.assertEquals("old", this.read("/dir/file"));
+        Assert.assertEquals(1, this.countEntries("/dir"));
+    }
+
+    /**
+     * A failing rename leaves the target and no temporary file behind.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testFailingMove() throws IOException {
+        this.createFile("/dir/target/child", "old");
+        final File target = this.fileSystem.getPath("/dir/target").asFile();
+
+        try {
+            target.writeAtomically(out -> out.write("new".getBytes(StandardCharsets.US_ASCII)));
+            Assert.fail();
+        } catch (final IOException dummy) {
+            // Expected.
+        }
+
+        Assert.assertEquals("old", this.read("/dir/target/child"));
+        Assert.assertEquals(1, this.countEntries("/dir"));
+    }
+
+    /**
+     * Batched replacements are visible immediately and the batch commits.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testBatch() throws IOException {
+        final AtomicWriteBatch batch = new AtomicWriteBatch();
+        this.createDirectory("/dir");
+
+        batch.write(this.fileSystem.getPath("/dir/a").asFile(), out -> out.write('a'));
+        batch.write(this.fileSystem.getPath("/dir/b").asFile(), out -> out.write('b'));
+        Assert.assertEquals("a", this.read("/dir/a"));
+        Assert.assertEquals("b", this.read("/dir/b"));
+
+        batch.commit();
+    }
+
+    /**
+     * Reads the given file.
+     *
+     * @param path
+     *            The path of the file relative to the root.
+     * @return The content of the file.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private String read(final String path) throws IOException {
+        return new String(Files.readAllBytes(this.resolve(path)), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Counts the entries of the given directory.
+     *
+     * @param path
+     *            The path of the directory relative to the root.
+     * @return The number of entries.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private long countEntries(final String path) throws IOException {
+        try (Stream<java.nio.file.Path> entries = Files.list(this.resolve(path))) {
+            return entries.count();
+        }
+    }
+}
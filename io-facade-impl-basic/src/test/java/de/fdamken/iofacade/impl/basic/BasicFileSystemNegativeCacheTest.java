@@ -0,0 +1,110 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.impl.basic;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests of the negative cache of {@link BasicFileSystem}.
+ *
+ */
+public class BasicFileSystemNegativeCacheTest extends AbstractBasicFileSystemTest {
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest#configure(java.util.Map)
+     */
+    @Override
+    protected void configure(final Map<String, Object> config) {
+        config.put("getNegativeCacheTtl", Integer.valueOf(600000));
+    }
+
+    /**
+     * Probed misses below the destination of a directory move are forgotten.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testMoveInvalidatesDescendants() throws IOException {
+        this.createFile("/a/x", "");
+        Assert.assertFalse(this.fileSystem.getPath("/b/x").exists());
+
+        this.fileSystem.move(this.fileSystem.getPath("/a"), this.fileSystem.getPath("/b"));
+
+        Assert.assertTrue(this.fileSystem.getPath("/b/x").exists());
+        Assert.assertFalse(this.fileSystem.getPath("/a/x").exists());
+        Assert.assertFalse(this.fileSystem.getPath("/a").exists());
+    }
+
+    /**
+     * Probed misses below the destination of a recursive copy are forgotten.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testCopyInvalidatesDescendants() throws IOException {
+        this.createFile("/a/sub/x", "");
+        Assert.assertFalse(this.fileSystem.getPath("/b/sub/x").exists());
+        Assert.assertFalse(this.fileSystem.getPath("/b/sub").exists());
+
+        this.fileSystem.copy(this.fileSystem.getPath("/a"), this.fileSystem.getPath("/b"));
+
+        Assert.assertTrue(this.fileSystem.getPath("/b/sub").exists());
+        Assert.assertTrue(this.fileSystem.getPath("/b/sub/x").exists());
+    }
+
+    /**
+     * Listed directories answer misses of their entries until an entry is
+     * created through the facade.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testCreateInvalidatesListing() throws IOException {
+        this.createFile("/dir/a", "");
+        this.fileSystem.getPath("/dir").asDirectory().listEntries();
+        Assert.assertFalse(this.fileSystem.getPath("/dir/b").exists());
+
+        this.fileSystem.getPath("/dir/b").asFile().create();
+
+        Assert.assertTrue(this.fileSystem.getPath("/dir/b").exists());
+    }
+
+    /**
+     * Deleted paths are known to be missing.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testDelete() throws IOException {
+        this.createFile("/dir/a", "");
+
+        this.fileSystem.getPath("/dir").delete();
+
+        Assert.assertFalse(this.fileSystem.getPath("/dir").exists());
+        Assert.assertFalse(this.fileSystem.getPath("/dir/a").exists());
+    }
+}
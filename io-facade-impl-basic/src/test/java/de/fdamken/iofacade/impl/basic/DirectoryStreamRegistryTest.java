@@ -0,0 +1,205 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.impl.basic;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.Directory;
+import de.fdamken.iofacade.DirectoryPage;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.exception.InvalidCursorIOFacadeRuntimeException;
+
+/**
+ * Tests of {@link DirectoryStreamRegistry}.
+ *
+ */
+public class DirectoryStreamRegistryTest extends AbstractBasicFileSystemTest {
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest#configure(java.util.Map)
+     */
+    @Override
+    protected void configure(final Map<String, Object> config) {
+        config.put("getListingIdleTimeout", 200);
+        config.put("getMaxOpenListings", 2);
+    }
+
+    /**
+     * Paging through a listing returns every accepted entry exactly once and
+     * closes the listing after the last page.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testPagingToCompletion() throws IOException {
+        for (int i = 0; i < 25; i++) {
+            this.createFile("/dir/file" + i, "");
+        }
+        this.createFile("/dir/skipped", "");
+        final Directory directory = this.fileSystem.getPath("/dir").asDirectory();
+
+        final Set<String> names = new HashSet<String>();
+        int pages = 0;
+        String cursor = null;
+        do {
+            final DirectoryPage page = directory.listEntries(path -> path.getName().startsWith("file"), 10, cursor);
+            for (final Path path : page.getEntries()) {
+                Assert.assertTrue(path.getAbsolutePath(), names.add(path.getName()));
+            }
+            cursor = page.getCursor();
+            pages++;
+        } while (cursor != null);
+
+        Assert.assertEquals(25, names.size());
+        Assert.assertTrue(pages >= 3);
+        Assert.assertEquals(0, this.getRegistry().getOpenListingCount());
+    }
+
+    /**
+     * Unknown cursors, used cursors and cursors of other directories are
+     * rejected. A cursor that is passed with another directory closes its
+     * listing.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testInvalidCursor() throws IOException {
+        this.createFile("/dir/a", "");
+        this.createFile("/dir/b", "");
+        this.createFile("/dir/c", "");
+        this.createDirectory("/other");
+        final Directory directory = this.fileSystem.getPath("/dir").asDirectory();
+
+        this.assertInvalidCursor(directory, "unknown");
+
+        final String cursor = directory.listEntries(path -> true, 1, null).getCursor();
+        Assert.assertNotNull(cursor);
+        Assert.assertNotNull(directory.listEntries(path -> true, 1, cursor).getCursor());
+        this.assertInvalidCursor(directory, cursor);
+        this.getRegistry().close();
+
+        final String otherCursor = directory.listEntries(path -> true, 1, null).getCursor();
+        this.assertInvalidCursor(this.fileSystem.getPath("/other").asDirectory(), otherCursor);
+        Assert.assertEquals(0, this.getRegistry().getOpenListingCount());
+        this.assertInvalidCursor(directory, otherCursor);
+    }
+
+    /**
+     * Listings that are not continued within the idle timeout are closed.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testExpiry() throws Exception {
+        this.createFile("/dir/a", "");
+        this.createFile("/dir/b", "");
+        final Directory directory = this.fileSystem.getPath("/dir").asDirectory();
+
+        final String cursor = directory.listEntries(path -> true, 1, null).getCursor();
+        Assert.assertEquals(1, this.getRegistry().getOpenListingCount());
+
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (this.getRegistry().getOpenListingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        Assert.assertEquals(0, this.getRegistry().getOpenListingCount());
+        this.assertInvalidCursor(directory, cursor);
+    }
+
+    /**
+     * Starting a listing while the maximum number of listings is open closes
+     * the least recently continued one.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testMaxOpenListings() throws Exception {
+        this.createFile("/dir/a", "");
+        this.createFile("/dir/b", "");
+        final Directory directory = this.fileSystem.getPath("/dir").asDirectory();
+
+        final String first = directory.listEntries(path -> true, 1, null).getCursor();
+        Thread.sleep(5);
+        final String second = directory.listEntries(path -> true, 1, null).getCursor();
+        Thread.sleep(5);
+        final String third = directory.listEntries(path -> true, 1, null).getCursor();
+
+        Assert.assertEquals(2, this.getRegistry().getOpenListingCount());
+        this.assertInvalidCursor(directory, first);
+        Assert.assertNull(directory.listEntries(path -> true, 1, second).getCursor());
+        Assert.assertNull(directory.listEntries(path -> true, 1, third).getCursor());
+    }
+
+    /**
+     * Closing the file system closes all open listings.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testCloseClosesListings() throws IOException {
+        this.createFile("/dir/a", "");
+        this.createFile("/dir/b", "");
+        final Directory directory = this.fileSystem.getPath("/dir").asDirectory();
+        final String cursor = directory.listEntries(path -> true, 1, null).getCursor();
+
+        this.fileSystem.close();
+
+        Assert.assertEquals(0, this.getRegistry().getOpenListingCount());
+        this.assertInvalidCursor(directory, cursor);
+    }
+
+    /**
+     * Asserts that the given cursor is rejected for the given directory.
+     *
+     * @param directory
+     *            The directory to continue the listing of.
+     * @param cursor
+     *            The cursor to pass.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private void assertInvalidCursor(final Directory directory, final String cursor) throws IOException {
+        try {
+            directory.listEntries(path -> true, 1, cursor);
+            Assert.fail(cursor);
+        } catch (final InvalidCursorIOFacadeRuntimeException dummy) {
+            // Expected.
+        }
+    }
+
+    /**
+     *
+     * @return The registry of the file system under test.
+     */
+    private DirectoryStreamRegistry getRegistry() {
+        return this.fileSystem.getDirectoryStreams();
+    }
+}
@@ -0,0 +1,122 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.impl.basic;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests of {@link SecureTreeOperations}.
+ *
+ */
+public class SecureTreeOperationsTest extends AbstractBasicFileSystemTest {
+    /**
+     * Deleting a tree removes everything, but does not follow links.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testDeleteTreeDoesNotFollowLinks() throws IOException {
+        this.createFile("/tree/a/b/file", "");
+        this.createFile("/outside/file", "");
+        Files.createSymbolicLink(this.resolve("tree/a/link"), this.resolve("outside"));
+
+        SecureTreeOperations.deleteTree(this.resolve("tree"));
+
+        Assert.assertFalse(Files.exists(this.resolve("tree")));
+        Assert.assertTrue(Files.exists(this.resolve("outside/file")));
+    }
+
+    /**
+     * Copying a tree copies all contents and copies links as links.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testCopyTree() throws IOException {
+        this.createFile("/tree/a/b/file", "content");
+        Files.createSymbolicLink(this.resolve("tree/a/link"), this.resolve("tree/a/b"));
+
+        SecureTreeOperations.copyTree(this.resolve("tree"), this.resolve("copy"));
+
+        Assert.assertEquals("content", new String(Files.readAllBytes(this.resolve("copy/a/b/file")), StandardCharsets.UTF_8));
+        Assert.assertTrue(Files.isSymbolicLink(this.resolve("copy/a/link")));
+    }
+
+    /**
+     * Trees that are deeper than the maximum depth are deleted completely,
+     * with the sub-trees below the maximum depth deleted by the fallback.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testDeleteTreeBelowMaxDepth() throws IOException {
+        final String deepest = SecureTreeOperationsTest.deepPath(SecureTreeOperations.MAX_DEPTH + 4);
+        this.createFile(deepest + "/file", "");
+        this.createFile("/outside/file", "");
+        Files.createSymbolicLink(this.resolve(deepest.substring(1) + "/link"), this.resolve("outside"));
+
+        SecureTreeOperations.deleteTree(this.resolve("tree"));
+
+        Assert.assertFalse(Files.exists(this.resolve("tree")));
+        Assert.assertTrue(Files.exists(this.resolve("outside/file")));
+    }
+
+    /**
+     * Trees that are deeper than the maximum depth are copied completely, with
+     * the sub-trees below the maximum depth copied by the fallback.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testCopyTreeBelowMaxDepth() throws IOException {
+        final String deepest = SecureTreeOperationsTest.deepPath(SecureTreeOperations.MAX_DEPTH + 4);
+        this.createFile(deepest + "/file", "content");
+        this.createFile("/tree/file", "top");
+
+        SecureTreeOperations.copyTree(this.resolve("tree"), this.resolve("copy"));
+
+        Assert.assertEquals("top", new String(Files.readAllBytes(this.resolve("copy/file")), StandardCharsets.UTF_8));
+        Assert.assertEquals("content", new String(Files.readAllBytes(this.resolve("copy" + deepest.substring("/tree".length())
+                + "/file")), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Builds the path of a directory below <code>/tree</code> with the given
+     * depth.
+     *
+     * @param depth
+     *            The number of nested directories below <code>/tree</code>.
+     * @return The absolute path of the deepest directory.
+     */
+    private static String deepPath(final int depth) {
+        final StringBuilder path = new StringBuilder("/tree");
+        for (int i = 0; i < depth; i++) {
+            path.append("/d");
+        }
+        return path.toString();
+    }
+}
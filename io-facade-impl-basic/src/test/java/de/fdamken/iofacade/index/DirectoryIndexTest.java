@@ -0,0 +1,154 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.PathAttributes;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link DirectoryIndex}.
+ *
+ */
+public class DirectoryIndexTest extends AbstractBasicFileSystemTest {
+    /**
+     * Indexed entries keep their types across reopening the index file.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testTypesArePersisted() throws IOException {
+        this.createFile("/data/dir/file", "content");
+        final java.nio.file.Path indexFile = this.resolve("data.idx");
+
+        DirectoryIndex.open(this.fileSystem.getPath("/data").asDirectory(), indexFile).close();
+        try (final DirectoryIndex index = DirectoryIndex.open(this.fileSystem.getPath("/data").asDirectory(), indexFile)) {
+            Assert.assertEquals(2, index.size());
+            Assert.assertEquals(PathAttributes.Type.DIRECTORY, index.lookup("/data/dir").getAttributes().getType());
+            final PathAttributes file = index.lookup("/data/dir/file").getAttributes();
+            Assert.assertEquals(PathAttributes.Type.FILE, file.getType());
+            Assert.assertEquals(7, file.getSize());
+        }
+    }
+
+    /**
+     * An index file of an older format version is not read, but rebuilt.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testOldVersionIsRebuilt() throws IOException {
+        this.createFile("/data/file", "");
+        final java.nio.file.Path indexFile = this.resolve("data.idx");
+        final ByteBuffer header = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x494F4658).putInt(1).putInt(1).putInt(0).putInt(0);
+        Files.write(indexFile, header.array());
+
+        try (final DirectoryIndex index = DirectoryIndex.open(this.fileSystem.getPath("/data").asDirectory(), indexFile)) {
+            Assert.assertEquals(1, index.size());
+            Assert.assertNotNull(index.lookup("/data/file"));
+        }
+    }
+
+    /**
+     * A directory that was modified right before it was indexed is listed
+     * again on refresh, even if its modification time has not changed.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testRefreshListsRecentlyModifiedDirectories() throws IOException {
+        this.createFile("/data/dir/first", "");
+        final java.nio.file.Path dir = this.resolve("data/dir");
+        final FileTime lastModified = Files.getLastModifiedTime(dir);
+
+        try (final DirectoryIndex index = DirectoryIndex.open(this.fileSystem.getPath("/data").asDirectory(),
+                this.resolve("data.idx"))) {
+            Files.createFile(dir.resolve("second"));
+            Files.setLastModifiedTime(dir, lastModified);
+
+            index.refresh();
+
+            Assert.assertNotNull(index.lookup("/data/dir/second"));
+        }
+    }
+
+    /**
+     * A directory whose modification time has changed is listed again on
+     * refresh.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testRefreshListsChangedDirectories() throws IOException {
+        this.createFile("/data/dir/first", "");
+        final java.nio.file.Path dir = this.resolve("data/dir");
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(System.currentTimeMillis() - 3600000));
+
+        try (final DirectoryIndex index = DirectoryIndex.open(this.fileSystem.getPath("/data").asDirectory(),
+                this.resolve("data.idx"))) {
+            Files.delete(dir.resolve("first"));
+            Files.createFile(dir.resolve("second"));
+
+            index.refresh();
+
+            Assert.assertNull(index.lookup("/data/dir/first"));
+            Assert.assertNotNull(index.lookup("/data/dir/second"));
+        }
+    }
+
+    /**
+     * Symbolic links are stored as links and not followed, so a link to an
+     * ancestor does not lead to a loop.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testLinksAreNotFollowed() throws IOException {
+        this.createFile("/data/dir/file", "");
+        Files.createSymbolicLink(this.resolve("data/dir/loop"), this.resolve("data/dir"));
+        Files.createSymbolicLink(this.resolve("data/self"), this.resolve("data"));
+        final java.nio.file.Path indexFile = this.resolve("data.idx");
+
+        try (final DirectoryIndex index = DirectoryIndex.open(this.fileSystem.getPath("/data").asDirectory(), indexFile)) {
+            Assert.assertEquals(4, index.size());
+            Assert.assertEquals(PathAttributes.Type.OTHER, index.lookup("/data/dir/loop").getAttributes().getType());
+            Assert.assertEquals(PathAttributes.Type.OTHER, index.lookup("/data/self").getAttributes().getType());
+            Assert.assertNull(index.lookup("/data/dir/loop/file"));
+
+            Files.createFile(this.resolve("data/dir/second"));
+            index.refresh();
+
+            Assert.assertEquals(5, index.size());
+            Assert.assertEquals(PathAttributes.Type.OTHER, index.lookup("/data/self").getAttributes().getType());
+        }
+    }
+}
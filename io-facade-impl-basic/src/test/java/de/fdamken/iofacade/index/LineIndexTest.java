@@ -0,0 +1,261 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.index;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.File;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link LineIndex}.
+ *
+ */
+public class LineIndexTest extends AbstractBasicFileSystemTest {
+    /**
+     * Appended lines are indexed by a refresh.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testIncrementalRefresh() throws IOException {
+        final File file = this.createFile("/file", "a\nbb\nccc\n").asFile();
+        final LineIndex index = LineIndexBuilder.acquire(file).spacing(2).cache(false).build();
+        Assert.assertEquals(3, index.getLineCount());
+
+        this.append("/file", "dddd\neeeee\nf");
+        Assert.assertTrue(index.refresh());
+        Assert.assertFalse(index.refresh());
+
+        Assert.assertEquals(6, index.getLineCount());
+        Assert.assertEquals(0, index.getOffset(0));
+        Assert.assertEquals(2, index.getOffset(1));
+        Assert.assertEquals(5, index.getOffset(2));
+        Assert.assertEquals(9, index.getOffset(3));
+        Assert.assertEquals(14, index.getOffset(4));
+        Assert.assertEquals(20, index.getOffset(5));
+        Assert.assertEquals(21, index.getOffset(6));
+        Assert.assertEquals("dddd\neeeee\n", this.readLines(index, 3, 2));
+
+        this.append("/file", "f\n");
+        Assert.assertTrue(index.refresh());
+        Assert.assertEquals(6, index.getLineCount());
+        Assert.assertEquals("ff\n", this.readLines(index, 5, 1));
+    }
+
+    /**
+     * A cached index is reused by the next build, but does not share its state
+     * with it, and closing the file system drops the cache.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testCache() throws IOException {
+        final File file = this.createFile("/file", "a\nbb\nccc\n").asFile();
+        final LineIndex first = LineIndexBuilder.acquire(file).spacing(2).cache(true).build();
+
+        final LineIndex cached = LineIndex.getCached(file, 2);
+        Assert.assertNotNull(cached);
+        Assert.assertNotSame(first, cached);
+        Assert.assertEquals(3, cached.getLineCount());
+        Assert.assertEquals(5, cached.getOffset(2));
+        Assert.assertNull(LineIndex.getCached(file, 4));
+
+        this.append("/file", "dddd\n");
+        Assert.assertTrue(cached.refresh());
+        Assert.assertEquals(4, cached.getLineCount());
+        Assert.assertEquals(3, first.getLineCount());
+        Assert.assertEquals(4, LineIndexBuilder.acquire(file).spacing(2).cache(true).build().getLineCount());
+
+        this.fileSystem.close();
+
+        Assert.assertNull(LineIndex.getCached(file, 2));
+    }
+
+    /**
+     * A file that did not grow is indexed from scratch.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testRebuildAfterTruncation() throws IOException {
+        final File file = this.createFile("/file", "a\nb\nc\nd\ne\n").asFile();
+        final LineIndex index = LineIndexBuilder.acquire(file).spacing(2).cache(false).build();
+        Assert.assertEquals(5, index.getLineCount());
+
+        Files.write(this.resolve("/file"), "xy\nz".getBytes(StandardCharsets.US_ASCII));
+        Assert.assertTrue(index.refresh());
+
+        Assert.assertEquals(2, index.getLineCount());
+        Assert.assertEquals(3, index.getOffset(1));
+        Assert.assertEquals("z", this.readLines(index, 1, 1));
+    }
+
+    /**
+     * A stored index is reused and extended.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testStoredIndexIsExtended() throws IOException {
+        final File file = this.createFile("/file", "a\nb\nc\n").asFile();
+        LineIndexBuilder.acquire(file).spacing(2).cache(false).persist(true).build();
+        Assert.assertTrue(LineIndex.getIndexFile(file).exists());
+
+        this.append("/file", "d\ne\n");
+        final LineIndex index = LineIndexBuilder.acquire(file).spacing(2).cache(false).persist(true).build();
+
+        Assert.assertEquals(5, index.getLineCount());
+        Assert.assertEquals("c\nd\ne\n", this.readLines(index, 2, 3));
+    }
+
+    /**
+     * Stored indexes with inconsistent counters are rebuilt instead of being
+     * trusted.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testInconsistentStoredIndexIsRebuilt() throws IOException {
+        final File file = this.createFile("/file", "a\nb\nc\n").asFile();
+        final long lastModified = file.getAttributes().getLastModified();
+
+        this.storeIndex(file, 2, 6, lastModified, 100, 4, 2, 0, 2);
+        Assert.assertEquals(3, LineIndexBuilder.acquire(file).spacing(2).cache(false).persist(true).build()
+                .getLineCount());
+
+        this.storeIndex(file, 2, 6, lastModified, 3, 6, Integer.MAX_VALUE, 0, 4);
+        Assert.assertEquals(3, LineIndexBuilder.acquire(file).spacing(2).cache(false).persist(true).build()
+                .getLineCount());
+
+        this.storeIndex(file, 2, 6, lastModified, 3, 6, 2, 0, 7);
+        final LineIndex index = LineIndexBuilder.acquire(file).spacing(2).cache(false).persist(true).build();
+        Assert.assertEquals(3, index.getLineCount());
+        Assert.assertEquals(4, index.getOffset(2));
+    }
+
+    /**
+     * Truncated stored indexes are rebuilt.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testTruncatedStoredIndexIsRebuilt() throws IOException {
+        final File file = this.createFile("/file", "a\nb\nc\n").asFile();
+        final long lastModified = file.getAttributes().getLastModified();
+
+        this.storeIndex(file, 2, 6, lastModified, 3, 6, 2, 0);
+
+        Assert.assertEquals(3, LineIndexBuilder.acquire(file).spacing(2).cache(false).persist(true).build()
+                .getLineCount());
+    }
+
+    /**
+     * Appends the given content to the given file.
+     *
+     * @param path
+     *            The path of the file relative to the root.
+     * @param content
+     *            The content to append.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private void append(final String path, final String content) throws IOException {
+        Files.write(this.resolve(path), content.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Reads the given lines through the given index.
+     *
+     * @param index
+     *            The index to read through.
+     * @param first
+     *            The number of the first line.
+     * @param count
+     *            The number of lines.
+     * @return The lines including their terminators.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private String readLines(final LineIndex index, final long first, final long count) throws IOException {
+        final StringBuilder result = new StringBuilder();
+        try (InputStream in = index.openLines(first, count)) {
+            int b;
+            while ((b = in.read()) >= 0) {
+                result.append((char) b);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Stores an index with the given values beside the given file.
+     *
+     * @param file
+     *            The indexed file.
+     * @param spacing
+     *            The spacing of the index.
+     * @param indexedSize
+     *            The number of indexed bytes.
+     * @param lastModified
+     *            The time of the last modification of the file.
+     * @param terminatorCount
+     *            The number of line terminators.
+     * @param lastLineStart
+     *            The offset after the last line terminator.
+     * @param offsetCount
+     *            The number of stored offsets.
+     * @param offsets
+     *            The stored offsets. May be less than the number of stored
+     *            offsets.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private void storeIndex(final File file, final int spacing, final long indexedSize, final long lastModified,
+            final long terminatorCount, final long lastLineStart, final int offsetCount, final long... offsets)
+            throws IOException {
+        try (OutputStream out = Files.newOutputStream(this.resolve(LineIndex.getIndexFile(file).getAbsolutePath()));
+                DataOutputStream data = new DataOutputStream(out)) {
+            data.writeInt(0x4C494458);
+            data.writeInt(spacing);
+            data.writeLong(indexedSize);
+            data.writeLong(lastModified);
+            data.writeLong(terminatorCount);
+            data.writeLong(lastLineStart);
+            data.writeInt(offsetCount);
+            for (final long offset : offsets) {
+                data.writeLong(offset);
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+import de.fdamken.iofacade.watch.DirectoryEvent;
+
+/**
+ * Tests of {@link NameIndex}.
+ *
+ */
+public class NameIndexTest extends AbstractBasicFileSystemTest {
+    /**
+     * Substring queries find all names that contain the string, with and
+     * without a trigram to look up.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testFindBySubstring() throws IOException {
+        this.createFile("/data/report.txt", "");
+        this.createFile("/data/dir/old-report.csv", "");
+        this.createFile("/data/dir/readme", "");
+        final NameIndex index = NameIndex.create(this.fileSystem.getPath("/data").asDirectory());
+
+        Assert.assertEquals(4, index.size());
+        Assert.assertEquals(Arrays.asList("/data/dir/old-report.csv", "/data/report.txt"),
+                NameIndexTest.sorted(index.findBySubstring("report")));
+        Assert.assertEquals(Arrays.asList("/data/dir/old-report.csv", "/data/dir/readme", "/data/report.txt"),
+                NameIndexTest.sorted(index.findBySubstring("re")));
+        Assert.assertEquals(Collections.emptyList(), index.findBySubstring("missing"));
+        // Only the names are searched, not the parent directories.
+        Assert.assertEquals(Collections.emptyList(), index.findBySubstring("dat"));
+    }
+
+    /**
+     * Glob queries match the absolute paths, with and without literal parts
+     * to look up.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testFindByGlob() throws IOException {
+        this.createFile("/data/report.txt", "");
+        this.createFile("/data/dir/old-report.csv", "");
+        this.createFile("/data/dir/notes.txt", "");
+        final NameIndex index = NameIndex.create(this.fileSystem.getPath("/data").asDirectory());
+
+        Assert.assertEquals(Arrays.asList("/data/dir/notes.txt", "/data/report.txt"),
+                NameIndexTest.sorted(index.findByGlob("/data/**/*.txt")));
+        Assert.assertEquals(Arrays.asList("/data/dir/notes.txt"), NameIndexTest.sorted(index.findByGlob("/data/dir/*.txt")));
+        Assert.assertEquals(Arrays.asList("/data/dir/old-report.csv", "/data/report.txt"),
+                NameIndexTest.sorted(index.findByGlob("/data/**/*report.{txt,csv}")));
+        Assert.assertEquals(Arrays.asList("/data/dir"), NameIndexTest.sorted(index.findByGlob("/data/?i?")));
+        Assert.assertEquals(Collections.emptyList(), index.findByGlob("/data/**/*.bin"));
+    }
+
+    /**
+     * A rescan adds new paths and removes deleted ones.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testRescan() throws IOException {
+        this.createFile("/data/first.txt", "");
+        this.createFile("/data/dir/second.txt", "");
+        final NameIndex index = NameIndex.create(this.fileSystem.getPath("/data").asDirectory());
+
+        Files.delete(this.resolve("data/first.txt"));
+        this.createFile("/data/dir/third.txt", "");
+        index.rescan();
+
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(Arrays.asList("/data/dir/second.txt", "/data/dir/third.txt"),
+                NameIndexTest.sorted(index.findBySubstring(".txt")));
+    }
+
+    /**
+     * Created events add paths, deleted events remove the path and everything
+     * below it and modified events are ignored.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testOnEvents() throws IOException {
+        this.createFile("/data/dir/sub/first.txt", "");
+        this.createFile("/data/dir-other/second.txt", "");
+        final NameIndex index = NameIndex.create(this.fileSystem.getPath("/data").asDirectory());
+        Assert.assertEquals(5, index.size());
+
+        index.onEvents(Arrays.asList(this.event(DirectoryEvent.Kind.CREATED, "/data/third.txt"),
+                this.event(DirectoryEvent.Kind.CREATED, "/data/third.txt"),
+                this.event(DirectoryEvent.Kind.MODIFIED, "/data/fourth.txt"),
+                this.event(DirectoryEvent.Kind.DELETED, "/data/dir")));
+
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(Arrays.asList("/data/dir-other/second.txt", "/data/third.txt"),
+                NameIndexTest.sorted(index.findBySubstring(".txt")));
+    }
+
+    /**
+     * Posting lists with gaps that take more than one byte to encode are
+     * decoded correctly.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testLargeGaps() throws IOException {
+        final NameIndex index = NameIndex.create(this.createDirectory("/data").asDirectory());
+
+        final List<String> expected = new ArrayList<String>();
+        final List<DirectoryEvent> events = new ArrayList<DirectoryEvent>();
+        for (int i = 0; i < 20000; i++) {
+            // Gaps of 1, 200 (two bytes) and 16800 (three bytes).
+            final boolean match = i == 0 || i == 1 || i == 201 || i == 17001;
+            final String absolutePath = (match ? "/data/match-" : "/data/other-") + i;
+            if (match) {
+                expected.add(absolutePath);
+            }
+            events.add(this.event(DirectoryEvent.Kind.CREATED, absolutePath));
+        }
+        index.onEvents(events);
+
+        Assert.assertEquals(20000, index.size());
+        Collections.sort(expected);
+        Assert.assertEquals(expected, NameIndexTest.sorted(index.findBySubstring("match")));
+        Assert.assertEquals(Arrays.asList("/data/match-17001"), NameIndexTest.sorted(index.findBySubstring("h-17001")));
+        Assert.assertEquals(Arrays.asList("/data/other-19999"), NameIndexTest.sorted(index.findByGlob("/data/*-19999")));
+    }
+
+    /**
+     * The index is compacted once at least 1024 IDs are unused and the unused
+     * IDs outnumber the used ones, and it still answers queries afterwards.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testCompaction() throws IOException {
+        final NameIndex index = NameIndex.create(this.createDirectory("/data").asDirectory());
+        final List<DirectoryEvent> created = new ArrayList<DirectoryEvent>();
+        for (int i = 0; i < 2048; i++) {
+            created.add(this.event(DirectoryEvent.Kind.CREATED, String.format("/data/file-%04d", i)));
+        }
+        index.onEvents(created);
+
+        // 1023 unused IDs: Below the minimum.
+        final List<DirectoryEvent> deleted = new ArrayList<DirectoryEvent>();
+        for (int i = 0; i < 1023; i++) {
+            deleted.add(this.event(DirectoryEvent.Kind.DELETED, String.format("/data/file-%04d", i)));
+        }
+        index.onEvents(deleted);
+        Assert.assertEquals(1025, index.size());
+        Assert.assertEquals(2048, index.getAssignedIdCount());
+
+        // 1024 unused IDs: Not more than the used ones.
+        index.onEvents(Arrays.asList(this.event(DirectoryEvent.Kind.DELETED, "/data/file-1023")));
+        Assert.assertEquals(1024, index.size());
+        Assert.assertEquals(2048, index.getAssignedIdCount());
+
+        // 1025 unused IDs: Compacted.
+        index.onEvents(Arrays.asList(this.event(DirectoryEvent.Kind.DELETED, "/data/file-1024")));
+        Assert.assertEquals(1023, index.size());
+        Assert.assertEquals(1023, index.getAssignedIdCount());
+
+        Assert.assertEquals(Collections.emptyList(), index.findBySubstring("file-1024"));
+        Assert.assertEquals(Arrays.asList("/data/file-1025"), NameIndexTest.sorted(index.findBySubstring("file-1025")));
+        Assert.assertEquals(1023, index.findBySubstring("file-").size());
+
+        index.onEvents(Arrays.asList(this.event(DirectoryEvent.Kind.CREATED, "/data/file-0000")));
+        Assert.assertEquals(1024, index.getAssignedIdCount());
+        Assert.assertEquals(Arrays.asList("/data/file-0000"), NameIndexTest.sorted(index.findBySubstring("file-0000")));
+    }
+
+    /**
+     * Creates an event of the given kind for the given path.
+     *
+     * @param kind
+     *            The kind of the event.
+     * @param absolutePath
+     *            The absolute path of the affected path.
+     * @return The created event.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private DirectoryEvent event(final DirectoryEvent.Kind kind, final String absolutePath) throws IOException {
+        return new DirectoryEvent(kind, this.fileSystem.getPath(absolutePath));
+    }
+
+    /**
+     * Sorts the absolute paths of the given paths.
+     *
+     * @param paths
+     *            The paths.
+     * @return The sorted absolute paths.
+     */
+    private static List<String> sorted(final List<Path> paths) {
+        final List<String> result = new ArrayList<String>(paths.size());
+        for (final Path path : paths) {
+            result.add(path.getAbsolutePath());
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,100 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link ContentSearch}.
+ *
+ */
+public class ContentSearchTest extends AbstractBasicFileSystemTest {
+    /**
+     * The patterns to search for.
+     *
+     */
+    private static final List<byte[]> PATTERNS = Collections.singletonList("needle".getBytes(StandardCharsets.UTF_8));
+
+    /**
+     * Every occurrence in every file is reported.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testSearchFindsAllOccurrences() throws IOException {
+        this.createFile("/a/file", "hay needle hay");
+        this.createFile("/b/file", "needle needle");
+        this.createFile("/c/file", "hay");
+
+        final Set<String> matches = ConcurrentHashMap.newKeySet();
+        this.fileSystem.getPath("/").asDirectory().search(path -> true, ContentSearchTest.PATTERNS,
+                match -> matches.add(match.getFile().getAbsolutePath() + "@" + match.getOffset()));
+
+        Assert.assertEquals(3, matches.size());
+        Assert.assertTrue(matches.contains("/a/file@4"));
+        Assert.assertTrue(matches.contains("/b/file@0"));
+        Assert.assertTrue(matches.contains("/b/file@7"));
+    }
+
+    /**
+     * After a failure, the sink is never invoked again; especially not after
+     * the search has returned.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testSinkIsNotInvokedAfterFailure() throws Exception {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            content.append("needle ");
+        }
+        for (int i = 0; i < 20; i++) {
+            this.createFile("/dir" + i + "/file", content.toString());
+        }
+
+        final AtomicInteger calls = new AtomicInteger();
+        try {
+            this.fileSystem.getPath("/").asDirectory().search(path -> true, ContentSearchTest.PATTERNS, match -> {
+                if (calls.incrementAndGet() == 10) {
+                    throw new IllegalStateException("Expected.");
+                }
+            });
+            Assert.fail("The search did not fail!");
+        } catch (final IllegalStateException dummy) {
+            // Expected.
+        }
+
+        final int callsOnReturn = calls.get();
+        Thread.sleep(200);
+        Assert.assertEquals(callsOnReturn, calls.get());
+        Assert.assertTrue("Too many calls: " + callsOnReturn, callsOnReturn < 2000000);
+    }
+}
@@ -0,0 +1,94 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.sort;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link PathOrder}.
+ *
+ */
+public class PathOrderTest extends AbstractBasicFileSystemTest {
+    /**
+     * Combined orders keep whether they require the attributes.
+     *
+     */
+    @Test
+    public void testCombinedOrdersKeepRequiresAttributes() {
+        Assert.assertFalse(PathOrder.BY_NAME.reversed().requiresAttributes());
+        Assert.assertTrue(PathOrder.BY_SIZE.reversed().requiresAttributes());
+        Assert.assertFalse(PathOrder.BY_NAME.thenComparing(PathOrder.BY_NAME.reversed()).requiresAttributes());
+        Assert.assertTrue(PathOrder.BY_NAME.thenComparing(PathOrder.BY_LAST_MODIFIED).requiresAttributes());
+        Assert.assertTrue(PathOrder.BY_NAME.thenComparing((record0, record1) -> 0).requiresAttributes());
+        Assert.assertFalse(PathOrder.of((record0, record1) -> 0, false).requiresAttributes());
+    }
+
+    /**
+     * A reversed order sorts a listing in reverse.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testReversedListing() throws IOException {
+        this.createFile("/dir/a", "");
+        this.createFile("/dir/b", "");
+        this.createFile("/dir/c", "");
+
+        final List<String> names;
+        try (final Stream<Path> stream = this.fileSystem.getPath("/dir").asDirectory()
+                .listEntriesSorted(path -> true, PathOrder.BY_NAME.reversed())) {
+            names = stream.map(Path::getName).collect(Collectors.toList());
+        }
+
+        Assert.assertEquals(Arrays.asList("c", "b", "a"), names);
+    }
+
+    /**
+     * Ties of the first order are broken by the second one.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testThenComparing() throws IOException {
+        this.createFile("/dir/a", "xx");
+        this.createFile("/dir/b", "x");
+        this.createFile("/dir/c", "x");
+
+        final List<String> names;
+        try (final Stream<Path> stream = this.fileSystem.getPath("/dir").asDirectory()
+                .listEntriesSorted(path -> true, PathOrder.of((record0, record1) -> Long.compare(
+                        record0.getAttributes().getSize(), record1.getAttributes().getSize()), true).thenComparing(
+                        PathOrder.BY_NAME.reversed()))) {
+            names = stream.map(Path::getName).collect(Collectors.toList());
+        }
+
+        Assert.assertEquals(Arrays.asList("c", "b", "a"), names);
+    }
+}
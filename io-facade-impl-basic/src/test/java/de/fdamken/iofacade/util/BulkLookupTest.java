@@ -0,0 +1,158 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link BulkLookup}.
+ *
+ */
+public class BulkLookupTest extends AbstractBasicFileSystemTest {
+    /**
+     * The results for a group that is checked by listing its parent are the
+     * same as those of {@link Path#exists()}, including for dangling links and
+     * names that only differ in case.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testExistsAllListedGroup() throws IOException {
+        final List<Path> paths = new ArrayList<Path>();
+        for (int i = 0; i < 20; i++) {
+            if (i % 2 == 0) {
+                this.createFile("/dir/file" + i, "");
+            }
+            paths.add(this.fileSystem.getPath("/dir/file" + i));
+        }
+        Files.createSymbolicLink(this.resolve("dir/dangling"), this.resolve("dir/missing"));
+        Files.createSymbolicLink(this.resolve("dir/link"), this.resolve("dir/file0"));
+        final Path dangling = this.fileSystem.getPath("/dir/dangling");
+        paths.add(dangling);
+        paths.add(this.fileSystem.getPath("/dir/link"));
+        paths.add(this.fileSystem.getPath("/dir/FILE0"));
+
+        this.assertExistsAll(paths);
+        Assert.assertFalse(this.fileSystem.existsAll(paths).get(dangling));
+    }
+
+    /**
+     * Paths below large directories, small groups, missing parents and parents
+     * that are files are checked correctly.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testExistsAllMixed() throws IOException {
+        final List<Path> paths = new ArrayList<Path>();
+        for (int i = 0; i < 200; i++) {
+            this.createFile("/large/file" + i, "");
+        }
+        for (int i = 0; i < 30; i++) {
+            paths.add(this.fileSystem.getPath("/large/file" + i * 10));
+            paths.add(this.fileSystem.getPath("/large/other" + i));
+            paths.add(this.fileSystem.getPath("/missing/file" + i));
+        }
+        this.createFile("/small/file", "");
+        this.createFile("/plain", "");
+        paths.add(this.fileSystem.getPath("/small/file"));
+        paths.add(this.fileSystem.getPath("/small/other"));
+        for (int i = 0; i < 20; i++) {
+            paths.add(this.fileSystem.getPath("/plain/file" + i));
+        }
+        paths.add(this.fileSystem.getPath("/"));
+
+        this.assertExistsAll(paths);
+    }
+
+    /**
+     * The results are the same as those of {@link Path#getAttributes()}.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testStatAll() throws IOException {
+        final List<Path> paths = new ArrayList<Path>();
+        for (int i = 0; i < 100; i++) {
+            if (i % 3 == 0) {
+                this.createFile("/dir/file" + i, "content" + i);
+            } else if (i % 3 == 1) {
+                this.createDirectory("/dir/sub" + i);
+            }
+            paths.add(this.fileSystem.getPath("/dir/file" + i));
+            paths.add(this.fileSystem.getPath("/dir/sub" + i));
+        }
+        Files.createSymbolicLink(this.resolve("dir/dangling"), this.resolve("dir/missing"));
+        Files.createSymbolicLink(this.resolve("dir/link"), this.resolve("dir/file0"));
+        paths.add(this.fileSystem.getPath("/dir/dangling"));
+        paths.add(this.fileSystem.getPath("/dir/link"));
+
+        final Map<Path, PathAttributes> result = this.fileSystem.statAll(paths);
+
+        Assert.assertEquals(paths, new ArrayList<Path>(result.keySet()));
+        for (final Path path : paths) {
+            PathAttributes expected;
+            try {
+                expected = path.getAttributes();
+            } catch (final FileNotFoundException dummy) {
+                expected = null;
+            }
+            final PathAttributes actual = result.get(path);
+            if (expected == null) {
+                Assert.assertNull(path.getAbsolutePath(), actual);
+            } else {
+                Assert.assertEquals(path.getAbsolutePath(), expected.getType(), actual.getType());
+                Assert.assertEquals(path.getAbsolutePath(), expected.getSize(), actual.getSize());
+                Assert.assertEquals(path.getAbsolutePath(), expected.getLastModified(), actual.getLastModified());
+            }
+        }
+    }
+
+    /**
+     * Asserts that {@link de.fdamken.iofacade.FileSystem#existsAll} returns
+     * the same as {@link Path#exists()} for all given paths.
+     *
+     * @param paths
+     *            The paths to check.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private void assertExistsAll(final List<Path> paths) throws IOException {
+        final Map<Path, Boolean> result = this.fileSystem.existsAll(paths);
+
+        Assert.assertEquals(paths, new ArrayList<Path>(result.keySet()));
+        for (final Path path : paths) {
+            Assert.assertEquals(path.getAbsolutePath(), path.exists(), result.get(path));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.Directory;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link DirectorySpliterator}.
+ *
+ */
+public class DirectorySpliteratorTest extends AbstractBasicFileSystemTest {
+    /**
+     * Sequential and parallel streams report the same entries as
+     * {@link Directory#listEntriesRecursive(PathFilter)}, with and without a
+     * filter.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testStreamMatchesListEntriesRecursive() throws IOException {
+        this.createTree();
+        final Directory root = this.fileSystem.getPath("/data").asDirectory();
+        final PathFilter filter = new GlobPathFilter("/data/**/*.txt");
+
+        final List<String> expected = DirectorySpliteratorTest.sorted(root.listEntriesRecursive().stream());
+        Assert.assertEquals(4 + 4 * (3 + 3 + 3), expected.size());
+        Assert.assertEquals(expected, DirectorySpliteratorTest.sorted(root.entryStream()));
+        Assert.assertEquals(expected, DirectorySpliteratorTest.sorted(root.entryStream().parallel()));
+
+        final List<String> expectedFiltered = DirectorySpliteratorTest.sorted(root.listEntriesRecursive(filter).stream());
+        Assert.assertEquals(4 * (3 + 3), expectedFiltered.size());
+        Assert.assertEquals(expectedFiltered, DirectorySpliteratorTest.sorted(root.entryStream(filter)));
+        Assert.assertEquals(expectedFiltered, DirectorySpliteratorTest.sorted(root.entryStream(filter).parallel()));
+    }
+
+    /**
+     * Symbolic links are reported, but not stepped into, both sequentially and
+     * in parallel.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testLinksAreNotDescended() throws IOException {
+        this.createFile("/data/dir/file", "");
+        this.createFile("/other/file", "");
+        Files.createSymbolicLink(this.resolve("data/dir/loop"), this.resolve("data"));
+        Files.createSymbolicLink(this.resolve("data/other"), this.resolve("other"));
+        final Directory root = this.fileSystem.getPath("/data").asDirectory();
+
+        final List<String> expected = Arrays.asList("/data/dir", "/data/dir/file", "/data/dir/loop", "/data/other");
+        Assert.assertEquals(expected, DirectorySpliteratorTest.sorted(root.entryStream()));
+        Assert.assertEquals(expected, DirectorySpliteratorTest.sorted(root.entryStream().parallel()));
+    }
+
+    /**
+     * Splitting recursively hands off disjoint parts that together contain
+     * every entry once, and the estimated sizes are based on what was listed.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testTrySplit() throws IOException {
+        this.createTree();
+        final Path root = this.fileSystem.getPath("/data");
+
+        final DirectorySpliterator spliterator = new DirectorySpliterator(root, path -> true);
+        Assert.assertEquals(16, spliterator.estimateSize());
+
+        // Lists the root directory to find directories to hand off.
+        final Spliterator<Path> prefix = spliterator.trySplit();
+        Assert.assertNotNull(prefix);
+        // Four entries per listed directory: Two directories handed off and
+        // four entries and two directories kept.
+        Assert.assertEquals(2 * 4, prefix.estimateSize());
+        Assert.assertEquals(4 + 2 * 4, spliterator.estimateSize());
+
+        final List<Path> result = new ArrayList<Path>();
+        DirectorySpliteratorTest.splitAndTraverse(prefix, result);
+        DirectorySpliteratorTest.splitAndTraverse(spliterator, result);
+        Assert.assertEquals(0, spliterator.estimateSize());
+        Assert.assertNull(spliterator.trySplit());
+
+        final List<String> actual = DirectorySpliteratorTest.sorted(result.stream());
+        Assert.assertEquals(DirectorySpliteratorTest.sorted(root.asDirectory().listEntriesRecursive().stream()), actual);
+        Assert.assertEquals(actual.size(), actual.stream().distinct().count());
+    }
+
+    /**
+     * An empty directory cannot be split and reports nothing.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testEmptyDirectory() throws IOException {
+        final DirectorySpliterator spliterator = new DirectorySpliterator(this.createDirectory("/data"), path -> true);
+
+        Assert.assertNull(spliterator.trySplit());
+        Assert.assertEquals(0, spliterator.estimateSize());
+        Assert.assertFalse(spliterator.tryAdvance(path -> Assert.fail()));
+    }
+
+    /**
+     * Creates a file tree of four directories below <code>/data</code> that
+     * contain three files and three sub-directories with a file each.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private void createTree() throws IOException {
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 3; j++) {
+                this.createFile("/data/dir" + i + "/file" + j + ".txt", "");
+                this.createFile("/data/dir" + i + "/sub" + j + "/file.txt", "");
+            }
+        }
+    }
+
+    /**
+     * Splits the given spliterator as long as possible and traverses all
+     * parts.
+     *
+     * @param spliterator
+     *            The spliterator to split and traverse.
+     * @param sink
+     *            The list to add all entries to.
+     */
+    private static void splitAndTraverse(final Spliterator<Path> spliterator, final List<Path> sink) {
+        Spliterator<Path> part;
+        while ((part = spliterator.trySplit()) != null) {
+            DirectorySpliteratorTest.splitAndTraverse(part, sink);
+        }
+        spliterator.forEachRemaining(sink::add);
+    }
+
+    /**
+     * Sorts the absolute paths of the given paths.
+     *
+     * @param paths
+     *            The paths.
+     * @return The sorted absolute paths.
+     */
+    private static List<String> sorted(final Stream<Path> paths) {
+        return paths.map(Path::getAbsolutePath).sorted().collect(Collectors.toList());
+    }
+}
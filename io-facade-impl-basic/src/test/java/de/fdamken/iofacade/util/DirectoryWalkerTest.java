@@ -0,0 +1,264 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.Directory;
+import de.fdamken.iofacade.FileSystem;
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+import de.fdamken.iofacade.impl.basic.BasicDirectory;
+import de.fdamken.iofacade.impl.basic.BasicPath;
+
+/**
+ * Tests of {@link DirectoryWalker}.
+ *
+ */
+public class DirectoryWalkerTest extends AbstractBasicFileSystemTest {
+    /**
+     * As soon as the maximum number of entries is reported, nothing else is
+     * looked at.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testMaxEntriesStopsImmediately() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            this.createFile("/a/file" + i, "");
+            this.createFile("/b/file" + i, "");
+        }
+
+        final AtomicInteger filterCalls = new AtomicInteger();
+        final List<Path> result = new ArrayList<Path>();
+        final DirectoryWalker.Result walkResult = DirectoryWalker.acquire(this.fileSystem.getPath("/")).filter(path -> {
+            filterCalls.incrementAndGet();
+            return true;
+        }).maxEntries(1).walk(result::add);
+
+        Assert.assertEquals(DirectoryWalker.Result.MAX_ENTRIES_REACHED, walkResult);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(1, filterCalls.get());
+    }
+
+    /**
+     * A limit of zero entries does not list the root directory.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testMaxEntriesZero() throws IOException {
+        this.createFile("/a/file", "");
+
+        final AtomicInteger filterCalls = new AtomicInteger();
+        final DirectoryWalker.Result walkResult = DirectoryWalker.acquire(this.fileSystem.getPath("/")).filter(path -> {
+            filterCalls.incrementAndGet();
+            return true;
+        }).maxEntries(0).walk(path -> Assert.fail("Reported " + path));
+
+        Assert.assertEquals(DirectoryWalker.Result.MAX_ENTRIES_REACHED, walkResult);
+        Assert.assertEquals(0, filterCalls.get());
+    }
+
+    /**
+     * Without any limit, every entry is reported.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testWalkCompletes() throws IOException {
+        this.createFile("/a/b/file", "");
+
+        final List<Path> result = new ArrayList<Path>();
+        final DirectoryWalker.Result walkResult = DirectoryWalker.acquire(this.fileSystem.getPath("/")).walk(result::add);
+
+        Assert.assertEquals(DirectoryWalker.Result.COMPLETED, walkResult);
+        Assert.assertEquals(3, result.size());
+    }
+
+    /**
+     * Directories on the maximum depth are reported, but not listed.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testMaxDepth() throws IOException {
+        this.createFile("/a/b/c/file", "");
+
+        final List<String> result = new ArrayList<String>();
+        DirectoryWalker.acquire(this.fileSystem.getPath("/")).maxDepth(2).walk(path -> result.add(path.getAbsolutePath()));
+
+        Assert.assertEquals(Arrays.asList("/a", "/a/b"), result);
+    }
+
+    /**
+     * Breadth first walks report all entries of one level before the next.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testBreadthFirst() throws IOException {
+        this.createFile("/a/b/file", "");
+        this.createFile("/c/d/file", "");
+
+        final List<Integer> depths = new ArrayList<Integer>();
+        DirectoryWalker.acquire(this.fileSystem.getPath("/")).order(DirectoryWalker.Order.BREADTH_FIRST)
+                .walk(path -> depths.add(Integer.valueOf(path.getAbsolutePath().split("/").length - 1)));
+
+        Assert.assertEquals(Arrays.asList(1, 1, 2, 2, 3, 3), depths);
+    }
+
+    /**
+     * A deadline in the past aborts the walk before anything is listed.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testDeadline() throws IOException {
+        this.createFile("/a/file", "");
+
+        final DirectoryWalker.Result walkResult = DirectoryWalker.acquire(this.fileSystem.getPath("/"))
+                .deadline(System.currentTimeMillis() - 1).walk(path -> Assert.fail("Reported " + path));
+
+        Assert.assertEquals(DirectoryWalker.Result.DEADLINE_EXCEEDED, walkResult);
+    }
+
+    /**
+     * Followed links that lead back to an ancestor are skipped by default.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testFollowLinksSkipsLoops() throws IOException {
+        this.createFile("/dir/sub/file", "");
+        Files.createSymbolicLink(this.resolve("dir/sub/loop"), this.resolve("dir"));
+
+        final List<String> result = new ArrayList<String>();
+        DirectoryWalker.acquire(this.fileSystem.getPath("/dir")).followLinks(true).walk(path -> result.add(path.getAbsolutePath()));
+
+        Assert.assertEquals(Arrays.asList("/dir/sub", "/dir/sub/file"), result);
+    }
+
+    /**
+     * Followed links that lead back to an ancestor fail the walk if requested.
+     *
+     * @throws IOException
+     *             Expected.
+     */
+    @Test(expected = FileSystemLoopException.class)
+    public void testFollowLinksFailsOnLoops() throws IOException {
+        this.createFile("/dir/sub/file", "");
+        Files.createSymbolicLink(this.resolve("dir/sub/loop"), this.resolve("dir"));
+
+        DirectoryWalker.acquire(this.fileSystem.getPath("/dir")).followLinks(true).loopPolicy(DirectoryWalker.LoopPolicy.FAIL)
+                .walk(path -> {
+                    // Nothing to do.
+                });
+    }
+
+    /**
+     * Followed links that lead back to an ancestor are detected even if the
+     * implementation does not provide identities.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test(timeout = 10000)
+    public void testFollowLinksSkipsLoopsWithoutIdentities() throws IOException {
+        this.createFile("/dir/sub/file", "");
+        Files.createSymbolicLink(this.resolve("dir/sub/loop"), this.resolve("dir"));
+        Files.createSymbolicLink(this.resolve("dir/sub/self"), this.resolve("dir/sub"));
+
+        final List<String> result = new ArrayList<String>();
+        DirectoryWalker.acquire(new AnonymousDirectory(this.fileSystem, this.resolve("dir"))).followLinks(true)
+                .walk(path -> result.add(path.getAbsolutePath()));
+
+        Assert.assertEquals(Arrays.asList("/dir/sub", "/dir/sub/file"), result);
+    }
+
+    /**
+     * A directory whose entries have no known identity, like those of
+     * implementations without the <code>unix</code> attribute view.
+     *
+     */
+    private static class AnonymousDirectory extends BasicDirectory {
+        /**
+         * Constructor of AnonymousDirectory.
+         *
+         * @param fileSystem
+         *            The file system the directory belongs to.
+         * @param path
+         *            The underlying path.
+         */
+        public AnonymousDirectory(final FileSystem fileSystem, final java.nio.file.Path path) {
+            super(fileSystem, path);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.iofacade.impl.basic.BasicPath#getAttributes()
+         */
+        @Override
+        public PathAttributes getAttributes() throws IOException {
+            final PathAttributes attributes = super.getAttributes();
+            return new PathAttributes(attributes.getType(), attributes.getSize(), attributes.getLastModified());
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.iofacade.impl.basic.BasicPath#asDirectory()
+         */
+        @Override
+        public Directory asDirectory() {
+            return this;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.iofacade.impl.basic.BasicDirectory#listEntries(de.fdamken.iofacade.util.PathFilter)
+         */
+        @Override
+        public List<Path> listEntries(final PathFilter filter) throws IOException {
+            final List<Path> result = new ArrayList<Path>();
+            for (final Path entry : super.listEntries(filter)) {
+                result.add(new AnonymousDirectory(this.getFileSystem(), ((BasicPath) entry).getPath()));
+            }
+            return result;
+        }
+    }
+}
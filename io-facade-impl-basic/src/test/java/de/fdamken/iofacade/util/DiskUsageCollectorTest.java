@@ -0,0 +1,91 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.DiskUsage;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link DiskUsageCollector}.
+ *
+ */
+public class DiskUsageCollectorTest extends AbstractBasicFileSystemTest {
+    /**
+     * The usage is broken down per sub-directory.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testUsageBreakdown() throws IOException {
+        this.createFile("/a/file", "12345");
+        this.createFile("/a/sub/file", "123");
+        this.createFile("/b/file", "1");
+
+        final DiskUsage usage = this.fileSystem.getPath("/").asDirectory().usage(path -> true, 1);
+
+        Assert.assertEquals(9, usage.getBytes());
+        Assert.assertEquals(3, usage.getFiles());
+        Assert.assertEquals(3, usage.getDirectories());
+        Assert.assertEquals(2, usage.getChildren().size());
+        Assert.assertEquals("/a", usage.getChildren().get(0).getAbsolutePath());
+        Assert.assertEquals(8, usage.getChildren().get(0).getBytes());
+        Assert.assertEquals(1, usage.getChildren().get(1).getBytes());
+    }
+
+    /**
+     * Linked files and directories are not counted twice.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testLinksAreNotCounted() throws IOException {
+        this.createFile("/dir/file", "12345");
+        Files.createSymbolicLink(this.resolve("link"), this.resolve("dir/file"));
+        Files.createSymbolicLink(this.resolve("dirLink"), this.resolve("dir"));
+
+        final DiskUsage usage = this.fileSystem.getPath("/").asDirectory().usage();
+
+        Assert.assertEquals(5, usage.getBytes());
+        Assert.assertEquals(1, usage.getFiles());
+        Assert.assertEquals(1, usage.getDirectories());
+    }
+
+    /**
+     * A failure of the walk is propagated.
+     *
+     * @throws IOException
+     *             Expected.
+     */
+    @Test(expected = IOException.class)
+    public void testFailureIsPropagated() throws IOException {
+        this.createFile("/dir/file", "");
+
+        this.fileSystem.getPath("/").asDirectory().usage(path -> {
+            throw new UncheckedIOException(new IOException("Expected."));
+        }, 0);
+    }
+}
@@ -0,0 +1,222 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link GlobPathFilter}.
+ *
+ */
+public class GlobPathFilterTest extends AbstractBasicFileSystemTest {
+    /**
+     * <code>**</code> matches any number of path-parts, including none.
+     *
+     */
+    @Test
+    public void testDoubleStar() {
+        final GlobPathFilter filter = PathFilters.glob("/a/**/b.txt");
+
+        Assert.assertTrue(filter.matches("/a/b.txt"));
+        Assert.assertTrue(filter.matches("/a/x/b.txt"));
+        Assert.assertTrue(filter.matches("/a/x/y/b.txt"));
+        Assert.assertFalse(filter.matches("/b.txt"));
+        Assert.assertFalse(filter.matches("/a/x/b.txt2"));
+
+        final GlobPathFilter trailing = PathFilters.glob("/a/**");
+        Assert.assertTrue(trailing.matches("/a"));
+        Assert.assertTrue(trailing.matches("/a/x"));
+        Assert.assertTrue(trailing.matches("/a/x/y"));
+        Assert.assertFalse(trailing.matches("/b"));
+    }
+
+    /**
+     * <code>*</code> and <code>?</code> never match a slash.
+     *
+     */
+    @Test
+    public void testStarAndQuestionMark() {
+        final GlobPathFilter filter = PathFilters.glob("/*/?.txt");
+
+        Assert.assertTrue(filter.matches("/a/b.txt"));
+        Assert.assertTrue(filter.matches("/abc/b.txt"));
+        Assert.assertFalse(filter.matches("/a/bc.txt"));
+        Assert.assertFalse(filter.matches("/a/x/b.txt"));
+        Assert.assertFalse(filter.matches("/a/.txt"));
+    }
+
+    /**
+     * <code>{a,b}</code> matches one of the alternatives.
+     *
+     */
+    @Test
+    public void testAlternatives() {
+        final GlobPathFilter filter = PathFilters.glob("/{foo,ba*}/x.{c,h}");
+
+        Assert.assertTrue(filter.matches("/foo/x.c"));
+        Assert.assertTrue(filter.matches("/bar/x.h"));
+        Assert.assertTrue(filter.matches("/ba/x.c"));
+        Assert.assertFalse(filter.matches("/fo/x.c"));
+        Assert.assertFalse(filter.matches("/foo/x.o"));
+        Assert.assertFalse(filter.matches("/foobar/x.c"));
+    }
+
+    /**
+     * <code>[a-z]</code> and <code>[!x]</code> match a single character (not)
+     * within the set.
+     *
+     */
+    @Test
+    public void testCharacterClasses() {
+        final GlobPathFilter filter = PathFilters.glob("/[a-c]/[!x]");
+
+        Assert.assertTrue(filter.matches("/a/y"));
+        Assert.assertTrue(filter.matches("/c/a"));
+        Assert.assertFalse(filter.matches("/d/y"));
+        Assert.assertFalse(filter.matches("/a/x"));
+        Assert.assertFalse(filter.matches("/a/yy"));
+    }
+
+    /**
+     * A backslash escapes wildcards.
+     *
+     */
+    @Test
+    public void testEscapes() {
+        final GlobPathFilter filter = PathFilters.glob("/a\\*b/\\{x\\}/\\[y\\]");
+
+        Assert.assertTrue(filter.matches("/a*b/{x}/[y]"));
+        Assert.assertFalse(filter.matches("/axb/{x}/[y]"));
+        Assert.assertFalse(filter.matches("/a*b/x/y"));
+        Assert.assertEquals("/a*b/{x}", filter.getStaticPrefix());
+    }
+
+    /**
+     * Directories are stepped into as long as a path below them can match and
+     * pruned otherwise.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testPruning() throws IOException {
+        final GlobPathFilter filter = PathFilters.glob("/a/*/c");
+
+        Assert.assertNull(filter.apply(this.fileSystem.getPath("/a")));
+        Assert.assertNull(filter.apply(this.fileSystem.getPath("/a/x")));
+        Assert.assertEquals(Boolean.TRUE, filter.apply(this.fileSystem.getPath("/a/x/c")));
+        Assert.assertEquals(Boolean.FALSE, filter.apply(this.fileSystem.getPath("/a/x/c/d")));
+        Assert.assertEquals(Boolean.FALSE, filter.apply(this.fileSystem.getPath("/b")));
+    }
+
+    /**
+     * The static prefix ends before the first path-part with wildcards and
+     * never includes the last path-part.
+     *
+     */
+    @Test
+    public void testStaticPrefix() {
+        Assert.assertEquals("/data/x", PathFilters.glob("/data/x/**").getStaticPrefix());
+        Assert.assertEquals("/data", PathFilters.glob("/data/*/y").getStaticPrefix());
+        Assert.assertEquals("/data/x", PathFilters.glob("/data/x/file.txt").getStaticPrefix());
+        Assert.assertEquals("/", PathFilters.glob("/**").getStaticPrefix());
+        Assert.assertEquals("/", PathFilters.glob("/{a,b}/c").getStaticPrefix());
+    }
+
+    /**
+     * Invalid patterns are rejected.
+     *
+     */
+    @Test
+    public void testInvalidPatterns() {
+        for (final String pattern : new String[] { "relative/*", "/[abc", "/{a,b" }) {
+            try {
+                PathFilters.glob(pattern);
+                Assert.fail(pattern);
+            } catch (final IllegalArgumentException dummy) {
+                // Expected.
+            }
+        }
+    }
+
+    /**
+     * The directory of the static prefix is reported if the pattern accepts
+     * it.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testPrefixDirectoryIsReported() throws IOException {
+        this.createFile("/data/x/y/f", "");
+        this.createFile("/data/z/f", "");
+        final Set<String> expected = new HashSet<String>(Arrays.asList("/data/x", "/data/x/y", "/data/x/y/f"));
+        final PathFilter filter = PathFilters.glob("/data/x/**");
+        final Path root = this.fileSystem.getPath("/");
+
+        Assert.assertEquals(expected, GlobPathFilterTest.toSet(root.asDirectory().listEntriesRecursive(filter)));
+        Assert.assertEquals(expected, GlobPathFilterTest.toSet(DirectoryWalker.acquire(root).filter(filter).list()));
+        Assert.assertEquals(expected, root.asDirectory().entryStream(filter).map(Path::getAbsolutePath)
+                .collect(Collectors.toSet()));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("/data/x/y", "/data/x/y/f")),
+                GlobPathFilterTest.toSet(this.fileSystem.getPath("/data/x").asDirectory().listEntriesRecursive(filter)));
+    }
+
+    /**
+     * Prefixes that are missing or no directories lead to empty results.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testPrefixIsNoDirectory() throws IOException {
+        this.createFile("/data/x", "");
+        final Path root = this.fileSystem.getPath("/");
+
+        Assert.assertTrue(root.asDirectory().listEntriesRecursive(PathFilters.glob("/data/x/**")).isEmpty());
+        Assert.assertTrue(DirectoryWalker.acquire(root).filter(PathFilters.glob("/data/x/**")).list().isEmpty());
+        Assert.assertEquals(0, root.asDirectory().entryStream(PathFilters.glob("/data/x/**")).count());
+        Assert.assertTrue(root.asDirectory().listEntriesRecursive(PathFilters.glob("/missing/*")).isEmpty());
+    }
+
+    /**
+     * Converts the given paths into their absolute paths.
+     *
+     * @param paths
+     *            The paths to convert.
+     * @return The absolute paths.
+     */
+    private static Set<String> toSet(final List<Path> paths) {
+        final Set<String> result = new HashSet<String>();
+        for (final Path path : paths) {
+            result.add(path.getAbsolutePath());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,299 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+import de.fdamken.iofacade.impl.basic.BasicPath;
+
+/**
+ * Tests of {@link GroupCommitScheduler}.
+ *
+ */
+public class GroupCommitSchedulerTest extends AbstractBasicFileSystemTest {
+    /**
+     * The maximum time to wait for a future in milliseconds.
+     *
+     */
+    private static final long TIMEOUT = 10000;
+    /**
+     * A commit window that is never reached by the tests.
+     *
+     */
+    private static final long LONG_WINDOW = 600000;
+
+    /**
+     * The futures are completed only after the files were forced.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testFutureCompletesAfterSync() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestPath path = this.createPath("/dir/file", release);
+
+        try (GroupCommitScheduler scheduler = new GroupCommitScheduler(1, 16)) {
+            final CompletableFuture<Void> future = scheduler.sync(path);
+            Assert.assertTrue(path.started.await(GroupCommitSchedulerTest.TIMEOUT, TimeUnit.MILLISECONDS));
+            Thread.sleep(50);
+            Assert.assertFalse(future.isDone());
+
+            release.countDown();
+
+            future.get(GroupCommitSchedulerTest.TIMEOUT, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(path.synced);
+        }
+    }
+
+    /**
+     * Errors of forcing a file complete its future exceptionally, but do not
+     * affect the other files of the batch.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testSyncErrorsArePropagated() throws Exception {
+        final TestPath failing = this.createPath("/dir/failing", null);
+        failing.syncError = new IOException("Expected");
+        final TestPath good = this.createPath("/dir/good", null);
+
+        try (GroupCommitScheduler scheduler = new GroupCommitScheduler(1, 16)) {
+            final CompletableFuture<Void> failingFuture = scheduler.sync(failing);
+            final CompletableFuture<Void> goodFuture = scheduler.sync(good);
+
+            goodFuture.get(GroupCommitSchedulerTest.TIMEOUT, TimeUnit.MILLISECONDS);
+            try {
+                failingFuture.get(GroupCommitSchedulerTest.TIMEOUT, TimeUnit.MILLISECONDS);
+                Assert.fail();
+            } catch (final ExecutionException cause) {
+                Assert.assertSame(failing.syncError, cause.getCause());
+            }
+        }
+    }
+
+    /**
+     * A runtime exception while committing completes all futures of the batch
+     * exceptionally instead of leaving them pending.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testRuntimeExceptionsCompleteAllFutures() throws Exception {
+        final TestPath broken = this.createPath("/dir/broken", null);
+        broken.brokenPath = true;
+        final TestPath good = this.createPath("/dir/good", null);
+
+        try (GroupCommitScheduler scheduler = new GroupCommitScheduler(1, 16)) {
+            final List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+            futures.add(scheduler.sync(good));
+            futures.add(scheduler.sync(broken));
+
+            for (final CompletableFuture<Void> future : futures) {
+                try {
+                    future.get(GroupCommitSchedulerTest.TIMEOUT, TimeUnit.MILLISECONDS);
+                    Assert.fail();
+                } catch (final ExecutionException cause) {
+                    Assert.assertTrue(cause.getCause() instanceof IllegalStateException);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closing the scheduler commits the pending files right away.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testCloseFlushes() throws Exception {
+        final GroupCommitScheduler scheduler = new GroupCommitScheduler(GroupCommitSchedulerTest.LONG_WINDOW, 16);
+        final CompletableFuture<Void> first = scheduler.sync(this.createPath("/dir/first", null));
+        final CompletableFuture<Void> second = scheduler.sync(this.createPath("/dir/second", null));
+
+        scheduler.close();
+
+        first.get(GroupCommitSchedulerTest.TIMEOUT, TimeUnit.MILLISECONDS);
+        second.get(GroupCommitSchedulerTest.TIMEOUT, TimeUnit.MILLISECONDS);
+        try {
+            scheduler.sync(this.createPath("/dir/third", null));
+            Assert.fail();
+        } catch (final IllegalStateException dummy) {
+            // Expected.
+        }
+    }
+
+    /**
+     * Batches are committed as soon as they are full and do not grow beyond
+     * the maximum batch size while the committer is busy.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testBatchesAreSplit() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestPath blocking = this.createPath("/dir/blocking", release);
+
+        final GroupCommitScheduler scheduler = new GroupCommitScheduler(GroupCommitSchedulerTest.LONG_WINDOW, 2);
+        try {
+            final List<CompletableFuture<Void>> full = new ArrayList<CompletableFuture<Void>>();
+            full.add(scheduler.sync(blocking));
+            full.add(scheduler.sync(this.createPath("/dir/file0", null)));
+            Assert.assertTrue(blocking.started.await(GroupCommitSchedulerTest.TIMEOUT, TimeUnit.MILLISECONDS));
+
+            // The committer is busy, so these are collected meanwhile.
+            for (int i = 1; i <= 4; i++) {
+                full.add(scheduler.sync(this.createPath("/dir/file" + i, null)));
+            }
+            final CompletableFuture<Void> last = scheduler.sync(this.createPath("/dir/last", null));
+
+            release.countDown();
+
+            for (final CompletableFuture<Void> future : full) {
+                future.get(GroupCommitSchedulerTest.TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+            Thread.sleep(50);
+            Assert.assertFalse(last.isDone());
+
+            scheduler.close();
+            last.get(GroupCommitSchedulerTest.TIMEOUT, TimeUnit.MILLISECONDS);
+        } finally {
+            release.countDown();
+            scheduler.close();
+        }
+    }
+
+    /**
+     * Creates an empty file and a {@link TestPath} of it.
+     *
+     * @param path
+     *            The absolute path of the file.
+     * @param release
+     *            The latch that has to be released before the file is forced.
+     *            <code>null</code> to force it right away.
+     * @return The created path.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private TestPath createPath(final String path, final CountDownLatch release) throws IOException {
+        this.createFile(path, "");
+        return new TestPath(this.fileSystem, this.resolve(path), release);
+    }
+
+    /**
+     * A path that records when it is forced and may block or fail doing so.
+     *
+     */
+    private static class TestPath extends BasicPath {
+        /**
+         * Released as soon as forcing started.
+         *
+         */
+        private final CountDownLatch started = new CountDownLatch(1);
+        /**
+         * The latch that has to be released before the file is forced.
+         * <code>null</code> to force it right away.
+         *
+         */
+        private final CountDownLatch release;
+        /**
+         * The error to throw instead of forcing. <code>null</code> to force.
+         *
+         */
+        private IOException syncError;
+        /**
+         * Whether {@link #getAbsolutePath()} fails.
+         *
+         */
+        private volatile boolean brokenPath;
+        /**
+         * Whether this path was forced.
+         *
+         */
+        private volatile boolean synced;
+
+        /**
+         * Constructor of TestPath.
+         *
+         * @param fileSystem
+         *            The file system the path belongs to.
+         * @param path
+         *            The underlying path.
+         * @param release
+         *            The latch that has to be released before the file is
+         *            forced. <code>null</code> to force it right away.
+         */
+        public TestPath(final de.fdamken.iofacade.FileSystem fileSystem, final java.nio.file.Path path,
+                final CountDownLatch release) {
+            super(fileSystem, path);
+
+            this.release = release;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.iofacade.impl.basic.BasicPath#sync()
+         */
+        @Override
+        public void sync() throws IOException, FileNotFoundException {
+            this.started.countDown();
+            if (this.release != null) {
+                try {
+                    this.release.await();
+                } catch (final InterruptedException cause) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(cause);
+                }
+            }
+            if (this.syncError != null) {
+                throw this.syncError;
+            }
+            super.sync();
+            this.synced = true;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.iofacade.impl.basic.BasicPath#getAbsolutePath()
+         */
+        @Override
+        public String getAbsolutePath() {
+            if (this.brokenPath) {
+                throw new IllegalStateException("Expected");
+            }
+            return super.getAbsolutePath();
+        }
+    }
+}
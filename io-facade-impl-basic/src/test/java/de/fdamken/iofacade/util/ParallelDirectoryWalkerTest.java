@@ -0,0 +1,249 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.Path;
+import de.fdamken.iofacade.PathAttributes;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link ParallelDirectoryWalker}.
+ *
+ */
+public class ParallelDirectoryWalkerTest extends AbstractBasicFileSystemTest {
+    /**
+     * Every entry below the root directory is reported exactly once.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testWalkReportsEveryEntry() throws IOException {
+        final Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                this.createFile("/dir" + i + "/sub" + j + "/file", "");
+                expected.add("/dir" + i);
+                expected.add("/dir" + i + "/sub" + j);
+                expected.add("/dir" + i + "/sub" + j + "/file");
+            }
+        }
+
+        final Set<String> actual = ConcurrentHashMap.newKeySet();
+        ParallelDirectoryWalker.walk(this.fileSystem.getPath("/"), path -> true, path -> {
+            Assert.assertTrue("Reported twice: " + path, actual.add(path.getAbsolutePath()));
+        });
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    /**
+     * Wide directories are walked completely even though not every
+     * sub-directory is forked into its own task.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testWalkWideTree() throws IOException {
+        for (int i = 0; i < 2000; i++) {
+            this.createFile("/wide/dir" + i + "/file", "");
+        }
+
+        final AtomicInteger files = new AtomicInteger();
+        ParallelDirectoryWalker.walk(this.fileSystem.getPath("/"), path -> true, path -> {
+            if (path.isFile()) {
+                files.incrementAndGet();
+            }
+        });
+
+        Assert.assertEquals(2000, files.get());
+    }
+
+    /**
+     * Directories the filter rejects are not stepped into.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testWalkPrunesRejectedDirectories() throws IOException {
+        this.createFile("/keep/file", "");
+        this.createFile("/skip/file", "");
+
+        final Set<String> actual = ConcurrentHashMap.newKeySet();
+        ParallelDirectoryWalker.walk(this.fileSystem.getPath("/"), path -> !"skip".equals(path.getName()),
+                path -> actual.add(path.getAbsolutePath()));
+
+        Assert.assertTrue(actual.contains("/keep/file"));
+        Assert.assertFalse(actual.contains("/skip/file"));
+    }
+
+    /**
+     * An {@link UncheckedIOException} thrown by the sink is unwrapped.
+     *
+     * @throws IOException
+     *             Expected.
+     */
+    @Test(expected = IOException.class)
+    public void testWalkUnwrapsUncheckedIOException() throws IOException {
+        this.createFile("/dir/file", "");
+
+        ParallelDirectoryWalker.walk(this.fileSystem.getPath("/"), path -> true, path -> {
+            throw new UncheckedIOException(new IOException("Expected."));
+        });
+    }
+
+    /**
+     * A runtime exception thrown by the filter aborts the walk and is
+     * rethrown.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testWalkRethrowsFilterException() throws IOException {
+        this.createFile("/dir/file", "");
+
+        ParallelDirectoryWalker.walk(this.fileSystem.getPath("/"), path -> {
+            throw new IllegalStateException("Expected.");
+        }, path -> {
+            // Nothing to do.
+        });
+    }
+
+    /**
+     * After a failure, the sink is never invoked again; especially not after
+     * the walk has returned.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testSinkIsNotInvokedAfterFailure() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            this.createFile("/dir" + i + "/sub/file", "");
+        }
+
+        final AtomicInteger calls = new AtomicInteger();
+        try {
+            ParallelDirectoryWalker.walk(this.fileSystem.getPath("/"), path -> true, path -> {
+                if (calls.incrementAndGet() == 10) {
+                    throw new IllegalStateException("Expected.");
+                }
+            });
+            Assert.fail("The walk did not fail!");
+        } catch (final IllegalStateException dummy) {
+            // Expected.
+        }
+
+        final int callsOnReturn = calls.get();
+        Thread.sleep(200);
+        Assert.assertEquals(callsOnReturn, calls.get());
+        Assert.assertTrue("Too many calls: " + callsOnReturn, callsOnReturn < 600);
+    }
+
+    /**
+     * Symbolic links to directories are reported, but not stepped into, so
+     * loops do not prevent the walk from terminating.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testWalkDoesNotFollowLinks() throws IOException {
+        this.createFile("/dir/sub/file", "");
+        Files.createSymbolicLink(this.resolve("dir/sub/loop"), this.resolve("dir"));
+
+        final Set<String> actual = ConcurrentHashMap.newKeySet();
+        ParallelDirectoryWalker.walk(this.fileSystem.getPath("/"), path -> true, path -> actual.add(path.getAbsolutePath()));
+
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("/dir", "/dir/sub", "/dir/sub/file", "/dir/sub/loop")), actual);
+    }
+
+    /**
+     * Listing entries recursively terminates on looping links.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testListEntriesRecursiveWithLoop() throws IOException {
+        this.createFile("/dir/file", "");
+        Files.createSymbolicLink(this.resolve("dir/loop"), this.resolve("dir"));
+
+        Assert.assertEquals(3, this.fileSystem.getPath("/").asDirectory().listEntriesRecursive().size());
+    }
+
+    /**
+     * A file system stays usable after its pool has been released.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testWalkAfterClose() throws IOException {
+        this.createFile("/dir/file", "");
+        final Path root = this.fileSystem.getPath("/");
+
+        ParallelDirectoryWalker.walk(root, path -> true, path -> {
+            // Nothing to do.
+        });
+        this.fileSystem.close();
+
+        final AtomicInteger calls = new AtomicInteger();
+        ParallelDirectoryWalker.walk(root, path -> true, path -> calls.incrementAndGet());
+        Assert.assertEquals(2, calls.get());
+    }
+
+    /**
+     * The sink receives the attributes the walker read, without following
+     * links.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testWalkPassesLinkAttributes() throws IOException {
+        this.createFile("/dir/file", "12345");
+        Files.createSymbolicLink(this.resolve("dir/link"), this.resolve("dir"));
+
+        final Map<String, PathAttributes> actual = new ConcurrentHashMap<String, PathAttributes>();
+        ParallelDirectoryWalker.walk(this.fileSystem.getPath("/"), path -> true,
+                (path, attributes) -> actual.put(path.getAbsolutePath(), attributes));
+
+        Assert.assertEquals(3, actual.size());
+        Assert.assertEquals(PathAttributes.Type.DIRECTORY, actual.get("/dir").getType());
+        Assert.assertEquals(PathAttributes.Type.FILE, actual.get("/dir/file").getType());
+        Assert.assertEquals(5, actual.get("/dir/file").getSize());
+        Assert.assertEquals(PathAttributes.Type.OTHER, actual.get("/dir/link").getType());
+    }
+}
@@ -0,0 +1,200 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.File;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link RangeInputStream} and
+ * {@link File#openInputStream(long, long)}.
+ *
+ */
+public class RangeInputStreamTest extends AbstractBasicFileSystemTest {
+    /**
+     * The content of the test file.
+     *
+     */
+    private static final byte[] CONTENT = RangeInputStreamTest.content(100);
+
+    /**
+     * A range within the file reads exactly the bytes of the range.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testRange() throws IOException {
+        final File file = this.createFile();
+
+        try (final InputStream in = file.openInputStream(10, 20)) {
+            Assert.assertEquals(10, in.read());
+            Assert.assertArrayEquals(Arrays.copyOfRange(RangeInputStreamTest.CONTENT, 11, 30), RangeInputStreamTest.readAll(in));
+            Assert.assertEquals(-1, in.read());
+        }
+    }
+
+    /**
+     * A range that exceeds the end of the file ends with the file and a range
+     * that starts after it is empty.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testClippedAtEndOfFile() throws IOException {
+        final File file = this.createFile();
+
+        try (final InputStream in = file.openInputStream(90, 50)) {
+            Assert.assertArrayEquals(Arrays.copyOfRange(RangeInputStreamTest.CONTENT, 90, 100), RangeInputStreamTest.readAll(in));
+        }
+        try (final InputStream in = file.openInputStream(200, 10)) {
+            Assert.assertEquals(-1, in.read());
+        }
+    }
+
+    /**
+     * Skipping stays within the range.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testSkip() throws IOException {
+        final File file = this.createFile();
+
+        try (final InputStream in = file.openInputStream(10, 20)) {
+            Assert.assertEquals(5, in.skip(5));
+            Assert.assertEquals(15, in.read());
+            Assert.assertEquals(14, in.skip(100));
+            Assert.assertEquals(-1, in.read());
+            Assert.assertEquals(0, in.skip(1));
+        }
+
+        try (final RangeInputStream in = new RangeInputStream(new ByteArrayInputStream(RangeInputStreamTest.CONTENT), 20)) {
+            Assert.assertEquals(20, in.available());
+            Assert.assertEquals(20, in.skip(30));
+            Assert.assertEquals(0, in.available());
+            Assert.assertEquals(-1, in.read(new byte[10], 0, 10));
+        }
+    }
+
+    /**
+     * An empty range reads nothing.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testZeroLength() throws IOException {
+        final File file = this.createFile();
+
+        try (final InputStream in = file.openInputStream(10, 0)) {
+            Assert.assertEquals(0, in.read(new byte[10], 0, 0));
+            Assert.assertEquals(-1, in.read(new byte[10], 0, 10));
+            Assert.assertEquals(-1, in.read());
+            Assert.assertEquals(0, in.skip(10));
+        }
+    }
+
+    /**
+     * Negative offsets and lengths are rejected.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testNegativeArguments() throws IOException {
+        final File file = this.createFile();
+
+        try {
+            file.openInputStream(-1, 10).close();
+            Assert.fail();
+        } catch (final IllegalArgumentException dummy) {
+            // Expected.
+        }
+        try {
+            file.openInputStream(0, -1).close();
+            Assert.fail();
+        } catch (final IllegalArgumentException dummy) {
+            // Expected.
+        }
+        try {
+            new RangeInputStream(new ByteArrayInputStream(RangeInputStreamTest.CONTENT), -1).close();
+            Assert.fail();
+        } catch (final IllegalArgumentException dummy) {
+            // Expected.
+        }
+    }
+
+    /**
+     * Creates the file <code>/file</code> with the test content.
+     *
+     * @return The created file.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private File createFile() throws IOException {
+        Files.write(this.resolve("file"), RangeInputStreamTest.CONTENT);
+        return this.fileSystem.getPath("/file").asFile();
+    }
+
+    /**
+     * Reads the given stream to its end.
+     *
+     * @param in
+     *            The stream to read.
+     * @return The read bytes.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static byte[] readAll(final InputStream in) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[7];
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            result.write(buffer, 0, count);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Creates content whose bytes are their positions.
+     *
+     * @param length
+     *            The length of the content. Must not exceed 128.
+     * @return The created content.
+     */
+    private static byte[] content(final int length) {
+        final byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) i;
+        }
+        return result;
+    }
+}
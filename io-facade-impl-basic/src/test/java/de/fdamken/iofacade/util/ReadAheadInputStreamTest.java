@@ -0,0 +1,343 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.File;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link ReadAheadInputStream}.
+ *
+ */
+public class ReadAheadInputStreamTest extends AbstractBasicFileSystemTest {
+    /**
+     * The buffer size used by the tests.
+     *
+     */
+    private static final int BUFFER_SIZE = 4096;
+    /**
+     * The file sizes to test, around the buffer size and up to 1 MiB.
+     *
+     */
+    private static final int[] SIZES = { 0, 1, ReadAheadInputStreamTest.BUFFER_SIZE - 1, ReadAheadInputStreamTest.BUFFER_SIZE,
+            ReadAheadInputStreamTest.BUFFER_SIZE + 1, 3 * ReadAheadInputStreamTest.BUFFER_SIZE, 100000, 1024 * 1024 };
+
+    /**
+     * Positional reads on a {@link FileChannel} return exactly the content of
+     * the file.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testPositional() throws IOException {
+        for (final int size : ReadAheadInputStreamTest.SIZES) {
+            final byte[] content = ReadAheadInputStreamTest.content(size);
+            final java.nio.file.Path file = this.resolve("file" + size);
+            Files.write(file, content);
+
+            try (final InputStream in = new ReadAheadInputStream(FileChannel.open(file, StandardOpenOption.READ),
+                    ReadAheadInputStreamTest.BUFFER_SIZE, 4)) {
+                Assert.assertArrayEquals(content, ReadAheadInputStreamTest.readAll(in));
+                Assert.assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    /**
+     * Sequential reads on a channel without positional reads return exactly
+     * the content of the file.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testSequential() throws IOException {
+        for (final int size : ReadAheadInputStreamTest.SIZES) {
+            final byte[] content = ReadAheadInputStreamTest.content(size);
+            Files.write(this.resolve("file" + size), content);
+            final File file = this.fileSystem.getPath("/file" + size).asFile();
+
+            try (final InputStream in = new ReadAheadInputStream(new StreamSeekableByteChannel(file,
+                    EnumSet.of(StandardOpenOption.READ)), ReadAheadInputStreamTest.BUFFER_SIZE, 4)) {
+                Assert.assertArrayEquals(content, ReadAheadInputStreamTest.readAll(in));
+                Assert.assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    /**
+     * Reading starts at the current position of the channel.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testStartsAtPosition() throws IOException {
+        final byte[] content = ReadAheadInputStreamTest.content(3 * ReadAheadInputStreamTest.BUFFER_SIZE);
+        final java.nio.file.Path file = this.resolve("file");
+        Files.write(file, content);
+
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channel.position(1000);
+        try (final InputStream in = new ReadAheadInputStream(channel, ReadAheadInputStreamTest.BUFFER_SIZE, 4)) {
+            Assert.assertEquals(1000 % 251, in.read());
+            Assert.assertEquals(content.length - 1001, ReadAheadInputStreamTest.readAll(in).length);
+        }
+    }
+
+    /**
+     * An error of a positional read is thrown to the consumer.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testPositionalError() throws IOException {
+        final java.nio.file.Path file = this.resolve("file");
+        Files.write(file, ReadAheadInputStreamTest.content(100));
+
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try (final InputStream in = new ReadAheadInputStream(channel, ReadAheadInputStreamTest.BUFFER_SIZE, 4)) {
+            channel.close();
+            try {
+                in.read();
+                Assert.fail();
+            } catch (final IOException dummy) {
+                // Expected.
+            }
+        }
+    }
+
+    /**
+     * An error of a sequential read is thrown to the consumer once the
+     * buffers before it were consumed.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testSequentialError() throws IOException {
+        try (final InputStream in = new ReadAheadInputStream(new FailingChannel(2 * ReadAheadInputStreamTest.BUFFER_SIZE),
+                ReadAheadInputStreamTest.BUFFER_SIZE, 4)) {
+            long skipped = 0;
+            while (skipped < 2 * ReadAheadInputStreamTest.BUFFER_SIZE) {
+                skipped += in.skip(2 * ReadAheadInputStreamTest.BUFFER_SIZE - skipped);
+            }
+            try {
+                in.read();
+                Assert.fail();
+            } catch (final IOException cause) {
+                Assert.assertEquals("broken", cause.getMessage());
+            }
+        }
+    }
+
+    /**
+     * {@link File#openInputStream(java.nio.file.OpenOption...)} reads ahead
+     * only with {@link File.ReadOption#READ_AHEAD}.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testOpenInputStream() throws IOException {
+        final byte[] content = ReadAheadInputStreamTest.content(1024 * 1024 + 1);
+        Files.write(this.resolve("file"), content);
+        final File file = this.fileSystem.getPath("/file").asFile();
+
+        try (final InputStream in = file.openInputStream(File.ReadOption.READ_AHEAD)) {
+            Assert.assertTrue(in instanceof ReadAheadInputStream);
+            Assert.assertArrayEquals(content, ReadAheadInputStreamTest.readAll(in));
+        }
+        try (final InputStream in = file.openInputStream(StandardOpenOption.READ)) {
+            Assert.assertFalse(in instanceof ReadAheadInputStream);
+        }
+    }
+
+    /**
+     * Reads the given stream to its end, alternating single bytes and chunks
+     * of different sizes.
+     *
+     * @param in
+     *            The stream to read.
+     * @return The read bytes.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private static byte[] readAll(final InputStream in) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[3 * ReadAheadInputStreamTest.BUFFER_SIZE];
+        for (int i = 1;; i++) {
+            final int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            result.write(b);
+
+            final int count = in.read(buffer, 0, i * 1000 % buffer.length + 1);
+            if (count < 0) {
+                break;
+            }
+            result.write(buffer, 0, count);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Creates content that repeats every 251 bytes only.
+     *
+     * @param length
+     *            The length of the content.
+     * @return The created content.
+     */
+    private static byte[] content(final int length) {
+        final byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) (i % 251);
+        }
+        return result;
+    }
+
+    /**
+     * A channel that returns zeros up to a given position and then fails.
+     *
+     */
+    private static class FailingChannel implements SeekableByteChannel {
+        /**
+         * The position to fail at.
+         *
+         */
+        private final long failAt;
+        /**
+         * The current position.
+         *
+         */
+        private long position;
+
+        /**
+         * Constructor of FailingChannel.
+         *
+         * @param failAt
+         *            The position to fail at.
+         */
+        FailingChannel(final long failAt) {
+            this.failAt = failAt;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.SeekableByteChannel#read(java.nio.ByteBuffer)
+         */
+        @Override
+        public synchronized int read(final ByteBuffer dst) throws IOException {
+            if (this.position >= this.failAt) {
+                throw new IOException("broken");
+            }
+
+            final int result = (int) Math.min(dst.remaining(), this.failAt - this.position);
+            dst.position(dst.position() + result);
+            this.position += result;
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.SeekableByteChannel#write(java.nio.ByteBuffer)
+         */
+        @Override
+        public int write(final ByteBuffer src) {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.SeekableByteChannel#position()
+         */
+        @Override
+        public synchronized long position() {
+            return this.position;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.SeekableByteChannel#position(long)
+         */
+        @Override
+        public SeekableByteChannel position(final long newPosition) {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.SeekableByteChannel#size()
+         */
+        @Override
+        public long size() {
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.SeekableByteChannel#truncate(long)
+         */
+        @Override
+        public SeekableByteChannel truncate(final long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.Channel#isOpen()
+         */
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.nio.channels.Channel#close()
+         */
+        @Override
+        public void close() {
+            // Nothing to do.
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.File;
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link StreamSeekableByteChannel}.
+ *
+ */
+public class StreamSeekableByteChannelTest extends AbstractBasicFileSystemTest {
+    /**
+     * Seeking backward and forward on a read-only channel reads the bytes at
+     * the new position, into heap and direct buffers.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testSeek() throws IOException {
+        final byte[] content = StreamSeekableByteChannelTest.content(50000);
+        final File file = this.createFile(content);
+
+        try (final StreamSeekableByteChannel channel = new StreamSeekableByteChannel(file,
+                EnumSet.of(StandardOpenOption.READ))) {
+            Assert.assertEquals(content.length, channel.size());
+            for (final int position : new int[] { 0, 30000, 100, 100, 40000, 20000, 49990 }) {
+                channel.position(position);
+                final ByteBuffer buffer = position % 200 == 0 ? ByteBuffer.allocateDirect(10) : ByteBuffer.allocate(10);
+                Assert.assertEquals(10, channel.read(buffer));
+                Assert.assertEquals(position + 10, channel.position());
+
+                final byte[] actual = new byte[10];
+                buffer.flip();
+                buffer.get(actual);
+                Assert.assertArrayEquals(Arrays.copyOfRange(content, position, position + 10), actual);
+            }
+        }
+    }
+
+    /**
+     * Reading at or past the end of the file returns <code>-1</code> and
+     * reading across the end returns the remaining bytes only.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testReadPastEnd() throws IOException {
+        final File file = this.createFile(StreamSeekableByteChannelTest.content(100));
+
+        try (final StreamSeekableByteChannel channel = new StreamSeekableByteChannel(file,
+                EnumSet.of(StandardOpenOption.READ))) {
+            channel.position(95);
+            Assert.assertEquals(5, channel.read(ByteBuffer.allocate(10)));
+            Assert.assertEquals(-1, channel.read(ByteBuffer.allocate(10)));
+
+            channel.position(1000);
+            Assert.assertEquals(-1, channel.read(ByteBuffer.allocate(10)));
+            Assert.assertEquals(1000, channel.position());
+
+            channel.position(50);
+            Assert.assertEquals(10, channel.read(ByteBuffer.allocate(10)));
+        }
+    }
+
+    /**
+     * Read-only channels cannot be written to.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test(expected = NonWritableChannelException.class)
+    public void testReadOnly() throws IOException {
+        final File file = this.createFile(StreamSeekableByteChannelTest.content(10));
+
+        try (final StreamSeekableByteChannel channel = new StreamSeekableByteChannel(file,
+                EnumSet.of(StandardOpenOption.READ))) {
+            channel.write(ByteBuffer.allocate(1));
+        }
+    }
+
+    /**
+     * Writing past the end of the file fills the gap with zeros and the
+     * changes are written back on close only.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testSparseWrite() throws IOException {
+        final File file = this.createFile("abc".getBytes(StandardCharsets.US_ASCII));
+
+        try (final StreamSeekableByteChannel channel = new StreamSeekableByteChannel(file,
+                EnumSet.of(StandardOpenOption.READ, StandardOpenOption.WRITE))) {
+            channel.position(10);
+            Assert.assertEquals(3, channel.write(ByteBuffer.wrap("xyz".getBytes(StandardCharsets.US_ASCII))));
+            Assert.assertEquals(13, channel.position());
+            Assert.assertEquals(13, channel.size());
+            Assert.assertEquals(3, Files.size(this.resolve("file")));
+
+            final ByteBuffer buffer = ByteBuffer.allocate(13);
+            channel.position(0);
+            Assert.assertEquals(13, channel.read(buffer));
+            Assert.assertArrayEquals("abc\0\0\0\0\0\0\0xyz".getBytes(StandardCharsets.US_ASCII), buffer.array());
+        }
+
+        Assert.assertArrayEquals("abc\0\0\0\0\0\0\0xyz".getBytes(StandardCharsets.US_ASCII),
+                Files.readAllBytes(this.resolve("file")));
+    }
+
+    /**
+     * With {@link StandardOpenOption#APPEND}, every write goes to the end of
+     * the file regardless of the position.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testAppend() throws IOException {
+        final File file = this.createFile("abc".getBytes(StandardCharsets.US_ASCII));
+
+        try (final StreamSeekableByteChannel channel = new StreamSeekableByteChannel(file,
+                EnumSet.of(StandardOpenOption.APPEND))) {
+            Assert.assertEquals(3, channel.position());
+            channel.position(0);
+            channel.write(ByteBuffer.wrap("de".getBytes(StandardCharsets.US_ASCII)));
+            Assert.assertEquals(5, channel.position());
+            channel.write(ByteBuffer.wrap("f".getBytes(StandardCharsets.US_ASCII)));
+        }
+
+        Assert.assertArrayEquals("abcdef".getBytes(StandardCharsets.US_ASCII), Files.readAllBytes(this.resolve("file")));
+    }
+
+    /**
+     * With {@link StandardOpenOption#TRUNCATE_EXISTING}, the file is written
+     * back even if nothing was written.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testTruncateExisting() throws IOException {
+        final File file = this.createFile(StreamSeekableByteChannelTest.content(100));
+
+        try (final StreamSeekableByteChannel channel = new StreamSeekableByteChannel(file,
+                EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            Assert.assertEquals(0, channel.size());
+        }
+        Assert.assertEquals(0, Files.size(this.resolve("file")));
+
+        Files.write(this.resolve("file"), StreamSeekableByteChannelTest.content(100));
+        try (final StreamSeekableByteChannel channel = new StreamSeekableByteChannel(file,
+                EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            channel.write(ByteBuffer.wrap("abc".getBytes(StandardCharsets.US_ASCII)));
+        }
+        Assert.assertArrayEquals("abc".getBytes(StandardCharsets.US_ASCII), Files.readAllBytes(this.resolve("file")));
+    }
+
+    /**
+     * Creates the file <code>/file</code> with the given content.
+     *
+     * @param content
+     *            The content of the file.
+     * @return The created file.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private File createFile(final byte[] content) throws IOException {
+        Files.write(this.resolve("file"), content);
+        return this.fileSystem.getPath("/file").asFile();
+    }
+
+    /**
+     * Creates content that repeats every 251 bytes only.
+     *
+     * @param length
+     *            The length of the content.
+     * @return The created content.
+     */
+    private static byte[] content(final int length) {
+        final byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) (i % 251);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,124 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.watch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link EventCoalescer}.
+ *
+ */
+public class EventCoalescerTest extends AbstractBasicFileSystemTest {
+    /**
+     * Consecutive events of the same path are merged.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testMerge() throws IOException {
+        final EventCoalescer coalescer = new EventCoalescer();
+        coalescer.add(this.event(DirectoryEvent.Kind.CREATED, "/created"));
+        coalescer.add(this.event(DirectoryEvent.Kind.MODIFIED, "/created"));
+        coalescer.add(this.event(DirectoryEvent.Kind.MODIFIED, "/modified"));
+        coalescer.add(this.event(DirectoryEvent.Kind.MODIFIED, "/modified"));
+        coalescer.add(this.event(DirectoryEvent.Kind.MODIFIED, "/deleted"));
+        coalescer.add(this.event(DirectoryEvent.Kind.DELETED, "/deleted"));
+        coalescer.add(this.event(DirectoryEvent.Kind.DELETED, "/replaced"));
+        coalescer.add(this.event(DirectoryEvent.Kind.CREATED, "/replaced"));
+
+        Assert.assertEquals(Arrays.asList("CREATED /created", "MODIFIED /modified", "DELETED /deleted",
+                "MODIFIED /replaced"), EventCoalescerTest.describe(coalescer.drain()));
+    }
+
+    /**
+     * A path that is created and deleted again results in no event at all.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testCreatedAndDeletedCancelOut() throws IOException {
+        final EventCoalescer coalescer = new EventCoalescer();
+        coalescer.add(this.event(DirectoryEvent.Kind.CREATED, "/temp"));
+        coalescer.add(this.event(DirectoryEvent.Kind.MODIFIED, "/temp"));
+        coalescer.add(this.event(DirectoryEvent.Kind.DELETED, "/temp"));
+
+        Assert.assertTrue(coalescer.isEmpty());
+        Assert.assertTrue(coalescer.drain().isEmpty());
+    }
+
+    /**
+     * Draining returns the events in order of their first occurrence and
+     * empties the coalescer.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testDrain() throws IOException {
+        final EventCoalescer coalescer = new EventCoalescer();
+        coalescer.addAll(Arrays.asList(this.event(DirectoryEvent.Kind.CREATED, "/b"), this.event(DirectoryEvent.Kind.CREATED,
+                "/a"), this.event(DirectoryEvent.Kind.MODIFIED, "/b")));
+
+        Assert.assertFalse(coalescer.isEmpty());
+        Assert.assertEquals(Arrays.asList("CREATED /b", "CREATED /a"), EventCoalescerTest.describe(coalescer.drain()));
+        Assert.assertTrue(coalescer.isEmpty());
+
+        coalescer.add(this.event(DirectoryEvent.Kind.DELETED, "/b"));
+        Assert.assertEquals(Arrays.asList("DELETED /b"), EventCoalescerTest.describe(coalescer.drain()));
+    }
+
+    /**
+     * Creates an event.
+     *
+     * @param kind
+     *            The kind of the event.
+     * @param path
+     *            The absolute path of the event.
+     * @return The created event.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private DirectoryEvent event(final DirectoryEvent.Kind kind, final String path) throws IOException {
+        return new DirectoryEvent(kind, this.fileSystem.getPath(path));
+    }
+
+    /**
+     * Describes the given events by their kinds and absolute paths.
+     *
+     * @param events
+     *            The events to describe.
+     * @return The descriptions.
+     */
+    private static List<String> describe(final List<DirectoryEvent> events) {
+        final List<String> result = new ArrayList<String>();
+        for (final DirectoryEvent event : events) {
+            result.add(event.getKind() + " " + event.getPath().getAbsolutePath());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,179 @@
+/* This file is part of IO Facade.
+ *
+ * Copyright (C) 2015  Fabian Damken
+ *
+ * IO Facade is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IO Facade is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with IO Facade.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fdamken.iofacade.watch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.iofacade.impl.basic.AbstractBasicFileSystemTest;
+
+/**
+ * Tests of {@link PollingDirectoryWatch}.
+ *
+ */
+public class PollingDirectoryWatchTest extends AbstractBasicFileSystemTest {
+    /**
+     * The maximum time to wait for an event in milliseconds.
+     *
+     */
+    private static final long TIMEOUT = 10000;
+
+    /**
+     * The events received so far.
+     *
+     */
+    private final List<DirectoryEvent> events = new ArrayList<DirectoryEvent>();
+
+    /**
+     * Creating, modifying and deleting a file is reported.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testCreateModifyDelete() throws Exception {
+        this.createDirectory("/w");
+        try (DirectoryWatch watch = this.watch("/w")) {
+            Assert.assertTrue(watch.isOpen());
+
+            Files.write(this.resolve("w/file"), new byte[] { 1 });
+            this.awaitEvent(DirectoryEvent.Kind.CREATED, "/w/file");
+
+            Files.write(this.resolve("w/file"), new byte[] { 2, 3 }, StandardOpenOption.APPEND);
+            this.awaitEvent(DirectoryEvent.Kind.MODIFIED, "/w/file");
+
+            Files.delete(this.resolve("w/file"));
+            this.awaitEvent(DirectoryEvent.Kind.DELETED, "/w/file");
+        }
+    }
+
+    /**
+     * New sub-directories are watched, including the contents that were
+     * created before they were registered.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testNewSubDirectory() throws Exception {
+        this.createDirectory("/w");
+        try (DirectoryWatch watch = this.watch("/w")) {
+            Assert.assertTrue(watch.isOpen());
+
+            Files.createDirectories(this.resolve("w/sub/nested"));
+            Files.createFile(this.resolve("w/sub/nested/first"));
+            this.awaitEvent(DirectoryEvent.Kind.CREATED, "/w/sub");
+            this.awaitEvent(DirectoryEvent.Kind.CREATED, "/w/sub/nested/first");
+
+            Files.createFile(this.resolve("w/sub/nested/second"));
+            this.awaitEvent(DirectoryEvent.Kind.CREATED, "/w/sub/nested/second");
+
+            Files.delete(this.resolve("w/sub/nested/first"));
+            this.awaitEvent(DirectoryEvent.Kind.DELETED, "/w/sub/nested/first");
+        }
+    }
+
+    /**
+     * Invalid intervals are rejected.
+     *
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    @Test
+    public void testInvalidIntervals() throws IOException {
+        this.createDirectory("/w");
+        for (final long[] intervals : new long[][] { { 0, 10 }, { 20, 10 } }) {
+            try {
+                new PollingDirectoryWatch(this.fileSystem.getPath("/w").asDirectory(), path -> true, newEvents -> {
+                    // Nothing to do.
+                }, intervals[0], intervals[1]).close();
+                Assert.fail();
+            } catch (final IllegalArgumentException dummy) {
+                // Expected.
+            }
+        }
+    }
+
+    /**
+     * Closing the watch stops it.
+     *
+     * @throws Exception
+     *             If any error occurs.
+     */
+    @Test
+    public void testClose() throws Exception {
+        this.createDirectory("/w");
+        final DirectoryWatch watch = this.watch("/w");
+
+        watch.close();
+
+        Assert.assertFalse(watch.isOpen());
+    }
+
+    /**
+     * Starts watching the given directory.
+     *
+     * @param path
+     *            The absolute path of the directory to watch.
+     * @return The started watch.
+     * @throws IOException
+     *             If any I/O error occurs.
+     */
+    private DirectoryWatch watch(final String path) throws IOException {
+        return new PollingDirectoryWatch(this.fileSystem.getPath(path).asDirectory(), dummy -> true, newEvents -> {
+            synchronized (this.events) {
+                this.events.addAll(newEvents);
+                this.events.notifyAll();
+            }
+        }, 10, 50);
+    }
+
+    /**
+     * Waits until an event of the given kind was received for the given path.
+     *
+     * @param kind
+     *            The expected kind.
+     * @param path
+     *            The absolute path of the expected event.
+     * @throws InterruptedException
+     *             If the current thread was interrupted while waiting.
+     */
+    private void awaitEvent(final DirectoryEvent.Kind kind, final String path) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + PollingDirectoryWatchTest.TIMEOUT;
+        synchronized (this.events) {
+            while (true) {
+                for (final DirectoryEvent event : this.events) {
+                    if (event.getKind() == kind && event.getPath().getAbsolutePath().equals(path)) {
+                        return;
+                    }
+                }
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    Assert.fail("No " + kind + " event of " + path + " in " + this.events);
+                }
+                this.events.wait(remaining);
+            }
+        }
+    }
+}